@@ -0,0 +1,48 @@
+package demo.albertattard.uniquecode;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/* The alphabets that can be requested by name, each compiled once, together with the alphabet used by default */
+public class Alphabets {
+
+    public static final String CUSTOM = "custom";
+
+    private final Map<String, Alphabet> alphabetsByName = new LinkedHashMap<>();
+    private final Alphabet defaultAlphabet;
+
+    public Alphabets(final String defaultAlphabet, final String customSymbols) throws IllegalArgumentException {
+        Stream.of(Alphabet.ALPHANUMERIC, Alphabet.CROCKFORD_BASE32, Alphabet.DIGITS, Alphabet.HEX, Alphabet.UNAMBIGUOUS)
+                .forEach(alphabet -> alphabetsByName.put(alphabet.getName(), alphabet));
+        if (customSymbols != null && !customSymbols.trim().isEmpty()) {
+            alphabetsByName.put(CUSTOM, new Alphabet(CUSTOM, customSymbols.trim()));
+        }
+
+        this.defaultAlphabet = defaultAlphabet == null || defaultAlphabet.trim().isEmpty()
+                ? Alphabet.ALPHANUMERIC
+                : get(defaultAlphabet);
+    }
+
+    public static Alphabets defaults() {
+        return new Alphabets(Alphabet.ALPHANUMERIC.getName(), null);
+    }
+
+    public Alphabet getDefault() {
+        return defaultAlphabet;
+    }
+
+    /* Returns the alphabet with the given name, or the default alphabet when no name is given */
+    public Alphabet get(final String name) throws IllegalArgumentException {
+        if (name == null || name.trim().isEmpty()) {
+            return defaultAlphabet;
+        }
+
+        final Alphabet alphabet = alphabetsByName.get(name.trim().toLowerCase(Locale.ROOT));
+        if (alphabet == null) {
+            throw new IllegalArgumentException("Invalid alphabet " + name + ".  Alphabet must be one of " + String.join(", ", alphabetsByName.keySet()) + ".");
+        }
+        return alphabet;
+    }
+}
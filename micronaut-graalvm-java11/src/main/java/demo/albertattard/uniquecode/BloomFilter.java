@@ -0,0 +1,135 @@
+package demo.albertattard.uniquecode;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * A Bloom filter of codes, which may wrongly report that a code was added but never misses a code that was added.  The
+ * positions of a code are derived from two 64-bit hashes of the code (Kirsch and Mitzenmacher double hashing) and the
+ * bits are kept in an atomic array, so that codes can be added and looked up concurrently without locking.
+ */
+public class BloomFilter {
+
+    /* Identifies a snapshot file ("UCBF") and its format version */
+    private static final int MAGIC = 0x55434246;
+    private static final int VERSION = 1;
+
+    private final AtomicLongArray words;
+    private final long numberOfBits;
+    private final int numberOfHashFunctions;
+
+    private BloomFilter(final long[] words, final int numberOfHashFunctions) {
+        this.words = new AtomicLongArray(words);
+        this.numberOfBits = (long) words.length * Long.SIZE;
+        this.numberOfHashFunctions = numberOfHashFunctions;
+    }
+
+    /* Creates an empty filter that is expected to report false positives at the given rate once it holds the given number of codes */
+    public static BloomFilter create(final long expectedCodes, final double falsePositiveRate) {
+        if (expectedCodes < 1) {
+            throw new IllegalArgumentException("Invalid number of expected codes " + expectedCodes + ".  The number of expected codes must be at least 1.");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid false positive rate " + falsePositiveRate + ".  The false positive rate must be between 0 and 1 both exclusive.");
+        }
+
+        final double ln2 = Math.log(2);
+        final long numberOfBits = Math.max(Long.SIZE, (long) Math.ceil(-expectedCodes * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        final int numberOfHashFunctions = Math.max(1, (int) Math.round((double) numberOfBits / expectedCodes * ln2));
+        return new BloomFilter(new long[Math.toIntExact((numberOfBits + Long.SIZE - 1) / Long.SIZE)], numberOfHashFunctions);
+    }
+
+    public static BloomFilter readFrom(final InputStream inputStream) throws IOException {
+        final DataInputStream input = new DataInputStream(inputStream);
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("The stream does not contain a Bloom filter snapshot");
+        }
+
+        final int numberOfHashFunctions = input.readInt();
+        final long[] words = new long[input.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = input.readLong();
+        }
+        return new BloomFilter(words, numberOfHashFunctions);
+    }
+
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        final DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(numberOfHashFunctions);
+        output.writeInt(words.length());
+        for (int i = 0; i < words.length(); i++) {
+            output.writeLong(words.get(i));
+        }
+        output.flush();
+    }
+
+    public void add(final String code) {
+        final long hash1 = hash(code);
+        final long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < numberOfHashFunctions; i++) {
+            final long bit = index(hash1 + i * hash2);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+
+            long current;
+            while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                /* Another thread changed the word meanwhile, try again */
+            }
+        }
+    }
+
+    public boolean mightContain(final String code) {
+        final long hash1 = hash(code);
+        final long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < numberOfHashFunctions; i++) {
+            final long bit = index(hash1 + i * hash2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* The probability of a false positive given the bits that are set so far */
+    public double estimatedFalsePositiveRate() {
+        long bitsSet = 0;
+        for (int i = 0; i < words.length(); i++) {
+            bitsSet += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) bitsSet / numberOfBits, numberOfHashFunctions);
+    }
+
+    public long getNumberOfBits() {
+        return numberOfBits;
+    }
+
+    public int getNumberOfHashFunctions() {
+        return numberOfHashFunctions;
+    }
+
+    private long index(final long combinedHash) {
+        return (combinedHash >>> 1) % numberOfBits;
+    }
+
+    /* FNV-1a over the characters of the code, followed by a mix to spread the bits of short codes */
+    private static long hash(final String code) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < code.length(); i++) {
+            hash = (hash ^ code.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /* The 64-bit finaliser of MurmurHash3 */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,18 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+/*
+ * The lookups so far.  A hit is a lookup answered by the cache, which saved the read units of a strongly consistent
+ * read, while the evictions are the entries removed to keep the cache within its maximum size.
+ */
+@Data
+public class CodeLookupMetrics {
+
+    private final long lookups;
+    private final long hits;
+    private final double hitRate;
+    private final double savedReadUnits;
+    private final int size;
+    private final long evictions;
+}
@@ -0,0 +1,258 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Reserves codes ahead of time, in batches, so that a request only needs to claim one of the reserved codes instead of
+ * generating and saving a new one.  Each reserved code is saved as a placeholder item that carries the identity of the
+ * container that reserved it and the time until which the reservation is valid.  A code is claimed with a conditional
+ * update that only succeeds while this container still holds the reservation, thus a code is never issued twice, even
+ * when an abandoned reservation is taken over by another container.  Reservations that are still queued when the
+ * container shuts down are released.  A container restored from a checkpoint takes a new identity and drops the
+ * reservations queued before the checkpoint, as every container restored from the same checkpoint holds these too.
+ */
+public class CodePool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodePool.class);
+
+    private static final int MAXIMUM_CLAIM_ATTEMPTS = 3;
+    private static final int MAXIMUM_REFILL_ATTEMPTS = 3;
+
+    private final DataAccessGateway gateway;
+    private final CodeGenerationService codeGenerationService;
+    private final CodePoolSettings settings;
+    private final Executor refillExecutor;
+    private final Clock clock;
+    private volatile String containerId = UUID.randomUUID().toString();
+    private final Map<Integer, Pool> poolsByLength = new HashMap<>();
+
+    public CodePool(final DataAccessGateway gateway, final CodeGenerationService codeGenerationService,
+                    final CodePoolSettings settings, final Executor refillExecutor, final Clock clock) {
+        this.gateway = gateway;
+        this.codeGenerationService = codeGenerationService;
+        this.settings = settings;
+        this.refillExecutor = refillExecutor;
+        this.clock = clock;
+
+        if (settings.isEnabled()) {
+            settings.getLengths().forEach(length -> poolsByLength.put(length, new Pool(length)));
+        }
+    }
+
+    public static CodePool create(final DataAccessGateway gateway, final CodeGenerationService codeGenerationService,
+                                  final CodePoolSettings settings) {
+        final Executor refillExecutor = settings.isEnabled() ? Executors.newSingleThreadExecutor(CodePool::createRefillThread) : null;
+        final CodePool pool = new CodePool(gateway, codeGenerationService, settings, refillExecutor, Clock.systemUTC());
+        pool.start();
+        return pool;
+    }
+
+    public static CodePool disabled() {
+        return new CodePool(null, null, CodePoolSettings.disabled(), null, Clock.systemUTC());
+    }
+
+    /* Takes over the abandoned reservations (when configured) and fills the pools in the background */
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+
+        if (settings.isReclaimOnStartup()) {
+            refillExecutor.execute(this::reclaimAbandonedReservations);
+        }
+        poolsByLength.values().forEach(Pool::scheduleRefill);
+    }
+
+    /* Claims a reserved code of the given length and alphabet, returning nothing when the pool cannot provide one */
+    public Optional<String> claim(final int length, final String alphabet, final CreateUniqueCode.Builder builder) {
+        final Pool pool = poolsByLength.get(length);
+        if (pool == null || !codeGenerationService.isDefaultAlphabet(alphabet)) {
+            /* The pools only hold codes made from the default alphabet */
+            return Optional.empty();
+        }
+
+        try {
+            for (int attempt = 1; attempt <= MAXIMUM_CLAIM_ATTEMPTS; attempt++) {
+                final CodeReservation reservation = pool.poll();
+                if (reservation == null) {
+                    LOGGER.debug("The pool of codes of length {} is empty", length);
+                    return Optional.empty();
+                }
+
+                if (reservation.isExpired(clock.instant())) {
+                    /* The reservation may have been taken over by another container already */
+                    LOGGER.debug("Skipping the expired reservation of code {}", reservation.getCode());
+                    continue;
+                }
+
+                if (!reservation.getReservedBy().equals(containerId)) {
+                    /* Reserved before the container was restored from a checkpoint, thus shared with other containers */
+                    LOGGER.debug("Skipping the reservation of code {} made before the restore", reservation.getCode());
+                    continue;
+                }
+
+                final CreateUniqueCode item = builder.code(reservation.getCode()).build();
+                if (gateway.claimReservedCode(item, reservation.getReservedBy())) {
+                    return Optional.of(item.getCode());
+                }
+            }
+
+            return Optional.empty();
+        } finally {
+            if (pool.size() <= settings.getLowWaterMark()) {
+                pool.scheduleRefill();
+            }
+        }
+    }
+
+    /* Takes over the expired reservations left behind by containers that did not shut down cleanly */
+    public void reclaimAbandonedReservations() {
+        final String reservedBy = containerId;
+        final Instant now = clock.instant();
+        final int limit = settings.getSize() * poolsByLength.size();
+
+        int reclaimed = 0;
+        for (final CodeReservation expired : gateway.findExpiredReservations(now, limit)) {
+            final Pool pool = poolsByLength.get(expired.getCode().length());
+            if (pool == null || pool.size() >= settings.getSize()) {
+                continue;
+            }
+
+            final Instant reservedUntil = now.plus(settings.getLeaseDuration());
+            if (gateway.takeOverReservation(expired, reservedBy, reservedUntil)) {
+                pool.offer(new CodeReservation(expired.getCode(), reservedBy, reservedUntil));
+                reclaimed++;
+            }
+        }
+
+        LOGGER.info("Reclaimed {} abandoned reservations", reclaimed);
+    }
+
+    /*
+     * Takes a new identity after the container is restored from a checkpoint, such as a Lambda SnapStart snapshot, and
+     * drops the reservations queued before the checkpoint.  Every container restored from the same checkpoint holds the
+     * same reservations under the same identity, thus these are left to expire and be taken over instead of claimed.
+     */
+    public void afterRestore() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+
+        final List<String> dropped = new ArrayList<>();
+        poolsByLength.values().forEach(pool -> pool.drainTo(dropped));
+        containerId = UUID.randomUUID().toString();
+        LOGGER.info("Dropped {} reservations made before the checkpoint", dropped.size());
+
+        poolsByLength.values().forEach(Pool::scheduleRefill);
+    }
+
+    @Override
+    public void close() {
+        if (refillExecutor instanceof ExecutorService) {
+            ((ExecutorService) refillExecutor).shutdownNow();
+        }
+
+        final List<String> codes = new ArrayList<>();
+        poolsByLength.values().forEach(pool -> pool.drainTo(codes));
+        if (!codes.isEmpty()) {
+            LOGGER.debug("Releasing {} reserved codes", codes.size());
+            gateway.releaseReservedCodes(codes, containerId);
+        }
+    }
+
+    private static Thread createRefillThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "code-pool-refill");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private class Pool {
+
+        private final int length;
+        private final Queue<CodeReservation> reservations = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean refillScheduled = new AtomicBoolean();
+
+        private Pool(final int length) {
+            this.length = length;
+        }
+
+        private CodeReservation poll() {
+            final CodeReservation reservation = reservations.poll();
+            if (reservation != null) {
+                size.decrementAndGet();
+            }
+            return reservation;
+        }
+
+        private void offer(final CodeReservation reservation) {
+            reservations.offer(reservation);
+            size.incrementAndGet();
+        }
+
+        private int size() {
+            return size.get();
+        }
+
+        /* Drains the queue, keeping the codes reserved under the current identity of the container */
+        private void drainTo(final List<String> codes) {
+            for (CodeReservation reservation; (reservation = poll()) != null; ) {
+                if (reservation.getReservedBy().equals(containerId)) {
+                    codes.add(reservation.getCode());
+                }
+            }
+        }
+
+        private void scheduleRefill() {
+            if (!refillScheduled.compareAndSet(false, true)) {
+                return;
+            }
+
+            refillExecutor.execute(() -> {
+                try {
+                    refill();
+                } catch (final RuntimeException e) {
+                    LOGGER.warn("Failed to refill the pool of codes of length {}", length, e);
+                } finally {
+                    refillScheduled.set(false);
+                }
+            });
+        }
+
+        private void refill() {
+            for (int attempt = 1; attempt <= MAXIMUM_REFILL_ATTEMPTS && size() < settings.getSize(); attempt++) {
+                final int missing = settings.getSize() - size();
+                final Set<String> candidates = new HashSet<>(missing);
+                /* Short codes have few combinations, thus bound the number of codes generated */
+                for (int i = 0; i < missing * 2 && candidates.size() < missing; i++) {
+                    candidates.add(codeGenerationService.generate(length));
+                }
+
+                final String reservedBy = containerId;
+                final Instant reservedUntil = clock.instant().plus(settings.getLeaseDuration());
+                final List<String> reserved = gateway.reserveUniqueCodes(candidates, reservedBy, reservedUntil);
+                reserved.forEach(code -> offer(new CodeReservation(code, reservedBy, reservedUntil)));
+                LOGGER.debug("Reserved {} of {} codes of length {} (Attempt {} of {})", reserved.size(), missing, length, attempt, MAXIMUM_REFILL_ATTEMPTS);
+            }
+        }
+    }
+}
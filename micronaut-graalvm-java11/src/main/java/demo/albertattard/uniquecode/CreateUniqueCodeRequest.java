@@ -8,9 +8,18 @@ import lombok.Data;
 public class CreateUniqueCodeRequest {
 
     public static final int DEFAULT_LENGTH = 8;
+    public static final int DEFAULT_COUNT = 1;
 
     private String usedBy;
     private int length = DEFAULT_LENGTH;
+    /* The name of the alphabet, such as hex, or null for the alphabet configured by default */
+    private String alphabet;
+    /* The number of codes to create, all with the same attributes */
+    private int count = DEFAULT_COUNT;
     private String reference;
     private String description;
+    /* Returns the codes already served to an earlier request with the same key, such as a retry, instead of creating new ones */
+    private String idempotencyKey;
+    /* Warms up the function without creating a code, used by the scheduled warm-up events */
+    private boolean warmUp;
 }
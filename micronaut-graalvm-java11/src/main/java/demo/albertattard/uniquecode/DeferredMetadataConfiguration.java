@@ -0,0 +1,29 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+import java.time.Duration;
+
+@Factory
+public class DeferredMetadataConfiguration {
+
+    @Singleton
+    @Bean(preDestroy = "close")
+    public DeferredMetadataWriter deferredMetadataWriter(final DataAccessGateway gateway,
+                                                         final CapacityAccounting capacityAccounting,
+                                                         @Value("${unique-code.deferred-metadata.enabled:false}") final boolean enabled,
+                                                         @Value("${unique-code.deferred-metadata.capacity:1000}") final int capacity,
+                                                         @Value("${unique-code.deferred-metadata.flush-timeout:PT5S}") final String flushTimeout,
+                                                         @Value("${unique-code.hedging.enabled:false}") final boolean hedging) {
+        if (enabled && hedging) {
+            throw new IllegalStateException("Invalid configuration.  The deferred metadata cannot be combined with hedging, as the hedged "
+                    + "writes save the codes with their metadata.  Disable either unique-code.deferred-metadata.enabled or unique-code.hedging.enabled.");
+        }
+
+        final DeferredMetadataSettings settings = new DeferredMetadataSettings(enabled, capacity, Duration.parse(flushTimeout));
+        return DeferredMetadataWriter.create(gateway, settings, capacityAccounting);
+    }
+}
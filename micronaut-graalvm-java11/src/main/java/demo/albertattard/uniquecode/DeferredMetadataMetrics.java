@@ -0,0 +1,18 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+/*
+ * The metadata writes so far.  A failure is an attempt that did not reach DynamoDB, which is retried when it failed for
+ * a transient reason, and the dead-lettered writes are the codes whose metadata was given up on, while the pending
+ * writes are the codes whose metadata is not written yet.
+ */
+@Data
+public class DeferredMetadataMetrics {
+
+    private final long deferred;
+    private final long written;
+    private final long failures;
+    private final long deadLettered;
+    private final int pending;
+}
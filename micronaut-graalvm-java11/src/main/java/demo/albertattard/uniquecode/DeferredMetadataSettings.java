@@ -0,0 +1,30 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class DeferredMetadataSettings {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final Duration flushTimeout;
+
+    public DeferredMetadataSettings(final boolean enabled, final int capacity, final Duration flushTimeout) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity + ".  Capacity must be at least 1.");
+        }
+        if (flushTimeout.isNegative()) {
+            throw new IllegalArgumentException("Invalid flush timeout " + flushTimeout + ".  Flush timeout must not be negative.");
+        }
+
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.flushTimeout = flushTimeout;
+    }
+
+    public static DeferredMetadataSettings disabled() {
+        return new DeferredMetadataSettings(false, 1000, Duration.ofSeconds(5));
+    }
+}
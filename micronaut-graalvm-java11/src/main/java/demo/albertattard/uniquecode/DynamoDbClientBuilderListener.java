@@ -0,0 +1,18 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+
+import javax.inject.Singleton;
+
+/* Customises the DynamoDB client of the AWS SDK module, whose attempts are retried by RetryPolicy only, as the retries of the SDK would multiply its attempts */
+@Singleton
+public class DynamoDbClientBuilderListener implements BeanCreatedEventListener<DynamoDbClientBuilder> {
+
+    @Override
+    public DynamoDbClientBuilder onCreated(final BeanCreatedEvent<DynamoDbClientBuilder> event) {
+        return event.getBean().overrideConfiguration(configuration -> configuration.retryPolicy(RetryPolicy.none()));
+    }
+}
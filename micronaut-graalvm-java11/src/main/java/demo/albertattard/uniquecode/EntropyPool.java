@@ -0,0 +1,151 @@
+package demo.albertattard.uniquecode;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Hands out random bits taken from a SecureRandom without paying for the SecureRandom (and its lock) on every call.
+ * The bits are drawn in bulk into blocks and each caller claims the next unused word of the current block with an
+ * atomic increment.  Once half of a block is used, the next block is filled in the background (when an executor is
+ * provided), so that callers rarely have to wait for the SecureRandom.  A word is never handed out twice.  Every block
+ * is stamped with the reseed generation it was drawn in, and a block drawn before the last reseed, such as one filled in
+ * the background while the pool is reseeded, is discarded instead of handed out.
+ */
+public class EntropyPool implements RandomSource {
+
+    /* 8192 words, or 64 KB, per block */
+    public static final int DEFAULT_BLOCK_SIZE = 8192;
+
+    private final SecureRandom secureRandom;
+    private final int blockSize;
+    private final Executor refillExecutor;
+    private final AtomicReference<Block> current;
+    private final AtomicReference<Block> spare = new AtomicReference<>();
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+    private final AtomicInteger generation = new AtomicInteger();
+
+    public EntropyPool(final SecureRandom secureRandom, final int blockSize, final Executor refillExecutor) {
+        if (blockSize < 2) {
+            throw new IllegalArgumentException("Invalid block size " + blockSize + ".  Block size must be at least 2.");
+        }
+
+        this.secureRandom = secureRandom;
+        this.blockSize = blockSize;
+        this.refillExecutor = refillExecutor;
+        this.current = new AtomicReference<>(fill());
+    }
+
+    public static EntropyPool withBackgroundRefill() {
+        return new EntropyPool(createSecureRandom(), DEFAULT_BLOCK_SIZE, Executors.newSingleThreadExecutor(EntropyPool::createRefillThread));
+    }
+
+    @Override
+    public long nextLong() {
+        while (true) {
+            final Block block = current.get();
+            final int index = block.next.getAndIncrement();
+            if (index < block.words.length) {
+                if (index == block.words.length / 2) {
+                    scheduleRefill();
+                }
+                return block.words[index];
+            }
+
+            replace(block);
+        }
+    }
+
+    /* Reseeds the SecureRandom and drops the blocks drawn before, which would be the same in every restored container */
+    @Override
+    public void reseed() {
+        reseed(secureRandom);
+
+        /* Moved on only once reseeded, thus the blocks stamped with the new generation are all drawn after the reseed */
+        generation.incrementAndGet();
+        spare.set(null);
+        current.set(fill());
+    }
+
+    private void replace(final Block exhausted) {
+        Block replacement = spare.getAndSet(null);
+        if (replacement == null || isStale(replacement)) {
+            replacement = fill();
+        }
+
+        if (!current.compareAndSet(exhausted, replacement)) {
+            /* Another thread replaced the exhausted block first.  Keep this one, which is still unused, for later. */
+            spare.compareAndSet(null, replacement);
+        }
+    }
+
+    private boolean isStale(final Block block) {
+        return block.generation != generation.get();
+    }
+
+    private void scheduleRefill() {
+        if (refillExecutor == null || spare.get() != null || !refillScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        refillExecutor.execute(() -> {
+            try {
+                spare.compareAndSet(null, fill());
+            } finally {
+                refillScheduled.set(false);
+            }
+        });
+    }
+
+    private Block fill() {
+        /* Read before drawing, thus a block that is drawn while the pool is reseeded is stamped as stale */
+        final int drawnIn = generation.get();
+        final byte[] bytes = new byte[blockSize * Long.BYTES];
+        secureRandom.nextBytes(bytes);
+
+        final long[] words = new long[blockSize];
+        ByteBuffer.wrap(bytes).asLongBuffer().get(words);
+        return new Block(words, drawnIn);
+    }
+
+    static SecureRandom createSecureRandom() {
+        /* The DRBG (NIST SP 800-90A) produces random bytes about three times faster than the default NativePRNG */
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (final NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    static void reseed(final SecureRandom secureRandom) {
+        try {
+            secureRandom.reseed();
+        } catch (final UnsupportedOperationException e) {
+            /* Only the DRBG can be reseeded.  The others are given a fresh seed instead, which supplements their state. */
+            secureRandom.setSeed(secureRandom.generateSeed(32));
+        }
+    }
+
+    private static Thread createRefillThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "entropy-pool-refill");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static class Block {
+
+        private final long[] words;
+        private final int generation;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Block(final long[] words, final int generation) {
+            this.words = words;
+            this.generation = generation;
+        }
+    }
+}
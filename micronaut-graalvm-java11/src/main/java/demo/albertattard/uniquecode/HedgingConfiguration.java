@@ -0,0 +1,22 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+import java.time.Duration;
+
+@Factory
+public class HedgingConfiguration {
+
+    @Singleton
+    public HedgedCodeWriter hedgedCodeWriter(final DataAccessGateway gateway,
+                                             final CapacityAccounting capacityAccounting,
+                                             @Value("${unique-code.hedging.enabled:false}") final boolean enabled,
+                                             @Value("${unique-code.hedging.percentile:95}") final double percentile,
+                                             @Value("${unique-code.hedging.initial-delay:PT0.05S}") final String initialDelay,
+                                             @Value("${unique-code.hedging.minimum-delay:PT0.005S}") final String minimumDelay) {
+        final HedgingSettings settings = new HedgingSettings(enabled, percentile, Duration.parse(initialDelay), Duration.parse(minimumDelay));
+        return HedgedCodeWriter.create(gateway, settings, capacityAccounting);
+    }
+}
@@ -0,0 +1,20 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+import java.time.Duration;
+
+@Factory
+public class IdempotencyConfiguration {
+
+    @Singleton
+    public IdempotentRequests idempotentRequests(final DataAccessGateway gateway,
+                                                 @Value("${unique-code.idempotency.enabled:true}") final boolean enabled,
+                                                 @Value("${unique-code.idempotency.maximum-size:10000}") final int maximumSize,
+                                                 @Value("${unique-code.idempotency.time-to-live:PT24H}") final String timeToLive) {
+        final IdempotencySettings settings = new IdempotencySettings(enabled, maximumSize, Duration.parse(timeToLive));
+        return IdempotentRequests.create(gateway, settings);
+    }
+}
@@ -0,0 +1,27 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+
+import javax.inject.Singleton;
+
+/* Primes the function when the application context starts, which happens during the init phase of the Lambda */
+@Singleton
+public class PrimingListener implements ApplicationEventListener<StartupEvent> {
+
+    private final Primer primer;
+    private final boolean enabled;
+
+    public PrimingListener(final Primer primer, @Value("${unique-code.priming.enabled:true}") final boolean enabled) {
+        this.primer = primer;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void onApplicationEvent(final StartupEvent event) {
+        if (enabled) {
+            primer.prime();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+import java.time.Duration;
+
+@Factory
+public class RetryConfiguration {
+
+    @Singleton
+    public RetryPolicy retryPolicy(@Value("${unique-code.retry.maximum-attempts:5}") final int maximumAttempts,
+                                   @Value("${unique-code.retry.initial-backoff:PT0.05S}") final String initialBackoff,
+                                   @Value("${unique-code.retry.maximum-backoff:PT1S}") final String maximumBackoff,
+                                   @Value("${unique-code.retry.time-budget:PT5S}") final String timeBudget) {
+        final RetrySettings settings = new RetrySettings(maximumAttempts, Duration.parse(initialBackoff), Duration.parse(maximumBackoff),
+                Duration.parse(timeBudget));
+        return RetryPolicy.create(settings);
+    }
+}
@@ -0,0 +1,29 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import javax.inject.Singleton;
+import java.time.Duration;
+
+@Factory
+public class WriteGovernorConfiguration {
+
+    @Singleton
+    public WriteGovernor writeGovernor(final DynamoDbClient client,
+                                       @Value("${unique-code.write-governor.enabled:false}") final boolean enabled,
+                                       @Value("${unique-code.write-governor.maximum-wait:PT0.2S}") final String maximumWait,
+                                       @Value("${unique-code.write-governor.write-capacity:0}") final double writeCapacity) {
+        if (!enabled) {
+            return WriteGovernor.disabled();
+        }
+
+        /* The write capacity is read from the table unless it is configured */
+        if (writeCapacity > 0) {
+            return WriteGovernor.create(writeCapacity, Duration.parse(maximumWait));
+        }
+
+        return WriteGovernor.forTable(client, "UniqueCodes", Duration.parse(maximumWait));
+    }
+}
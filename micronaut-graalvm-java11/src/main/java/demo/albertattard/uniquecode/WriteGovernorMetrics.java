@@ -0,0 +1,20 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/*
+ * The state of the write governor.  The write capacity is the rate, in write capacity units per second, the governor
+ * lets the writes through at, and the fill is the share of the bucket that is available for a burst of writes.
+ */
+@Data
+public class WriteGovernorMetrics {
+
+    private final double writeCapacity;
+    private final double fill;
+    private final long acquisitions;
+    private final long waits;
+    private final Duration waited;
+    private final long throttles;
+}
@@ -0,0 +1,164 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeferredMetadataWriterTest {
+
+    private final DataAccessGateway gateway = mock(DataAccessGateway.class);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final List<Long> backoffs = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("should write the metadata of the deferred codes in the background")
+    void shouldWriteTheMetadataOfTheDeferredCodesInTheBackground() {
+        when(gateway.saveMetadata(any())).thenReturn(true);
+
+        final DeferredMetadataWriter writer = createWriter();
+        writer.start();
+        writer.defer(item("12345678", "description-test"));
+        writer.defer(item("23456789", "description-test"));
+
+        assertThat(writer.flush(Duration.ofSeconds(5))).isTrue();
+        verify(gateway, times(2)).saveMetadata(any());
+
+        final DeferredMetadataMetrics metrics = writer.metrics();
+        assertThat(metrics.getDeferred()).isEqualTo(2);
+        assertThat(metrics.getWritten()).isEqualTo(2);
+        assertThat(metrics.getPending()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should try to write the metadata again, backing off between the attempts, when the write is throttled")
+    void shouldTryToWriteTheMetadataAgainBackingOffBetweenTheAttemptsWhenTheWriteIsThrottled() {
+        when(gateway.saveMetadata(any()))
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("Simulating a throttled write").build())
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("Simulating a throttled write").build())
+                .thenReturn(true);
+
+        final DeferredMetadataWriter writer = createWriter();
+        writer.start();
+        writer.defer(item("12345678", "description-test"));
+
+        assertThat(writer.flush(Duration.ofSeconds(5))).isTrue();
+        verify(gateway, times(3)).saveMetadata(any());
+        assertThat(backoffs).contains(TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(writer.metrics().getFailures()).isEqualTo(2);
+        assertThat(writer.metrics().getWritten()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should dead-letter the metadata when the write is still throttled after the last attempt")
+    void shouldDeadLetterTheMetadataWhenTheWriteIsStillThrottledAfterTheLastAttempt() {
+        when(gateway.saveMetadata(any()))
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("Simulating a throttled write").build());
+
+        final DeferredMetadataWriter writer = createWriter();
+        writer.start();
+        writer.defer(item("12345678", "description-test"));
+
+        assertThat(writer.flush(Duration.ofSeconds(5))).isTrue();
+        verify(gateway, times(6)).saveMetadata(any());
+        assertThat(backoffs).containsExactly(
+                TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(200),
+                TimeUnit.MILLISECONDS.toNanos(400), TimeUnit.MILLISECONDS.toNanos(800));
+
+        final DeferredMetadataMetrics metrics = writer.metrics();
+        assertThat(metrics.getFailures()).isEqualTo(6);
+        assertThat(metrics.getDeadLettered()).isEqualTo(1);
+        assertThat(metrics.getWritten()).isEqualTo(0);
+        assertThat(metrics.getPending()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should dead-letter the metadata without trying again when the write fails for a reason retrying does not fix")
+    void shouldDeadLetterTheMetadataWithoutTryingAgainWhenTheWriteFailsForAReasonRetryingDoesNotFix() {
+        when(gateway.saveMetadata(any()))
+                .thenThrow(DynamoDbException.builder().message("Simulating a denied write").statusCode(400).build())
+                .thenReturn(true);
+
+        final DeferredMetadataWriter writer = createWriter();
+        writer.start();
+        writer.defer(item("12345678", "description-test"));
+        writer.defer(item("23456789", "description-test"));
+
+        assertThat(writer.flush(Duration.ofSeconds(5))).isTrue();
+        verify(gateway, times(2)).saveMetadata(any());
+        assertThat(backoffs).isEmpty();
+
+        final DeferredMetadataMetrics metrics = writer.metrics();
+        assertThat(metrics.getFailures()).isEqualTo(1);
+        assertThat(metrics.getDeadLettered()).isEqualTo(1);
+        assertThat(metrics.getWritten()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not defer a code without metadata")
+    void shouldNotDeferACodeWithoutMetadata() {
+        final DeferredMetadataWriter writer = createWriter();
+        writer.start();
+        writer.defer(item("12345678", null));
+
+        assertThat(writer.flush(Duration.ZERO)).isTrue();
+        assertThat(writer.metrics().getDeferred()).isEqualTo(0);
+        verify(gateway, never()).saveMetadata(any());
+    }
+
+    @Test
+    @DisplayName("should write the pending metadata when closed")
+    void shouldWriteThePendingMetadataWhenClosed() {
+        when(gateway.saveMetadata(any())).thenReturn(true);
+
+        /* The background thread is not started, thus the metadata is only written when the writer is closed */
+        final DeferredMetadataWriter writer = createWriter();
+        writer.defer(item("12345678", "description-test"));
+        assertThat(writer.flush(Duration.ZERO)).isFalse();
+
+        writer.close();
+
+        verify(gateway, times(1)).saveMetadata(any());
+        assertThat(writer.metrics().getPending()).isEqualTo(0);
+    }
+
+    private DeferredMetadataWriter createWriter() {
+        final DeferredMetadataSettings settings = new DeferredMetadataSettings(true, 10, Duration.ZERO);
+        return new DeferredMetadataWriter(gateway, settings, executor, nanos -> {
+            if (nanos >= TimeUnit.MILLISECONDS.toNanos(50)) {
+                backoffs.add(nanos);
+            }
+            Thread.sleep(1);
+        });
+    }
+
+    private static CreateUniqueCode item(final String code, final String description) {
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setDescription(description);
+        return CreateUniqueCode.builder(request)
+                .createdOn("2020-02-22T22:22:22.222Z")
+                .code(code)
+                .build();
+    }
+}
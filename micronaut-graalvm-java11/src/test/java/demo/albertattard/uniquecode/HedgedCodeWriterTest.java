@@ -0,0 +1,215 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToLongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgedCodeWriterTest {
+
+    @Test
+    @DisplayName("should lower the p99 write latency when the slowest writes are hedged")
+    void shouldLowerTheP99WriteLatencyWhenTheSlowestWritesAreHedged() {
+        /* One in every 25 writes (4%) takes 100 milliseconds while the others take about 2 milliseconds */
+        final int numberOfRequests = 500;
+
+        final long unhedged = p99InMillis(numberOfRequests, new HedgingSettings(false, 90, Duration.ofMillis(20), Duration.ofMillis(5)));
+        final long hedged = p99InMillis(numberOfRequests, new HedgingSettings(true, 90, Duration.ofMillis(20), Duration.ofMillis(5)));
+
+        assertThat(unhedged)
+                .describedAs("The p99 write latency without hedging")
+                .isGreaterThanOrEqualTo(100);
+        assertThat(hedged)
+                .describedAs("The p99 write latency with hedging")
+                .isLessThan(50);
+    }
+
+    @Test
+    @DisplayName("should return once the hedge saves the code of the slow write, leaving a single code behind")
+    void shouldReturnOnceTheHedgeSavesTheCodeOfTheSlowWriteLeavingASingleCodeBehind() {
+        final AtomicInteger puts = new AtomicInteger();
+        final LatencyInjectingDynamoDbClient client = new LatencyInjectingDynamoDbClient(code -> puts.incrementAndGet() == 1 ? 100 : 1);
+        final HedgedCodeWriter writer = HedgedCodeWriter.create(new DataAccessGateway(client), new HedgingSettings(true, 95, Duration.ofMillis(20), Duration.ofMillis(5)));
+
+        final long start = System.nanoTime();
+        assertThat(writer.save(item("CODE"))).isTrue();
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(client.codes()).containsExactly("CODE");
+
+        /* The slow write lands on the code saved by its hedge */
+        awaitUntil(() -> client.writes() == 2);
+        assertThat(client.codes()).containsExactly("CODE");
+
+        final HedgingMetrics metrics = writer.metrics();
+        assertThat(metrics.getWrites()).isEqualTo(1);
+        assertThat(metrics.getHedges()).isEqualTo(1);
+        assertThat(metrics.getHedgeWins()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not hedge a write that returns within the hedging delay")
+    void shouldNotHedgeAWriteThatReturnsWithinTheHedgingDelay() {
+        final LatencyInjectingDynamoDbClient client = new LatencyInjectingDynamoDbClient(code -> 1);
+        /* The first write is slowed down by class loading, so the delay is kept well above the injected latency */
+        final HedgedCodeWriter writer = HedgedCodeWriter.create(new DataAccessGateway(client), new HedgingSettings(true, 95, Duration.ofSeconds(1), Duration.ofMillis(5)));
+
+        assertThat(writer.save(item("FAST"))).isTrue();
+        assertThat(client.codes()).containsExactly("FAST");
+        assertThat(writer.metrics().getHedges()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should return false when both the slow write and its hedge find the code taken by another request")
+    void shouldReturnFalseWhenBothTheSlowWriteAndItsHedgeFindTheCodeTakenByAnotherRequest() {
+        final AtomicInteger puts = new AtomicInteger();
+        final LatencyInjectingDynamoDbClient client = new LatencyInjectingDynamoDbClient(code -> puts.incrementAndGet() == 1 ? 100 : 1);
+        client.add("TAKEN");
+        final HedgedCodeWriter writer = HedgedCodeWriter.create(new DataAccessGateway(client), new HedgingSettings(true, 95, Duration.ofMillis(20), Duration.ofMillis(5)));
+
+        assertThat(writer.save(item("TAKEN"))).isFalse();
+        assertThat(writer.metrics().getHedges()).isEqualTo(1);
+        assertThat(writer.metrics().getHedgeWins()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should not hedge a slow write when the write governor has no capacity to spare")
+    void shouldNotHedgeASlowWriteWhenTheWriteGovernorHasNoCapacityToSpare() {
+        final LatencyInjectingDynamoDbClient client = new LatencyInjectingDynamoDbClient(code -> 100);
+        /* The bucket holds the one unit taken by the slow write */
+        final DataAccessGateway gateway = new DataAccessGateway(client, WriteGovernor.create(1, Duration.ofSeconds(1)));
+        final HedgedCodeWriter writer = HedgedCodeWriter.create(gateway, new HedgingSettings(true, 95, Duration.ofMillis(20), Duration.ofMillis(5)));
+
+        assertThat(writer.save(item("CODE"))).isTrue();
+        assertThat(client.writes()).isEqualTo(1);
+        assertThat(writer.metrics().getHedges()).isEqualTo(0);
+        assertThat(writer.metrics().getHedgesSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should save the code on the calling thread, without hedging, when the writer threads are all busy")
+    void shouldSaveTheCodeOnTheCallingThreadWithoutHedgingWhenTheWriterThreadsAreAllBusy() {
+        final LatencyInjectingDynamoDbClient client = new LatencyInjectingDynamoDbClient(code -> 1);
+        final Executor saturated = runnable -> {
+            throw new RejectedExecutionException("The writer threads are all busy");
+        };
+        final HedgedCodeWriter writer = new HedgedCodeWriter(new DataAccessGateway(client), new HedgingSettings(true, 95, Duration.ofMillis(20), Duration.ofMillis(5)), saturated);
+
+        assertThat(writer.save(item("CODE"))).isTrue();
+        assertThat(client.codes()).containsExactly("CODE");
+        assertThat(writer.metrics().getHedges()).isEqualTo(0);
+        assertThat(writer.metrics().getHedgesSkipped()).isEqualTo(1);
+    }
+
+    private static long p99InMillis(final int numberOfRequests, final HedgingSettings settings) {
+        final AtomicInteger puts = new AtomicInteger();
+        final LatencyInjectingDynamoDbClient client = new LatencyInjectingDynamoDbClient(code -> puts.incrementAndGet() % 25 == 0 ? 100 : 2);
+        final DataAccessGateway gateway = new DataAccessGateway(client);
+        final HedgedCodeWriter writer = HedgedCodeWriter.create(gateway, settings);
+        final CodeGenerationService codeGenerationService = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+
+        final long[] latencies = new long[numberOfRequests];
+        for (int i = 0; i < numberOfRequests; i++) {
+            final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(new CreateUniqueCodeRequest()).createdOn("2020-02-22T22:22:22.222Z");
+            final long start = System.nanoTime();
+            final CreateUniqueCode item = builder.code(codeGenerationService.generate(8)).build();
+            final boolean saved = settings.isEnabled() ? writer.save(item) : gateway.saveUniqueCode(item);
+            latencies[i] = System.nanoTime() - start;
+            assertThat(saved).isTrue();
+        }
+
+        /* Every request leaves exactly one code behind, as a hedge saves the same code as the slow write */
+        assertThat(client.codes()).hasSize(numberOfRequests);
+
+        Arrays.sort(latencies);
+        return TimeUnit.NANOSECONDS.toMillis(latencies[(int) Math.ceil(numberOfRequests * 0.99) - 1]);
+    }
+
+    private static CreateUniqueCode item(final String code) {
+        return CreateUniqueCode.builder(new CreateUniqueCodeRequest()).createdOn("2020-02-22T22:22:22.222Z").code(code).build();
+    }
+
+    private static void awaitUntil(final BooleanSupplier condition) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime())
+                    .describedAs("Timed out waiting for the condition")
+                    .isLessThan(deadline);
+            sleep(10);
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /* An in-memory stand-in for the UniqueCodes table that delays every put by the latency given for its code */
+    private static class LatencyInjectingDynamoDbClient implements DynamoDbClient {
+
+        private final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+        private final AtomicInteger writes = new AtomicInteger();
+        private final ToLongFunction<String> latencyInMillis;
+
+        private LatencyInjectingDynamoDbClient(final ToLongFunction<String> latencyInMillis) {
+            this.latencyInMillis = latencyInMillis;
+        }
+
+        private void add(final String code) {
+            items.put(code, Map.of("Code", AttributeValue.builder().s(code).build()));
+        }
+
+        private List<String> codes() {
+            return List.copyOf(items.keySet());
+        }
+
+        private int writes() {
+            return writes.get();
+        }
+
+        /* Honours the condition of the puts, which write a code unless it was created by another request */
+        @Override
+        public PutItemResponse putItem(final PutItemRequest request) {
+            final String code = request.item().get("Code").s();
+            sleep(latencyInMillis.applyAsLong(code));
+
+            final AttributeValue createdOn = request.hasExpressionAttributeValues() ? request.expressionAttributeValues().get(":CreatedOn") : null;
+            final Map<String, AttributeValue> existing = items.compute(code, (key, item) ->
+                    item == null || createdOn != null && createdOn.equals(item.get("CreatedOn")) ? request.item() : item);
+            writes.incrementAndGet();
+            if (existing != request.item()) {
+                throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+            }
+            return PutItemResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
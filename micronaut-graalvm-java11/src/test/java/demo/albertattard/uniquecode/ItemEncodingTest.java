@@ -0,0 +1,103 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ItemEncodingTest {
+
+    private static final String CREATED_ON = "2077-04-27T12:34:56.789+02:00[Europe/Berlin]";
+
+    private final ItemEncoding compact = new ItemEncoding(true, 256);
+
+    @Test
+    @DisplayName("should store every attribute as a string in the legacy schema")
+    void shouldStoreEveryAttributeAsAStringInTheLegacySchema() {
+        final CreateUniqueCode item = item("description-test ".repeat(32));
+
+        final Map<String, AttributeValue> attributes = ItemEncoding.legacy().encode(item);
+        assertThat(attributes).containsOnlyKeys("Code", "CreatedOn", "UsedBy", "Description");
+        assertThat(attributes.values()).allSatisfy(value -> assertThat(value.s()).isNotNull());
+        assertThat(attributes).isEqualTo(DataAccessGateway.toAttributesByName(item));
+    }
+
+    @Test
+    @DisplayName("should store the creation time as epoch milliseconds and compress the large descriptions in the compact schema")
+    void shouldStoreTheCreationTimeAsEpochMillisecondsAndCompressTheLargeDescriptionsInTheCompactSchema() {
+        final CreateUniqueCode item = item("description-test ".repeat(64));
+
+        final Map<String, AttributeValue> attributes = compact.encode(item);
+        assertThat(attributes.get("Code").s()).isEqualTo("12345678");
+        assertThat(attributes.get("CreatedOn").n()).isEqualTo("3386745296789");
+        assertThat(attributes.get("Description").b().asByteArray().length).isLessThan(item.getDescription().length());
+        assertThat(DataAccessGateway.writeUnitsOf(attributes)).isLessThan(DataAccessGateway.writeUnitsOf(ItemEncoding.legacy().encode(item)));
+
+        assertThat(ItemEncoding.createdOnOf(attributes.get("CreatedOn"))).isEqualTo("2077-04-27T10:34:56.789Z");
+        assertThat(ItemEncoding.descriptionOf(attributes.get("Description"))).isEqualTo(item.getDescription());
+    }
+
+    @Test
+    @DisplayName("should keep the descriptions below the threshold, or that do not get smaller, as strings")
+    void shouldKeepTheDescriptionsBelowTheThresholdOrThatDoNotGetSmallerAsStrings() {
+        assertThat(compact.description("description-test").s()).isEqualTo("description-test");
+
+        /* A short description gets larger when compressed, as the compressed form carries a header and a checksum */
+        assertThat(new ItemEncoding(true, 1).description("description-test").s()).isEqualTo("description-test");
+    }
+
+    @Test
+    @DisplayName("should decode the attributes written in the legacy schema whichever schema is in use")
+    void shouldDecodeTheAttributesWrittenInTheLegacySchemaWhicheverSchemaIsInUse() {
+        assertThat(ItemEncoding.createdOnOf(AttributeValue.builder().s(CREATED_ON).build())).isEqualTo(CREATED_ON);
+        assertThat(ItemEncoding.descriptionOf(AttributeValue.builder().s("description-test").build())).isEqualTo("description-test");
+        assertThat(ItemEncoding.createdOnOf(null)).isNull();
+        assertThat(ItemEncoding.descriptionOf(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("should encode the same creation time the same, so that the conditional writes compare it")
+    void shouldEncodeTheSameCreationTimeTheSameSoThatTheConditionalWritesCompareIt() {
+        assertThat(compact.createdOn(CREATED_ON)).isEqualTo(compact.createdOn(CREATED_ON));
+        assertThat(compact.createdOn("not-a-date-time").s()).isEqualTo("not-a-date-time");
+    }
+
+    @Test
+    @DisplayName("should store the request token as its 16 bytes in the compact schema and tell the requests apart")
+    void shouldStoreTheRequestTokenAsIts16BytesInTheCompactSchemaAndTellTheRequestsApart() {
+        final CreateUniqueCode first = item("description-test");
+        final CreateUniqueCode second = item("description-test");
+
+        assertThat(compact.requestId(first.getRequestId()).b().asByteArray()).hasSize(16);
+        assertThat(compact.requestId(first.getRequestId())).isEqualTo(compact.requestId(first.getRequestId()));
+        assertThat(compact.requestId(first.getRequestId())).isNotEqualTo(compact.requestId(second.getRequestId()));
+        assertThat(ItemEncoding.legacy().requestId(first.getRequestId()).s()).isEqualTo(first.getRequestId());
+        assertThat(compact.requestId("not-a-uuid").s()).isEqualTo("not-a-uuid");
+
+        /* The codes of the same request share its token */
+        assertThat(first.withCode("23456789").getRequestId()).isEqualTo(first.getRequestId());
+    }
+
+    @Test
+    @DisplayName("should fail to decode a corrupt description and reject an invalid threshold")
+    void shouldFailToDecodeACorruptDescriptionAndRejectAnInvalidThreshold() {
+        final AttributeValue corrupt = AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[]{1, 2, 3})).build();
+        assertThatThrownBy(() -> ItemEncoding.descriptionOf(corrupt)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new ItemEncoding(true, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static CreateUniqueCode item(final String description) {
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("used-by-test");
+        request.setDescription(description);
+        return CreateUniqueCode.builder(request)
+                .createdOn(CREATED_ON)
+                .code("12345678")
+                .build();
+    }
+}
@@ -13,6 +13,7 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.BillingMode;
 import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
 import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
 
 import java.net.URI;
@@ -79,8 +80,16 @@ public class LocalDynamoDbExtension implements AfterAllCallback, BeforeAllCallba
         withClient(client ->
                 client.createTable(builder ->
                         builder.tableName("UniqueCodes")
-                                .attributeDefinitions(b -> b.attributeName("Code").attributeType(ScalarAttributeType.S).build())
+                                .attributeDefinitions(
+                                        b -> b.attributeName("Code").attributeType(ScalarAttributeType.S).build(),
+                                        b -> b.attributeName("ReservationStatus").attributeType(ScalarAttributeType.S).build(),
+                                        b -> b.attributeName("ReservedUntil").attributeType(ScalarAttributeType.N).build())
                                 .keySchema(b -> b.attributeName("Code").keyType(KeyType.HASH))
+                                .globalSecondaryIndexes(b -> b.indexName("Reservations")
+                                        .keySchema(k -> k.attributeName("ReservationStatus").keyType(KeyType.HASH),
+                                                k -> k.attributeName("ReservedUntil").keyType(KeyType.RANGE))
+                                        .projection(p -> p.projectionType(ProjectionType.INCLUDE).nonKeyAttributes("ReservedBy"))
+                                        .provisionedThroughput(t -> t.readCapacityUnits(1L).writeCapacityUnits(1L)))
                                 .billingMode(BillingMode.PROVISIONED)
                                 .provisionedThroughput(b -> b.readCapacityUnits(3L).writeCapacityUnits(3L))
                 )
@@ -0,0 +1,39 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Requires;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Fails the start of the application when the asynchronous client is selected together with a feature that only the
+ * synchronous gateway supports.  The codes saved through the asynchronous gateway are not governed, accounted for,
+ * hedged or saved without their metadata, thus these features would otherwise be turned off without notice.
+ */
+@Context
+@Requires(property = "unique-code.dynamodb.client", value = "async")
+public class AsyncClientValidator {
+
+    public AsyncClientValidator(final WriteGovernor writeGovernor, final CapacityAccounting capacityAccounting,
+                                final HedgedCodeWriter hedgedCodeWriter, final DeferredMetadataWriter metadataWriter) {
+        final List<String> unsupported = new ArrayList<>();
+        if (writeGovernor.isEnabled()) {
+            unsupported.add("unique-code.write-governor.enabled");
+        }
+        if (capacityAccounting.isEnabled()) {
+            unsupported.add("unique-code.capacity-accounting.enabled");
+        }
+        if (hedgedCodeWriter.isEnabled()) {
+            unsupported.add("unique-code.hedging.enabled");
+        }
+        if (metadataWriter.isEnabled()) {
+            unsupported.add("unique-code.deferred-metadata.enabled");
+        }
+
+        if (!unsupported.isEmpty()) {
+            throw new IllegalStateException("Invalid configuration.  The asynchronous DynamoDB client does not support "
+                    + String.join(", ", unsupported) + ", which must be disabled or the synchronous client selected.");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Requires;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/*
+ * The non-blocking variant of the data access gateway, which does not hold a thread while waiting for DynamoDB.  Only
+ * created when the asynchronous client is selected, as otherwise its event loop would slow down the cold start.
+ */
+@Singleton
+@Requires(property = "unique-code.dynamodb.client", value = "async")
+public class AsyncDataAccessGateway {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncDataAccessGateway.class);
+
+    private final DynamoDbAsyncClient client;
+    private final ItemEncoding itemEncoding;
+
+    public AsyncDataAccessGateway(final DynamoDbAsyncClient client) {
+        this(client, ItemEncoding.legacy());
+    }
+
+    @Inject
+    public AsyncDataAccessGateway(final DynamoDbAsyncClient client, final ItemEncoding itemEncoding) {
+        this.client = client;
+        this.itemEncoding = itemEncoding;
+    }
+
+    /* Completes with false when the code already exists, and exceptionally for any other failure */
+    public CompletableFuture<Boolean> saveUniqueCode(final CreateUniqueCode item) {
+        return client.putItem(builder -> builder
+                .tableName("UniqueCodes")
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .item(itemEncoding.encode(item))
+                .conditionExpression("attribute_not_exists(Code)")
+                .build())
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return true;
+                    }
+
+                    final Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof ConditionalCheckFailedException) {
+                        LOGGER.warn("The code {} already exists", item.getCode());
+                        return false;
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+}
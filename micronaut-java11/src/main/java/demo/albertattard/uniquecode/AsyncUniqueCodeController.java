@@ -0,0 +1,117 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.async.publisher.Publishers;
+import io.micronaut.http.annotation.Body;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Post;
+import lombok.AllArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * Replaces the unique code controller when the asynchronous DynamoDB client is selected.  The attempts to save a code
+ * are chained as futures, thus no thread is blocked while DynamoDB handles the write.  Codes claimed from the pool, bulk
+ * requests and the idempotency keys still use the synchronous gateway.
+ */
+@Controller
+@Requires(property = "unique-code.dynamodb.client", value = "async")
+@AllArgsConstructor
+public class AsyncUniqueCodeController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncUniqueCodeController.class);
+
+    /* The number of candidates generated locally before giving up on the filter and letting DynamoDB decide */
+    private static final int MAXIMUM_LOCAL_ATTEMPTS = 10;
+
+    private final DataAccessGateway gateway;
+    private final AsyncDataAccessGateway asyncGateway;
+    private final CodeGenerationService codeGenerationService;
+    private final ClockService clockService;
+    private final CodePool codePool;
+    private final IssuedCodeFilter issuedCodes;
+    private final RetryPolicy retryPolicy;
+    private final Primer primer;
+    private final IdempotentRequests idempotentRequests;
+
+    @Post
+    public Publisher<UniqueCode> create(@Body final CreateUniqueCodeRequest request) {
+        return Publishers.fromCompletableFuture(() -> createAsync(request));
+    }
+
+    public CompletableFuture<UniqueCode> createAsync(final CreateUniqueCodeRequest request) {
+        if (request.isWarmUp()) {
+            primer.prime();
+            return CompletableFuture.completedFuture(UniqueCode.none());
+        }
+
+        return idempotentRequests.serveAsync(request, () -> createUniqueCode(request));
+    }
+
+    private CompletableFuture<UniqueCode> createUniqueCode(final CreateUniqueCodeRequest request) {
+        final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(request)
+                .createdOn(clockService.createdOn());
+
+        if (request.getCount() != 1) {
+            return CompletableFuture.completedFuture(createMany(request, builder));
+        }
+
+        final Optional<String> reserved = codePool.claim(request.getLength(), request.getAlphabet(), builder);
+        if (reserved.isPresent()) {
+            LOGGER.debug("Unique code claimed from the pool {}", reserved.get());
+            issuedCodes.add(reserved.get());
+            return CompletableFuture.completedFuture(UniqueCode.of(reserved.get()));
+        }
+
+        return retryPolicy.executeAsync(attempt -> saveUniqueCode(request, builder)).thenApply(saved -> {
+            if (saved.isEmpty()) {
+                throw new RuntimeException("Failed to create a unique code");
+            }
+
+            LOGGER.debug("Unique code generated {}", saved.get());
+            return UniqueCode.of(saved.get());
+        });
+    }
+
+    private CompletableFuture<Optional<String>> saveUniqueCode(final CreateUniqueCodeRequest request, final CreateUniqueCode.Builder builder) {
+        final CreateUniqueCode item = builder.code(generateCandidate(request)).build();
+        return asyncGateway.saveUniqueCode(item).thenApply(successful -> {
+            if (successful) {
+                issuedCodes.onSaved(item.getCode());
+                return Optional.of(item.getCode());
+            }
+
+            issuedCodes.onTaken(item.getCode());
+            return Optional.empty();
+        });
+    }
+
+    private UniqueCode createMany(final CreateUniqueCodeRequest request, final CreateUniqueCode.Builder builder) {
+        final List<String> codes = gateway.saveUniqueCodes(builder, request.getCount(), () -> generateCandidate(request), retryPolicy);
+        codes.forEach(issuedCodes::add);
+        if (codes.size() < request.getCount()) {
+            LOGGER.warn("Failed to create {} unique codes, created {} only", request.getCount(), codes.size());
+            throw new RuntimeException("Failed to create " + request.getCount() + " unique codes");
+        }
+
+        LOGGER.debug("{} unique codes generated", codes.size());
+        return UniqueCode.of(codes);
+    }
+
+    /* Generates a code that is not known to be issued, unless all candidates are known to be issued */
+    private String generateCandidate(final CreateUniqueCodeRequest request) {
+        for (int attempt = 1; attempt < MAXIMUM_LOCAL_ATTEMPTS; attempt++) {
+            final String code = codeGenerationService.generate(request.getLength(), request.getAlphabet());
+            if (!issuedCodes.isIssued(code)) {
+                return code;
+            }
+        }
+
+        return codeGenerationService.generate(request.getLength(), request.getAlphabet());
+    }
+}
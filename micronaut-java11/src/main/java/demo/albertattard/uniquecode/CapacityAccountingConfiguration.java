@@ -0,0 +1,15 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+
+@Factory
+public class CapacityAccountingConfiguration {
+
+    @Singleton
+    public CapacityAccounting capacityAccounting(@Value("${unique-code.capacity-accounting.enabled:false}") final boolean enabled) {
+        return new CapacityAccounting(enabled);
+    }
+}
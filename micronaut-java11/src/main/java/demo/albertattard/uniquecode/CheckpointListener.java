@@ -0,0 +1,30 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+
+import javax.inject.Singleton;
+
+/*
+ * Reseeds the code generation and renews the code pool after the function is restored from a checkpoint, such as a
+ * Lambda SnapStart snapshot.  The code generation is reseeded first, as the code pool generates codes to refill itself.
+ */
+@Singleton
+public class CheckpointListener implements ApplicationEventListener<StartupEvent> {
+
+    private final CodeGenerationService codeGenerationService;
+    private final CodePool codePool;
+
+    public CheckpointListener(final CodeGenerationService codeGenerationService, final CodePool codePool) {
+        this.codeGenerationService = codeGenerationService;
+        this.codePool = codePool;
+    }
+
+    @Override
+    public void onApplicationEvent(final StartupEvent event) {
+        Checkpoints.afterRestore(() -> {
+            codeGenerationService.reseed();
+            codePool.afterRestore();
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package demo.albertattard.uniquecode;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+ * Registers the resources that take part in Coordinated Restore at Checkpoint (CRaC), such as a Lambda SnapStart
+ * snapshot.  The global context of CRaC only keeps weak references to the resources, thus these are also kept here.
+ * Registering has no effect on a JVM without CRaC.
+ */
+public final class Checkpoints {
+
+    private static final List<Resource> RESOURCES = new CopyOnWriteArrayList<>();
+
+    private Checkpoints() {
+    }
+
+    public static void register(final Resource resource) {
+        RESOURCES.add(resource);
+        Core.getGlobalContext().register(resource);
+    }
+
+    public static void afterRestore(final Runnable action) {
+        register(new Resource() {
+            @Override
+            public void beforeCheckpoint(final Context<? extends Resource> context) {
+            }
+
+            @Override
+            public void afterRestore(final Context<? extends Resource> context) {
+                action.run();
+            }
+        });
+    }
+}
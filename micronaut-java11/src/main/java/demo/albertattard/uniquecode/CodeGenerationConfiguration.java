@@ -0,0 +1,34 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+
+@Factory
+public class CodeGenerationConfiguration {
+
+    @Singleton
+    public RandomSource randomSource(@Value("${unique-code.generation.random-source:fast}") final String type) {
+        return RandomSource.of(type);
+    }
+
+    @Singleton
+    public Alphabets alphabets(@Value("${unique-code.generation.alphabet:alphanumeric}") final String defaultAlphabet,
+                               @Value("${unique-code.generation.custom-alphabet:}") final String customSymbols) {
+        return new Alphabets(defaultAlphabet, customSymbols);
+    }
+
+    @Singleton
+    public SequentialCodeGenerator sequentialCodeGenerator(final DataAccessGateway gateway,
+                                                           @Value("${unique-code.generation.mode:random}") final String mode,
+                                                           @Value("${unique-code.generation.sequence-key:}") final String key,
+                                                           @Value("${unique-code.generation.sequence-block-size:100}") final int blockSize) {
+        return SequentialCodeGenerator.of(mode, gateway, key, blockSize);
+    }
+
+    @Singleton
+    public TimeOrderedCodeGenerator timeOrderedCodeGenerator(@Value("${unique-code.generation.mode:random}") final String mode) {
+        return TimeOrderedCodeGenerator.of(mode);
+    }
+}
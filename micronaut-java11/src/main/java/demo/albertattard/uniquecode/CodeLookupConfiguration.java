@@ -0,0 +1,21 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+import java.time.Duration;
+
+@Factory
+public class CodeLookupConfiguration {
+
+    @Singleton
+    public CodeLookup codeLookup(final DataAccessGateway gateway,
+                                 @Value("${unique-code.lookup-cache.enabled:true}") final boolean enabled,
+                                 @Value("${unique-code.lookup-cache.maximum-size:10000}") final int maximumSize,
+                                 @Value("${unique-code.lookup-cache.time-to-live:PT1H}") final String timeToLive,
+                                 @Value("${unique-code.lookup-cache.negative-time-to-live:PT1S}") final String negativeTimeToLive) {
+        final CodeLookupSettings settings = new CodeLookupSettings(enabled, maximumSize, Duration.parse(timeToLive), Duration.parse(negativeTimeToLive));
+        return CodeLookup.create(gateway, settings);
+    }
+}
@@ -0,0 +1,19 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+
+@Factory
+public class CodeVerifierConfiguration {
+
+    @Singleton
+    @Bean(preDestroy = "close")
+    public CodeVerifier codeVerifier(final DataAccessGateway gateway,
+                                     final CapacityAccounting capacityAccounting,
+                                     @Value("${unique-code.verify.parallelism:8}") final int parallelism) {
+        return CodeVerifier.create(gateway, parallelism, capacityAccounting);
+    }
+}
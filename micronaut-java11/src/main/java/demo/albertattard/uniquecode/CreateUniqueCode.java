@@ -1,6 +1,10 @@
 package demo.albertattard.uniquecode;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Data
 public class CreateUniqueCode {
@@ -10,6 +14,7 @@ public class CreateUniqueCode {
         private final String usedBy;
         private final String reference;
         private final String description;
+        private final String requestId = newRequestId();
         private String createdOn;
         private String code;
 
@@ -29,6 +34,10 @@ public class CreateUniqueCode {
             return this;
         }
 
+        public String getUsedBy() {
+            return usedBy;
+        }
+
         public CreateUniqueCode build() {
             return new CreateUniqueCode(this);
         }
@@ -40,23 +49,47 @@ public class CreateUniqueCode {
     private final String reference;
     private final String description;
 
+    /*
+     * A random token shared by the codes of the same request, which tells the writes of the request apart from those of
+     * another request, even when both are created in the same millisecond.  It is not part of what the code is.
+     */
+    @EqualsAndHashCode.Exclude
+    private final String requestId;
+
     private CreateUniqueCode(final Builder builder) {
-        this(builder.usedBy, builder.createdOn, builder.code, builder.reference, builder.description);
+        this(builder.usedBy, builder.createdOn, builder.code, builder.reference, builder.description, builder.requestId);
     }
 
-    private CreateUniqueCode(final String usedBy, final String createdOn, final String code, final String reference, final String description) {
+    private CreateUniqueCode(final String usedBy, final String createdOn, final String code, final String reference, final String description,
+                             final String requestId) {
         this.usedBy = usedBy;
         this.createdOn = createdOn;
         this.code = code;
         this.reference = reference;
         this.description = description;
+        this.requestId = requestId;
+    }
+
+    /* Returns true when the code carries any of the used by, reference and description */
+    public boolean hasMetadata() {
+        return isNotBlank(usedBy) || isNotBlank(reference) || isNotBlank(description);
     }
 
     public CreateUniqueCode withCode(final String code) {
-        return new CreateUniqueCode(usedBy, createdOn, code, reference, description);
+        return new CreateUniqueCode(usedBy, createdOn, code, reference, description, requestId);
     }
 
     public static Builder builder(final CreateUniqueCodeRequest request) {
         return new Builder(request);
     }
+
+    /* Only needs to be unique, not hard to guess, thus it is not drawn from a SecureRandom */
+    private static String newRequestId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    private static boolean isNotBlank(final String value) {
+        return value != null && !value.trim().isEmpty();
+    }
 }
@@ -0,0 +1,18 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
+
+import javax.inject.Singleton;
+
+/* Customises the asynchronous DynamoDB client of the AWS SDK module, whose attempts are retried by RetryPolicy only, as the retries of the SDK would multiply its attempts */
+@Singleton
+public class DynamoDbAsyncClientBuilderListener implements BeanCreatedEventListener<DynamoDbAsyncClientBuilder> {
+
+    @Override
+    public DynamoDbAsyncClientBuilder onCreated(final BeanCreatedEvent<DynamoDbAsyncClientBuilder> event) {
+        return event.getBean().overrideConfiguration(configuration -> configuration.retryPolicy(RetryPolicy.none()));
+    }
+}
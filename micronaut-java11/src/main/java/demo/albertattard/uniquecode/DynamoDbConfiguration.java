@@ -0,0 +1,32 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.env.Environment;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import javax.inject.Singleton;
+
+/* Replaces the DynamoDB client of the AWS SDK module with one whose connections survive a checkpoint and restore */
+@Factory
+@Requires(notEnv = Environment.TEST)
+public class DynamoDbConfiguration {
+
+    @Singleton
+    @Replaces(DynamoDbClient.class)
+    public DynamoDbClient dynamoDbClient(@Value("${unique-code.dynamodb.http-client:url-connection}") final String httpClient,
+                                         @Value("${unique-code.dynamodb.maximum-connections:50}") final int maximumConnections) {
+        /* As recommended by https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/lambda-optimize-starttime.html, with the HTTP client chosen by the deployment */
+        return DynamoDbClient.builder()
+                .region(Region.EU_CENTRAL_1)
+                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                .httpClient(RestorableHttpClient.register(() -> HttpClients.of(httpClient, maximumConnections)))
+                /* The attempts are retried by RetryPolicy only, as the retries of the SDK would multiply its attempts */
+                .overrideConfiguration(configuration -> configuration.retryPolicy(software.amazon.awssdk.core.retry.RetryPolicy.none()))
+                .build();
+    }
+}
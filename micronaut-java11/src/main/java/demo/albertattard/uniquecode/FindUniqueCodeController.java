@@ -0,0 +1,22 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.PathVariable;
+import lombok.AllArgsConstructor;
+
+/* Returns the given code as stored, or not found when the code does not exist, with either DynamoDB client */
+@Controller
+@AllArgsConstructor
+public class FindUniqueCodeController {
+
+    private final CodeLookup codeLookup;
+
+    @Get("/{code}")
+    public HttpResponse<StoredUniqueCode> find(@PathVariable final String code) {
+        return codeLookup.find(code)
+                .map(HttpResponse::ok)
+                .orElseGet(HttpResponse::notFound);
+    }
+}
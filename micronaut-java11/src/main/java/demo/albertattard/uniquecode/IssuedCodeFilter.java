@@ -0,0 +1,132 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Keeps a Bloom filter of the codes known to be issued, so that a candidate that is (most likely) taken is regenerated
+ * locally instead of being sent to DynamoDB only to fail the conditional write.  DynamoDB remains the source of truth:
+ * the filter is only a hint and a code missing from the filter is still written conditionally.  The filter is loaded
+ * from a snapshot when the container starts and then learns the codes issued, or found taken, by this container.
+ *
+ * A small fraction of the candidates found in the filter are written anyway, to measure the rate of false positives.
+ * A verified candidate that is saved successfully was a false positive, while one that fails was taken indeed.
+ */
+public class IssuedCodeFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IssuedCodeFilter.class);
+
+    /* How often the metrics are logged, in number of lookups */
+    private static final long METRICS_LOG_INTERVAL = 1000;
+
+    private final BloomFilter filter;
+    private final double verificationRate;
+    private final AtomicLong lookups = new AtomicLong();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public IssuedCodeFilter(final BloomFilter filter, final double verificationRate) {
+        if (verificationRate < 0 || verificationRate > 1) {
+            throw new IllegalArgumentException("Invalid verification rate " + verificationRate + ".  The verification rate must be between 0 and 1 both inclusive.");
+        }
+
+        this.filter = filter;
+        this.verificationRate = verificationRate;
+    }
+
+    public static IssuedCodeFilter disabled() {
+        return new IssuedCodeFilter(null, 0);
+    }
+
+    /* Loads the filter from the given snapshot, or starts with an empty filter when there is no snapshot */
+    public static IssuedCodeFilter load(final String snapshot, final long expectedCodes, final double falsePositiveRate,
+                                        final double verificationRate) {
+        final Path path = snapshot == null || snapshot.trim().isEmpty() ? null : Path.of(snapshot.trim());
+        if (path == null || !Files.isRegularFile(path)) {
+            LOGGER.warn("The snapshot of issued codes {} was not found.  Starting with an empty filter", path);
+            return new IssuedCodeFilter(BloomFilter.create(expectedCodes, falsePositiveRate), verificationRate);
+        }
+
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+            final BloomFilter filter = BloomFilter.readFrom(inputStream);
+            LOGGER.info("Loaded the snapshot of issued codes {} ({} bits, estimated false positive rate {})",
+                    path, filter.getNumberOfBits(), filter.estimatedFalsePositiveRate());
+            return new IssuedCodeFilter(filter, verificationRate);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to load the snapshot of issued codes " + path, e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return filter != null;
+    }
+
+    /* Returns true when the code is most likely issued already and should be regenerated without trying to save it */
+    public boolean isIssued(final String code) {
+        if (filter == null) {
+            return false;
+        }
+
+        final long count = lookups.incrementAndGet();
+        if (count % METRICS_LOG_INTERVAL == 0) {
+            LOGGER.info("Issued code filter {}", metrics());
+        }
+
+        if (!filter.mightContain(code)) {
+            return false;
+        }
+
+        if (verificationRate > 0 && ThreadLocalRandom.current().nextDouble() < verificationRate) {
+            LOGGER.debug("Verifying the code {} found in the filter", code);
+            verified.increment();
+            return false;
+        }
+
+        LOGGER.debug("Skipping the code {} found in the filter", code);
+        skipped.increment();
+        return true;
+    }
+
+    /* Records a code that passed through the filter and was saved */
+    public void onSaved(final String code) {
+        if (filter == null) {
+            return;
+        }
+
+        if (filter.mightContain(code)) {
+            /* Only a code that was verified can be both in the filter and saved */
+            falsePositives.increment();
+        }
+        filter.add(code);
+    }
+
+    /* Records a code that passed through the filter but was taken already */
+    public void onTaken(final String code) {
+        if (filter != null) {
+            filter.add(code);
+        }
+    }
+
+    /* Records a code issued without passing through the filter, such as a code claimed from the pool */
+    public void add(final String code) {
+        if (filter != null) {
+            filter.add(code);
+        }
+    }
+
+    public IssuedCodeFilterMetrics metrics() {
+        return new IssuedCodeFilterMetrics(lookups.get(), skipped.sum(), verified.sum(), falsePositives.sum(),
+                filter == null ? 0 : filter.estimatedFalsePositiveRate());
+    }
+}
@@ -0,0 +1,23 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+
+@Factory
+public class IssuedCodeFilterConfiguration {
+
+    @Singleton
+    public IssuedCodeFilter issuedCodeFilter(@Value("${unique-code.issued-codes.enabled:false}") final boolean enabled,
+                                             @Value("${unique-code.issued-codes.snapshot:}") final String snapshot,
+                                             @Value("${unique-code.issued-codes.expected-codes:1000000}") final long expectedCodes,
+                                             @Value("${unique-code.issued-codes.false-positive-rate:0.01}") final double falsePositiveRate,
+                                             @Value("${unique-code.issued-codes.verification-rate:0.01}") final double verificationRate) {
+        if (!enabled) {
+            return IssuedCodeFilter.disabled();
+        }
+
+        return IssuedCodeFilter.load(snapshot, expectedCodes, falsePositiveRate, verificationRate);
+    }
+}
@@ -0,0 +1,16 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+
+@Factory
+public class ItemEncodingConfiguration {
+
+    @Singleton
+    public ItemEncoding itemEncoding(@Value("${unique-code.item-encoding.compact:false}") final boolean compact,
+                                     @Value("${unique-code.item-encoding.compression-threshold:256}") final int compressionThreshold) {
+        return new ItemEncoding(compact, compressionThreshold);
+    }
+}
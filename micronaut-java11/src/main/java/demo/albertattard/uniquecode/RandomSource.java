@@ -0,0 +1,38 @@
+package demo.albertattard.uniquecode;
+
+import java.util.Locale;
+
+/* Provides the random bits from which the codes are generated and must be safe to use from multiple threads */
+public interface RandomSource {
+
+    long nextLong();
+
+    /*
+     * Draws fresh seeds, called after the container is restored from a checkpoint, as otherwise all containers restored
+     * from the same checkpoint would draw the same numbers.  Sources that are not seeded from a captured state need not
+     * do anything.
+     */
+    default void reseed() {
+    }
+
+    /* Fast but predictable, suitable when the codes do not need to be hard to guess */
+    static RandomSource fast() {
+        return new ThreadLocalRandomSource();
+    }
+
+    /* Cryptographically strong, backed by an entropy pool that is refilled in bulk in the background */
+    static RandomSource secure() {
+        return EntropyPool.withBackgroundRefill();
+    }
+
+    static RandomSource of(final String type) throws IllegalArgumentException {
+        switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "fast":
+                return fast();
+            case "secure":
+                return secure();
+            default:
+                throw new IllegalArgumentException("Invalid random source " + type + ".  Random source must be either fast or secure.");
+        }
+    }
+}
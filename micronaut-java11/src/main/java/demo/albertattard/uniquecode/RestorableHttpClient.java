@@ -0,0 +1,62 @@
+package demo.albertattard.uniquecode;
+
+import org.crac.Context;
+import org.crac.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import java.util.function.Supplier;
+
+/*
+ * The HTTP client of the DynamoDB client, closed together with its connections before a checkpoint and created anew
+ * after the restore.  The connections captured by a checkpoint are most likely dead by the time the container is
+ * restored, and the first request would otherwise fail on them.  The requests go to the current HTTP client.
+ */
+public class RestorableHttpClient implements SdkHttpClient, Resource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RestorableHttpClient.class);
+
+    private final Supplier<SdkHttpClient> factory;
+    private volatile SdkHttpClient delegate;
+
+    public RestorableHttpClient(final Supplier<SdkHttpClient> factory) {
+        this.factory = factory;
+        this.delegate = factory.get();
+    }
+
+    public static RestorableHttpClient register(final Supplier<SdkHttpClient> factory) {
+        final RestorableHttpClient client = new RestorableHttpClient(factory);
+        Checkpoints.register(client);
+        return client;
+    }
+
+    @Override
+    public ExecutableHttpRequest prepareRequest(final HttpExecuteRequest request) {
+        return delegate.prepareRequest(request);
+    }
+
+    @Override
+    public String clientName() {
+        return delegate.clientName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public void beforeCheckpoint(final Context<? extends Resource> context) {
+        LOGGER.info("Closing the HTTP connections before the checkpoint");
+        delegate.close();
+    }
+
+    @Override
+    public void afterRestore(final Context<? extends Resource> context) {
+        LOGGER.info("Creating new HTTP connections after the restore");
+        delegate = factory.get();
+    }
+}
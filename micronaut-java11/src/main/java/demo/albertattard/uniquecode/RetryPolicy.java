@@ -0,0 +1,202 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/*
+ * Decides whether, and when, a failed attempt to save a code is retried.  An attempt that collides with a code that is
+ * already taken is retried straight away with a new candidate, as waiting does not make the next candidate any less
+ * likely to collide.  An attempt that is throttled is retried after an exponential backoff with full jitter, which
+ * gives the table time to recover without all the containers retrying in lockstep.  No attempt is started once the
+ * attempts or the time budget run out.
+ */
+public class RetryPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryPolicy.class);
+
+    /* How often the metrics are logged, in number of executions */
+    private static final long METRICS_LOG_INTERVAL = 1000;
+
+    private final RetrySettings settings;
+    private final RandomSource random;
+    private final Sleeper sleeper;
+    private final AtomicLong executions = new AtomicLong();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder throttles = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder backoffInNanos = new LongAdder();
+
+    public RetryPolicy(final RetrySettings settings, final RandomSource random, final Sleeper sleeper) {
+        this.settings = settings;
+        this.random = random;
+        this.sleeper = sleeper;
+    }
+
+    public static RetryPolicy create(final RetrySettings settings) {
+        return new RetryPolicy(settings, RandomSource.fast(), TimeUnit.NANOSECONDS::sleep);
+    }
+
+    public static RetryPolicy defaults() {
+        return create(RetrySettings.defaults());
+    }
+
+    /*
+     * Runs the action until it returns a value and returns that value, or nothing when all attempts collided.  The
+     * throttling error of the last attempt is thrown when the attempts or the time budget run out while throttled.
+     */
+    public <T> Optional<T> execute(final IntFunction<Optional<T>> action) {
+        countExecution();
+
+        final long start = System.nanoTime();
+        for (int attempt = 1, throttled = 0; attempt <= settings.getMaximumAttempts(); attempt++) {
+            LOGGER.debug("Creating unique code (Attempt {} of {})", attempt, settings.getMaximumAttempts());
+            attempts.increment();
+
+            try {
+                final Optional<T> result = action.apply(attempt);
+                if (result.isPresent()) {
+                    return result;
+                }
+
+                collisions.increment();
+                LOGGER.warn("Failed to create a unique code as the code is taken (Attempt {} of {})", attempt, settings.getMaximumAttempts());
+            } catch (final RuntimeException e) {
+                if (!isThrottling(e)) {
+                    throw e;
+                }
+
+                throttles.increment();
+                final long backoff = backoffInNanos(++throttled);
+                if (!canRetry(attempt, start, backoff)) {
+                    exhausted.increment();
+                    throw e;
+                }
+
+                LOGGER.warn("Failed to create a unique code as the write was throttled (Attempt {} of {}), backing off for {}",
+                        attempt, settings.getMaximumAttempts(), Duration.ofNanos(backoff));
+                sleep(backoff);
+                continue;
+            }
+
+            if (!canRetry(attempt, start, 0)) {
+                break;
+            }
+        }
+
+        exhausted.increment();
+        return Optional.empty();
+    }
+
+    /* The non-blocking variant of execute, where the backoff delays the next attempt without blocking a thread */
+    public <T> CompletableFuture<Optional<T>> executeAsync(final IntFunction<CompletableFuture<Optional<T>>> action) {
+        countExecution();
+        return attemptAsync(action, 1, 0, System.nanoTime());
+    }
+
+    private <T> CompletableFuture<Optional<T>> attemptAsync(final IntFunction<CompletableFuture<Optional<T>>> action,
+                                                            final int attempt, final int throttled, final long start) {
+        LOGGER.debug("Creating unique code (Attempt {} of {})", attempt, settings.getMaximumAttempts());
+        attempts.increment();
+
+        final CompletableFuture<Optional<T>> result;
+        try {
+            result = action.apply(attempt);
+        } catch (final RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return result.<CompletableFuture<Optional<T>>>handle((value, error) -> {
+            if (error == null) {
+                if (value.isPresent()) {
+                    return CompletableFuture.completedFuture(value);
+                }
+
+                collisions.increment();
+                LOGGER.warn("Failed to create a unique code as the code is taken (Attempt {} of {})", attempt, settings.getMaximumAttempts());
+                if (!canRetry(attempt, start, 0)) {
+                    exhausted.increment();
+                    return CompletableFuture.completedFuture(Optional.empty());
+                }
+                return attemptAsync(action, attempt + 1, throttled, start);
+            }
+
+            final Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!isThrottling(cause)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+
+            throttles.increment();
+            final long backoff = backoffInNanos(throttled + 1);
+            if (!canRetry(attempt, start, backoff)) {
+                exhausted.increment();
+                return CompletableFuture.failedFuture(cause);
+            }
+
+            LOGGER.warn("Failed to create a unique code as the write was throttled (Attempt {} of {}), backing off for {}",
+                    attempt, settings.getMaximumAttempts(), Duration.ofNanos(backoff));
+            backoffInNanos.add(backoff);
+            return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(backoff, TimeUnit.NANOSECONDS))
+                    .thenCompose(ignored -> attemptAsync(action, attempt + 1, throttled + 1, start));
+        }).thenCompose(future -> future);
+    }
+
+    public RetryMetrics metrics() {
+        return new RetryMetrics(executions.get(), attempts.sum(), collisions.sum(), throttles.sum(), exhausted.sum(),
+                Duration.ofNanos(backoffInNanos.sum()));
+    }
+
+    private void countExecution() {
+        final long count = executions.incrementAndGet();
+        if (count % METRICS_LOG_INTERVAL == 0) {
+            LOGGER.info("Retries {}", metrics());
+        }
+    }
+
+    /* Whether another attempt can start after the given backoff, without exceeding the attempts or the time budget */
+    private boolean canRetry(final int attempt, final long start, final long backoff) {
+        return attempt < settings.getMaximumAttempts()
+                && System.nanoTime() - start + backoff < settings.getTimeBudget().toNanos();
+    }
+
+    /* Full jitter, a random backoff between zero and the exponential backoff, capped at the maximum backoff */
+    private long backoffInNanos(final int throttled) {
+        final long initial = settings.getInitialBackoff().toNanos();
+        final long maximum = settings.getMaximumBackoff().toNanos();
+        final long exponential = initial << Math.min(throttled - 1, 30);
+        final long ceiling = exponential < initial || exponential > maximum ? maximum : exponential;
+        return Math.floorMod(random.nextLong(), ceiling + 1);
+    }
+
+    private void sleep(final long nanos) {
+        backoffInNanos.add(nanos);
+        try {
+            sleeper.sleep(nanos);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while backing off", e);
+        }
+    }
+
+    /* Whether the error is a throttled write, including a transaction that is cancelled as one of its writes is throttled */
+    static boolean isThrottling(final Throwable error) {
+        return error instanceof ProvisionedThroughputExceededException
+                || error instanceof RequestLimitExceededException
+                || error instanceof TransactionCanceledException && ((TransactionCanceledException) error).cancellationReasons().stream()
+                        .anyMatch(reason -> "ThrottlingError".equals(reason.code()))
+                || error instanceof AwsServiceException && ((AwsServiceException) error).isThrottlingException();
+    }
+}
@@ -1,5 +1,6 @@
 package demo.albertattard.uniquecode;
 
+import io.micronaut.context.annotation.Requires;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Post;
@@ -7,34 +8,117 @@ import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Optional;
+
 @Controller
+@Requires(property = "unique-code.dynamodb.client", notEquals = "async")
 @AllArgsConstructor
 public class UniqueCodeController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UniqueCodeController.class);
 
+    /* The number of candidates generated locally before giving up on the filter and letting DynamoDB decide */
+    private static final int MAXIMUM_LOCAL_ATTEMPTS = 10;
+
     private final DataAccessGateway gateway;
     private final CodeGenerationService codeGenerationService;
     private final ClockService clockService;
+    private final CodePool codePool;
+    private final IssuedCodeFilter issuedCodes;
+    private final HedgedCodeWriter hedgedCodeWriter;
+    private final RetryPolicy retryPolicy;
+    private final Primer primer;
+    private final DeferredMetadataWriter metadataWriter;
+    private final CapacityAccounting capacityAccounting;
+    private final IdempotentRequests idempotentRequests;
 
     @Post
     public UniqueCode create(@Body final CreateUniqueCodeRequest request) {
+        if (request.isWarmUp()) {
+            primer.prime();
+            return UniqueCode.none();
+        }
+
+        final InvocationCapacity capacity = capacityAccounting.begin(request.getUsedBy());
+        try {
+            return idempotentRequests.serve(request, () -> createUniqueCode(request));
+        } finally {
+            /* The container may be frozen once the handler returns, thus the deferred metadata is written first */
+            metadataWriter.flush();
+            capacityAccounting.end(capacity);
+        }
+    }
+
+    private UniqueCode createUniqueCode(final CreateUniqueCodeRequest request) {
         final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(request)
                 .createdOn(clockService.createdOn());
 
-        for (int attempt = 1, limit = 5; attempt <= limit; attempt++) {
-            LOGGER.debug("Creating unique code (Attempt {} of {})", attempt, limit);
+        if (request.getCount() != 1) {
+            return createMany(request, builder);
+        }
 
-            final CreateUniqueCode item = builder.code(codeGenerationService.generate(request.getLength())).build();
-            final boolean successful = gateway.saveUniqueCode(item);
-            if (successful) {
-                LOGGER.debug("Unique code generated {} after {} attempt of {}", item.getCode(), attempt, limit);
-                return new UniqueCode(item.getCode());
-            }
+        final Optional<String> reserved = codePool.claim(request.getLength(), request.getAlphabet(), builder);
+        if (reserved.isPresent()) {
+            LOGGER.debug("Unique code claimed from the pool {}", reserved.get());
+            issuedCodes.add(reserved.get());
+            return UniqueCode.of(reserved.get());
+        }
 
-            LOGGER.warn("Failed to create a unique code (Attempt {} of {})", attempt, limit);
+        final Optional<String> saved = retryPolicy.execute(attempt -> saveUniqueCode(request, builder));
+        if (saved.isPresent()) {
+            LOGGER.debug("Unique code generated {}", saved.get());
+            return UniqueCode.of(saved.get());
         }
 
         throw new RuntimeException("Failed to create a unique code");
     }
+
+    private UniqueCode createMany(final CreateUniqueCodeRequest request, final CreateUniqueCode.Builder builder) {
+        final List<String> codes = gateway.saveUniqueCodes(builder, request.getCount(), () -> generateCandidate(request), retryPolicy);
+        codes.forEach(issuedCodes::add);
+        if (codes.size() < request.getCount()) {
+            LOGGER.warn("Failed to create {} unique codes, created {} only", request.getCount(), codes.size());
+            throw new RuntimeException("Failed to create " + request.getCount() + " unique codes");
+        }
+
+        LOGGER.debug("{} unique codes generated", codes.size());
+        return UniqueCode.of(codes);
+    }
+
+    /* Saves a new code, hedging the write when enabled, and returns nothing when the code is taken */
+    private Optional<String> saveUniqueCode(final CreateUniqueCodeRequest request, final CreateUniqueCode.Builder builder) {
+        final CreateUniqueCode item = builder.code(generateCandidate(request)).build();
+        if (hedgedCodeWriter.isEnabled()) {
+            if (hedgedCodeWriter.save(item)) {
+                issuedCodes.onSaved(item.getCode());
+                return Optional.of(item.getCode());
+            }
+        } else if (metadataWriter.isEnabled()) {
+            /* Only the key is written before responding, while the metadata follows in the background */
+            if (gateway.saveUniqueCodeKey(item)) {
+                metadataWriter.defer(item);
+                issuedCodes.onSaved(item.getCode());
+                return Optional.of(item.getCode());
+            }
+        } else if (gateway.saveUniqueCode(item)) {
+            issuedCodes.onSaved(item.getCode());
+            return Optional.of(item.getCode());
+        }
+
+        issuedCodes.onTaken(item.getCode());
+        return Optional.empty();
+    }
+
+    /* Generates a code that is not known to be issued, unless all candidates are known to be issued */
+    private String generateCandidate(final CreateUniqueCodeRequest request) {
+        for (int attempt = 1; attempt < MAXIMUM_LOCAL_ATTEMPTS; attempt++) {
+            final String code = codeGenerationService.generate(request.getLength(), request.getAlphabet());
+            if (!issuedCodes.isIssued(code)) {
+                return code;
+            }
+        }
+
+        return codeGenerationService.generate(request.getLength(), request.getAlphabet());
+    }
 }
@@ -0,0 +1,19 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.http.annotation.Body;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Post;
+import lombok.AllArgsConstructor;
+
+/* Verifies the given codes in bulk and returns those that were found and those that were not, with either DynamoDB client */
+@Controller
+@AllArgsConstructor
+public class VerifyUniqueCodesController {
+
+    private final CodeVerifier codeVerifier;
+
+    @Post("/verify")
+    public CodeVerification verify(@Body final VerifyUniqueCodesRequest request) {
+        return codeVerifier.verify(request.getCodes());
+    }
+}
@@ -0,0 +1,14 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.core.annotation.Introspected;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Introspected
+public class VerifyUniqueCodesRequest {
+
+    /* The codes to verify, which may contain duplicates */
+    private List<String> codes;
+}
@@ -0,0 +1,36 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AsyncClientValidatorTest {
+
+    @Test
+    @DisplayName("should accept the asynchronous client when none of the unsupported features is enabled")
+    void shouldAcceptTheAsynchronousClientWhenNoneOfTheUnsupportedFeaturesIsEnabled() {
+        assertDoesNotThrow(() -> new AsyncClientValidator(WriteGovernor.disabled(), CapacityAccounting.disabled(),
+                HedgedCodeWriter.disabled(), DeferredMetadataWriter.disabled()));
+    }
+
+    @Test
+    @DisplayName("should reject the asynchronous client naming every unsupported feature that is enabled")
+    void shouldRejectTheAsynchronousClientNamingEveryUnsupportedFeatureThatIsEnabled() {
+        final WriteGovernor writeGovernor = mock(WriteGovernor.class);
+        when(writeGovernor.isEnabled()).thenReturn(true);
+        final HedgedCodeWriter hedgedCodeWriter = mock(HedgedCodeWriter.class);
+        when(hedgedCodeWriter.isEnabled()).thenReturn(true);
+
+        final IllegalStateException e = assertThrows(IllegalStateException.class, () -> new AsyncClientValidator(writeGovernor,
+                CapacityAccounting.disabled(), hedgedCodeWriter, DeferredMetadataWriter.disabled()));
+        assertThat(e.getMessage())
+                .startsWith("Invalid configuration.")
+                .contains("unique-code.write-governor.enabled", "unique-code.hedging.enabled")
+                .doesNotContain("unique-code.capacity-accounting.enabled", "unique-code.deferred-metadata.enabled");
+    }
+}
@@ -0,0 +1,57 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.List;
+import java.util.Map;
+
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.createDynamoDbAsyncClient;
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.populateTableWithDummyValues;
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.scanAllItems;
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.toAttributeValue;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(LocalDynamoDbExtension.class)
+class AsyncDataAccessGatewayIntegrationTest {
+
+    @Test
+    @DisplayName("should save the unique code and complete with true when the code does not already exists")
+    void shouldSaveTheUniqueCodeAndCompleteWithTrueWhenTheCodeDoesNotAlreadyExists() {
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("used-by-test");
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        final AsyncDataAccessGateway dataAccessGateway = new AsyncDataAccessGateway(createDynamoDbAsyncClient());
+        assertThat(dataAccessGateway.saveUniqueCode(createUniqueCode).join()).isTrue();
+
+        final List<Map<String, AttributeValue>> allDataInDynamoDb = scanAllItems();
+        assertThat(allDataInDynamoDb).hasSize(1);
+
+        final Map<String, AttributeValue> attributesByName = allDataInDynamoDb.get(0);
+        assertThat(attributesByName).hasSize(3);
+        assertThat(attributesByName.get("Code")).as("code").isEqualTo(toAttributeValue(createUniqueCode.getCode()));
+        assertThat(attributesByName.get("UsedBy")).as("used by").isEqualTo(toAttributeValue(createUniqueCode.getUsedBy()));
+    }
+
+    @Test
+    @DisplayName("should not save the given unique code and complete with false when the code already exists")
+    void shouldNotSaveTheGivenUniqueCodeAndCompleteWithFalseWhenTheCodeAlreadyExists() {
+        /* Add a value to the table to force the collision */
+        populateTableWithDummyValues("12345678");
+
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        final AsyncDataAccessGateway dataAccessGateway = new AsyncDataAccessGateway(createDynamoDbAsyncClient());
+        assertThat(dataAccessGateway.saveUniqueCode(createUniqueCode).join()).isFalse();
+        assertThat(scanAllItems()).hasSize(1);
+    }
+}
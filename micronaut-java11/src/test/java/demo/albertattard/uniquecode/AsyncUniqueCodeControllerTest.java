@@ -0,0 +1,132 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Asynchronous unique code controller test")
+class AsyncUniqueCodeControllerTest {
+
+    @Test
+    @DisplayName("should attempt again when a collision is encountered")
+    void shouldAttemptAgainWhenACollisionIsEncountered() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final AsyncDataAccessGateway asyncDataAccessGateway = mock(AsyncDataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+
+        final String existingCode = "AAAAAAAA";
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        when(clockService.createdOn()).thenReturn(createUniqueCode.getCreatedOn());
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn(existingCode).thenReturn(createUniqueCode.getCode());
+        when(asyncDataAccessGateway.saveUniqueCode(any()))
+                .thenReturn(CompletableFuture.completedFuture(false))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        final AsyncUniqueCodeController controller = new AsyncUniqueCodeController(dataAccessGateway, asyncDataAccessGateway,
+                codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), RetryPolicy.defaults(), mock(Primer.class), IdempotentRequests.disabled());
+        final UniqueCode response = controller.createAsync(request).join();
+
+        assertThat(response)
+                .as("generated code")
+                .isNotNull()
+                .extracting(UniqueCode::getCode)
+                .isEqualTo(createUniqueCode.getCode());
+
+        verify(clockService, times(1)).createdOn();
+        verify(codeGenerationService, times(2)).generate(eq(request.getLength()), eq(request.getAlphabet()));
+        verify(asyncDataAccessGateway, times(1)).saveUniqueCode(eq(createUniqueCode.withCode(existingCode)));
+        verify(asyncDataAccessGateway, times(1)).saveUniqueCode(eq(createUniqueCode));
+        verifyNoMoreInteractions(clockService, codeGenerationService, dataAccessGateway, asyncDataAccessGateway);
+    }
+
+    @Test
+    @DisplayName("should complete exceptionally when it fails to create a unique code after five attempts")
+    void shouldCompleteExceptionallyWhenItFailsToCreateAUniqueCodeAfterFiveAttempts() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final AsyncDataAccessGateway asyncDataAccessGateway = mock(AsyncDataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+
+        when(clockService.createdOn()).thenReturn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn("AAAAAAAA");
+        when(asyncDataAccessGateway.saveUniqueCode(any())).thenReturn(CompletableFuture.completedFuture(false));
+
+        final AsyncUniqueCodeController controller = new AsyncUniqueCodeController(dataAccessGateway, asyncDataAccessGateway,
+                codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), RetryPolicy.defaults(), mock(Primer.class), IdempotentRequests.disabled());
+        final CompletableFuture<UniqueCode> response = controller.createAsync(new CreateUniqueCodeRequest());
+
+        assertThrows(CompletionException.class, response::join);
+        verify(asyncDataAccessGateway, times(5)).saveUniqueCode(any());
+    }
+
+    @Test
+    @DisplayName("should propagate the failures other than collisions without attempting again")
+    void shouldPropagateTheFailuresOtherThanCollisionsWithoutAttemptingAgain() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final AsyncDataAccessGateway asyncDataAccessGateway = mock(AsyncDataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+
+        when(clockService.createdOn()).thenReturn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn("12345678");
+        when(asyncDataAccessGateway.saveUniqueCode(any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Simulated failure")));
+
+        final AsyncUniqueCodeController controller = new AsyncUniqueCodeController(dataAccessGateway, asyncDataAccessGateway,
+                codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), RetryPolicy.defaults(), mock(Primer.class), IdempotentRequests.disabled());
+        final CompletableFuture<UniqueCode> response = controller.createAsync(new CreateUniqueCodeRequest());
+
+        final CompletionException exception = assertThrows(CompletionException.class, response::join);
+        assertThat(exception).hasCauseInstanceOf(IllegalStateException.class);
+        verify(asyncDataAccessGateway, times(1)).saveUniqueCode(any());
+    }
+
+    @Test
+    @DisplayName("should return the same code to a request that repeats an idempotency key, without generating or saving a code again")
+    void shouldReturnTheSameCodeToARequestThatRepeatsAnIdempotencyKeyWithoutGeneratingOrSavingACodeAgain() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final AsyncDataAccessGateway asyncDataAccessGateway = mock(AsyncDataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+
+        when(clockService.createdOn()).thenReturn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn("12345678", "23456789");
+        when(asyncDataAccessGateway.saveUniqueCode(any())).thenReturn(CompletableFuture.completedFuture(true));
+        when(dataAccessGateway.findIdempotencyRecord(any(), any())).thenReturn(Optional.empty());
+        when(dataAccessGateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(true);
+        when(dataAccessGateway.saveIdempotencyRecord(any(), any())).thenReturn(true);
+
+        final IdempotentRequests idempotentRequests = IdempotentRequests.create(dataAccessGateway, new IdempotencySettings(true, 100, Duration.ofHours(1)));
+        final AsyncUniqueCodeController controller = new AsyncUniqueCodeController(dataAccessGateway, asyncDataAccessGateway,
+                codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), RetryPolicy.defaults(), mock(Primer.class), idempotentRequests);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setIdempotencyKey("key-test");
+
+        assertThat(controller.createAsync(request).join().getCode()).isEqualTo("12345678");
+        assertThat(controller.createAsync(request).join().getCode()).isEqualTo("12345678");
+        verify(codeGenerationService, times(1)).generate(anyInt(), any());
+        verify(asyncDataAccessGateway, times(1)).saveUniqueCode(any());
+        verify(dataAccessGateway, times(1)).saveIdempotencyRecord(any(), any());
+    }
+}
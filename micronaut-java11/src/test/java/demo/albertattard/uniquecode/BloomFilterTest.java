@@ -0,0 +1,78 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("should contain every code that was added")
+    void shouldContainEveryCodeThatWasAdded() {
+        final BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(String.format("%08d", i));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(String.format("%08d", i)))
+                    .describedAs("A Bloom filter must never miss a code that was added")
+                    .isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("should report false positives at about the expected rate when full")
+    void shouldReportFalsePositivesAtAboutTheExpectedRateWhenFull() {
+        final BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(String.format("A%07d", i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(String.format("B%07d", i))) {
+                falsePositives++;
+            }
+        }
+
+        /* About 1000 false positives are expected, with a standard deviation of about 31 */
+        assertThat(falsePositives).isBetween(700, 1300);
+        assertThat(filter.estimatedFalsePositiveRate()).isBetween(0.007, 0.013);
+    }
+
+    @Test
+    @DisplayName("should restore the same filter from its snapshot")
+    void shouldRestoreTheSameFilterFromItsSnapshot() throws IOException {
+        final BloomFilter filter = BloomFilter.create(1_000, 0.01);
+        filter.add("12345678");
+
+        final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        filter.writeTo(snapshot);
+        final BloomFilter restored = BloomFilter.readFrom(new ByteArrayInputStream(snapshot.toByteArray()));
+
+        assertThat(restored.getNumberOfBits()).isEqualTo(filter.getNumberOfBits());
+        assertThat(restored.getNumberOfHashFunctions()).isEqualTo(filter.getNumberOfHashFunctions());
+        assertThat(restored.mightContain("12345678")).isTrue();
+        assertThat(restored.estimatedFalsePositiveRate()).isEqualTo(filter.estimatedFalsePositiveRate());
+    }
+
+    @Test
+    @DisplayName("should reject a stream that does not contain a snapshot")
+    void shouldRejectAStreamThatDoesNotContainASnapshot() {
+        assertThrows(IOException.class, () -> BloomFilter.readFrom(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})));
+    }
+
+    @Test
+    @DisplayName("should reject an invalid false positive rate")
+    void shouldRejectAnInvalidFalsePositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(1_000, 0));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(1_000, 1));
+    }
+}
@@ -0,0 +1,145 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClockServiceTest {
+
+    /* The fractions of a second that take from none to nine digits */
+    private static final int[] NANOS = {0, 1, 10, 1_000, 120_000_000, 123_456_000, 123_456_789, 500_000_000, 999_999_999};
+
+    @ParameterizedTest(name = "in {0}")
+    @ValueSource(strings = {"UTC", "Z", "Europe/Berlin", "America/New_York", "Australia/Lord_Howe", "Asia/Kolkata", "Europe/Amsterdam"})
+    @DisplayName("should format the time as ISO_DATE_TIME does across the daylight saving transitions")
+    void shouldFormatTheTimeAsIsoDateTimeDoesAcrossTheDaylightSavingTransitions(final String zone) {
+        final ZoneId zoneId = ZoneId.of(zone);
+
+        /* The transitions around today, and the ones of the 1930s when Amsterdam was 19 minutes and 32 seconds ahead */
+        final List<Instant> instants = new ArrayList<>();
+        for (final Instant from : List.of(Instant.parse("1932-01-01T00:00:00Z"), Instant.parse("2021-01-01T00:00:00Z"))) {
+            ZoneOffsetTransition transition = zoneId.getRules().nextTransition(from);
+            for (int i = 0; i < 4 && transition != null; i++) {
+                instants.add(transition.getInstant());
+                transition = zoneId.getRules().nextTransition(transition.getInstant());
+            }
+        }
+        instants.add(Instant.parse("2021-03-20T10:11:12Z"));
+
+        assertFormattedAround(zoneId, instants);
+    }
+
+    @ParameterizedTest(name = "in {0}")
+    @ValueSource(strings = {"UTC", "Europe/Berlin", "America/New_York", "Asia/Kolkata"})
+    @DisplayName("should format the time as ISO_DATE_TIME does across midnight, the end of the month and the end of the year")
+    void shouldFormatTheTimeAsIsoDateTimeDoesAcrossMidnightTheEndOfTheMonthAndTheEndOfTheYear(final String zone) {
+        final ZoneId zoneId = ZoneId.of(zone);
+
+        final List<Instant> instants = new ArrayList<>();
+        for (final String midnight : List.of("2021-03-20T00:00:00", "2020-02-29T00:00:00", "2021-03-01T00:00:00", "2022-01-01T00:00:00")) {
+            instants.add(ZonedDateTime.parse(midnight + "Z").withZoneSameLocal(zoneId).toInstant());
+        }
+
+        assertFormattedAround(zoneId, instants);
+    }
+
+    @Test
+    @DisplayName("should format the time as ISO_DATE_TIME does when the clock goes back and when it jumps years ahead")
+    void shouldFormatTheTimeAsIsoDateTimeDoesWhenTheClockGoesBackAndWhenItJumpsYearsAhead() {
+        final ZoneId zoneId = ZoneId.of("Europe/Berlin");
+        final MovableClock clock = new MovableClock(zoneId);
+        final ClockService clockService = new ClockService(clock);
+
+        for (final String instant : List.of("2021-03-20T10:11:12.5Z", "2021-03-20T10:11:11.25Z", "2021-03-20T10:11:12.125Z",
+                "+12021-03-20T10:11:12.1Z", "-0001-12-31T23:59:59.9Z", "2021-03-20T10:11:12Z")) {
+            clock.now = Instant.parse(instant);
+            assertThat(clockService.createdOn()).isEqualTo(expected(clock.now, zoneId));
+        }
+    }
+
+    @Test
+    @DisplayName("should keep the time formatted by every thread apart")
+    void shouldKeepTheTimeFormattedByEveryThreadApart() throws Exception {
+        final ClockService clockService = new ClockService();
+
+        final List<Thread> threads = new ArrayList<>();
+        final List<String> failures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    final String createdOn = clockService.createdOn();
+                    final String parsed = DateTimeFormatter.ISO_DATE_TIME.format(ZonedDateTime.parse(createdOn));
+                    if (!parsed.equals(createdOn)) {
+                        synchronized (failures) {
+                            failures.add(createdOn);
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures).isEmpty();
+    }
+
+    /* Formats the instants from two seconds before to two seconds after every given instant, with every fraction */
+    private static void assertFormattedAround(final ZoneId zoneId, final List<Instant> instants) {
+        final MovableClock clock = new MovableClock(zoneId);
+        final ClockService clockService = new ClockService(clock);
+
+        for (final Instant instant : instants) {
+            for (long second = -2; second <= 2; second++) {
+                for (final int nanos : NANOS) {
+                    clock.now = instant.plusSeconds(second).plusNanos(nanos);
+                    assertThat(clockService.createdOn()).as("at %s", clock.now).isEqualTo(expected(clock.now, zoneId));
+                }
+            }
+        }
+    }
+
+    private static String expected(final Instant instant, final ZoneId zoneId) {
+        return DateTimeFormatter.ISO_DATE_TIME.format(ZonedDateTime.ofInstant(instant, zoneId));
+    }
+
+    /* A clock that only moves when the test moves it */
+    private static class MovableClock extends Clock {
+
+        private final ZoneId zone;
+        private Instant now = Instant.EPOCH;
+
+        private MovableClock(final ZoneId zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return new MovableClock(zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
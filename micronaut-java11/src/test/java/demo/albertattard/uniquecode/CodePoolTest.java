@@ -0,0 +1,213 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Code pool test")
+class CodePoolTest {
+
+    private static final Instant NOW = Instant.parse("2077-04-27T12:34:56Z");
+
+    private final DataAccessGateway gateway = mock(DataAccessGateway.class);
+    private final CodeGenerationService codeGenerationService = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+    private final AtomicReference<Instant> now = new AtomicReference<>(NOW);
+    private final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+            .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+
+    @Test
+    @DisplayName("should not claim a code nor access the table when the pool is disabled")
+    void shouldNotClaimACodeNorAccessTheTableWhenThePoolIsDisabled() {
+        try (CodePool pool = CodePool.disabled()) {
+            pool.start();
+            assertThat(pool.claim(8, null, builder)).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("should claim a reserved code once the pool is filled")
+    void shouldClaimAReservedCodeOnceThePoolIsFilled() {
+        reserveAllCandidates();
+        when(gateway.claimReservedCode(any(), anyString())).thenReturn(true);
+
+        final CodePool pool = createPool(10, 2);
+        pool.start();
+
+        final Optional<String> code = pool.claim(8, null, builder);
+        assertThat(code).hasValueSatisfying(value -> assertThat(value).matches("[A-Z0-9]{8}"));
+        verify(gateway, times(1)).reserveUniqueCodes(anyCollection(), anyString(), eq(NOW.plus(Duration.ofHours(1))));
+        verify(gateway, times(1)).claimReservedCode(eq(builder.code(code.get()).build()), anyString());
+    }
+
+    @Test
+    @DisplayName("should not claim a code of a length that is not pooled")
+    void shouldNotClaimACodeOfALengthThatIsNotPooled() {
+        reserveAllCandidates();
+
+        final CodePool pool = createPool(10, 2);
+        pool.start();
+
+        assertThat(pool.claim(12, null, builder)).isEmpty();
+        verify(gateway, never()).claimReservedCode(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("should refill the pool once it drops to the low-water mark")
+    void shouldRefillThePoolOnceItDropsToTheLowWaterMark() {
+        reserveAllCandidates();
+        when(gateway.claimReservedCode(any(), anyString())).thenReturn(true);
+
+        final CodePool pool = createPool(4, 2);
+        pool.start();
+
+        pool.claim(8, null, builder);
+        verify(gateway, times(1)).reserveUniqueCodes(anyCollection(), anyString(), any());
+
+        pool.claim(8, null, builder);
+        verify(gateway, times(2)).reserveUniqueCodes(anyCollection(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should skip the expired reservations")
+    void shouldSkipTheExpiredReservations() {
+        reserveAllCandidates();
+
+        final CodePool pool = createPool(2, 0);
+        pool.start();
+
+        now.set(NOW.plus(Duration.ofHours(2)));
+        doReturn(List.of()).when(gateway).reserveUniqueCodes(anyCollection(), anyString(), any());
+
+        assertThat(pool.claim(8, null, builder)).isEmpty();
+        verify(gateway, never()).claimReservedCode(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("should give up when the reserved codes were taken over by another container")
+    void shouldGiveUpWhenTheReservedCodesWereTakenOverByAnotherContainer() {
+        reserveAllCandidates();
+        when(gateway.claimReservedCode(any(), anyString())).thenReturn(false);
+
+        final CodePool pool = createPool(10, 2);
+        pool.start();
+
+        assertThat(pool.claim(8, null, builder)).isEmpty();
+        verify(gateway, times(3)).claimReservedCode(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("should take over the abandoned reservations and claim them")
+    void shouldTakeOverTheAbandonedReservationsAndClaimThem() {
+        final CodeReservation abandoned = new CodeReservation("ABANDONE", "other-container", NOW.minusSeconds(1));
+        when(gateway.findExpiredReservations(eq(NOW), anyInt())).thenReturn(List.of(abandoned));
+        when(gateway.takeOverReservation(eq(abandoned), anyString(), eq(NOW.plus(Duration.ofHours(1))))).thenReturn(true);
+        when(gateway.claimReservedCode(any(), anyString())).thenReturn(true);
+
+        final CodePool pool = createPool(10, 2);
+        pool.reclaimAbandonedReservations();
+
+        assertThat(pool.claim(8, null, builder)).hasValue("ABANDONE");
+    }
+
+    @Test
+    @DisplayName("should release the queued reservations when closed")
+    void shouldReleaseTheQueuedReservationsWhenClosed() {
+        reserveAllCandidates();
+
+        final CodePool pool = createPool(10, 2);
+        pool.start();
+        pool.close();
+
+        verify(gateway, times(1)).releaseReservedCodes(argThat(codes -> codes.size() == 10), anyString());
+    }
+
+    @Test
+    @DisplayName("should take a new identity and drop the queued reservations after a restore")
+    @SuppressWarnings("unchecked")
+    void shouldTakeANewIdentityAndDropTheQueuedReservationsAfterARestore() {
+        final List<String> reservedBy = new ArrayList<>();
+        final List<Collection<String>> reserved = new ArrayList<>();
+        when(gateway.reserveUniqueCodes(anyCollection(), anyString(), any())).thenAnswer(invocation -> {
+            reservedBy.add(invocation.getArgument(1));
+            reserved.add(new ArrayList<>((Collection<String>) invocation.getArgument(0)));
+            return new ArrayList<>(reserved.get(reserved.size() - 1));
+        });
+        when(gateway.claimReservedCode(any(), anyString())).thenReturn(true);
+
+        final CodePool pool = createPool(10, 2);
+        pool.start();
+        pool.afterRestore();
+
+        assertThat(reservedBy).hasSize(2);
+        assertThat(reservedBy.get(1)).isNotEqualTo(reservedBy.get(0));
+
+        final Optional<String> code = pool.claim(8, null, builder);
+        assertThat(code).isPresent();
+        assertThat(reserved.get(1)).contains(code.get());
+        verify(gateway, times(1)).claimReservedCode(any(), eq(reservedBy.get(1)));
+
+        pool.close();
+        verify(gateway, times(1)).releaseReservedCodes(argThat(codes -> codes.size() == 9), eq(reservedBy.get(1)));
+    }
+
+    @Test
+    @DisplayName("should reject a low-water mark that is not smaller than the pool size")
+    void shouldRejectALowWaterMarkThatIsNotSmallerThanThePoolSize() {
+        assertThrows(IllegalArgumentException.class, () -> createPool(10, 10));
+    }
+
+    private CodePool createPool(final int size, final int lowWaterMark) {
+        final CodePoolSettings settings = new CodePoolSettings(true, size, lowWaterMark, Set.of(8), Duration.ofHours(1), false);
+        return new CodePool(gateway, codeGenerationService, settings, Runnable::run, new TestClock());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void reserveAllCandidates() {
+        when(gateway.reserveUniqueCodes(anyCollection(), anyString(), any()))
+                .thenAnswer(invocation -> new ArrayList<>((Collection<String>) invocation.getArgument(0)));
+    }
+
+    private class TestClock extends Clock {
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now.get();
+        }
+    }
+}
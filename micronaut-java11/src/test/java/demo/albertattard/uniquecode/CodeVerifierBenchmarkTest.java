@@ -0,0 +1,83 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.createDynamoDbClient;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Compares verifying 10,000 codes one read at a time with verifying them through the batch reads fired in parallel,
+ * against DynamoDB Local.  Half of the codes exist and half do not.  Run with "./gradlew benchmark".
+ */
+@Tag("benchmark")
+@ExtendWith(LocalDynamoDbExtension.class)
+class CodeVerifierBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodeVerifierBenchmarkTest.class);
+
+    private static final int NUMBER_OF_CODES = 10_000;
+    private static final int PARALLELISM = 8;
+
+    private final CodeGenerationService codeGenerationService =
+            new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+
+    @Test
+    @DisplayName("should measure verifying 10,000 codes one at a time and in parallel batches")
+    void shouldMeasureVerifying10000CodesOneAtATimeAndInParallelBatches() {
+        final DataAccessGateway gateway = new DataAccessGateway(createDynamoDbClient());
+        final List<String> codes = createCodes(gateway);
+
+        try (CodeVerifier verifier = CodeVerifier.create(gateway, PARALLELISM)) {
+            /* DynamoDB Local runs within the same JVM and needs to warm up as much as the gateway */
+            verifier.verify(codes);
+            codes.subList(0, 1_000).forEach(gateway::findUniqueCode);
+
+            long start = System.nanoTime();
+            final long found = codes.stream()
+                    .filter(code -> gateway.findUniqueCode(code).isPresent())
+                    .count();
+            report("one read at a time", start);
+            assertThat(found).isEqualTo(NUMBER_OF_CODES / 2);
+
+            start = System.nanoTime();
+            final CodeVerification verification = verifier.verify(codes);
+            report("parallel batch reads", start);
+            assertThat(verification.getFound()).hasSize(NUMBER_OF_CODES / 2);
+            assertThat(verification.getNotFound()).hasSize(NUMBER_OF_CODES / 2);
+        }
+    }
+
+    /* Saves half of the codes and returns all of them shuffled */
+    private List<String> createCodes(final DataAccessGateway gateway) {
+        final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+
+        final List<String> codes = new ArrayList<>(NUMBER_OF_CODES);
+        while (codes.size() < NUMBER_OF_CODES / 2) {
+            codes.addAll(gateway.saveUniqueCodes(builder, 100, () -> codeGenerationService.generate(12), RetryPolicy.defaults()));
+        }
+        /* Codes of a different length, which cannot clash with the saved codes */
+        for (int i = 0; i < NUMBER_OF_CODES / 2; i++) {
+            codes.add(codeGenerationService.generate(16));
+        }
+
+        Collections.shuffle(codes, new Random(42));
+        return codes;
+    }
+
+    private static void report(final String approach, final long start) {
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        LOGGER.info("Verified {} codes with {} in {} seconds ({} codes per second)",
+                NUMBER_OF_CODES, approach, String.format("%.2f", seconds), String.format("%.0f", NUMBER_OF_CODES / seconds));
+    }
+}
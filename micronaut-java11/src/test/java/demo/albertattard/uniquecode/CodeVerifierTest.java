@@ -0,0 +1,114 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CodeVerifierTest {
+
+    private final DataAccessGateway gateway = mock(DataAccessGateway.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<Long> backoffs = new CopyOnWriteArrayList<>();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("should read the distinct codes in batches of 100 and return them in the order given, split into found and not found")
+    @SuppressWarnings("unchecked")
+    void shouldReadTheDistinctCodesInBatchesOf100AndReturnThemInTheOrderGivenSplitIntoFoundAndNotFound() {
+        when(gateway.findExistingCodes(any())).thenAnswer(invocation -> {
+            final List<String> batch = new ArrayList<>((Collection<String>) invocation.getArgument(0));
+            batches.add(batch);
+            final Set<String> existing = batch.stream()
+                    .filter(code -> Integer.parseInt(code) % 2 == 0)
+                    .collect(Collectors.toSet());
+            return new CodeBatchResult(existing, List.of());
+        });
+
+        final List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            codes.add(String.format("%08d", i));
+        }
+        codes.addAll(codes.subList(0, 50));
+
+        final CodeVerification verification = createVerifier().verify(codes);
+
+        assertThat(batches).extracting(List::size).containsExactlyInAnyOrder(100, 100, 50);
+        assertThat(batches.stream().flatMap(List::stream).collect(Collectors.toSet())).hasSize(250);
+        assertThat(verification.getFound()).hasSize(125).startsWith("00000000", "00000002").endsWith("00000248");
+        assertThat(verification.getNotFound()).hasSize(125).startsWith("00000001", "00000003").endsWith("00000249");
+    }
+
+    @Test
+    @DisplayName("should read the codes that were not processed again, backing off between the attempts")
+    void shouldReadTheCodesThatWereNotProcessedAgainBackingOffBetweenTheAttempts() {
+        when(gateway.findExistingCodes(List.of("12345678", "23456789", "34567890")))
+                .thenReturn(new CodeBatchResult(Set.of("12345678"), List.of("23456789", "34567890")));
+        when(gateway.findExistingCodes(List.of("23456789", "34567890")))
+                .thenReturn(new CodeBatchResult(Set.of(), List.of("34567890")));
+        when(gateway.findExistingCodes(List.of("34567890")))
+                .thenReturn(new CodeBatchResult(Set.of("34567890"), List.of()));
+
+        final CodeVerification verification = createVerifier().verify(List.of("12345678", "23456789", "34567890"));
+
+        assertThat(verification.getFound()).containsExactly("12345678", "34567890");
+        assertThat(verification.getNotFound()).containsExactly("23456789");
+        assertThat(backoffs).containsExactly(TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    @DisplayName("should fail when the codes are still not processed after the maximum number of attempts")
+    void shouldFailWhenTheCodesAreStillNotProcessedAfterTheMaximumNumberOfAttempts() {
+        when(gateway.findExistingCodes(any())).thenReturn(new CodeBatchResult(Set.of(), List.of("12345678")));
+
+        assertThatThrownBy(() -> createVerifier().verify(List.of("12345678")))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to verify 1 codes after 10 attempts");
+        verify(gateway, times(10)).findExistingCodes(any());
+        assertThat(backoffs).hasSize(9).last().isEqualTo(TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    @DisplayName("should not verify an empty list of codes, too many codes or a blank code")
+    void shouldNotVerifyAnEmptyListOfCodesTooManyCodesOrABlankCode() {
+        final CodeVerifier verifier = createVerifier();
+        final Set<String> tooMany = new HashSet<>();
+        for (int i = 0; i <= CodeVerifier.MAXIMUM_CODES; i++) {
+            tooMany.add(String.format("%08d", i));
+        }
+
+        assertThatThrownBy(() -> verifier.verify(List.of())).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> verifier.verify(new ArrayList<>(tooMany))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> verifier.verify(List.of("12345678", " "))).isInstanceOf(IllegalArgumentException.class);
+        verify(gateway, never()).findExistingCodes(any());
+    }
+
+    /* The random source always draws the largest backoff, which makes the backoffs predictable */
+    private CodeVerifier createVerifier() {
+        return new CodeVerifier(gateway, executor, () -> -1L, backoffs::add);
+    }
+}
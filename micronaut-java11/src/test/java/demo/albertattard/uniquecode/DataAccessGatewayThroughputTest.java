@@ -0,0 +1,114 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.createDynamoDbAsyncClient;
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.createDynamoDbClient;
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.scanAllItems;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Compares the throughput of the synchronous and asynchronous gateways when saving codes concurrently against DynamoDB
+ * Local.  The synchronous gateway needs a thread per concurrent write, while the asynchronous gateway keeps the same
+ * number of writes in flight without blocking any thread.  Run with "./gradlew benchmark".
+ */
+@Tag("benchmark")
+@ExtendWith(LocalDynamoDbExtension.class)
+class DataAccessGatewayThroughputTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataAccessGatewayThroughputTest.class);
+
+    private static final int NUMBER_OF_WARM_UP_CODES = 2_000;
+    private static final int NUMBER_OF_CODES = 5_000;
+    private static final int CONCURRENCY = 32;
+
+    private final CodeGenerationService codeGenerationService =
+            new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+
+    @Test
+    @DisplayName("should measure the throughput of the synchronous gateway")
+    void shouldMeasureTheThroughputOfTheSynchronousGateway() throws Exception {
+        final DataAccessGateway gateway = new DataAccessGateway(createDynamoDbClient());
+        final CreateUniqueCode.Builder builder = createBuilder();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            /* DynamoDB Local runs within the same JVM and needs to warm up as much as the gateway */
+            saveConcurrently(gateway, builder, executor, NUMBER_OF_WARM_UP_CODES);
+
+            final long start = System.nanoTime();
+            saveConcurrently(gateway, builder, executor, NUMBER_OF_CODES);
+            report("synchronous", start);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(scanAllItems()).hasSize(NUMBER_OF_WARM_UP_CODES + NUMBER_OF_CODES);
+    }
+
+    @Test
+    @DisplayName("should measure the throughput of the asynchronous gateway")
+    void shouldMeasureTheThroughputOfTheAsynchronousGateway() {
+        final AsyncDataAccessGateway gateway = new AsyncDataAccessGateway(createDynamoDbAsyncClient());
+        final CreateUniqueCode.Builder builder = createBuilder();
+
+        /* DynamoDB Local runs within the same JVM and needs to warm up as much as the gateway */
+        saveConcurrently(gateway, builder, NUMBER_OF_WARM_UP_CODES);
+
+        final long start = System.nanoTime();
+        saveConcurrently(gateway, builder, NUMBER_OF_CODES);
+        report("asynchronous", start);
+
+        assertThat(scanAllItems()).hasSize(NUMBER_OF_WARM_UP_CODES + NUMBER_OF_CODES);
+    }
+
+    private void saveConcurrently(final DataAccessGateway gateway, final CreateUniqueCode.Builder builder,
+                                  final ExecutorService executor, final int numberOfCodes) throws Exception {
+        final List<Future<Boolean>> results = new ArrayList<>(numberOfCodes);
+        for (int i = 0; i < numberOfCodes; i++) {
+            final CreateUniqueCode item = builder.code(codeGenerationService.generate(12)).build();
+            results.add(executor.submit(() -> gateway.saveUniqueCode(item)));
+        }
+        for (final Future<Boolean> result : results) {
+            result.get();
+        }
+    }
+
+    private void saveConcurrently(final AsyncDataAccessGateway gateway, final CreateUniqueCode.Builder builder, final int numberOfCodes) {
+        /* Keeps the same number of writes in flight as the synchronous gateway has threads */
+        final Semaphore inFlight = new Semaphore(CONCURRENCY);
+        final List<CompletableFuture<Boolean>> results = new ArrayList<>(numberOfCodes);
+        for (int i = 0; i < numberOfCodes; i++) {
+            inFlight.acquireUninterruptibly();
+            final CreateUniqueCode item = builder.code(codeGenerationService.generate(12)).build();
+            results.add(gateway.saveUniqueCode(item).whenComplete((result, error) -> inFlight.release()));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private static CreateUniqueCode.Builder createBuilder() {
+        return CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+    }
+
+    private static void report(final String gateway, final long start) {
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        LOGGER.info("The {} gateway saved {} codes with {} concurrent writes in {} seconds ({} codes per second)",
+                gateway, NUMBER_OF_CODES, CONCURRENCY, String.format("%.2f", seconds), String.format("%.0f", NUMBER_OF_CODES / seconds));
+    }
+}
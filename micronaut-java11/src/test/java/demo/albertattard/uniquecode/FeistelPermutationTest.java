@@ -0,0 +1,76 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.BitSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FeistelPermutationTest {
+
+    @ParameterizedTest(name = "should map every number of a domain of size {0} to a different number of the same domain")
+    @ValueSource(longs = {1, 2, 10, 36, 1000, 1296, 4099, 46656})
+    void shouldMapEveryNumberToADifferentNumberOfTheSameDomain(final long domainSize) {
+        final FeistelPermutation permutation = new FeistelPermutation(domainSize, "test-key");
+
+        final BitSet observed = new BitSet();
+        for (long number = 0; number < domainSize; number++) {
+            final long permuted = permutation.permute(number);
+            assertThat(permuted)
+                    .describedAs("Permutation of %d", number)
+                    .isBetween(0L, domainSize - 1);
+            assertThat(observed.get((int) permuted))
+                    .describedAs("Found a duplicate %d for %d", permuted, number)
+                    .isFalse();
+            observed.set((int) permuted);
+        }
+    }
+
+    @Test
+    @DisplayName("should map the numbers differently for different keys")
+    void shouldMapTheNumbersDifferentlyForDifferentKeys() {
+        final FeistelPermutation first = new FeistelPermutation(46656, "first-key");
+        final FeistelPermutation second = new FeistelPermutation(46656, "second-key");
+
+        int same = 0;
+        for (long number = 0; number < 1000; number++) {
+            if (first.permute(number) == second.permute(number)) {
+                same++;
+            }
+        }
+        assertThat(same).isLessThan(10);
+    }
+
+    @Test
+    @DisplayName("should map the consecutive numbers to numbers that look random")
+    void shouldMapTheConsecutiveNumbersToNumbersThatLookRandom() {
+        final FeistelPermutation permutation = new FeistelPermutation(2_821_109_907_456L, "test-key");
+
+        int ascending = 0;
+        for (long number = 0; number < 1000; number++) {
+            if (permutation.permute(number) < permutation.permute(number + 1)) {
+                ascending++;
+            }
+        }
+        assertThat(ascending).isBetween(400, 600);
+    }
+
+    @Test
+    @DisplayName("should support the largest domain size")
+    void shouldSupportTheLargestDomainSize() {
+        final FeistelPermutation permutation = new FeistelPermutation(FeistelPermutation.MAXIMUM_DOMAIN_SIZE, "test-key");
+        assertThat(permutation.permute(FeistelPermutation.MAXIMUM_DOMAIN_SIZE - 1))
+                .isBetween(0L, FeistelPermutation.MAXIMUM_DOMAIN_SIZE - 1);
+    }
+
+    @Test
+    @DisplayName("should reject a number outside the domain")
+    void shouldRejectANumberOutsideTheDomain() {
+        final FeistelPermutation permutation = new FeistelPermutation(10, "test-key");
+        assertThrows(IllegalArgumentException.class, () -> permutation.permute(10));
+    }
+}
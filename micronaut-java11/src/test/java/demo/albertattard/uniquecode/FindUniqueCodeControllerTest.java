@@ -0,0 +1,31 @@
+package demo.albertattard.uniquecode;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FindUniqueCodeControllerTest {
+
+    @Test
+    @DisplayName("should return the code as stored, or not found when the code does not exist")
+    void shouldReturnTheCodeAsStoredOrNotFoundWhenTheCodeDoesNotExist() {
+        final CodeLookup codeLookup = mock(CodeLookup.class);
+        final StoredUniqueCode stored = new StoredUniqueCode("12345678", "2077-04-27T12:34:56+01:00[Europe/Berlin]", "used-by-test", null, null);
+        when(codeLookup.find("12345678")).thenReturn(Optional.of(stored));
+        when(codeLookup.find("23456789")).thenReturn(Optional.empty());
+
+        final FindUniqueCodeController controller = new FindUniqueCodeController(codeLookup);
+
+        final HttpResponse<StoredUniqueCode> found = controller.find("12345678");
+        assertThat(found.code()).isEqualTo(HttpStatus.OK.getCode());
+        assertThat(found.body()).isEqualTo(stored);
+        assertThat(controller.find("23456789").code()).isEqualTo(HttpStatus.NOT_FOUND.getCode());
+    }
+}
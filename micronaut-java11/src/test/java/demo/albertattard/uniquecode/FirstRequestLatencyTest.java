@@ -0,0 +1,108 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.createDynamoDbClient;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Measures the latency of the first request handled by a fresh JVM, with and without priming, against DynamoDB Local.
+ * Each run starts a new JVM, as only a new JVM pays for the class loading, the interpreter and the new connection that
+ * a Lambda cold start adds to the first request.  DynamoDB Local is reached over plain HTTP, thus the TLS handshake of
+ * the real DynamoDB, which priming moves to the init phase too, is not part of the measurements.  Run with
+ * "./gradlew benchmark".
+ */
+@Tag("benchmark")
+@ExtendWith(LocalDynamoDbExtension.class)
+class FirstRequestLatencyTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FirstRequestLatencyTest.class);
+
+    private static final int NUMBER_OF_RUNS = 5;
+    private static final String PREFIX = "FIRST_REQUEST_MICROS=";
+
+    @Test
+    @DisplayName("should lower the latency of the first request when the function is primed")
+    void shouldLowerTheLatencyOfTheFirstRequestWhenTheFunctionIsPrimed() throws Exception {
+        final long unprimed = medianInMicros(false);
+        final long primed = medianInMicros(true);
+
+        LOGGER.info("The first request took {} microseconds without priming and {} microseconds with priming (median of {} fresh JVMs each)",
+                unprimed, primed, NUMBER_OF_RUNS);
+        assertThat(primed).isLessThan(unprimed);
+    }
+
+    private static long medianInMicros(final boolean primed) throws Exception {
+        final long[] latencies = new long[NUMBER_OF_RUNS];
+        for (int i = 0; i < NUMBER_OF_RUNS; i++) {
+            latencies[i] = firstRequestInMicros(primed);
+        }
+
+        Arrays.sort(latencies);
+        return latencies[NUMBER_OF_RUNS / 2];
+    }
+
+    private static long firstRequestInMicros(final boolean primed) throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Daws.accessKeyId=anything",
+                "-Daws.secretAccessKey=anything",
+                "-Daws.region=eu-central-1",
+                FirstRequest.class.getName(),
+                String.valueOf(primed))
+                .redirectErrorStream(true)
+                .start();
+
+        long micros = -1;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(PREFIX)) {
+                    micros = Long.parseLong(line.substring(PREFIX.length()));
+                }
+            }
+        }
+
+        assertThat(process.waitFor(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(process.exitValue()).isEqualTo(0);
+        assertThat(micros).describedAs("The latency reported by the fresh JVM").isPositive();
+        return micros;
+    }
+
+    /* Wires the controller as the function does, optionally primes it, and prints the latency of the first request */
+    public static class FirstRequest {
+
+        public static void main(final String[] args) {
+            final DataAccessGateway gateway = new DataAccessGateway(createDynamoDbClient());
+            final CodeGenerationService codeGenerationService =
+                    new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+            final ClockService clockService = new ClockService();
+            final Primer primer = new Primer(gateway, codeGenerationService, clockService);
+            final UniqueCodeController controller = new UniqueCodeController(gateway, codeGenerationService, clockService,
+                    CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), primer, DeferredMetadataWriter.disabled(),
+                    CapacityAccounting.disabled(), IdempotentRequests.disabled());
+
+            if (Boolean.parseBoolean(args[0])) {
+                primer.prime();
+            }
+
+            final long start = System.nanoTime();
+            controller.create(new CreateUniqueCodeRequest());
+            System.out.println(PREFIX + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.createDynamoDbClient;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Compares the HTTP clients the DynamoDB client can be configured with against DynamoDB Local.  Each run starts a new
+ * JVM, which measures the cold start (building the client and saving the first code), then the p50 and p99 latency of
+ * saving codes concurrently once warm, and the heap and classes the client leaves behind.  The median of the runs is
+ * reported for each client.  Run with "./gradlew benchmark".
+ */
+@Tag("benchmark")
+@ExtendWith(LocalDynamoDbExtension.class)
+class HttpClientBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientBenchmarkTest.class);
+
+    private static final int NUMBER_OF_RUNS = 3;
+    private static final String PREFIX = "HTTP_CLIENT_RESULT=";
+
+    @Test
+    @DisplayName("should report the cold start, the warm latency and the memory of every HTTP client")
+    void shouldReportTheColdStartTheWarmLatencyAndTheMemoryOfEveryHttpClient() throws Exception {
+        final List<Result> results = new ArrayList<>();
+        for (final String type : List.of("url-connection", "apache")) {
+            results.add(median(type));
+        }
+
+        LOGGER.info(String.format("%-16s %10s %10s %10s %10s %10s", "HTTP client", "Cold (ms)", "p50 (us)", "p99 (us)", "Heap (KB)", "Classes"));
+        for (final Result result : results) {
+            LOGGER.info(String.format("%-16s %10d %10d %10d %10d %10d", result.type, result.coldMillis, result.p50Micros,
+                    result.p99Micros, result.heapKilobytes, result.classes));
+        }
+
+        assertThat(results).allSatisfy(result -> assertThat(result.p99Micros).isGreaterThanOrEqualTo(result.p50Micros));
+    }
+
+    private static Result median(final String type) throws Exception {
+        final List<Result> runs = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_RUNS; i++) {
+            runs.add(run(type));
+        }
+
+        return new Result(type,
+                median(runs, r -> r.coldMillis),
+                median(runs, r -> r.p50Micros),
+                median(runs, r -> r.p99Micros),
+                median(runs, r -> r.heapKilobytes),
+                median(runs, r -> r.classes));
+    }
+
+    private static long median(final List<Result> runs, final ToLongFunction<Result> metric) {
+        return runs.stream()
+                .mapToLong(metric)
+                .sorted()
+                .skip(runs.size() / 2)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Result run(final String type) throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Daws.accessKeyId=anything",
+                "-Daws.secretAccessKey=anything",
+                "-Daws.region=eu-central-1",
+                Measurement.class.getName(),
+                type)
+                .redirectErrorStream(true)
+                .start();
+
+        Result result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(PREFIX)) {
+                    final long[] values = Arrays.stream(line.substring(PREFIX.length()).split(","))
+                            .mapToLong(Long::parseLong)
+                            .toArray();
+                    result = new Result(type, values[0], values[1], values[2], values[3], values[4]);
+                }
+            }
+        }
+
+        assertThat(process.waitFor(2, TimeUnit.MINUTES)).isTrue();
+        assertThat(process.exitValue()).isEqualTo(0);
+        assertThat(result).describedAs("The measurements reported by the fresh JVM").isNotNull();
+        return result;
+    }
+
+    private static class Result {
+        private final String type;
+        private final long coldMillis;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long heapKilobytes;
+        private final long classes;
+
+        private Result(final String type, final long coldMillis, final long p50Micros, final long p99Micros,
+                       final long heapKilobytes, final long classes) {
+            this.type = type;
+            this.coldMillis = coldMillis;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.heapKilobytes = heapKilobytes;
+            this.classes = classes;
+        }
+    }
+
+    /* Builds the DynamoDB client with the given HTTP client, saves codes through it and prints what was measured */
+    public static class Measurement {
+
+        private static final int NUMBER_OF_THREADS = 8;
+        private static final int WARM_UP_REQUESTS = 500;
+        private static final int MEASURED_REQUESTS = 2_000;
+
+        public static void main(final String[] args) throws Exception {
+            final CodeGenerationService codeGenerationService =
+                    new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+            final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(new CreateUniqueCodeRequest()).createdOn("2020-02-22T22:22:22.222Z");
+
+            final long start = System.nanoTime();
+            final DataAccessGateway gateway = new DataAccessGateway(createDynamoDbClient(HttpClients.of(args[0], NUMBER_OF_THREADS * 2)));
+            gateway.saveUniqueCode(builder.code(codeGenerationService.generate(16)).build());
+            final long coldMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            final ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+            try {
+                save(executor, gateway, codeGenerationService, WARM_UP_REQUESTS);
+                final long[] latencies = save(executor, gateway, codeGenerationService, MEASURED_REQUESTS);
+                Arrays.sort(latencies);
+
+                System.gc();
+                final long heapKilobytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024;
+                final long classes = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+
+                System.out.println(PREFIX + coldMillis
+                        + "," + TimeUnit.NANOSECONDS.toMicros(percentile(latencies, 0.50))
+                        + "," + TimeUnit.NANOSECONDS.toMicros(percentile(latencies, 0.99))
+                        + "," + heapKilobytes
+                        + "," + classes);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private static long[] save(final ExecutorService executor, final DataAccessGateway gateway,
+                                   final CodeGenerationService codeGenerationService, final int numberOfRequests) throws Exception {
+            final List<Future<Long>> futures = new ArrayList<>(numberOfRequests);
+            for (int i = 0; i < numberOfRequests; i++) {
+                futures.add(executor.submit(() -> {
+                    final CreateUniqueCode item = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                            .createdOn("2020-02-22T22:22:22.222Z")
+                            .code(codeGenerationService.generate(16))
+                            .build();
+                    final long start = System.nanoTime();
+                    gateway.saveUniqueCode(item);
+                    return System.nanoTime() - start;
+                }));
+            }
+
+            final long[] latencies = new long[numberOfRequests];
+            for (int i = 0; i < numberOfRequests; i++) {
+                latencies[i] = futures.get(i).get();
+            }
+            return latencies;
+        }
+
+        private static long percentile(final long[] sorted, final double percentile) {
+            return sorted[(int) Math.ceil(sorted.length * percentile) - 1];
+        }
+    }
+}
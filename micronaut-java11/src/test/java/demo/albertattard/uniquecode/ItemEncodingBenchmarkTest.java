@@ -0,0 +1,133 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static demo.albertattard.uniquecode.LocalDynamoDbExtension.createDynamoDbClient;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Compares the size of the items, and the write capacity their writes consume, in the legacy and in the compact schema,
+ * against DynamoDB Local.  The codes carry a mix of descriptions: none, a short sentence, a paragraph and long notes.
+ * Run with "./gradlew benchmark".
+ */
+@Tag("benchmark")
+@ExtendWith(LocalDynamoDbExtension.class)
+class ItemEncodingBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ItemEncodingBenchmarkTest.class);
+
+    private static final int NUMBER_OF_CODES = 2_000;
+
+    private static final String[] WORDS = {
+            "the", "voucher", "is", "valid", "for", "one", "purchase", "of", "any", "item", "in", "store", "and", "online",
+            "until", "end", "month", "customer", "issued", "by", "support", "after", "complaint", "about", "late",
+            "delivery", "order", "refund", "cannot", "be", "combined", "with", "other", "offers", "campaign", "spring",
+            "newsletter", "subscribers", "only", "per", "household", "excluding", "gift", "cards", "shipping", "fees"
+    };
+
+    private final CodeGenerationService codeGenerationService =
+            new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+
+    @Test
+    @DisplayName("should measure the item size and the write units per write of the legacy and the compact schema")
+    void shouldMeasureTheItemSizeAndTheWriteUnitsPerWriteOfTheLegacyAndTheCompactSchema() {
+        /* Every schema writes codes of its own, which carry the same metadata, as the codes are not deleted */
+        final double[] legacy = measure(ItemEncoding.legacy(), createItems());
+        final double[] compact = measure(new ItemEncoding(true, 256), createItems());
+        report("legacy", legacy);
+        report("compact", compact);
+
+        assertThat(compact[0]).isLessThan(legacy[0]);
+        assertThat(compact[1]).isLessThanOrEqualTo(legacy[1]);
+    }
+
+    /* Writes the items and returns their average size, in bytes, and the average write units each write consumed */
+    private static double[] measure(final ItemEncoding itemEncoding, final List<CreateUniqueCode> items) {
+        final CapacityAccounting accounting = new CapacityAccounting(true);
+        final DataAccessGateway gateway = new DataAccessGateway(createDynamoDbClient(), WriteGovernor.disabled(), accounting, itemEncoding);
+
+        long bytes = 0;
+        for (final CreateUniqueCode item : items) {
+            bytes += sizeOf(itemEncoding.encode(item));
+            assertThat(gateway.saveUniqueCode(item)).isTrue();
+        }
+
+        final double writeUnits = accounting.metrics().getWriteUnits();
+        return new double[]{(double) bytes / items.size(), writeUnits / items.size()};
+    }
+
+    /* The size DynamoDB bills an item for: the names and the values of its attributes, numbers taking a byte per two digits */
+    private static int sizeOf(final Map<String, AttributeValue> item) {
+        int bytes = 0;
+        for (final Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            bytes += entry.getKey().getBytes(StandardCharsets.UTF_8).length;
+            final AttributeValue value = entry.getValue();
+            if (value.s() != null) {
+                bytes += value.s().getBytes(StandardCharsets.UTF_8).length;
+            } else if (value.n() != null) {
+                bytes += (value.n().length() + 1) / 2 + 1;
+            } else {
+                bytes += value.b().asByteArrayUnsafe().length;
+            }
+        }
+        return bytes;
+    }
+
+    private List<CreateUniqueCode> createItems() {
+        final Random random = new Random(42);
+        final ClockService clockService = new ClockService();
+
+        final List<CreateUniqueCode> items = new ArrayList<>(NUMBER_OF_CODES);
+        for (int i = 0; i < NUMBER_OF_CODES; i++) {
+            final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+            request.setUsedBy("tenant-" + random.nextInt(50));
+            if (random.nextBoolean()) {
+                request.setReference("order-" + (1_000_000 + random.nextInt(9_000_000)));
+            }
+
+            /* 40% without a description, 35% with a sentence, 15% with a paragraph and 10% with long notes */
+            final int mix = random.nextInt(100);
+            if (mix >= 90) {
+                request.setDescription(words(random, 200 + random.nextInt(400)));
+            } else if (mix >= 75) {
+                request.setDescription(words(random, 40 + random.nextInt(80)));
+            } else if (mix >= 40) {
+                request.setDescription(words(random, 3 + random.nextInt(8)));
+            }
+
+            items.add(CreateUniqueCode.builder(request)
+                    .createdOn(clockService.createdOn())
+                    .code(codeGenerationService.generate(12))
+                    .build());
+        }
+        return items;
+    }
+
+    private static String words(final Random random, final int count) {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(i % 12 == 0 ? ". " : " ");
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.append('.').toString();
+    }
+
+    private static void report(final String schema, final double[] measured) {
+        LOGGER.info("Wrote {} codes in the {} schema, averaging {} bytes per item and {} write units per write",
+                NUMBER_OF_CODES, schema, String.format("%.1f", measured[0]), String.format("%.3f", measured[1]));
+    }
+}
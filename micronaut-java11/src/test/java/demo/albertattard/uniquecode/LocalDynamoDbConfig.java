@@ -4,6 +4,7 @@ import io.micronaut.context.annotation.Bean;
 import io.micronaut.context.annotation.Factory;
 import io.micronaut.context.annotation.Primary;
 import io.micronaut.context.env.Environment;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 @Factory
@@ -14,4 +15,10 @@ public class LocalDynamoDbConfig {
     DynamoDbClient dynamoDbClient(final Environment environment) {
         return LocalDynamoDbExtension.createDynamoDbClient();
     }
+
+    @Bean
+    @Primary
+    DynamoDbAsyncClient dynamoDbAsyncClient(final Environment environment) {
+        return LocalDynamoDbExtension.createDynamoDbAsyncClient();
+    }
 }
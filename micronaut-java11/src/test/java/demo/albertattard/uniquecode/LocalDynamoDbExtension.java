@@ -9,12 +9,16 @@ import org.junit.jupiter.api.extension.ExtensionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.SystemPropertyCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.BillingMode;
 import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
@@ -45,8 +49,12 @@ public class LocalDynamoDbExtension implements BeforeEachCallback, AfterAllCallb
 
     @Override
     public void beforeEach(ExtensionContext context) throws Exception {
-        deleteTable();
+        deleteTable("UniqueCodes");
+        deleteTable("UniqueCodeCounters");
+        deleteTable("UniqueCodeRequests");
         createTable();
+        createCountersTable();
+        createRequestsTable();
     }
 
     @Override
@@ -89,14 +97,50 @@ public class LocalDynamoDbExtension implements BeforeEachCallback, AfterAllCallb
         withClient(client ->
                 client.createTable(builder ->
                         builder.tableName("UniqueCodes")
-                                .attributeDefinitions(b -> b.attributeName("Code").attributeType(ScalarAttributeType.S).build())
+                                .attributeDefinitions(
+                                        b -> b.attributeName("Code").attributeType(ScalarAttributeType.S).build(),
+                                        b -> b.attributeName("ReservationStatus").attributeType(ScalarAttributeType.S).build(),
+                                        b -> b.attributeName("ReservedUntil").attributeType(ScalarAttributeType.N).build())
                                 .keySchema(b -> b.attributeName("Code").keyType(KeyType.HASH))
+                                .globalSecondaryIndexes(b -> b.indexName("Reservations")
+                                        .keySchema(k -> k.attributeName("ReservationStatus").keyType(KeyType.HASH),
+                                                k -> k.attributeName("ReservedUntil").keyType(KeyType.RANGE))
+                                        .projection(p -> p.projectionType(ProjectionType.INCLUDE).nonKeyAttributes("ReservedBy"))
+                                        .provisionedThroughput(t -> t.readCapacityUnits(1L).writeCapacityUnits(1L)))
                                 .billingMode(BillingMode.PROVISIONED)
                                 .provisionedThroughput(b -> b.readCapacityUnits(3L).writeCapacityUnits(3L))
                 )
         );
     }
 
+    private static void createCountersTable() {
+        LOGGER.debug("Creating DynamoDB counters table");
+        /* This needs to match what we defined in the terraform files */
+        withClient(client ->
+                client.createTable(builder ->
+                        builder.tableName("UniqueCodeCounters")
+                                .attributeDefinitions(b -> b.attributeName("Counter").attributeType(ScalarAttributeType.S).build())
+                                .keySchema(b -> b.attributeName("Counter").keyType(KeyType.HASH))
+                                .billingMode(BillingMode.PROVISIONED)
+                                .provisionedThroughput(b -> b.readCapacityUnits(1L).writeCapacityUnits(1L))
+                )
+        );
+    }
+
+    private static void createRequestsTable() {
+        LOGGER.debug("Creating DynamoDB requests table");
+        /* This needs to match what we defined in the terraform files */
+        withClient(client ->
+                client.createTable(builder ->
+                        builder.tableName("UniqueCodeRequests")
+                                .attributeDefinitions(b -> b.attributeName("IdempotencyKey").attributeType(ScalarAttributeType.S).build())
+                                .keySchema(b -> b.attributeName("IdempotencyKey").keyType(KeyType.HASH))
+                                .billingMode(BillingMode.PROVISIONED)
+                                .provisionedThroughput(b -> b.readCapacityUnits(1L).writeCapacityUnits(1L))
+                )
+        );
+    }
+
     private static void withClient(final Consumer<DynamoDbClient> consumer) {
         consumer.accept(createDynamoDbClient());
     }
@@ -128,10 +172,10 @@ public class LocalDynamoDbExtension implements BeforeEachCallback, AfterAllCallb
         );
     }
 
-    private static void deleteTable() {
-        LOGGER.debug("Deleting DynamoDB table");
+    private static void deleteTable(final String tableName) {
+        LOGGER.debug("Deleting DynamoDB table {}", tableName);
         try {
-            withClient(client -> client.deleteTable(builder -> builder.tableName("UniqueCodes")));
+            withClient(client -> client.deleteTable(builder -> builder.tableName(tableName)));
         } catch (final ResourceNotFoundException e) {
             /* The table did not exist */
         } catch (final RuntimeException e) {
@@ -151,6 +195,23 @@ public class LocalDynamoDbExtension implements BeforeEachCallback, AfterAllCallb
     }
 
     public static DynamoDbClient createDynamoDbClient() {
+        return createDynamoDbClient(UrlConnectionHttpClient.builder()
+                .connectionTimeout(Duration.ofSeconds(2))
+                .socketTimeout(Duration.ofSeconds(2))
+                .build());
+    }
+
+    public static DynamoDbClient createDynamoDbClient(final SdkHttpClient httpClient) {
+        return DynamoDbClient.builder()
+                .region(Region.EU_CENTRAL_1)
+                .endpointOverride(ENDPOINT)
+                .credentialsProvider(SystemPropertyCredentialsProvider.create())
+                .httpClient(httpClient)
+                .build();
+    }
+
+    /* Creates a client that is only allowed what the policy of the function allows, as the function's client is */
+    public static DynamoDbClient createDynamoDbClient(final TerraformPolicy policy) {
         return DynamoDbClient.builder()
                 .region(Region.EU_CENTRAL_1)
                 .endpointOverride(ENDPOINT)
@@ -158,6 +219,18 @@ public class LocalDynamoDbExtension implements BeforeEachCallback, AfterAllCallb
                 .httpClientBuilder(UrlConnectionHttpClient.builder()
                         .connectionTimeout(Duration.ofSeconds(2))
                         .socketTimeout(Duration.ofSeconds(2)))
+                .overrideConfiguration(configuration -> configuration.addExecutionInterceptor(policy))
+                .build();
+    }
+
+    public static DynamoDbAsyncClient createDynamoDbAsyncClient() {
+        return DynamoDbAsyncClient.builder()
+                .region(Region.EU_CENTRAL_1)
+                .endpointOverride(ENDPOINT)
+                .credentialsProvider(SystemPropertyCredentialsProvider.create())
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .connectionTimeout(Duration.ofSeconds(2))
+                        .readTimeout(Duration.ofSeconds(2)))
                 .build();
     }
 
@@ -0,0 +1,105 @@
+package demo.albertattard.uniquecode;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.opentest4j.AssertionFailedError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/*
+ * Measures the bytes allocated by the current thread, as reported by the HotSpot ThreadMXBean, and the wall time of
+ * every invocation of the code path passed to the runner.  The test fails when the average allocations per invocation
+ * exceed the budget of the PerformanceBudget annotation, while the average time is reported and only logged when it
+ * exceeds its target.  The test is skipped when the JVM cannot measure the allocations.
+ */
+public class PerformanceBudgetExtension implements ParameterResolver, AfterTestExecutionCallback {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PerformanceBudgetExtension.class);
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(PerformanceBudgetExtension.class);
+
+    @Override
+    public boolean supportsParameter(final ParameterContext parameterContext, final ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == Runner.class;
+    }
+
+    @Override
+    public Object resolveParameter(final ParameterContext parameterContext, final ExtensionContext extensionContext) {
+        final PerformanceBudget budget = extensionContext.getRequiredTestMethod().getAnnotation(PerformanceBudget.class);
+        final Runner runner = new Runner(budget);
+        extensionContext.getStore(NAMESPACE).put(Runner.class, runner);
+        return runner;
+    }
+
+    @Override
+    public void afterTestExecution(final ExtensionContext context) {
+        final Runner runner = context.getStore(NAMESPACE).get(Runner.class, Runner.class);
+        if (runner == null || !runner.measured) {
+            throw new AssertionFailedError("The test did not pass a code path to the performance budget runner");
+        }
+
+        context.publishReportEntry(Map.of(
+                "allocatedBytesPerInvocation", String.valueOf(runner.bytesPerInvocation),
+                "microsPerInvocation", String.valueOf(runner.microsPerInvocation),
+                "targetMicrosPerInvocation", String.valueOf(runner.budget.targetMicrosPerInvocation())
+        ));
+    }
+
+    public static class Runner {
+
+        private final PerformanceBudget budget;
+        private boolean measured;
+        private long bytesPerInvocation;
+        private double microsPerInvocation;
+
+        private Runner(final PerformanceBudget budget) {
+            this.budget = budget;
+        }
+
+        public void run(final Runnable invocation) {
+            final ThreadMXBean threads = threadMXBean();
+            final long threadId = Thread.currentThread().getId();
+
+            for (int i = 0; i < budget.warmUpInvocations(); i++) {
+                invocation.run();
+            }
+
+            final long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+            final long start = System.nanoTime();
+            for (int i = 0; i < budget.invocations(); i++) {
+                invocation.run();
+            }
+            final long elapsed = System.nanoTime() - start;
+            final long bytesAfter = threads.getThreadAllocatedBytes(threadId);
+
+            measured = true;
+            bytesPerInvocation = (bytesAfter - bytesBefore) / budget.invocations();
+            microsPerInvocation = elapsed / 1_000.0 / budget.invocations();
+
+            if (bytesPerInvocation > budget.maximumBytesPerInvocation()) {
+                throw new AssertionFailedError(String.format("Allocated %d bytes per invocation, exceeding the budget of %d bytes",
+                        bytesPerInvocation, budget.maximumBytesPerInvocation()));
+            }
+            if (microsPerInvocation > budget.targetMicrosPerInvocation()) {
+                LOGGER.warn(String.format("Took %.1f us per invocation, exceeding the target of %d us",
+                        microsPerInvocation, budget.targetMicrosPerInvocation()));
+            }
+        }
+
+        private static ThreadMXBean threadMXBean() {
+            final ThreadMXBean threads = ManagementFactory.getPlatformMXBean(ThreadMXBean.class);
+            assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported(), "The JVM does not measure the bytes allocated by a thread");
+
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class PrimerTest {
+
+    private final DataAccessGateway gateway = mock(DataAccessGateway.class);
+    private final ClockService clockService = mock(ClockService.class);
+
+    @Test
+    @DisplayName("should prime the gateway with a generated code without leasing sequence blocks")
+    void shouldPrimeTheGatewayWithAGeneratedCodeWithoutLeasingSequenceBlocks() {
+        final SequenceBlockSource source = mock(SequenceBlockSource.class);
+        final CodeGenerationService codeGenerationService = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(),
+                new SequentialCodeGenerator(source, "test-key", 100));
+        when(clockService.createdOn()).thenReturn("2077-04-27T12:34:56Z");
+
+        final Primer primer = new Primer(gateway, codeGenerationService, clockService);
+        primer.prime();
+
+        final ArgumentCaptor<CreateUniqueCode> item = ArgumentCaptor.forClass(CreateUniqueCode.class);
+        verify(gateway, times(1)).prime(item.capture());
+        assertThat(item.getValue().getCode()).matches("[A-Z0-9]{8}");
+        assertThat(item.getValue().getCreatedOn()).isEqualTo("2077-04-27T12:34:56Z");
+        verifyNoMoreInteractions(gateway, source);
+    }
+
+    @Test
+    @DisplayName("should not fail when DynamoDB cannot be reached")
+    void shouldNotFailWhenDynamoDbCannotBeReached() {
+        final CodeGenerationService codeGenerationService = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+        doThrow(SdkClientException.create("Simulating an unreachable DynamoDB")).when(gateway).prime(any());
+
+        final Primer primer = new Primer(gateway, codeGenerationService, clockService);
+
+        assertThat(primer.prime()).isPositive();
+        verify(gateway, times(1)).prime(any());
+    }
+}
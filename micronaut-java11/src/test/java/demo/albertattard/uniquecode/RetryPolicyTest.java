@@ -0,0 +1,198 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RetryPolicyTest {
+
+    /* Always picks the largest backoff, which makes the jitter predictable */
+    private static final RandomSource LARGEST_BACKOFF = () -> -1L;
+
+    private final List<Long> sleeps = new ArrayList<>();
+
+    @Test
+    @DisplayName("should retry a collision straight away without backing off")
+    void shouldRetryACollisionStraightAwayWithoutBackingOff() {
+        final RetryPolicy policy = new RetryPolicy(RetrySettings.defaults(), LARGEST_BACKOFF, sleeps::add);
+
+        final Optional<String> result = policy.execute(attempt -> attempt < 3 ? Optional.empty() : Optional.of("12345678"));
+
+        assertThat(result).contains("12345678");
+        assertThat(sleeps).isEmpty();
+        assertThat(policy.metrics()).isEqualTo(new RetryMetrics(1, 3, 2, 0, 0, Duration.ZERO));
+    }
+
+    @Test
+    @DisplayName("should return nothing when all attempts collide")
+    void shouldReturnNothingWhenAllAttemptsCollide() {
+        final RetryPolicy policy = new RetryPolicy(RetrySettings.defaults(), LARGEST_BACKOFF, sleeps::add);
+
+        assertThat(policy.execute(attempt -> Optional.empty())).isEmpty();
+        assertThat(policy.metrics()).isEqualTo(new RetryMetrics(1, 5, 5, 0, 1, Duration.ZERO));
+    }
+
+    @Test
+    @DisplayName("should back off exponentially, up to the maximum backoff, when throttled")
+    void shouldBackOffExponentiallyUpToTheMaximumBackoffWhenThrottled() {
+        final RetrySettings settings = new RetrySettings(5, Duration.ofMillis(50), Duration.ofMillis(80), Duration.ofSeconds(5));
+        final RetryPolicy policy = new RetryPolicy(settings, LARGEST_BACKOFF, sleeps::add);
+
+        final Optional<String> result = policy.execute(attempt -> {
+            if (attempt < 4) {
+                throw throttled();
+            }
+            return Optional.of("12345678");
+        });
+
+        assertThat(result).contains("12345678");
+        assertThat(sleeps).containsExactly(millis(50), millis(80), millis(80));
+        assertThat(policy.metrics()).isEqualTo(new RetryMetrics(1, 4, 0, 3, 0, Duration.ofMillis(210)));
+    }
+
+    @Test
+    @DisplayName("should keep the backoff between zero and the exponential backoff")
+    void shouldKeepTheBackoffBetweenZeroAndTheExponentialBackoff() {
+        final RetrySettings settings = new RetrySettings(5, Duration.ofMillis(50), Duration.ofSeconds(1), Duration.ofSeconds(5));
+        final RetryPolicy policy = new RetryPolicy(settings, RandomSource.fast(), sleeps::add);
+
+        for (int i = 0; i < 100; i++) {
+            policy.execute(attempt -> attempt == 1 ? throwThrottled() : Optional.of("12345678"));
+        }
+
+        assertThat(sleeps)
+                .hasSize(100)
+                .allSatisfy(sleep -> assertThat(sleep).isBetween(0L, millis(50)));
+    }
+
+    @Test
+    @DisplayName("should throw the throttling error when the attempts run out")
+    void shouldThrowTheThrottlingErrorWhenTheAttemptsRunOut() {
+        final RetryPolicy policy = new RetryPolicy(RetrySettings.defaults(), LARGEST_BACKOFF, sleeps::add);
+
+        assertThrows(ProvisionedThroughputExceededException.class, () -> policy.execute(attempt -> throwThrottled()));
+        assertThat(sleeps).hasSize(4);
+        assertThat(policy.metrics().getThrottles()).isEqualTo(5);
+        assertThat(policy.metrics().getExhausted()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not back off beyond the time budget")
+    void shouldNotBackOffBeyondTheTimeBudget() {
+        final RetrySettings settings = new RetrySettings(10, Duration.ofMillis(50), Duration.ofSeconds(1), Duration.ofMillis(120));
+        final RetryPolicy policy = new RetryPolicy(settings, LARGEST_BACKOFF, sleeps::add);
+
+        assertThrows(ProvisionedThroughputExceededException.class, () -> policy.execute(attempt -> throwThrottled()));
+        assertThat(sleeps).containsExactly(millis(50), millis(100));
+        assertThat(policy.metrics().getAttempts()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should not retry an error that is neither a collision nor throttling")
+    void shouldNotRetryAnErrorThatIsNeitherACollisionNorThrottling() {
+        final RetryPolicy policy = new RetryPolicy(RetrySettings.defaults(), LARGEST_BACKOFF, sleeps::add);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> policy.execute(attempt -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Simulating an unexpected error");
+        }));
+        assertThat(attempts).hasValue(1);
+        assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should back off when a transaction is cancelled as one of its writes is throttled")
+    void shouldBackOffWhenATransactionIsCancelledAsOneOfItsWritesIsThrottled() {
+        final RetryPolicy policy = new RetryPolicy(RetrySettings.defaults(), LARGEST_BACKOFF, sleeps::add);
+
+        final Optional<String> result = policy.execute(attempt -> {
+            if (attempt == 1) {
+                throw cancelled("None", "ThrottlingError");
+            }
+            return Optional.of("12345678");
+        });
+
+        assertThat(result).contains("12345678");
+        assertThat(sleeps).containsExactly(millis(50));
+        assertThat(policy.metrics().getThrottles()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not retry a transaction that is cancelled for a reason other than throttling")
+    void shouldNotRetryATransactionThatIsCancelledForAReasonOtherThanThrottling() {
+        final RetryPolicy policy = new RetryPolicy(RetrySettings.defaults(), LARGEST_BACKOFF, sleeps::add);
+
+        assertThrows(TransactionCanceledException.class, () -> policy.execute(attempt -> {
+            throw cancelled("None", "ValidationError");
+        }));
+        assertThat(sleeps).isEmpty();
+        assertThat(policy.metrics().getThrottles()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should back off without blocking when an asynchronous attempt is throttled")
+    void shouldBackOffWithoutBlockingWhenAnAsynchronousAttemptIsThrottled() {
+        final RetrySettings settings = new RetrySettings(5, Duration.ofMillis(1), Duration.ofMillis(10), Duration.ofSeconds(5));
+        final RetryPolicy policy = new RetryPolicy(settings, LARGEST_BACKOFF, sleeps::add);
+
+        final Optional<String> result = policy.<String>executeAsync(attempt -> {
+            switch (attempt) {
+                case 1:
+                    return CompletableFuture.failedFuture(throttled());
+                case 2:
+                    return CompletableFuture.completedFuture(Optional.empty());
+                default:
+                    return CompletableFuture.completedFuture(Optional.of("12345678"));
+            }
+        }).join();
+
+        assertThat(result).contains("12345678");
+        assertThat(sleeps).isEmpty();
+        assertThat(policy.metrics()).isEqualTo(new RetryMetrics(1, 3, 1, 1, 0, Duration.ofMillis(1)));
+    }
+
+    @Test
+    @DisplayName("should return nothing when all asynchronous attempts collide")
+    void shouldReturnNothingWhenAllAsynchronousAttemptsCollide() {
+        final RetryPolicy policy = new RetryPolicy(RetrySettings.defaults(), LARGEST_BACKOFF, sleeps::add);
+
+        assertThat(policy.<String>executeAsync(attempt -> CompletableFuture.completedFuture(Optional.empty())).join()).isEmpty();
+        assertThat(policy.metrics()).isEqualTo(new RetryMetrics(1, 5, 5, 0, 1, Duration.ZERO));
+    }
+
+    private static Optional<String> throwThrottled() {
+        throw throttled();
+    }
+
+    private static ProvisionedThroughputExceededException throttled() {
+        return ProvisionedThroughputExceededException.builder().message("Simulating a throttled write").build();
+    }
+
+    private static TransactionCanceledException cancelled(final String... codes) {
+        return TransactionCanceledException.builder()
+                .message("Simulating a cancelled transaction")
+                .cancellationReasons(Arrays.stream(codes)
+                        .map(code -> CancellationReason.builder().code(code).build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private static long millis(final long millis) {
+        return Duration.ofMillis(millis).toNanos();
+    }
+}
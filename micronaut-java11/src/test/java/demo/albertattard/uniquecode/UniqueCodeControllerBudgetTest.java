@@ -0,0 +1,40 @@
+package demo.albertattard.uniquecode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/*
+ * Guards the allocations of the create path against regressions, and reports its time.  The codes are saved in memory,
+ * thus the budgets cover the controller, the code generation and the building of the DynamoDB requests, but not the
+ * network.
+ */
+class UniqueCodeControllerBudgetTest {
+
+    private final InMemoryDynamoDbClient client = new InMemoryDynamoDbClient();
+    private final UniqueCodeController controller = new UniqueCodeController(new DataAccessGateway(client),
+            new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled()),
+            new ClockService(), CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+
+    @PerformanceBudget(maximumBytesPerInvocation = 3_072, targetMicrosPerInvocation = 200)
+    void shouldCreateACodeWithinTheBudget(final PerformanceBudgetExtension.Runner runner) {
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+
+        runner.run(() -> controller.create(request));
+
+        assertThat(client.size()).isEqualTo(30_000);
+    }
+
+    @PerformanceBudget(maximumBytesPerInvocation = 3_840, targetMicrosPerInvocation = 200)
+    void shouldCreateALongHexadecimalCodeWithAllAttributesWithinTheBudget(final PerformanceBudgetExtension.Runner runner) {
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("budget-test");
+        request.setReference("reference");
+        request.setDescription("A code created by the performance budget test");
+        request.setLength(32);
+        request.setAlphabet("hex");
+
+        runner.run(() -> controller.create(request));
+
+        assertThat(client.size()).isEqualTo(30_000);
+    }
+}
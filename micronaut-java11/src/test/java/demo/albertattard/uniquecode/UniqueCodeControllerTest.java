@@ -2,6 +2,11 @@ package demo.albertattard.uniquecode;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -9,6 +14,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -31,10 +37,10 @@ class UniqueCodeControllerTest {
                 .build();
 
         when(clockService.createdOn()).thenReturn(createUniqueCode.getCreatedOn());
-        when(codeGenerationService.generate(anyInt())).thenReturn(createUniqueCode.getCode());
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn(createUniqueCode.getCode());
         when(dataAccessGateway.saveUniqueCode(any())).thenReturn(true);
 
-        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService);
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
         final UniqueCode response = controller.create(request);
 
         assertThat(response)
@@ -44,7 +50,7 @@ class UniqueCodeControllerTest {
                 .isEqualTo(createUniqueCode.getCode());
 
         verify(clockService, times(1)).createdOn();
-        verify(codeGenerationService, times(1)).generate(eq(request.getLength()));
+        verify(codeGenerationService, times(1)).generate(eq(request.getLength()), eq(request.getAlphabet()));
         verify(dataAccessGateway, times(1)).saveUniqueCode(eq(createUniqueCode));
         verifyNoMoreInteractions(clockService, codeGenerationService, dataAccessGateway);
     }
@@ -64,10 +70,10 @@ class UniqueCodeControllerTest {
                 .build();
 
         when(clockService.createdOn()).thenReturn(createUniqueCode.getCreatedOn());
-        when(codeGenerationService.generate(anyInt())).thenReturn(existingCode).thenReturn(createUniqueCode.getCode());
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn(existingCode).thenReturn(createUniqueCode.getCode());
         when(dataAccessGateway.saveUniqueCode(any())).thenReturn(false).thenReturn(true);
 
-        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService);
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
         final UniqueCode response = controller.create(request);
 
         assertThat(response)
@@ -77,12 +83,45 @@ class UniqueCodeControllerTest {
                 .isEqualTo(createUniqueCode.getCode());
 
         verify(clockService, times(1)).createdOn();
-        verify(codeGenerationService, times(2)).generate(eq(request.getLength()));
+        verify(codeGenerationService, times(2)).generate(eq(request.getLength()), eq(request.getAlphabet()));
         verify(dataAccessGateway, times(1)).saveUniqueCode(eq(createUniqueCode.withCode(existingCode)));
         verify(dataAccessGateway, times(1)).saveUniqueCode(eq(createUniqueCode));
         verifyNoMoreInteractions(clockService, codeGenerationService, dataAccessGateway);
     }
 
+    @Test
+    @DisplayName("should back off and attempt again when the write is throttled")
+    void shouldBackOffAndAttemptAgainWhenTheWriteIsThrottled() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        when(clockService.createdOn()).thenReturn(createUniqueCode.getCreatedOn());
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn(createUniqueCode.getCode());
+        when(dataAccessGateway.saveUniqueCode(any()))
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("Simulating a throttled write").build())
+                .thenReturn(true);
+
+        final RetryPolicy retryPolicy = RetryPolicy.defaults();
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), retryPolicy, mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+        final UniqueCode response = controller.create(request);
+
+        assertThat(response)
+                .as("generated code")
+                .isNotNull()
+                .extracting(UniqueCode::getCode)
+                .isEqualTo(createUniqueCode.getCode());
+        assertThat(retryPolicy.metrics().getThrottles()).isEqualTo(1);
+
+        verify(dataAccessGateway, times(2)).saveUniqueCode(eq(createUniqueCode));
+    }
+
     @Test
     @DisplayName("should throw an exception when it fails to create a unique code after five attempts")
     void shouldThrowAnExceptionWhenItFailsToCreateAUniqueCodeAfterFiveAttempts() {
@@ -97,15 +136,202 @@ class UniqueCodeControllerTest {
                 .build();
 
         when(clockService.createdOn()).thenReturn(createUniqueCode.getCreatedOn());
-        when(codeGenerationService.generate(anyInt())).thenReturn(createUniqueCode.getCode());
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn(createUniqueCode.getCode());
         when(dataAccessGateway.saveUniqueCode(any())).thenReturn(false);
 
-        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService);
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
         assertThrows(RuntimeException.class, () -> controller.create(request));
 
         verify(clockService, times(1)).createdOn();
-        verify(codeGenerationService, times(5)).generate(eq(request.getLength()));
+        verify(codeGenerationService, times(5)).generate(eq(request.getLength()), eq(request.getAlphabet()));
         verify(dataAccessGateway, times(5)).saveUniqueCode(eq(createUniqueCode));
         verifyNoMoreInteractions(clockService, codeGenerationService, dataAccessGateway);
     }
+
+    @Test
+    @DisplayName("should claim a reserved code from the pool without generating a new one")
+    void shouldClaimAReservedCodeFromThePoolWithoutGeneratingANewOne() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+        final CodePool codePool = mock(CodePool.class);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+
+        when(clockService.createdOn()).thenReturn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+        when(codePool.claim(eq(request.getLength()), any(), any())).thenReturn(Optional.of("12345678"));
+
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, codePool, IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+        final UniqueCode response = controller.create(request);
+
+        assertThat(response)
+                .as("claimed code")
+                .isNotNull()
+                .extracting(UniqueCode::getCode)
+                .isEqualTo("12345678");
+
+        verify(clockService, times(1)).createdOn();
+        verify(codePool, times(1)).claim(eq(request.getLength()), any(), any());
+        verifyNoMoreInteractions(clockService, codeGenerationService, dataAccessGateway, codePool);
+    }
+
+    @Test
+    @DisplayName("should regenerate the code locally when the code is known to be issued")
+    void shouldRegenerateTheCodeLocallyWhenTheCodeIsKnownToBeIssued() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+
+        final String issuedCode = "AAAAAAAA";
+        final IssuedCodeFilter issuedCodes = new IssuedCodeFilter(BloomFilter.create(1_000, 0.01), 0);
+        issuedCodes.add(issuedCode);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        when(clockService.createdOn()).thenReturn(createUniqueCode.getCreatedOn());
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn(issuedCode).thenReturn(createUniqueCode.getCode());
+        when(dataAccessGateway.saveUniqueCode(any())).thenReturn(true);
+
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, CodePool.disabled(), issuedCodes, HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+        final UniqueCode response = controller.create(request);
+
+        assertThat(response)
+                .as("generated code")
+                .isNotNull()
+                .extracting(UniqueCode::getCode)
+                .isEqualTo(createUniqueCode.getCode());
+        assertThat(issuedCodes.metrics().getSkipped()).isEqualTo(1);
+        assertThat(issuedCodes.isIssued(createUniqueCode.getCode())).isTrue();
+
+        verify(clockService, times(1)).createdOn();
+        verify(codeGenerationService, times(2)).generate(eq(request.getLength()), eq(request.getAlphabet()));
+        verify(dataAccessGateway, times(1)).saveUniqueCode(eq(createUniqueCode));
+        verifyNoMoreInteractions(clockService, codeGenerationService, dataAccessGateway);
+    }
+
+    @Test
+    @DisplayName("should create and save the given number of codes in bulk without claiming codes from the pool")
+    void shouldCreateAndSaveTheGivenNumberOfCodesInBulkWithoutClaimingCodesFromThePool() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+        final CodePool codePool = mock(CodePool.class);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setCount(3);
+        final List<String> codes = List.of("12345678", "23456789", "34567890");
+
+        when(clockService.createdOn()).thenReturn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+        when(dataAccessGateway.saveUniqueCodes(any(), eq(3), any(), any())).thenReturn(codes);
+
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, codePool, IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+        final UniqueCode response = controller.create(request);
+
+        assertThat(response)
+                .as("generated codes")
+                .isNotNull()
+                .isEqualTo(UniqueCode.of(codes));
+
+        verify(clockService, times(1)).createdOn();
+        verify(dataAccessGateway, times(1)).saveUniqueCodes(any(), eq(3), any(), any());
+        verifyNoMoreInteractions(clockService, codeGenerationService, dataAccessGateway, codePool);
+    }
+
+    @Test
+    @DisplayName("should throw an exception when fewer codes than requested are saved in bulk")
+    void shouldThrowAnExceptionWhenFewerCodesThanRequestedAreSavedInBulk() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setCount(3);
+
+        when(clockService.createdOn()).thenReturn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+        when(dataAccessGateway.saveUniqueCodes(any(), eq(3), any(), any())).thenReturn(List.of("12345678"));
+
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+        assertThrows(RuntimeException.class, () -> controller.create(request));
+    }
+
+    @Test
+    @DisplayName("should save the key of the code only and defer its metadata, written before returning, when the metadata is deferred")
+    void shouldSaveTheKeyOfTheCodeOnlyAndDeferItsMetadataWrittenBeforeReturningWhenTheMetadataIsDeferred() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+        final DeferredMetadataWriter metadataWriter = mock(DeferredMetadataWriter.class);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setDescription("description-test");
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        when(clockService.createdOn()).thenReturn(createUniqueCode.getCreatedOn());
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn(createUniqueCode.getCode());
+        when(dataAccessGateway.saveUniqueCodeKey(any())).thenReturn(true);
+        when(metadataWriter.isEnabled()).thenReturn(true);
+
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), metadataWriter, CapacityAccounting.disabled(), IdempotentRequests.disabled());
+        final UniqueCode response = controller.create(request);
+
+        assertThat(response.getCode()).isEqualTo(createUniqueCode.getCode());
+
+        verify(dataAccessGateway, times(1)).saveUniqueCodeKey(eq(createUniqueCode));
+        verify(metadataWriter, times(1)).defer(eq(createUniqueCode));
+        verify(metadataWriter, times(1)).flush();
+        verify(dataAccessGateway, never()).saveUniqueCode(any());
+    }
+
+    @Test
+    @DisplayName("should prime the function and not create a code when handling a warm-up event")
+    void shouldPrimeTheFunctionAndNotCreateACodeWhenHandlingAWarmUpEvent() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+        final Primer primer = mock(Primer.class);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setWarmUp(true);
+
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), primer, DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+        final UniqueCode response = controller.create(request);
+
+        assertThat(response).isEqualTo(UniqueCode.none());
+
+        verify(primer, times(1)).prime();
+        verifyNoMoreInteractions(clockService, codeGenerationService, dataAccessGateway, primer);
+    }
+
+    @Test
+    @DisplayName("should return the same code to a request that repeats an idempotency key, without generating or saving a code again")
+    void shouldReturnTheSameCodeToARequestThatRepeatsAnIdempotencyKeyWithoutGeneratingOrSavingACodeAgain() {
+        final DataAccessGateway dataAccessGateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+
+        when(clockService.createdOn()).thenReturn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn("12345678", "23456789");
+        when(dataAccessGateway.saveUniqueCode(any())).thenReturn(true);
+        when(dataAccessGateway.findIdempotencyRecord(any(), any())).thenReturn(Optional.empty());
+        when(dataAccessGateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(true);
+        when(dataAccessGateway.saveIdempotencyRecord(any(), any())).thenReturn(true);
+
+        final IdempotentRequests idempotentRequests = IdempotentRequests.create(dataAccessGateway, new IdempotencySettings(true, 100, Duration.ofHours(1)));
+        final UniqueCodeController controller = new UniqueCodeController(dataAccessGateway, codeGenerationService, clockService, CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), idempotentRequests);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setIdempotencyKey("key-test");
+
+        assertThat(controller.create(request).getCode()).isEqualTo("12345678");
+        assertThat(controller.create(request).getCode()).isEqualTo("12345678");
+        verify(codeGenerationService, times(1)).generate(anyInt(), any());
+        verify(dataAccessGateway, times(1)).saveUniqueCode(any());
+    }
 }
@@ -0,0 +1,177 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WriteGovernorTest {
+
+    /* A clock that only moves when the governor waits, which makes the waits predictable */
+    private final AtomicLong now = new AtomicLong();
+    private final List<Long> waits = new ArrayList<>();
+
+    @Test
+    @DisplayName("should let a burst of writes through without waiting while the bucket holds enough capacity")
+    void shouldLetABurstOfWritesThroughWithoutWaitingWhileTheBucketHoldsEnoughCapacity() {
+        final WriteGovernor governor = createGovernor(3, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 3; i++) {
+            governor.acquire(1);
+        }
+
+        assertThat(waits).isEmpty();
+        assertThat(governor.metrics().getFill()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should queue the writes beyond the write capacity until the bucket refills")
+    void shouldQueueTheWritesBeyondTheWriteCapacityUntilTheBucketRefills() {
+        final WriteGovernor governor = createGovernor(3, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 5; i++) {
+            governor.acquire(1);
+        }
+
+        /* Each of the last two writes waits for a third of a second, the time the bucket takes to refill one unit */
+        assertThat(waits).hasSize(2);
+        assertThat(waits).allSatisfy(wait -> assertThat(wait).isCloseTo(TimeUnit.MILLISECONDS.toNanos(333), within(TimeUnit.MILLISECONDS.toNanos(1))));
+
+        final WriteGovernorMetrics metrics = governor.metrics();
+        assertThat(metrics.getAcquisitions()).isEqualTo(5);
+        assertThat(metrics.getWaits()).isEqualTo(2);
+        assertThat(metrics.getWaited()).isBetween(Duration.ofMillis(665), Duration.ofMillis(667));
+    }
+
+    @Test
+    @DisplayName("should not wait longer than the maximum wait")
+    void shouldNotWaitLongerThanTheMaximumWait() {
+        final WriteGovernor governor = createGovernor(3, Duration.ofMillis(100));
+
+        governor.acquire(3);
+        governor.acquire(10);
+
+        assertThat(waits).hasSize(1);
+        assertThat(waits.get(0)).isCloseTo(TimeUnit.MILLISECONDS.toNanos(100), within(TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    @Test
+    @DisplayName("should halve the write capacity when throttled, once per burst, and recover it with every successful write")
+    void shouldHalveTheWriteCapacityWhenThrottledOncePerBurstAndRecoverItWithEverySuccessfulWrite() {
+        final WriteGovernor governor = createGovernor(3, Duration.ofSeconds(1));
+
+        governor.onThrottled();
+        governor.onThrottled();
+        assertThat(governor.metrics().getWriteCapacity()).isEqualTo(1.5);
+        assertThat(governor.metrics().getThrottles()).isEqualTo(2);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        governor.onThrottled();
+        assertThat(governor.metrics().getWriteCapacity()).isEqualTo(0.75);
+
+        for (int i = 0; i < 100; i++) {
+            governor.onConsumed(1, 1.0);
+        }
+        assertThat(governor.metrics().getWriteCapacity()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should take the capacity a write consumed beyond its estimate from the bucket")
+    void shouldTakeTheCapacityAWriteConsumedBeyondItsEstimateFromTheBucket() {
+        final WriteGovernor governor = createGovernor(4, Duration.ofSeconds(1));
+
+        governor.acquire(1);
+        governor.onConsumed(1, 3.0);
+
+        assertThat(governor.metrics().getFill()).isEqualTo(0.25);
+    }
+
+    @Test
+    @DisplayName("should tell the governor when a write of the gateway is throttled")
+    @SuppressWarnings("unchecked")
+    void shouldTellTheGovernorWhenAWriteOfTheGatewayIsThrottled() {
+        final DynamoDbClient client = mock(DynamoDbClient.class);
+        when(client.putItem(any(Consumer.class)))
+                .thenReturn(PutItemResponse.builder().consumedCapacity(ConsumedCapacity.builder().capacityUnits(1.0).build()).build())
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("Simulating a throttled write").build());
+
+        final WriteGovernor governor = createGovernor(3, Duration.ofSeconds(1));
+        final DataAccessGateway gateway = new DataAccessGateway(client, governor);
+        final CreateUniqueCode item = CreateUniqueCode.builder(new CreateUniqueCodeRequest()).createdOn("2020-02-22T22:22:22.222Z").code("12345678").build();
+
+        assertThat(gateway.saveUniqueCode(item)).isTrue();
+        assertThrows(ProvisionedThroughputExceededException.class, () -> gateway.saveUniqueCode(item));
+
+        final WriteGovernorMetrics metrics = governor.metrics();
+        assertThat(metrics.getAcquisitions()).isEqualTo(2);
+        assertThat(metrics.getThrottles()).isEqualTo(1);
+        assertThat(metrics.getWriteCapacity()).isEqualTo(1.5);
+    }
+
+    @Test
+    @DisplayName("should tell the governor, and not account for a collision, when a transaction of the gateway is cancelled as throttled")
+    @SuppressWarnings("unchecked")
+    void shouldTellTheGovernorAndNotAccountForACollisionWhenATransactionOfTheGatewayIsCancelledAsThrottled() {
+        final DynamoDbClient client = mock(DynamoDbClient.class);
+        when(client.transactWriteItems(any(Consumer.class)))
+                .thenThrow(TransactionCanceledException.builder()
+                        .message("Simulating a throttled transaction")
+                        .cancellationReasons(CancellationReason.builder().code("None").build(),
+                                CancellationReason.builder().code("ThrottlingError").build())
+                        .build());
+
+        final WriteGovernor governor = createGovernor(10, Duration.ofSeconds(1));
+        final CapacityAccounting accounting = new CapacityAccounting(true);
+        final DataAccessGateway gateway = new DataAccessGateway(client, governor, accounting);
+        final AtomicLong sequence = new AtomicLong();
+        final RetryPolicy retryPolicy = RetryPolicy.create(new RetrySettings(1, Duration.ofMillis(50), Duration.ofSeconds(1), Duration.ofSeconds(5)));
+
+        assertThrows(TransactionCanceledException.class, () -> gateway.saveUniqueCodes(CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2020-02-22T22:22:22.222Z"), 2, () -> String.format("%08d", sequence.incrementAndGet()), retryPolicy));
+
+        assertThat(governor.metrics().getThrottles()).isEqualTo(1);
+        assertThat(accounting.metrics().getWriteUnits()).isEqualTo(0);
+        assertThat(accounting.metrics().getCollisionWriteUnits()).isEqualTo(0);
+        assertThat(retryPolicy.metrics().getThrottles()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not govern the writes when disabled")
+    void shouldNotGovernTheWritesWhenDisabled() {
+        final WriteGovernor governor = WriteGovernor.disabled();
+
+        for (int i = 0; i < 100; i++) {
+            governor.acquire(1);
+        }
+        governor.onThrottled();
+
+        assertThat(governor.isEnabled()).isFalse();
+        assertThat(governor.metrics().getAcquisitions()).isEqualTo(0);
+        assertThat(governor.metrics().getThrottles()).isEqualTo(0);
+    }
+
+    private WriteGovernor createGovernor(final double writeCapacity, final Duration maximumWait) {
+        return new WriteGovernor(writeCapacity, maximumWait, now::get, nanos -> {
+            waits.add(nanos);
+            now.addAndGet(nanos);
+        });
+    }
+}
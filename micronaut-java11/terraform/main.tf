@@ -10,6 +10,26 @@ resource "aws_dynamodb_table" "unique_code" {
     type = "S"
   }
 
+  attribute {
+    name = "ReservationStatus"
+    type = "S"
+  }
+
+  attribute {
+    name = "ReservedUntil"
+    type = "N"
+  }
+
+  global_secondary_index {
+    name               = "Reservations"
+    hash_key           = "ReservationStatus"
+    range_key          = "ReservedUntil"
+    read_capacity      = 1
+    write_capacity     = 1
+    projection_type    = "INCLUDE"
+    non_key_attributes = ["ReservedBy"]
+  }
+
   ttl {
     attribute_name = "TimeToExist"
     enabled        = false
@@ -21,6 +41,47 @@ resource "aws_dynamodb_table" "unique_code" {
   }
 }
 
+resource "aws_dynamodb_table" "unique_code_counter" {
+  name           = "UniqueCodeCounters"
+  billing_mode   = "PROVISIONED"
+  read_capacity  = 1
+  write_capacity = 1
+  hash_key       = "Counter"
+
+  attribute {
+    name = "Counter"
+    type = "S"
+  }
+
+  tags = {
+    Name = "Demo - Unique Codes Serverless Application"
+    Demo = "true"
+  }
+}
+
+resource "aws_dynamodb_table" "unique_code_request" {
+  name           = "UniqueCodeRequests"
+  billing_mode   = "PROVISIONED"
+  read_capacity  = 1
+  write_capacity = 1
+  hash_key       = "IdempotencyKey"
+
+  attribute {
+    name = "IdempotencyKey"
+    type = "S"
+  }
+
+  ttl {
+    attribute_name = "ExpiresAt"
+    enabled        = true
+  }
+
+  tags = {
+    Name = "Demo - Unique Codes Serverless Application"
+    Demo = "true"
+  }
+}
+
 resource "aws_iam_role" "unique_code" {
   name        = "DemoUniqueCodeLambdaFunction"
   description = "The role that is assumed by the Unique Code Lambda function"
@@ -79,7 +140,7 @@ resource "aws_cloudwatch_log_group" "unique_code" {
 resource "aws_iam_policy" "unique_code" {
   name        = "DemoUniqueCodeLambdaFunctionRestrictedAccess"
   path        = "/"
-  description = "Enable the Unique Code lambda function to write logs in CloudWatch and put items to DynamoDB"
+  description = "Enable the Unique Code lambda function to write logs in CloudWatch and read and write items in DynamoDB"
 
   policy = <<EOF
 {
@@ -97,9 +158,38 @@ resource "aws_iam_policy" "unique_code" {
     {
       "Effect": "Allow",
       "Action": [
-        "dynamodb:PutItem"
+        "dynamodb:PutItem",
+        "dynamodb:GetItem",
+        "dynamodb:BatchGetItem",
+        "dynamodb:DescribeTable",
+        "dynamodb:UpdateItem",
+        "dynamodb:DeleteItem",
+        "dynamodb:Scan"
       ],
       "Resource": "${aws_dynamodb_table.unique_code.arn}"
+    },
+    {
+      "Effect": "Allow",
+      "Action": [
+        "dynamodb:Query"
+      ],
+      "Resource": "${aws_dynamodb_table.unique_code.arn}/index/Reservations"
+    },
+    {
+      "Effect": "Allow",
+      "Action": [
+        "dynamodb:UpdateItem"
+      ],
+      "Resource": "${aws_dynamodb_table.unique_code_counter.arn}"
+    },
+    {
+      "Effect": "Allow",
+      "Action": [
+        "dynamodb:GetItem",
+        "dynamodb:PutItem",
+        "dynamodb:DeleteItem"
+      ],
+      "Resource": "${aws_dynamodb_table.unique_code_request.arn}"
     }
   ]
 }
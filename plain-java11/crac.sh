@@ -0,0 +1,15 @@
+#!/bin/bash
+
+set -euo pipefail
+
+# Checkpoints a warmed handler and measures the time from the restore to the first response.  Requires Linux and a JDK
+# with support for Coordinated Restore at Checkpoint (CRaC), such as Azul Zulu with CRaC, set as CRAC_JAVA_HOME.
+: "${CRAC_JAVA_HOME:?Set CRAC_JAVA_HOME to a JDK with CRaC support}"
+
+rm -rf build/crac
+./gradlew cracCheckpoint
+
+start=$(date +%s%N)
+"${CRAC_JAVA_HOME}/bin/java" -XX:CRaCRestoreFrom=build/crac
+end=$(date +%s%N)
+echo "Restored the JVM and handled the first request in $(((end - start) / 1000000)) ms"
@@ -0,0 +1,31 @@
+package demo.albertattard.uniquecode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/* Compares the throughput of the alphabets, from 10 to 36 symbols, for codes of the same length */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AlphabetBenchmark {
+
+    @Param({"digits", "hex", "unambiguous", "crockford-base32", "alphanumeric"})
+    private String alphabet;
+
+    @Param({"32"})
+    private int length;
+
+    private final CodeGenerationService service = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+
+    @Benchmark
+    public String generate() {
+        return service.generate(length, alphabet);
+    }
+}
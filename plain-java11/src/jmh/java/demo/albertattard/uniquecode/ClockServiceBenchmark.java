@@ -0,0 +1,36 @@
+package demo.albertattard.uniquecode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares formatting the current time with ISO_DATE_TIME every time and with the clock service, which formats the time
+ * up to the second once per second.  The clock service is the same in all Java modules and thus it is only benchmarked
+ * here.  Run with "-Pbenchmark=ClockServiceBenchmark" and add the GC profiler to the JMH options to see the bytes each
+ * approach allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClockServiceBenchmark {
+
+    private final ClockService clockService = new ClockService();
+
+    @Benchmark
+    public String isoDateTime() {
+        return DateTimeFormatter.ISO_DATE_TIME.format(ZonedDateTime.now());
+    }
+
+    @Benchmark
+    public String clockService() {
+        return clockService.createdOn();
+    }
+}
@@ -0,0 +1,43 @@
+package demo.albertattard.uniquecode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodeGenerationServiceBenchmark {
+
+    @Param({"8", "32", "256"})
+    private int length;
+
+    private final CodeGenerationService service = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+
+    @Benchmark
+    public String lookupTable() {
+        return service.generate(length);
+    }
+
+    @Benchmark
+    public String intStream() {
+        return generateUsingIntStream(length);
+    }
+
+    /* The implementation that was replaced by the lookup table, kept here for comparison */
+    private static String generateUsingIntStream(final int length) {
+        final Random random = new Random();
+        return random.ints(48, 91)
+                .filter(i -> (i <= 57 || i >= 65))
+                .limit(length)
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+                .toString();
+    }
+}
@@ -0,0 +1,75 @@
+package demo.albertattard.uniquecode;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Compares the random and the sequential modes when the given fraction of all codes is already taken.  The table is
+ * simulated: a random code is taken when its hash falls within the given fraction, while the sequential codes are never
+ * taken.  Besides the throughput, the puts counter shows the number of (conditional) puts needed for each code.  The
+ * sequential mode also updates the counter once for every 100 codes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GenerationModeBenchmark {
+
+    @Param({"0.5", "0.9"})
+    private double fill;
+
+    @Param({"8"})
+    private int length;
+
+    private CodeGenerationService random;
+    private CodeGenerationService sequential;
+    private int taken;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Puts {
+        public long puts;
+    }
+
+    @Setup
+    public void setup() {
+        final long numberOfCodes = (long) Math.pow(Alphabet.ALPHANUMERIC.size(), length);
+        final AtomicLong counter = new AtomicLong((long) (numberOfCodes * fill));
+
+        random = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+        sequential = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(),
+                new SequentialCodeGenerator((name, size) -> counter.getAndAdd(size), "benchmark-key", 100));
+        taken = (int) (fill * 65536);
+    }
+
+    @Benchmark
+    public String randomMode(final Puts puts) {
+        while (true) {
+            final String code = random.generate(length);
+            puts.puts++;
+            if (!isTaken(code)) {
+                return code;
+            }
+        }
+    }
+
+    @Benchmark
+    public String sequentialMode(final Puts puts) {
+        puts.puts++;
+        return sequential.generate(length);
+    }
+
+    private boolean isTaken(final String code) {
+        final int hash = code.hashCode() * 0x9E3779B9;
+        return (hash >>> 16) < taken;
+    }
+}
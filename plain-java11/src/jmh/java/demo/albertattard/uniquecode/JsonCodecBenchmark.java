@@ -0,0 +1,58 @@
+package demo.albertattard.uniquecode;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares reading a request and writing its response with the ObjectMapper, as the managed runtime maps them, and with
+ * UniqueCodeJson, as the stream handler and the custom runtime do.  The event is that of an API Gateway request whose
+ * body is mapped to the request, thus most of its properties are unknown and skipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonCodecBenchmark {
+
+    private static final byte[] EVENT = ("{\"usedBy\":\"tenant-a\",\"length\":8,\"reference\":\"order-1234\",\"description\":\"Issued by support\","
+            + "\"headers\":{\"Accept\":\"application/json\",\"Host\":\"abc123.execute-api.eu-central-1.amazonaws.com\",\"User-Agent\":\"curl/7.64.1\"},"
+            + "\"requestContext\":{\"stage\":\"prod\",\"requestTimeEpoch\":1634567890123,\"identity\":{\"sourceIp\":\"192.0.2.1\"}}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final UniqueCode response = UniqueCode.of("12345678");
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @Benchmark
+    public int objectMapper() throws IOException {
+        final CreateUniqueCodeRequest request = mapper.readValue(new ByteArrayInputStream(EVENT), CreateUniqueCodeRequest.class);
+        output.reset();
+        mapper.writeValue(output, response);
+        return request.getLength() + output.size();
+    }
+
+    @Benchmark
+    public int uniqueCodeJson() throws IOException {
+        final CreateUniqueCodeRequest request = UniqueCodeJson.readRequest(new ByteArrayInputStream(EVENT));
+        output.reset();
+        UniqueCodeJson.writeResponse(response, output);
+        return request.getLength() + output.size();
+    }
+}
@@ -0,0 +1,47 @@
+package demo.albertattard.uniquecode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/* Compares the random sources while four threads generate codes of the default length concurrently */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class RandomSourceBenchmark {
+
+    @Param({"fast", "secure", "unbuffered-secure"})
+    private String randomSource;
+
+    private CodeGenerationService service;
+
+    @Setup
+    public void setup() {
+        service = new CodeGenerationService(createRandomSource(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+    }
+
+    @Benchmark
+    public String generate() {
+        return service.generate(CreateUniqueCodeRequest.DEFAULT_LENGTH);
+    }
+
+    private RandomSource createRandomSource() {
+        if ("unbuffered-secure".equals(randomSource)) {
+            /* A SecureRandom shared by all threads and called for every draw, the naive alternative to the pool */
+            final SecureRandom secureRandom = new SecureRandom();
+            return secureRandom::nextLong;
+        }
+
+        return RandomSource.of(randomSource);
+    }
+}
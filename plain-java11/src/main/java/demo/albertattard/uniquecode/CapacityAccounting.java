@@ -0,0 +1,158 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Supplier;
+
+/*
+ * Accounts for the capacity the reads and writes consume, per request, per attempt and per tenant (the used by of the
+ * request).  A request is accounted for between begin() and end(), which logs the capacity the request consumed, while
+ * the reads and writes made on the same thread meanwhile are added to it.  The work handed to other threads on behalf of
+ * the request carries the request along, taken with current() and passed to onBehalfOf(), thus its reads and writes are
+ * added to the request too.  The capacity consumed so far is rolled up and logged every few requests.  Nothing is
+ * accounted for when disabled.
+ */
+public class CapacityAccounting {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CapacityAccounting.class);
+
+    /* How often the metrics are logged, in number of invocations */
+    private static final long METRICS_LOG_INTERVAL = 1000;
+
+    /* The tenants beyond this number are accounted for together, which bounds the memory taken by the roll-up */
+    private static final int MAXIMUM_TENANTS = 1000;
+    private static final String NO_TENANT = "(none)";
+    private static final String OTHER_TENANTS = "(other)";
+
+    private final boolean enabled;
+    private final ThreadLocal<InvocationCapacity> current = new ThreadLocal<>();
+    private final AtomicLong invocations = new AtomicLong();
+    private final DoubleAdder writeUnits = new DoubleAdder();
+    private final DoubleAdder readUnits = new DoubleAdder();
+    private final DoubleAdder collisionWriteUnits = new DoubleAdder();
+    private final CapacityHistogram writeUnitsPerInvocation = new CapacityHistogram();
+    private final CapacityHistogram writeUnitsPerAttempt = new CapacityHistogram();
+    private final ConcurrentMap<String, DoubleAdder> writeUnitsByTenant = new ConcurrentHashMap<>();
+
+    public CapacityAccounting(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static CapacityAccounting disabled() {
+        return new CapacityAccounting(false);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* Starts accounting for a request on the calling thread, and returns nothing when disabled */
+    public InvocationCapacity begin(final String usedBy) {
+        if (!enabled) {
+            return null;
+        }
+
+        final InvocationCapacity invocation = new InvocationCapacity(usedBy);
+        current.set(invocation);
+        return invocation;
+    }
+
+    /* Stops accounting for the given request and logs the capacity it consumed */
+    public void end(final InvocationCapacity invocation) {
+        if (invocation == null) {
+            return;
+        }
+
+        current.remove();
+        writeUnitsPerInvocation.record(invocation.getWriteUnits());
+        LOGGER.info("Consumed capacity usedBy={} attempts={} writeUnits={} readUnits={} collisionWriteUnits={}", invocation.getUsedBy(),
+                invocation.getAttempts(), invocation.getWriteUnits(), invocation.getReadUnits(), invocation.getCollisionWriteUnits());
+
+        if (invocations.incrementAndGet() % METRICS_LOG_INTERVAL == 0) {
+            LOGGER.info("Consumed capacity so far {}", metrics());
+        }
+    }
+
+    /* Returns the request accounted for on the calling thread, if any, to be passed to the threads working on its behalf */
+    public InvocationCapacity current() {
+        return enabled ? current.get() : null;
+    }
+
+    /* Runs the given work on the calling thread, adding the reads and writes it makes to the given request, if any */
+    public <T> T onBehalfOf(final InvocationCapacity invocation, final Supplier<T> work) {
+        if (invocation == null) {
+            return work.get();
+        }
+
+        final InvocationCapacity previous = current.get();
+        current.set(invocation);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    /* Records a write attempt, including one that failed as its code was taken */
+    public void recordWrite(final String usedBy, final double units, final boolean collided) {
+        if (!enabled) {
+            return;
+        }
+
+        writeUnits.add(units);
+        writeUnitsPerAttempt.record(units);
+        if (collided) {
+            collisionWriteUnits.add(units);
+        }
+        tenant(usedBy).add(units);
+
+        final InvocationCapacity invocation = current.get();
+        if (invocation != null) {
+            invocation.addWrite(units, collided);
+        }
+    }
+
+    public void recordRead(final double units) {
+        if (!enabled) {
+            return;
+        }
+
+        readUnits.add(units);
+
+        final InvocationCapacity invocation = current.get();
+        if (invocation != null) {
+            invocation.addRead(units);
+        }
+    }
+
+    public CapacityMetrics metrics() {
+        final Map<String, Double> byTenant = new TreeMap<>();
+        writeUnitsByTenant.forEach((tenant, units) -> byTenant.put(tenant, units.sum()));
+        return new CapacityMetrics(invocations.get(), writeUnits.sum(), readUnits.sum(), collisionWriteUnits.sum(),
+                writeUnitsPerInvocation.distribution(), writeUnitsPerAttempt.distribution(), byTenant);
+    }
+
+    private DoubleAdder tenant(final String usedBy) {
+        final String tenant = usedBy == null || usedBy.trim().isEmpty() ? NO_TENANT : usedBy;
+        final DoubleAdder units = writeUnitsByTenant.get(tenant);
+        if (units != null) {
+            return units;
+        }
+
+        if (writeUnitsByTenant.size() >= MAXIMUM_TENANTS) {
+            return writeUnitsByTenant.computeIfAbsent(OTHER_TENANTS, t -> new DoubleAdder());
+        }
+        return writeUnitsByTenant.computeIfAbsent(tenant, t -> new DoubleAdder());
+    }
+}
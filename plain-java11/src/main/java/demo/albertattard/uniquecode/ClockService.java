@@ -1,11 +1,89 @@
 package demo.albertattard.uniquecode;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 
+/*
+ * Returns the current time formatted as an ISO-8601 zoned date time, the same as formatting ZonedDateTime.now() with
+ * DateTimeFormatter.ISO_DATE_TIME.  Only the fraction of the second changes within a second, thus every thread keeps
+ * the date and time up to the second, and the offset and zone that follow, formatted in a buffer it reuses, and writes
+ * the fraction of the second in between.  These are formatted again when the second changes, which also takes care of
+ * the day changing at midnight and of the offset changing at a daylight saving transition.
+ */
 public class ClockService {
 
+    private final Clock clock;
+    private final ThreadLocal<Formatted> formatted = ThreadLocal.withInitial(Formatted::new);
+
+    public ClockService() {
+        this(Clock.systemDefaultZone());
+    }
+
+    ClockService(final Clock clock) {
+        this.clock = clock;
+    }
+
     public String createdOn() {
-        return DateTimeFormatter.ISO_DATE_TIME.format(ZonedDateTime.now());
+        final Instant now = clock.instant();
+        return formatted.get().format(now.getEpochSecond(), now.getNano(), clock);
+    }
+
+    private static class Formatted {
+
+        /* Grown when a date time, with its fraction, does not fit */
+        private char[] buffer = new char[64];
+        private long epochSecond = Long.MIN_VALUE;
+        private int secondLength;
+        private char[] suffix = new char[0];
+
+        private String format(final long epochSecond, final int nanos, final Clock clock) {
+            if (epochSecond != this.epochSecond) {
+                refresh(epochSecond, clock);
+            }
+
+            int length = secondLength;
+            if (nanos != 0) {
+                length = appendFraction(nanos, length);
+            }
+            System.arraycopy(suffix, 0, buffer, length, suffix.length);
+            return new String(buffer, 0, length + suffix.length);
+        }
+
+        /*
+         * Formats the start of the second, which has no fraction, and splits it after the seconds, where the fraction is
+         * written.  The seconds are always the 19 characters that follow the date, which is longer than 10 characters
+         * for the years beyond 9999 and before 0.
+         */
+        private void refresh(final long epochSecond, final Clock clock) {
+            final String start = DateTimeFormatter.ISO_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), clock.getZone()));
+            final int split = start.indexOf('T') + 9;
+
+            if (buffer.length < start.length() + 10) {
+                buffer = new char[start.length() + 10];
+            }
+            start.getChars(0, split, buffer, 0);
+            secondLength = split;
+            suffix = start.substring(split).toCharArray();
+            this.epochSecond = epochSecond;
+        }
+
+        /* Writes the fraction of the second with as many digits as needed, up to nine, leaving out the trailing zeros */
+        private int appendFraction(final int nanos, final int offset) {
+            int digits = 9;
+            int value = nanos;
+            while (value % 10 == 0) {
+                value /= 10;
+                digits--;
+            }
+
+            buffer[offset] = '.';
+            for (int i = offset + digits; i > offset; i--) {
+                buffer[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+            return offset + digits + 1;
+        }
     }
 }
@@ -0,0 +1,35 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class CodeLookupSettings {
+
+    private final boolean enabled;
+    private final int maximumSize;
+    private final Duration timeToLive;
+    private final Duration negativeTimeToLive;
+
+    public CodeLookupSettings(final boolean enabled, final int maximumSize, final Duration timeToLive, final Duration negativeTimeToLive) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum size " + maximumSize + ".  Maximum size must be at least 1.");
+        }
+        if (timeToLive.isNegative()) {
+            throw new IllegalArgumentException("Invalid time to live " + timeToLive + ".  Time to live must not be negative.");
+        }
+        if (negativeTimeToLive.isNegative()) {
+            throw new IllegalArgumentException("Invalid negative time to live " + negativeTimeToLive + ".  Negative time to live must not be negative.");
+        }
+
+        this.enabled = enabled;
+        this.maximumSize = maximumSize;
+        this.timeToLive = timeToLive;
+        this.negativeTimeToLive = negativeTimeToLive;
+    }
+
+    public static CodeLookupSettings disabled() {
+        return new CodeLookupSettings(false, 10_000, Duration.ofHours(1), Duration.ofSeconds(1));
+    }
+}
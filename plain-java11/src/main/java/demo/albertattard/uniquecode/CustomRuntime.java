@@ -0,0 +1,94 @@
+package demo.albertattard.uniquecode;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/*
+ * The entry point of the function on the provided.al2 runtime, started by the bootstrap script instead of the managed
+ * Java runtime.  It runs the event loop of the Lambda Runtime API itself: fetches the next invocation, reads the event,
+ * handles it and posts the response, over the same connection and with the same buffers every time, and without the
+ * reflection the managed runtime uses to load the handler and to map the events, which UniqueCodeJson reads and writes
+ * instead.  A failure to handle an invocation is reported against that invocation, while a failure of the Runtime API
+ * ends the process, which Lambda then replaces.
+ */
+public class CustomRuntime {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomRuntime.class);
+
+    /* The X-Ray SDK reads the tracing header of the current invocation from this system property */
+    private static final String TRACE_HEADER_PROPERTY = "com.amazonaws.xray.traceHeader";
+
+    private final RuntimeApiClient client;
+    private final RequestHandler<CreateUniqueCodeRequest, UniqueCode> handler;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+    public CustomRuntime(final RuntimeApiClient client, final RequestHandler<CreateUniqueCodeRequest, UniqueCode> handler) {
+        this.client = client;
+        this.handler = handler;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final RuntimeApiClient client = RuntimeApiClient.of(System.getenv("AWS_LAMBDA_RUNTIME_API"));
+
+        final UniqueCodeController handler;
+        try {
+            handler = new UniqueCodeController();
+        } catch (final RuntimeException e) {
+            LOGGER.error("Failed to initialise the function", e);
+            new CustomRuntime(client, null).reportInitError(e);
+            System.exit(1);
+            return;
+        }
+
+        new CustomRuntime(client, handler).run();
+    }
+
+    public void run() throws IOException {
+        while (true) {
+            handleNext();
+        }
+    }
+
+    /* Waits for the next invocation, handles it and posts its response, or its error */
+    public void handleNext() throws IOException {
+        final Invocation invocation = client.next();
+        if (invocation.getTraceId() != null) {
+            System.setProperty(TRACE_HEADER_PROPERTY, invocation.getTraceId());
+        } else {
+            System.clearProperty(TRACE_HEADER_PROPERTY);
+        }
+
+        body.reset();
+        try {
+            final CreateUniqueCodeRequest request =
+                    UniqueCodeJson.readRequest(new ByteArrayInputStream(invocation.getEvent(), invocation.getOffset(), invocation.getLength()));
+            UniqueCodeJson.writeResponse(handler.handleRequest(request, new RuntimeContext(invocation)), body);
+        } catch (final Exception e) {
+            LOGGER.warn("Failed to handle the invocation {}", invocation.getRequestId(), e);
+            reportError(invocation.getRequestId(), e);
+            return;
+        }
+
+        if (!client.respond(invocation.getRequestId(), body)) {
+            LOGGER.warn("The Runtime API rejected the response of {} bytes to the invocation {}", body.size(), invocation.getRequestId());
+            reportError(invocation.getRequestId(), new IllegalStateException("The Runtime API rejected the response of " + body.size() + " bytes"));
+        }
+    }
+
+    private void reportError(final String requestId, final Exception error) throws IOException {
+        body.reset();
+        UniqueCodeJson.writeError(error, body);
+        client.error(requestId, error.getClass().getName(), body);
+    }
+
+    private void reportInitError(final Exception error) throws IOException {
+        body.reset();
+        UniqueCodeJson.writeError(error, body);
+        client.initError(error.getClass().getName(), body);
+    }
+}
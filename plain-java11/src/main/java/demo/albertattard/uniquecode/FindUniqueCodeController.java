@@ -0,0 +1,37 @@
+package demo.albertattard.uniquecode;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import lombok.AllArgsConstructor;
+
+import java.time.Duration;
+
+import static demo.albertattard.uniquecode.UniqueCodeController.createDataAccessGateway;
+import static demo.albertattard.uniquecode.UniqueCodeController.environmentVariable;
+
+/* Returns the given code as stored, or nothing when the code does not exist */
+@AllArgsConstructor
+public class FindUniqueCodeController implements RequestHandler<FindUniqueCodeRequest, StoredUniqueCode> {
+
+    private final CodeLookup codeLookup;
+
+    public FindUniqueCodeController() {
+        /* A default constructor is required as otherwise the Lambda function cannot be initialised. */
+        this(createCodeLookup(createDataAccessGateway(CapacityAccounting.disabled())));
+    }
+
+    @Override
+    public StoredUniqueCode handleRequest(final FindUniqueCodeRequest request, final Context context) {
+        return codeLookup.find(request.getCode()).orElse(null);
+    }
+
+    private static CodeLookup createCodeLookup(final DataAccessGateway gateway) {
+        final String enabled = environmentVariable("UNIQUE_CODE_LOOKUP_CACHE_ENABLED", "true");
+        final String maximumSize = environmentVariable("UNIQUE_CODE_LOOKUP_CACHE_MAXIMUM_SIZE", "10000");
+        final String timeToLive = environmentVariable("UNIQUE_CODE_LOOKUP_CACHE_TIME_TO_LIVE", "PT1H");
+        final String negativeTimeToLive = environmentVariable("UNIQUE_CODE_LOOKUP_CACHE_NEGATIVE_TIME_TO_LIVE", "PT1S");
+        final CodeLookupSettings settings = new CodeLookupSettings(Boolean.parseBoolean(enabled), Integer.parseInt(maximumSize),
+                Duration.parse(timeToLive), Duration.parse(negativeTimeToLive));
+        return CodeLookup.create(gateway, settings);
+    }
+}
@@ -0,0 +1,20 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/*
+ * The effect of hedging so far.  A hedge is a second write fired because the first did not come back in time.  The
+ * hedge wins when its write succeeds first, in which case the slow write no longer holds back the request.  A hedge is
+ * skipped when the writer has no thread, or the table no write capacity, to spare.
+ */
+@Data
+public class HedgingMetrics {
+
+    private final long writes;
+    private final long hedges;
+    private final long hedgeWins;
+    private final long hedgesSkipped;
+    private final Duration delay;
+}
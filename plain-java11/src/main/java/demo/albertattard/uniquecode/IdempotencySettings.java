@@ -0,0 +1,30 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class IdempotencySettings {
+
+    private final boolean enabled;
+    private final int maximumSize;
+    private final Duration timeToLive;
+
+    public IdempotencySettings(final boolean enabled, final int maximumSize, final Duration timeToLive) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum size " + maximumSize + ".  Maximum size must be at least 1.");
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Invalid time to live " + timeToLive + ".  Time to live must be positive.");
+        }
+
+        this.enabled = enabled;
+        this.maximumSize = maximumSize;
+        this.timeToLive = timeToLive;
+    }
+
+    public static IdempotencySettings disabled() {
+        return new IdempotencySettings(false, 10_000, Duration.ofHours(24));
+    }
+}
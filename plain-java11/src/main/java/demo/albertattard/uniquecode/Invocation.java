@@ -0,0 +1,21 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+/*
+ * An invocation fetched from the Lambda Runtime API.  The event is the given slice of a buffer that the Runtime API
+ * client reuses, thus it is only valid until the next invocation is fetched.
+ */
+@Data
+public class Invocation {
+
+    private final String requestId;
+    /* The time, in milliseconds since the epoch, by which the invocation times out */
+    private final long deadline;
+    private final String invokedFunctionArn;
+    /* The X-Ray tracing header, if any */
+    private final String traceId;
+    private final byte[] event;
+    private final int offset;
+    private final int length;
+}
@@ -0,0 +1,31 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+/*
+ * The capacity consumed while handling a single request.  The collision write units are part of the write units, and
+ * are the units consumed by the writes that failed as their code was taken, which DynamoDB charges for too.  These are
+ * estimated from the size of the item, as a failed write does not return the capacity it consumed.  The reads and writes
+ * of a request can be made by more than one thread, such as a hedged write, thus these are added under the lock.
+ */
+@Data
+public class InvocationCapacity {
+
+    private final String usedBy;
+    private volatile int attempts;
+    private volatile double writeUnits;
+    private volatile double readUnits;
+    private volatile double collisionWriteUnits;
+
+    synchronized void addWrite(final double units, final boolean collided) {
+        attempts++;
+        writeUnits += units;
+        if (collided) {
+            collisionWriteUnits += units;
+        }
+    }
+
+    synchronized void addRead(final double units) {
+        readUnits += units;
+    }
+}
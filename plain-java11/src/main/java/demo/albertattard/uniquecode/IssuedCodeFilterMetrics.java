@@ -0,0 +1,26 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+/*
+ * The effect of the issued code filter so far.  The observed false positive rate is the fraction of the verified codes
+ * that turned out not to be issued.  Each skipped code that was issued indeed is a failed conditional write, and its
+ * round-trip to DynamoDB, that was saved.
+ */
+@Data
+public class IssuedCodeFilterMetrics {
+
+    private final long lookups;
+    private final long skipped;
+    private final long verified;
+    private final long falsePositives;
+    private final double estimatedFalsePositiveRate;
+
+    public double getObservedFalsePositiveRate() {
+        return verified == 0 ? 0 : (double) falsePositives / verified;
+    }
+
+    public long getRoundTripsSaved() {
+        return Math.round(skipped * (1 - getObservedFalsePositiveRate()));
+    }
+}
@@ -0,0 +1,54 @@
+package demo.albertattard.uniquecode;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Keeps the most recent latencies in a ring buffer and derives a percentile from these.  Sorting the buffer on every
+ * request would cost more than it saves, thus the percentile is only recomputed after every few recorded latencies.
+ */
+public class LatencyTracker {
+
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private final AtomicLongArray latencies;
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final double percentile;
+    private volatile long cachedPercentile = -1;
+
+    public LatencyTracker(final int size, final double percentile) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid size " + size + ".  Size must be at least 1.");
+        }
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + percentile + ".  Percentile must be greater than 0 and at most 100.");
+        }
+
+        this.latencies = new AtomicLongArray(size);
+        this.percentile = percentile;
+    }
+
+    public void record(final long latencyInNanos) {
+        final int count = recorded.getAndIncrement();
+        latencies.set(Math.floorMod(count, latencies.length()), latencyInNanos);
+        if (count % RECOMPUTE_INTERVAL == RECOMPUTE_INTERVAL - 1) {
+            cachedPercentile = compute();
+        }
+    }
+
+    /* The latency at the percentile, or -1 while fewer latencies than the interval were recorded */
+    public long percentileInNanos() {
+        return cachedPercentile;
+    }
+
+    private long compute() {
+        final int size = Math.min(Math.max(recorded.get(), 0), latencies.length());
+        final long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted[Math.min(size - 1, (int) Math.ceil(percentile / 100 * size) - 1)];
+    }
+}
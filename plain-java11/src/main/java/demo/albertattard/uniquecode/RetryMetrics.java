@@ -0,0 +1,21 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/*
+ * The retries so far.  An execution is one request for a code, made of one or more attempts.  An attempt either
+ * succeeds, collides with a code that is already taken or is throttled.  An execution is exhausted when it runs out of
+ * attempts or time before an attempt succeeds.
+ */
+@Data
+public class RetryMetrics {
+
+    private final long executions;
+    private final long attempts;
+    private final long collisions;
+    private final long throttles;
+    private final long exhausted;
+    private final Duration backoff;
+}
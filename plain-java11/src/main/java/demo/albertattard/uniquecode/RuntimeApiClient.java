@@ -0,0 +1,303 @@
+package demo.albertattard.uniquecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * A client of the Lambda Runtime API (https://docs.aws.amazon.com/lambda/latest/dg/runtimes-api.html), which fetches the
+ * next invocation and posts its response.  It speaks HTTP/1.1 over a single connection that is kept open between the
+ * invocations and only opened again when the Runtime API closes it.  The buffers are reused too, thus the body of an
+ * invocation is only valid until the next call.  The Runtime API is local to the container and is called by one thread.
+ */
+public class RuntimeApiClient implements Closeable {
+
+    private static final String VERSION = "2018-06-01";
+
+    private final String host;
+    private final int port;
+
+    private final ByteArrayOutputStream request = new ByteArrayOutputStream(1024);
+    private byte[] buffer = new byte[8192];
+    /* The bytes read ahead into the buffer, from the position up to the limit */
+    private int position;
+    private int limit;
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+
+    public RuntimeApiClient(final String host, final int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /* Creates a client of the Runtime API at the given address, such as the value of AWS_LAMBDA_RUNTIME_API */
+    public static RuntimeApiClient of(final String address) throws IllegalArgumentException {
+        final int separator = address.lastIndexOf(':');
+        if (separator < 1) {
+            throw new IllegalArgumentException("Invalid Runtime API address " + address + ".  Address must be a host and a port, such as 127.0.0.1:9001.");
+        }
+
+        return new RuntimeApiClient(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+    }
+
+    /* Waits for the next invocation, for as long as it takes */
+    public Invocation next() throws IOException {
+        request.reset();
+        writeRequestLine("GET", "/runtime/invocation/next");
+        final Response response = send(null);
+        if (response.status != 200) {
+            throw new IOException("Failed to fetch the next invocation, the Runtime API responded with status " + response.status);
+        }
+
+        return new Invocation(response.requestId, response.deadline, response.functionArn, response.traceId, buffer, response.offset, response.length);
+    }
+
+    /* Posts the response of the given invocation and returns false when the Runtime API rejected it, such as when it is too large */
+    public boolean respond(final String requestId, final ByteArrayOutputStream body) throws IOException {
+        request.reset();
+        writeRequestLine("POST", "/runtime/invocation/" + requestId + "/response");
+        return send(body).status == 202;
+    }
+
+    /* Reports that the given invocation failed, with the error in the format of the Runtime API */
+    public void error(final String requestId, final String errorType, final ByteArrayOutputStream body) throws IOException {
+        request.reset();
+        writeRequestLine("POST", "/runtime/invocation/" + requestId + "/error");
+        writeHeader("Lambda-Runtime-Function-Error-Type", errorType);
+        send(body);
+    }
+
+    /* Reports that the function could not be initialised, after which the runtime is to exit */
+    public void initError(final String errorType, final ByteArrayOutputStream body) throws IOException {
+        request.reset();
+        writeRequestLine("POST", "/runtime/init/error");
+        writeHeader("Lambda-Runtime-Function-Error-Type", errorType);
+        send(body);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (socket != null) {
+            final Socket closed = socket;
+            socket = null;
+            closed.close();
+        }
+    }
+
+    private void writeRequestLine(final String method, final String path) {
+        writeAscii(method);
+        writeAscii(" /");
+        writeAscii(VERSION);
+        writeAscii(path);
+        writeAscii(" HTTP/1.1\r\n");
+        writeHeader("Host", host);
+    }
+
+    private void writeHeader(final String name, final String value) {
+        writeAscii(name);
+        writeAscii(": ");
+        writeAscii(value);
+        writeAscii("\r\n");
+    }
+
+    private void writeAscii(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            request.write(text.charAt(i));
+        }
+    }
+
+    /* Sends the request with the given body, if any, in one write and reads the response into the buffer */
+    private Response send(final ByteArrayOutputStream body) throws IOException {
+        if (body != null) {
+            writeHeader("Content-Type", "application/json");
+            writeHeader("Content-Length", Integer.toString(body.size()));
+            writeAscii("\r\n");
+            body.writeTo(request);
+        } else {
+            writeAscii("\r\n");
+        }
+
+        connect();
+        try {
+            request.writeTo(out);
+            out.flush();
+            final Response response = readResponse();
+            if (response.close) {
+                close();
+            }
+            return response;
+        } catch (final IOException e) {
+            /* The connection is in an unknown state and is opened again by the next call */
+            close();
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) {
+            return;
+        }
+
+        final Socket opened = new Socket();
+        opened.setTcpNoDelay(true);
+        opened.setKeepAlive(true);
+        opened.connect(new InetSocketAddress(host, port));
+        socket = opened;
+        in = opened.getInputStream();
+        out = opened.getOutputStream();
+        position = 0;
+        limit = 0;
+    }
+
+    private Response readResponse() throws IOException {
+        /* The body of the previous response is no longer needed */
+        compact();
+
+        final Response response = new Response();
+        response.status = parseStatus(readLine());
+        int contentLength = -1;
+        boolean chunked = false;
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            final int separator = line.indexOf(':');
+            if (separator < 0) {
+                throw new IOException("Invalid header " + line + " in the response of the Runtime API");
+            }
+
+            final String name = line.substring(0, separator).trim();
+            final String value = line.substring(separator + 1).trim();
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                contentLength = Integer.parseInt(value);
+            } else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+                chunked = "chunked".equalsIgnoreCase(value);
+            } else if ("Connection".equalsIgnoreCase(name)) {
+                response.close = "close".equalsIgnoreCase(value);
+            } else if ("Lambda-Runtime-Aws-Request-Id".equalsIgnoreCase(name)) {
+                response.requestId = value;
+            } else if ("Lambda-Runtime-Deadline-Ms".equalsIgnoreCase(name)) {
+                response.deadline = Long.parseLong(value);
+            } else if ("Lambda-Runtime-Invoked-Function-Arn".equalsIgnoreCase(name)) {
+                response.functionArn = value;
+            } else if ("Lambda-Runtime-Trace-Id".equalsIgnoreCase(name)) {
+                response.traceId = value;
+            }
+        }
+
+        response.offset = position;
+        if (chunked) {
+            response.length = readChunkedBody();
+        } else if (contentLength >= 0) {
+            require(contentLength);
+            response.length = contentLength;
+            position += contentLength;
+        } else {
+            throw new IOException("The response of the Runtime API has no Content-Length");
+        }
+        return response;
+    }
+
+    /* Reads the chunks one after the other, moving each to the end of the previous one, and returns the length of the body */
+    private int readChunkedBody() throws IOException {
+        final int offset = position;
+        int length = 0;
+        while (true) {
+            final String size = readLine();
+            final int extension = size.indexOf(';');
+            final int chunkSize = Integer.parseInt((extension < 0 ? size : size.substring(0, extension)).trim(), 16);
+            if (chunkSize == 0) {
+                /* Skips the trailers, if any, up to the empty line */
+                String trailer;
+                do {
+                    trailer = readLine();
+                } while (!trailer.isEmpty());
+                return length;
+            }
+
+            require(chunkSize);
+            System.arraycopy(buffer, position, buffer, offset + length, chunkSize);
+            length += chunkSize;
+            position += chunkSize;
+            readLine();
+        }
+    }
+
+    /* Reads a line, without its line break, in ASCII */
+    private String readLine() throws IOException {
+        int from = position;
+        while (true) {
+            for (int i = from; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    final int end = i > position && buffer[i - 1] == '\r' ? i - 1 : i;
+                    final String line = new String(buffer, position, end - position, StandardCharsets.ISO_8859_1);
+                    position = i + 1;
+                    return line;
+                }
+            }
+            from = limit;
+            fill();
+        }
+    }
+
+    /* Makes sure that the given number of bytes, starting from the position, are in the buffer */
+    private void require(final int length) throws IOException {
+        if (position + length > buffer.length) {
+            final byte[] grown = new byte[Math.max(buffer.length * 2, position + length)];
+            System.arraycopy(buffer, 0, grown, 0, limit);
+            buffer = grown;
+        }
+        while (limit - position < length) {
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        if (limit == buffer.length) {
+            final byte[] grown = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, limit);
+            buffer = grown;
+        }
+
+        final int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            throw new EOFException("The Runtime API closed the connection");
+        }
+        limit += read;
+    }
+
+    /* Moves the bytes read ahead, if any, to the start of the buffer */
+    private void compact() {
+        final int remaining = limit - position;
+        if (remaining > 0 && position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+    }
+
+    private static int parseStatus(final String statusLine) throws IOException {
+        final int from = statusLine.indexOf(' ');
+        if (!statusLine.startsWith("HTTP/1.") || from < 0 || statusLine.length() < from + 4) {
+            throw new IOException("Invalid status line " + statusLine + " in the response of the Runtime API");
+        }
+
+        return Integer.parseInt(statusLine.substring(from + 1, from + 4));
+    }
+
+    private static class Response {
+        private int status;
+        private boolean close;
+        private String requestId;
+        private long deadline;
+        private String functionArn;
+        private String traceId;
+        private int offset;
+        private int length;
+    }
+}
@@ -0,0 +1,90 @@
+package demo.albertattard.uniquecode;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.nio.charset.StandardCharsets;
+
+import static demo.albertattard.uniquecode.UniqueCodeController.environmentVariable;
+
+/*
+ * The context of an invocation handled by the custom runtime.  The function details come from the environment variables
+ * that Lambda sets, while the identity and the client context of mobile applications are not supported.
+ */
+public class RuntimeContext implements Context {
+
+    private static final LambdaLogger LOGGER = new LambdaLogger() {
+        @Override
+        public void log(final String message) {
+            System.out.print(message);
+        }
+
+        @Override
+        public void log(final byte[] message) {
+            System.out.print(new String(message, StandardCharsets.UTF_8));
+        }
+    };
+
+    private final Invocation invocation;
+
+    public RuntimeContext(final Invocation invocation) {
+        this.invocation = invocation;
+    }
+
+    @Override
+    public String getAwsRequestId() {
+        return invocation.getRequestId();
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return environmentVariable("AWS_LAMBDA_LOG_GROUP_NAME", null);
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return environmentVariable("AWS_LAMBDA_LOG_STREAM_NAME", null);
+    }
+
+    @Override
+    public String getFunctionName() {
+        return environmentVariable("AWS_LAMBDA_FUNCTION_NAME", null);
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return environmentVariable("AWS_LAMBDA_FUNCTION_VERSION", null);
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return invocation.getInvokedFunctionArn();
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        return (int) Math.max(0, invocation.getDeadline() - System.currentTimeMillis());
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        return Integer.parseInt(environmentVariable("AWS_LAMBDA_FUNCTION_MEMORY_SIZE", "0"));
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return LOGGER;
+    }
+}
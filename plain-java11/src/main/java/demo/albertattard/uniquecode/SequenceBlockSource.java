@@ -0,0 +1,8 @@
+package demo.albertattard.uniquecode;
+
+/* Hands out blocks of consecutive numbers from a shared counter, where no number is ever handed out twice */
+public interface SequenceBlockSource {
+
+    /* Returns the first number of the leased block, which covers the given number of numbers */
+    long leaseBlock(String counter, int size);
+}
@@ -0,0 +1,137 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Generates codes that never collide, by taking the next number of a counter and mapping it through a keyed
+ * permutation of all codes of the same length and alphabet.  Each container leases blocks of numbers from the counter,
+ * so that the counter is only updated once per block.  The numbers of a block that are not used before the container
+ * shuts down are skipped.  The codes are only unique when the key never changes.
+ */
+public class SequentialCodeGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SequentialCodeGenerator.class);
+
+    private final SequenceBlockSource blockSource;
+    private final String key;
+    private final int blockSize;
+    private final Map<String, Sequence> sequencesByCounter = new ConcurrentHashMap<>();
+
+    public SequentialCodeGenerator(final SequenceBlockSource blockSource, final String key, final int blockSize) throws IllegalArgumentException {
+        if (key == null || key.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing sequence key.  The sequential mode requires a key that never changes.");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Invalid block size " + blockSize + ".  Block size must be at least 1.");
+        }
+
+        this.blockSource = blockSource;
+        this.key = key;
+        this.blockSize = blockSize;
+    }
+
+    public static SequentialCodeGenerator disabled() {
+        return new SequentialCodeGenerator(null, "disabled", 1);
+    }
+
+    public static SequentialCodeGenerator of(final String mode, final SequenceBlockSource blockSource, final String key, final int blockSize) throws IllegalArgumentException {
+        switch (mode.trim().toLowerCase(Locale.ROOT)) {
+            case "random":
+            case "time-ordered":
+                return disabled();
+            case "sequential":
+                return new SequentialCodeGenerator(blockSource, key, blockSize);
+            default:
+                throw new IllegalArgumentException("Invalid generation mode " + mode + ".  Generation mode must be one of random, sequential or time-ordered.");
+        }
+    }
+
+    /* Codes whose number of combinations does not fit the permutation are left to the random generation */
+    public boolean supports(final Alphabet alphabet, final int length) {
+        return blockSource != null && domainSize(alphabet, length) > 0;
+    }
+
+    public String generate(final Alphabet alphabet, final int length) throws IllegalStateException {
+        final Sequence sequence = sequencesByCounter.computeIfAbsent(alphabet.getName() + ":" + length,
+                counter -> new Sequence(counter, new FeistelPermutation(domainSize(alphabet, length), key + ":" + counter)));
+        return encode(sequence.next(), alphabet, length);
+    }
+
+    /*
+     * Skips the rest of the leased blocks, called after the container is restored from a checkpoint, as otherwise all
+     * containers restored from the same checkpoint would hand out the same numbers.  New blocks are leased when needed.
+     */
+    public void skipLeasedBlocks() {
+        if (!sequencesByCounter.isEmpty()) {
+            LOGGER.debug("Skipping the rest of the leased blocks of {}", sequencesByCounter.keySet());
+            sequencesByCounter.clear();
+        }
+    }
+
+    private static String encode(final long number, final Alphabet alphabet, final int length) {
+        final String symbols = alphabet.getSymbols();
+        final char[] code = new char[length];
+
+        /* Switch to the faster int division as soon as the remaining number fits an int */
+        int i = length - 1;
+        long remaining = number;
+        for (; remaining > Integer.MAX_VALUE; i--) {
+            code[i] = symbols.charAt((int) (remaining % symbols.length()));
+            remaining /= symbols.length();
+        }
+        for (int small = (int) remaining; i >= 0; i--) {
+            code[i] = symbols.charAt(small % symbols.length());
+            small /= symbols.length();
+        }
+        return new String(code);
+    }
+
+    /* Returns the number of codes of the given length, or -1 when this is larger than the permutation supports */
+    private static long domainSize(final Alphabet alphabet, final int length) {
+        long size = 1;
+        for (int i = 0; i < length; i++) {
+            if (size > FeistelPermutation.MAXIMUM_DOMAIN_SIZE / alphabet.size()) {
+                return -1;
+            }
+            size *= alphabet.size();
+        }
+        return size;
+    }
+
+    private class Sequence {
+
+        private final String counter;
+        private final FeistelPermutation permutation;
+        private long next;
+        private long end;
+
+        private Sequence(final String counter, final FeistelPermutation permutation) {
+            this.counter = counter;
+            this.permutation = permutation;
+        }
+
+        private synchronized long next() throws IllegalStateException {
+            if (next == end) {
+                lease();
+            }
+            return permutation.permute(next++);
+        }
+
+        private void lease() throws IllegalStateException {
+            final long start = blockSource.leaseBlock(counter, blockSize);
+            final long domainSize = permutation.domainSize();
+            if (start >= domainSize) {
+                throw new IllegalStateException("All " + domainSize + " codes of " + counter + " were issued");
+            }
+
+            LOGGER.debug("Leased the numbers {} to {} of {}", start, start + blockSize - 1, counter);
+            next = start;
+            end = Math.min(start + blockSize, domainSize);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package demo.albertattard.uniquecode;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Draws from a SplittableRandom per thread, which is about as fast as the ThreadLocalRandom but, unlike it, can be
+ * reseeded.  Each thread seeds its generator from a SecureRandom on its first draw, and again on its first draw after
+ * the source is reseeded.
+ */
+public class ThreadLocalRandomSource implements RandomSource {
+
+    private final SecureRandom seeds = EntropyPool.createSecureRandom();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ThreadLocal<Generator> generators = new ThreadLocal<>();
+
+    @Override
+    public long nextLong() {
+        Generator generator = generators.get();
+        final int current = generation.get();
+        if (generator == null || generator.generation != current) {
+            generator = new Generator(current, new SplittableRandom(seeds.nextLong()));
+            generators.set(generator);
+        }
+        return generator.random.nextLong();
+    }
+
+    @Override
+    public void reseed() {
+        EntropyPool.reseed(seeds);
+        generation.incrementAndGet();
+    }
+
+    private static class Generator {
+
+        private final int generation;
+        private final SplittableRandom random;
+
+        private Generator(final int generation, final SplittableRandom random) {
+            this.generation = generation;
+            this.random = random;
+        }
+    }
+}
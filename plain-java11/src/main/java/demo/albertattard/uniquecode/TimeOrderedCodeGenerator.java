@@ -0,0 +1,131 @@
+package demo.albertattard.uniquecode;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+ * Generates the prefix of the codes that sort by the time they were created, followed by random symbols.  The prefix is
+ * the timestamp of a hybrid logical clock: the milliseconds since the epoch, in the upper 48 bits, and a counter, in the
+ * lower 16 bits, written in a fixed number of symbols with the symbols of the alphabet in ascending order.  The clock
+ * takes the wall clock when this is ahead, and otherwise adds one to its last timestamp, thus the timestamps never
+ * repeat or go back within a container, even when the wall clock goes back or more than 65536 codes are generated in
+ * the same millisecond.  Codes of the same container never collide, while codes of different containers created in
+ * the same millisecond are told apart by their random symbols.
+ */
+public class TimeOrderedCodeGenerator {
+
+    private static final int COUNTER_BITS = 16;
+
+    /* The random symbols that follow the prefix, which tell apart the codes of different containers */
+    private static final int MINIMUM_RANDOM_SYMBOLS = 4;
+
+    private final LongSupplier currentTimeMillis;
+    private final AtomicLong lastTimestamp = new AtomicLong();
+
+    public TimeOrderedCodeGenerator(final LongSupplier currentTimeMillis) {
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    public static TimeOrderedCodeGenerator disabled() {
+        return new TimeOrderedCodeGenerator(null);
+    }
+
+    /* The generation mode is validated by SequentialCodeGenerator.of(), thus any other mode disables this generator */
+    public static TimeOrderedCodeGenerator of(final String mode) {
+        return "time-ordered".equals(mode.trim().toLowerCase(Locale.ROOT))
+                ? new TimeOrderedCodeGenerator(System::currentTimeMillis)
+                : disabled();
+    }
+
+    public boolean isEnabled() {
+        return currentTimeMillis != null;
+    }
+
+    /* Codes too short for the prefix and the random symbols are left to the random generation */
+    public boolean supports(final Alphabet alphabet, final int length) {
+        return currentTimeMillis != null && length >= minimumLength(alphabet);
+    }
+
+    /* Returns the length of the shortest codes that are time-ordered, such as 17 for the alphanumeric alphabet */
+    public static int minimumLength(final Alphabet alphabet) {
+        return prefixLength(alphabet) + MINIMUM_RANDOM_SYMBOLS;
+    }
+
+    /* Writes the prefix of the next code at the start of the buffer and returns its length */
+    public int writePrefix(final Alphabet alphabet, final char[] buffer) {
+        return write(nextTimestamp(), alphabet, buffer);
+    }
+
+    /*
+     * Returns the smallest prefix of the codes created at or after the given time, in the given alphabet.  The codes
+     * created between two times are those that are at least the prefix of the first time and less than that of the
+     * second, when compared symbol by symbol.
+     */
+    public static String prefixOf(final Instant time, final Alphabet alphabet) {
+        final char[] buffer = new char[prefixLength(alphabet)];
+        write(time.toEpochMilli() << COUNTER_BITS, alphabet, buffer);
+        return new String(buffer);
+    }
+
+    /* Returns the time the given code was created, as recorded by the clock of the container that created it */
+    public static Instant timeOf(final String code, final Alphabet alphabet) throws IllegalArgumentException {
+        final int length = prefixLength(alphabet);
+        if (code.length() < length) {
+            throw new IllegalArgumentException("Invalid code " + code + ".  Code must start with a prefix of " + length + " symbols.");
+        }
+
+        final char[] sortedSymbols = alphabet.sortedSymbols();
+        long timestamp = 0;
+        for (int i = 0; i < length; i++) {
+            final int digit = indexOf(sortedSymbols, code.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid code " + code + ".  Code must only have symbols of the " + alphabet.getName() + " alphabet.");
+            }
+            timestamp = timestamp * sortedSymbols.length + digit;
+        }
+        return Instant.ofEpochMilli(timestamp >>> COUNTER_BITS);
+    }
+
+    /* Returns the number of symbols that fit any 64-bit timestamp, such as 13 for the alphanumeric alphabet */
+    public static int prefixLength(final Alphabet alphabet) {
+        int length = 1;
+        for (double combinations = alphabet.size(); combinations < 0x1p64; combinations *= alphabet.size()) {
+            length++;
+        }
+        return length;
+    }
+
+    long nextTimestamp() {
+        final long now = currentTimeMillis.getAsLong() << COUNTER_BITS;
+        while (true) {
+            final long last = lastTimestamp.get();
+            final long next = Math.max(now, last + 1);
+            if (lastTimestamp.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static int write(final long timestamp, final Alphabet alphabet, final char[] buffer) {
+        final char[] sortedSymbols = alphabet.sortedSymbols();
+        final int length = prefixLength(alphabet);
+
+        long remaining = timestamp;
+        for (int i = length - 1; i >= 0; i--) {
+            buffer[i] = sortedSymbols[(int) Long.remainderUnsigned(remaining, sortedSymbols.length)];
+            remaining = Long.divideUnsigned(remaining, sortedSymbols.length);
+        }
+        return length;
+    }
+
+    private static int indexOf(final char[] symbols, final char symbol) {
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i] == symbol) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
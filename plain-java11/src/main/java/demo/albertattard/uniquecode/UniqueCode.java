@@ -2,8 +2,25 @@ package demo.albertattard.uniquecode;
 
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class UniqueCode {
 
+    /* The first of the codes, kept for the clients that request one code at a time */
     private final String code;
+    private final List<String> codes;
+
+    /* The response to a warm-up event, which creates no code */
+    public static UniqueCode none() {
+        return new UniqueCode(null, List.of());
+    }
+
+    public static UniqueCode of(final String code) {
+        return new UniqueCode(code, List.of(code));
+    }
+
+    public static UniqueCode of(final List<String> codes) {
+        return new UniqueCode(codes.get(0), List.copyOf(codes));
+    }
 }
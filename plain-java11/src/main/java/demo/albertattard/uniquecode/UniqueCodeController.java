@@ -6,102 +6,266 @@ import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
-import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
-import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 @AllArgsConstructor
 public class UniqueCodeController implements RequestHandler<CreateUniqueCodeRequest, UniqueCode> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UniqueCodeController.class);
 
-    private final DynamoDbClient client;
+    /* The number of candidates generated locally before giving up on the filter and letting DynamoDB decide */
+    private static final int MAXIMUM_LOCAL_ATTEMPTS = 10;
+
+    private final DataAccessGateway gateway;
     private final CodeGenerationService codeGenerationService;
     private final ClockService clockService;
+    private final IssuedCodeFilter issuedCodes;
+    private final HedgedCodeWriter hedgedCodeWriter;
+    private final RetryPolicy retryPolicy;
+    private final Primer primer;
+    private final DeferredMetadataWriter metadataWriter;
+    private final CapacityAccounting capacityAccounting;
+    private final IdempotentRequests idempotentRequests;
 
     public UniqueCodeController() {
         /* A default constructor is required as otherwise the Lambda function cannot be initialised. */
-        this(createDynamoDbClient(), createCodeGenerationService(), createClockService());
+        this(createCapacityAccounting());
+
+        /* The function is constructed during the init phase of the Lambda, thus priming here spares the first request */
+        if (Boolean.parseBoolean(environmentVariable("UNIQUE_CODE_PRIMING_ENABLED", "true"))) {
+            primer.prime();
+        }
+
+        /* Restored containers must not repeat the random numbers and sequence blocks captured by the checkpoint */
+        Checkpoints.afterRestore(codeGenerationService::reseed);
+
+        /* The metadata still pending when the runtime shuts the container down is flushed before the JVM exits */
+        if (metadataWriter.isEnabled()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(metadataWriter::close, "deferred-metadata-flush"));
+        }
+    }
+
+    /* The gateway accounts for the capacity the writes consume, while the controller accounts for it per request */
+    private UniqueCodeController(final CapacityAccounting capacityAccounting) {
+        this(createDataAccessGateway(capacityAccounting), capacityAccounting);
+    }
+
+    private UniqueCodeController(final DataAccessGateway gateway, final CapacityAccounting capacityAccounting) {
+        this(gateway, createCodeGenerationService(gateway), createClockService(), capacityAccounting);
+    }
+
+    private UniqueCodeController(final DataAccessGateway gateway, final CodeGenerationService codeGenerationService, final ClockService clockService,
+                                 final CapacityAccounting capacityAccounting) {
+        this(gateway, codeGenerationService, clockService, createIssuedCodeFilter(), createHedgedCodeWriter(gateway, capacityAccounting), createRetryPolicy(),
+                new Primer(gateway, codeGenerationService, clockService), createDeferredMetadataWriter(gateway, capacityAccounting), capacityAccounting,
+                createIdempotentRequests(gateway));
     }
 
     @Override
     public UniqueCode handleRequest(final CreateUniqueCodeRequest request, final Context context) {
-        final Map<String, AttributeValue> item = createAttributes(request);
-        addMetadataAttributes(item);
+        if (request.isWarmUp()) {
+            primer.prime();
+            return UniqueCode.none();
+        }
 
-        for (int attempt = 1, limit = 5; attempt <= limit; attempt++) {
-            LOGGER.debug("Creating unique code (Attempt {} of {})", attempt, limit);
+        final InvocationCapacity capacity = capacityAccounting.begin(request.getUsedBy());
+        try {
+            return idempotentRequests.serve(request, () -> createUniqueCode(request));
+        } finally {
+            /* The container may be frozen once the handler returns, thus the deferred metadata is written first */
+            metadataWriter.flush();
+            capacityAccounting.end(capacity);
+        }
+    }
 
-            final String randomCode = codeGenerationService.generate(request.getLength());
-            item.put("Code", AttributeValue.builder().s(randomCode).build());
+    private UniqueCode createUniqueCode(final CreateUniqueCodeRequest request) {
+        final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(request)
+                .createdOn(clockService.createdOn());
 
-            boolean successful = saveUniqueCode(item);
-            if (successful) {
-                LOGGER.debug("Unique code generated {} after {} attempt of {}", randomCode, attempt, limit);
-                return new UniqueCode(randomCode);
-            }
+        if (request.getCount() != 1) {
+            return createMany(request, builder);
+        }
 
-            LOGGER.warn("Failed to create a unique code (Attempt {} of {})", attempt, limit);
+        final Optional<String> saved = retryPolicy.execute(attempt -> saveUniqueCode(request, builder));
+        if (saved.isPresent()) {
+            LOGGER.debug("Unique code generated {}", saved.get());
+            return UniqueCode.of(saved.get());
         }
 
         throw new RuntimeException("Failed to create a unique code");
     }
 
-    private boolean saveUniqueCode(final Map<String, AttributeValue> item) {
-        try {
-            client.putItem(builder -> builder
-                    .tableName("UniqueCodes")
-                    .returnConsumedCapacity(ReturnConsumedCapacity.NONE)
-                    .item(item)
-                    .conditionExpression("attribute_not_exists(Code)")
-                    .build());
-            return true;
-        } catch (final ConditionalCheckFailedException e) {
-            LOGGER.warn("The code {} already exists", item.get("Code"));
-            return false;
+    private UniqueCode createMany(final CreateUniqueCodeRequest request, final CreateUniqueCode.Builder builder) {
+        final List<String> codes = gateway.saveUniqueCodes(builder, request.getCount(), () -> generateCandidate(request), retryPolicy);
+        codes.forEach(issuedCodes::add);
+        if (codes.size() < request.getCount()) {
+            LOGGER.warn("Failed to create {} unique codes, created {} only", request.getCount(), codes.size());
+            throw new RuntimeException("Failed to create " + request.getCount() + " unique codes");
         }
-    }
 
-    private Map<String, AttributeValue> createAttributes(final CreateUniqueCodeRequest request) {
-        final Map<String, AttributeValue> item = new HashMap<>();
-        addIfNotBlank("UsedBy", request.getUsedBy(), item);
-        addIfNotBlank("Reference", request.getReference(), item);
-        addIfNotBlank("Description", request.getDescription(), item);
-        return item;
+        LOGGER.debug("{} unique codes generated", codes.size());
+        return UniqueCode.of(codes);
     }
 
-    private void addMetadataAttributes(final Map<String, AttributeValue> item) {
-        final String createdOn = clockService.createdOn();
-        item.put("CreatedOn", AttributeValue.builder().s(createdOn).build());
+    /* Saves a new code, hedging the write when enabled, and returns nothing when the code is taken */
+    private Optional<String> saveUniqueCode(final CreateUniqueCodeRequest request, final CreateUniqueCode.Builder builder) {
+        final CreateUniqueCode item = builder.code(generateCandidate(request)).build();
+        if (hedgedCodeWriter.isEnabled()) {
+            if (hedgedCodeWriter.save(item)) {
+                issuedCodes.onSaved(item.getCode());
+                return Optional.of(item.getCode());
+            }
+        } else if (metadataWriter.isEnabled()) {
+            /* Only the key is written before responding, while the metadata follows in the background */
+            if (gateway.saveUniqueCodeKey(item)) {
+                metadataWriter.defer(item);
+                issuedCodes.onSaved(item.getCode());
+                return Optional.of(item.getCode());
+            }
+        } else if (gateway.saveUniqueCode(item)) {
+            issuedCodes.onSaved(item.getCode());
+            return Optional.of(item.getCode());
+        }
+
+        issuedCodes.onTaken(item.getCode());
+        return Optional.empty();
     }
 
-    private static void addIfNotBlank(final String key, final String value, final Map<String, AttributeValue> item) {
-        if (value != null && !value.trim().isEmpty()) {
-            item.put(key, AttributeValue.builder().s(value).build());
+    /* Generates a code that is not known to be issued, unless all candidates are known to be issued */
+    private String generateCandidate(final CreateUniqueCodeRequest request) {
+        for (int attempt = 1; attempt < MAXIMUM_LOCAL_ATTEMPTS; attempt++) {
+            final String code = codeGenerationService.generate(request.getLength(), request.getAlphabet());
+            if (!issuedCodes.isIssued(code)) {
+                return code;
+            }
         }
+
+        return codeGenerationService.generate(request.getLength(), request.getAlphabet());
     }
 
-    private static DynamoDbClient createDynamoDbClient() {
+    static DataAccessGateway createDataAccessGateway(final CapacityAccounting capacityAccounting) {
         /* As recommended by https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/lambda-optimize-starttime.html */
-        return DynamoDbClient.builder()
+        final DynamoDbClient client = DynamoDbClient.builder()
                 .region(Region.EU_CENTRAL_1)
                 .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .httpClient(UrlConnectionHttpClient.builder().build())
+                .httpClient(RestorableHttpClient.register(UniqueCodeController::createHttpClient))
+                /* The attempts are retried by RetryPolicy only, as the retries of the SDK would multiply its attempts */
+                .overrideConfiguration(configuration -> configuration.retryPolicy(software.amazon.awssdk.core.retry.RetryPolicy.none()))
                 .build();
+        return new DataAccessGateway(client, createWriteGovernor(client), capacityAccounting, createItemEncoding());
     }
 
-    private static CodeGenerationService createCodeGenerationService() {
-        return new CodeGenerationService();
+    private static ItemEncoding createItemEncoding() {
+        final String compact = environmentVariable("UNIQUE_CODE_ITEM_ENCODING_COMPACT", "false");
+        final String compressionThreshold = environmentVariable("UNIQUE_CODE_ITEM_ENCODING_COMPRESSION_THRESHOLD", "256");
+        return new ItemEncoding(Boolean.parseBoolean(compact), Integer.parseInt(compressionThreshold));
+    }
+
+    private static CapacityAccounting createCapacityAccounting() {
+        final String enabled = environmentVariable("UNIQUE_CODE_CAPACITY_ACCOUNTING_ENABLED", "false");
+        return new CapacityAccounting(Boolean.parseBoolean(enabled));
+    }
+
+    private static SdkHttpClient createHttpClient() {
+        final String httpClient = environmentVariable("UNIQUE_CODE_DYNAMODB_HTTP_CLIENT", "url-connection");
+        final String maximumConnections = environmentVariable("UNIQUE_CODE_DYNAMODB_MAXIMUM_CONNECTIONS", "50");
+        return HttpClients.of(httpClient, Integer.parseInt(maximumConnections));
+    }
+
+    private static WriteGovernor createWriteGovernor(final DynamoDbClient client) {
+        final String enabled = environmentVariable("UNIQUE_CODE_WRITE_GOVERNOR_ENABLED", "false");
+        if (!Boolean.parseBoolean(enabled)) {
+            return WriteGovernor.disabled();
+        }
+
+        final Duration maximumWait = Duration.parse(environmentVariable("UNIQUE_CODE_WRITE_GOVERNOR_MAXIMUM_WAIT", "PT0.2S"));
+        final double writeCapacity = Double.parseDouble(environmentVariable("UNIQUE_CODE_WRITE_GOVERNOR_WRITE_CAPACITY", "0"));
+        if (writeCapacity > 0) {
+            return WriteGovernor.create(writeCapacity, maximumWait);
+        }
+
+        return WriteGovernor.forTable(client, "UniqueCodes", maximumWait);
+    }
+
+    private static CodeGenerationService createCodeGenerationService(final SequenceBlockSource blockSource) {
+        final String randomSource = environmentVariable("UNIQUE_CODE_GENERATION_RANDOM_SOURCE", "fast");
+        final String defaultAlphabet = environmentVariable("UNIQUE_CODE_GENERATION_ALPHABET", "alphanumeric");
+        final String customAlphabet = environmentVariable("UNIQUE_CODE_GENERATION_CUSTOM_ALPHABET", "");
+        final String mode = environmentVariable("UNIQUE_CODE_GENERATION_MODE", "random");
+        final String sequenceKey = environmentVariable("UNIQUE_CODE_GENERATION_SEQUENCE_KEY", "");
+        final String sequenceBlockSize = environmentVariable("UNIQUE_CODE_GENERATION_SEQUENCE_BLOCK_SIZE", "100");
+        final SequentialCodeGenerator sequentialCodeGenerator = SequentialCodeGenerator.of(mode, blockSource, sequenceKey, Integer.parseInt(sequenceBlockSize));
+        return new CodeGenerationService(RandomSource.of(randomSource), new Alphabets(defaultAlphabet, customAlphabet), sequentialCodeGenerator,
+                TimeOrderedCodeGenerator.of(mode));
     }
 
     private static ClockService createClockService() {
         return new ClockService();
     }
 
+    private static IssuedCodeFilter createIssuedCodeFilter() {
+        if (!Boolean.parseBoolean(environmentVariable("UNIQUE_CODE_ISSUED_CODES_ENABLED", "false"))) {
+            return IssuedCodeFilter.disabled();
+        }
+
+        final String snapshot = environmentVariable("UNIQUE_CODE_ISSUED_CODES_SNAPSHOT", "");
+        final String expectedCodes = environmentVariable("UNIQUE_CODE_ISSUED_CODES_EXPECTED_CODES", "1000000");
+        final String falsePositiveRate = environmentVariable("UNIQUE_CODE_ISSUED_CODES_FALSE_POSITIVE_RATE", "0.01");
+        final String verificationRate = environmentVariable("UNIQUE_CODE_ISSUED_CODES_VERIFICATION_RATE", "0.01");
+        return IssuedCodeFilter.load(snapshot, Long.parseLong(expectedCodes), Double.parseDouble(falsePositiveRate), Double.parseDouble(verificationRate));
+    }
+
+    private static HedgedCodeWriter createHedgedCodeWriter(final DataAccessGateway gateway, final CapacityAccounting capacityAccounting) {
+        final String enabled = environmentVariable("UNIQUE_CODE_HEDGING_ENABLED", "false");
+        final String percentile = environmentVariable("UNIQUE_CODE_HEDGING_PERCENTILE", "95");
+        final String initialDelay = environmentVariable("UNIQUE_CODE_HEDGING_INITIAL_DELAY", "PT0.05S");
+        final String minimumDelay = environmentVariable("UNIQUE_CODE_HEDGING_MINIMUM_DELAY", "PT0.005S");
+        final HedgingSettings settings = new HedgingSettings(Boolean.parseBoolean(enabled), Double.parseDouble(percentile),
+                Duration.parse(initialDelay), Duration.parse(minimumDelay));
+        return HedgedCodeWriter.create(gateway, settings, capacityAccounting);
+    }
+
+    private static RetryPolicy createRetryPolicy() {
+        final String maximumAttempts = environmentVariable("UNIQUE_CODE_RETRY_MAXIMUM_ATTEMPTS", "5");
+        final String initialBackoff = environmentVariable("UNIQUE_CODE_RETRY_INITIAL_BACKOFF", "PT0.05S");
+        final String maximumBackoff = environmentVariable("UNIQUE_CODE_RETRY_MAXIMUM_BACKOFF", "PT1S");
+        final String timeBudget = environmentVariable("UNIQUE_CODE_RETRY_TIME_BUDGET", "PT5S");
+        final RetrySettings settings = new RetrySettings(Integer.parseInt(maximumAttempts), Duration.parse(initialBackoff),
+                Duration.parse(maximumBackoff), Duration.parse(timeBudget));
+        return RetryPolicy.create(settings);
+    }
+
+    private static DeferredMetadataWriter createDeferredMetadataWriter(final DataAccessGateway gateway, final CapacityAccounting capacityAccounting) {
+        final String enabled = environmentVariable("UNIQUE_CODE_DEFERRED_METADATA_ENABLED", "false");
+        final String capacity = environmentVariable("UNIQUE_CODE_DEFERRED_METADATA_CAPACITY", "1000");
+        final String flushTimeout = environmentVariable("UNIQUE_CODE_DEFERRED_METADATA_FLUSH_TIMEOUT", "PT5S");
+        if (Boolean.parseBoolean(enabled) && Boolean.parseBoolean(environmentVariable("UNIQUE_CODE_HEDGING_ENABLED", "false"))) {
+            throw new IllegalStateException("Invalid configuration.  The deferred metadata cannot be combined with hedging, as the hedged "
+                    + "writes save the codes with their metadata.  Disable either UNIQUE_CODE_DEFERRED_METADATA_ENABLED or UNIQUE_CODE_HEDGING_ENABLED.");
+        }
+
+        final DeferredMetadataSettings settings = new DeferredMetadataSettings(Boolean.parseBoolean(enabled), Integer.parseInt(capacity),
+                Duration.parse(flushTimeout));
+        return DeferredMetadataWriter.create(gateway, settings, capacityAccounting);
+    }
+
+    private static IdempotentRequests createIdempotentRequests(final DataAccessGateway gateway) {
+        final String enabled = environmentVariable("UNIQUE_CODE_IDEMPOTENCY_ENABLED", "true");
+        final String maximumSize = environmentVariable("UNIQUE_CODE_IDEMPOTENCY_MAXIMUM_SIZE", "10000");
+        final String timeToLive = environmentVariable("UNIQUE_CODE_IDEMPOTENCY_TIME_TO_LIVE", "PT24H");
+        final IdempotencySettings settings = new IdempotencySettings(Boolean.parseBoolean(enabled), Integer.parseInt(maximumSize),
+                Duration.parse(timeToLive));
+        return IdempotentRequests.create(gateway, settings);
+    }
+
+    static String environmentVariable(final String name, final String defaultValue) {
+        final String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value;
+    }
 }
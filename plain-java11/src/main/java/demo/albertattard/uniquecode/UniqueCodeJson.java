@@ -0,0 +1,664 @@
+package demo.albertattard.uniquecode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Reads the create unique code requests from, and writes the unique codes to, raw JSON streams.  The requests have a
+ * handful of properties, thus a parser written for these alone spares the classes that a general purpose mapper loads
+ * and the objects it allocates.  The input is read in UTF-8 and is validated as JSON, while the requests are read as
+ * leniently as the Lambda runtime reads them: unknown properties and nulls are ignored, any scalar is taken as a string,
+ * and numbers and booleans may be given as strings.  Invalid input fails with an IllegalArgumentException, and a failure
+ * to read or write the streams with an IOException.
+ */
+public final class UniqueCodeJson {
+
+    /* Deeper unknown values are rejected rather than skipped */
+    private static final int MAXIMUM_DEPTH = 1000;
+
+    /* The names of the properties that are read, matched against the input without creating a string for every name */
+    private static final String[] PROPERTIES = {"usedBy", "length", "alphabet", "count", "reference", "description", "idempotencyKey", "warmUp"};
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private UniqueCodeJson() {
+    }
+
+    public static CreateUniqueCodeRequest readRequest(final InputStream in) throws IOException, IllegalArgumentException {
+        final Parser parser = new Parser(in);
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+
+        parser.expect('{');
+        if (parser.nextNonWhitespace() == '}') {
+            parser.position++;
+        } else {
+            do {
+                parser.expect('"');
+                final String name = parser.readPropertyName();
+                parser.expect(':');
+                readProperty(parser, name, request);
+            } while (parser.nextSeparator('}'));
+        }
+
+        if (parser.nextNonWhitespace() != -1) {
+            throw parser.invalid("Event must be a single JSON object");
+        }
+        return request;
+    }
+
+    public static void writeResponse(final UniqueCode response, final OutputStream out) throws IOException {
+        final Writer writer = new Writer(32 + 16 * response.getCodes().size());
+        writer.writeAscii("{\"code\":");
+        writer.writeString(response.getCode());
+        writer.writeAscii(",\"codes\":[");
+        final List<String> codes = response.getCodes();
+        for (int i = 0; i < codes.size(); i++) {
+            if (i > 0) {
+                writer.writeByte(',');
+            }
+            writer.writeString(codes.get(i));
+        }
+        writer.writeAscii("]}");
+        writer.writeTo(out);
+    }
+
+    /* Writes an error in the format of the Lambda Runtime API, named after the class of the exception */
+    public static void writeError(final Throwable error, final OutputStream out) throws IOException {
+        final Writer writer = new Writer(128);
+        writer.writeAscii("{\"errorMessage\":");
+        writer.writeString(String.valueOf(error.getMessage()));
+        writer.writeAscii(",\"errorType\":");
+        writer.writeString(error.getClass().getName());
+        writer.writeByte('}');
+        writer.writeTo(out);
+    }
+
+    private static void readProperty(final Parser parser, final String name, final CreateUniqueCodeRequest request) throws IOException {
+        if (name == null) {
+            /* The values of the unknown properties are validated but not kept */
+            parser.readValue(false);
+            return;
+        }
+
+        final Token token = parser.readValue(true);
+        if (token == Token.NULL) {
+            return;
+        }
+
+        switch (name) {
+            case "usedBy":
+                request.setUsedBy(asString(parser, token, name));
+                break;
+            case "length":
+                request.setLength(asInt(parser, token, name));
+                break;
+            case "alphabet":
+                request.setAlphabet(asString(parser, token, name));
+                break;
+            case "count":
+                request.setCount(asInt(parser, token, name));
+                break;
+            case "reference":
+                request.setReference(asString(parser, token, name));
+                break;
+            case "description":
+                request.setDescription(asString(parser, token, name));
+                break;
+            case "idempotencyKey":
+                request.setIdempotencyKey(asString(parser, token, name));
+                break;
+            case "warmUp":
+                request.setWarmUp(asBoolean(parser, token, name));
+                break;
+            default:
+                /* Unknown properties are ignored */
+        }
+    }
+
+    private static String asString(final Parser parser, final Token token, final String name) {
+        if (token == Token.OBJECT || token == Token.ARRAY) {
+            throw new IllegalArgumentException("Invalid " + name + ".  The " + name + " must be a string.");
+        }
+
+        return parser.text;
+    }
+
+    private static int asInt(final Parser parser, final Token token, final String name) {
+        try {
+            if (token == Token.INTEGER) {
+                return Integer.parseInt(parser.text);
+            }
+            if (token == Token.STRING) {
+                return Integer.parseInt(parser.text.trim());
+            }
+        } catch (final NumberFormatException e) {
+            /* Such as a number that does not fit an int */
+        }
+        throw new IllegalArgumentException("Invalid " + name + ".  The " + name + " must be a whole number.");
+    }
+
+    private static boolean asBoolean(final Parser parser, final Token token, final String name) {
+        final String text = token == Token.STRING ? parser.text.trim() : "";
+        if (token == Token.TRUE || "true".equalsIgnoreCase(text)) {
+            return true;
+        }
+        if (token == Token.FALSE || "false".equalsIgnoreCase(text)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Invalid " + name + ".  The " + name + " must be true or false.");
+    }
+
+    private enum Token {
+        STRING, INTEGER, DECIMAL, TRUE, FALSE, NULL, OBJECT, ARRAY
+    }
+
+    /* Reads the JSON from the stream through a buffer, keeping the text of the last scalar read */
+    private static class Parser {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[512];
+        private int position;
+        private int limit;
+        /* The number of bytes consumed before the buffer, to point at the invalid input */
+        private long offset;
+
+        /* The characters of the string or the number being read */
+        private char[] chars = new char[64];
+        private int count;
+        private String text;
+
+        private Parser(final InputStream in) {
+            this.in = in;
+        }
+
+        /* Returns the next byte, from 0 to 255, without consuming it, or -1 at the end of the stream */
+        private int peek() throws IOException {
+            if (position == limit) {
+                offset += limit;
+                position = 0;
+                limit = 0;
+                final int read = in.read(buffer, 0, buffer.length);
+                if (read <= 0) {
+                    return -1;
+                }
+                limit = read;
+            }
+            return buffer[position] & 0xff;
+        }
+
+        private int read() throws IOException {
+            final int next = peek();
+            if (next == -1) {
+                throw invalid("Event ended unexpectedly");
+            }
+            position++;
+            return next;
+        }
+
+        private int nextNonWhitespace() throws IOException {
+            while (true) {
+                final int next = peek();
+                if (next != ' ' && next != '\t' && next != '\n' && next != '\r') {
+                    return next;
+                }
+                position++;
+            }
+        }
+
+        private void expect(final char expected) throws IOException {
+            final int next = nextNonWhitespace();
+            if (next != expected) {
+                throw unexpected(next, "Expected '" + expected + "'");
+            }
+            position++;
+        }
+
+        /* Consumes a comma, returning true, or the given closing bracket, returning false */
+        private boolean nextSeparator(final char closing) throws IOException {
+            final int next = nextNonWhitespace();
+            if (next == ',') {
+                position++;
+                return true;
+            }
+            if (next == closing) {
+                position++;
+                return false;
+            }
+            throw unexpected(next, "Expected ',' or '" + closing + "'");
+        }
+
+        /* Reads the next value, keeping the text of a scalar when asked for, and skipping an object or an array */
+        private Token readValue(final boolean keep) throws IOException {
+            final int next = nextNonWhitespace();
+            switch (next) {
+                case '"':
+                    position++;
+                    if (keep) {
+                        text = readString();
+                    } else {
+                        skipString();
+                    }
+                    return Token.STRING;
+                case 't':
+                    readLiteral("true");
+                    return Token.TRUE;
+                case 'f':
+                    readLiteral("false");
+                    return Token.FALSE;
+                case 'n':
+                    readLiteral("null");
+                    return Token.NULL;
+                case '{':
+                case '[':
+                    skipStructure();
+                    return next == '{' ? Token.OBJECT : Token.ARRAY;
+                default:
+                    if (next == '-' || next >= '0' && next <= '9') {
+                        return readNumber(keep);
+                    }
+                    throw unexpected(next, "Expected a value");
+            }
+        }
+
+        private void readLiteral(final String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                if (peek() != literal.charAt(i)) {
+                    throw invalid("Expected " + literal);
+                }
+                position++;
+            }
+            text = literal;
+            requireDelimiter();
+        }
+
+        /* Reads a number as defined by JSON, without leading zeros, and keeps its text */
+        private Token readNumber(final boolean keep) throws IOException {
+            count = 0;
+            if (peek() == '-') {
+                append((char) read());
+            }
+
+            if (peek() == '0') {
+                append((char) read());
+            } else if (!readDigits()) {
+                throw invalid("Expected a digit");
+            }
+
+            boolean integer = true;
+            if (peek() == '.') {
+                append((char) read());
+                if (!readDigits()) {
+                    throw invalid("Expected a digit");
+                }
+                integer = false;
+            }
+            if (peek() == 'e' || peek() == 'E') {
+                append((char) read());
+                if (peek() == '+' || peek() == '-') {
+                    append((char) read());
+                }
+                if (!readDigits()) {
+                    throw invalid("Expected a digit");
+                }
+                integer = false;
+            }
+
+            requireDelimiter();
+            text = keep ? new String(chars, 0, count) : null;
+            return integer ? Token.INTEGER : Token.DECIMAL;
+        }
+
+        private boolean readDigits() throws IOException {
+            boolean any = false;
+            for (int next = peek(); next >= '0' && next <= '9'; next = peek()) {
+                append((char) next);
+                position++;
+                any = true;
+            }
+            return any;
+        }
+
+        /* A literal or a number must not run into the following value, such as in truex or 01 */
+        private void requireDelimiter() throws IOException {
+            final int next = peek();
+            if (next != -1 && next != ',' && next != '}' && next != ']' && next != ' ' && next != '\t' && next != '\n' && next != '\r') {
+                throw invalid("Unexpected character");
+            }
+        }
+
+        /* Reads the rest of a property name, after its opening quote, returning the matching property or null */
+        private String readPropertyName() throws IOException {
+            final int from = position;
+            skipAscii();
+            if (position < limit && buffer[position] == '"') {
+                /* Plain ASCII within the buffer, the common case, is matched as it is */
+                final int length = position++ - from;
+                for (final String property : PROPERTIES) {
+                    if (matches(property, from, length)) {
+                        return property;
+                    }
+                }
+                return null;
+            }
+
+            final String name = readRestOfString(from);
+            for (final String property : PROPERTIES) {
+                if (property.equals(name)) {
+                    return property;
+                }
+            }
+            return null;
+        }
+
+        private boolean matches(final String property, final int from, final int length) {
+            if (property.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (buffer[from + i] != property.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /* Reads the rest of a string, after its opening quote, decoding its escapes and its UTF-8 */
+        private String readString() throws IOException {
+            return readRestOfString(position);
+        }
+
+        private String readRestOfString(final int from) throws IOException {
+            count = 0;
+            appendAscii(from);
+            decodeString(true);
+            return new String(chars, 0, count);
+        }
+
+        /* Validates the rest of a string, after its opening quote, without keeping it */
+        private void skipString() throws IOException {
+            decodeString(false);
+        }
+
+        /* Decodes the string up to, and including, its closing quote into the characters */
+        private void decodeString(final boolean keep) throws IOException {
+            while (true) {
+                final int from = position;
+                skipAscii();
+                if (keep) {
+                    appendAscii(from);
+                } else {
+                    /* Drops the escapes and the UTF-8 decoded so far */
+                    count = 0;
+                }
+
+                final int next = read();
+                if (next == '"') {
+                    return;
+                } else if (next == '\\') {
+                    readEscape();
+                } else if (next < 0x20) {
+                    throw invalid("Strings must not contain control characters");
+                } else if (next < 0x80) {
+                    append((char) next);
+                } else {
+                    readMultiByte(next);
+                }
+            }
+        }
+
+        /* Moves past the plain ASCII in the buffer, stopping at the quotes, the escapes, the control characters and UTF-8 */
+        private void skipAscii() {
+            while (position < limit) {
+                final byte next = buffer[position];
+                if (next < 0x20 || next == '"' || next == '\\') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        private void appendAscii(final int from) {
+            ensureCapacity(position - from);
+            for (int i = from; i < position; i++) {
+                chars[count++] = (char) buffer[i];
+            }
+        }
+
+        private void append(final char c) {
+            ensureCapacity(1);
+            chars[count++] = c;
+        }
+
+        private void ensureCapacity(final int length) {
+            if (count + length > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, count + length));
+            }
+        }
+
+        private void readEscape() throws IOException {
+            final int escaped = read();
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    append((char) escaped);
+                    break;
+                case 'b':
+                    append('\b');
+                    break;
+                case 'f':
+                    append('\f');
+                    break;
+                case 'n':
+                    append('\n');
+                    break;
+                case 'r':
+                    append('\r');
+                    break;
+                case 't':
+                    append('\t');
+                    break;
+                case 'u':
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        final int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw invalid("Expected a hexadecimal digit");
+                        }
+                        value = value << 4 | digit;
+                    }
+                    append((char) value);
+                    break;
+                default:
+                    throw invalid("Invalid escape");
+            }
+        }
+
+        /* Decodes a character of two to four bytes, rejecting the overlong forms, the surrogates and those beyond Unicode */
+        private void readMultiByte(final int first) throws IOException {
+            final int length;
+            int value;
+            if (first >= 0xc2 && first <= 0xdf) {
+                length = 2;
+                value = first & 0x1f;
+            } else if (first >= 0xe0 && first <= 0xef) {
+                length = 3;
+                value = first & 0x0f;
+            } else if (first >= 0xf0 && first <= 0xf4) {
+                length = 4;
+                value = first & 0x07;
+            } else {
+                throw invalid("Invalid UTF-8");
+            }
+
+            for (int i = 1; i < length; i++) {
+                final int next = read();
+                if ((next & 0xc0) != 0x80) {
+                    throw invalid("Invalid UTF-8");
+                }
+                value = value << 6 | next & 0x3f;
+            }
+
+            if (length == 3 && (value < 0x800 || value >= 0xd800 && value <= 0xdfff) || length == 4 && (value < 0x10000 || value > 0x10ffff)) {
+                throw invalid("Invalid UTF-8");
+            }
+            if (value >= 0x10000) {
+                append(Character.highSurrogate(value));
+                append(Character.lowSurrogate(value));
+            } else {
+                append((char) value);
+            }
+        }
+
+        /* Skips an object or an array, and everything within, validating it */
+        private void skipStructure() throws IOException {
+            byte[] closing = new byte[16];
+            int depth = 0;
+            while (true) {
+                /* At the start of a value, which is either a nested structure or a scalar */
+                final int next = nextNonWhitespace();
+                if (next == '{' || next == '[') {
+                    if (depth == MAXIMUM_DEPTH) {
+                        throw invalid("Event is nested too deeply");
+                    }
+                    if (depth == closing.length) {
+                        closing = Arrays.copyOf(closing, depth * 2);
+                    }
+                    position++;
+                    closing[depth++] = (byte) (next == '{' ? '}' : ']');
+                    if (nextNonWhitespace() == closing[depth - 1]) {
+                        /* An empty object or array */
+                        position++;
+                        depth--;
+                    } else {
+                        if (next == '{') {
+                            skipName();
+                        }
+                        continue;
+                    }
+                } else {
+                    readValue(false);
+                }
+
+                /* After a value, which is followed by another one or closes the structures that end here */
+                while (true) {
+                    if (depth == 0) {
+                        return;
+                    }
+                    if (!nextSeparator((char) closing[depth - 1])) {
+                        depth--;
+                        continue;
+                    }
+                    if (closing[depth - 1] == '}') {
+                        skipName();
+                    }
+                    break;
+                }
+            }
+        }
+
+        private void skipName() throws IOException {
+            expect('"');
+            skipString();
+            expect(':');
+        }
+
+        private IllegalArgumentException unexpected(final int next, final String reason) {
+            return invalid(next == -1 ? "Event ended unexpectedly" : reason);
+        }
+
+        private IllegalArgumentException invalid(final String reason) {
+            return new IllegalArgumentException("Invalid event.  " + reason + " at byte " + (offset + position) + ".");
+        }
+    }
+
+    /* Writes the JSON in UTF-8 to a buffer, which is written to the stream at once */
+    private static class Writer {
+
+        private byte[] buffer;
+        private int length;
+
+        private Writer(final int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void writeByte(final int value) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[length++] = (byte) value;
+        }
+
+        private void writeAscii(final String text) {
+            for (int i = 0; i < text.length(); i++) {
+                writeByte(text.charAt(i));
+            }
+        }
+
+        /* Writes a string, or null, escaping the quotes, the backslashes, the control characters and the lone surrogates */
+        private void writeString(final String value) {
+            if (value == null) {
+                writeAscii("null");
+                return;
+            }
+
+            writeByte('"');
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    writeByte('\\');
+                    writeByte(c);
+                } else if (c < 0x20) {
+                    writeEscaped(c);
+                } else if (c < 0x80) {
+                    writeByte(c);
+                } else if (c < 0x800) {
+                    writeByte(0xc0 | c >> 6);
+                    writeByte(0x80 | c & 0x3f);
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    writeByte(0xf0 | codePoint >> 18);
+                    writeByte(0x80 | codePoint >> 12 & 0x3f);
+                    writeByte(0x80 | codePoint >> 6 & 0x3f);
+                    writeByte(0x80 | codePoint & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    writeEscaped(c);
+                } else {
+                    writeByte(0xe0 | c >> 12);
+                    writeByte(0x80 | c >> 6 & 0x3f);
+                    writeByte(0x80 | c & 0x3f);
+                }
+            }
+            writeByte('"');
+        }
+
+        private void writeEscaped(final char c) {
+            writeByte('\\');
+            switch (c) {
+                case '\n':
+                    writeByte('n');
+                    break;
+                case '\r':
+                    writeByte('r');
+                    break;
+                case '\t':
+                    writeByte('t');
+                    break;
+                default:
+                    writeByte('u');
+                    writeByte(HEX[c >> 12]);
+                    writeByte(HEX[c >> 8 & 0xf]);
+                    writeByte(HEX[c >> 4 & 0xf]);
+                    writeByte(HEX[c & 0xf]);
+            }
+        }
+
+        private void writeTo(final OutputStream out) throws IOException {
+            out.write(buffer, 0, length);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package demo.albertattard.uniquecode;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/*
+ * Creates unique codes as the UniqueCodeController does, but reads the requests from, and writes the codes to, the raw
+ * streams with UniqueCodeJson, thus the managed runtime does not map them with its reflective serializer.  An invalid
+ * request fails the invocation with an IllegalArgumentException.
+ */
+public class UniqueCodeStreamController implements RequestStreamHandler {
+
+    private final RequestHandler<CreateUniqueCodeRequest, UniqueCode> handler;
+
+    public UniqueCodeStreamController() {
+        /* A default constructor is required as otherwise the Lambda function cannot be initialised. */
+        this(new UniqueCodeController());
+    }
+
+    public UniqueCodeStreamController(final RequestHandler<CreateUniqueCodeRequest, UniqueCode> handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handleRequest(final InputStream input, final OutputStream output, final Context context) throws IOException {
+        final CreateUniqueCodeRequest request = UniqueCodeJson.readRequest(input);
+        UniqueCodeJson.writeResponse(handler.handleRequest(request, context), output);
+    }
+}
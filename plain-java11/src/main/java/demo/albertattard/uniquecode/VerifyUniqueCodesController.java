@@ -0,0 +1,30 @@
+package demo.albertattard.uniquecode;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import lombok.AllArgsConstructor;
+
+import static demo.albertattard.uniquecode.UniqueCodeController.createDataAccessGateway;
+import static demo.albertattard.uniquecode.UniqueCodeController.environmentVariable;
+
+/* Verifies the given codes in bulk and returns those that were found and those that were not */
+@AllArgsConstructor
+public class VerifyUniqueCodesController implements RequestHandler<VerifyUniqueCodesRequest, CodeVerification> {
+
+    private final CodeVerifier codeVerifier;
+
+    public VerifyUniqueCodesController() {
+        /* A default constructor is required as otherwise the Lambda function cannot be initialised. */
+        this(createCodeVerifier(createDataAccessGateway(CapacityAccounting.disabled())));
+    }
+
+    @Override
+    public CodeVerification handleRequest(final VerifyUniqueCodesRequest request, final Context context) {
+        return codeVerifier.verify(request.getCodes());
+    }
+
+    private static CodeVerifier createCodeVerifier(final DataAccessGateway gateway) {
+        final String parallelism = environmentVariable("UNIQUE_CODE_VERIFY_PARALLELISM", "8");
+        return CodeVerifier.create(gateway, Integer.parseInt(parallelism));
+    }
+}
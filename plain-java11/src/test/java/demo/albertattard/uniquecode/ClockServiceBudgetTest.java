@@ -0,0 +1,20 @@
+package demo.albertattard.uniquecode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Guards the allocations of formatting the creation time against regressions, and reports its time.  Only the returned
+ * string is expected to be allocated, as the time up to the second is formatted once per second.
+ */
+class ClockServiceBudgetTest {
+
+    private final ClockService clockService = new ClockService();
+    private long formattedLength;
+
+    @PerformanceBudget(maximumBytesPerInvocation = 128, targetMicrosPerInvocation = 5, warmUpInvocations = 100_000, invocations = 100_000)
+    void shouldFormatTheCreationTimeWithinTheBudget(final PerformanceBudgetExtension.Runner runner) {
+        runner.run(() -> formattedLength += clockService.createdOn().length());
+
+        assertThat(formattedLength).isGreaterThan(200_000 * 20);
+    }
+}
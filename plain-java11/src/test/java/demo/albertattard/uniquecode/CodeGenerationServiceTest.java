@@ -2,15 +2,19 @@ package demo.albertattard.uniquecode;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class CodeGenerationServiceTest {
 
-    private final CodeGenerationService service = new CodeGenerationService();
+    private final CodeGenerationService service = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
 
     @Test
     @DisplayName("should return a string of the given length containing only uppercase letters and numbers")
@@ -36,4 +40,159 @@ class CodeGenerationServiceTest {
                     .isTrue();
         }
     }
+
+    @ParameterizedTest(name = "should return a code of length {0}")
+    @ValueSource(ints = {1, 7, 8, 9, 255, 256})
+    void shouldReturnACodeOfTheGivenLength(final int length) {
+        assertThat(service.generate(length))
+                .describedAs("Code must contains a mix of %d capital letters and numbers only", length)
+                .matches("[A-Z0-9]{" + length + "}");
+    }
+
+    @ParameterizedTest(name = "should reject the invalid length {0}")
+    @ValueSource(ints = {-1, 0, 257})
+    void shouldRejectTheInvalidLength(final int length) {
+        assertThrows(IllegalArgumentException.class, () -> service.generate(length));
+    }
+
+    @Test
+    @DisplayName("should use all capital letters and numbers evenly")
+    void shouldUseAllCapitalLettersAndNumbersEvenly() {
+        final int length = 256;
+        final int numberOfCodes = 1000;
+        final int[] occurrences = new int[128];
+
+        for (int i = 0; i < numberOfCodes; i++) {
+            for (final char symbol : service.generate(length).toCharArray()) {
+                occurrences[symbol]++;
+            }
+        }
+
+        /* Each of the 36 symbols is expected about 7111 times, with a standard deviation of about 83 */
+        final int expected = length * numberOfCodes / 36;
+        for (char symbol = '0'; symbol <= 'Z'; symbol++) {
+            if (Character.isLetterOrDigit(symbol)) {
+                assertThat(occurrences[symbol])
+                        .describedAs("Occurrences of symbol '%s'", symbol)
+                        .isBetween(expected - 600, expected + 600);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should return a code containing only uppercase letters and numbers when using the secure random source")
+    void shouldReturnACodeContainingOnlyUppercaseLettersAndNumbersWhenUsingTheSecureRandomSource() {
+        final CodeGenerationService secureService = new CodeGenerationService(RandomSource.secure(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+
+        final int length = 128;
+        final String code = secureService.generate(length);
+        assertThat(code)
+                .describedAs("Code must contains a mix of %d capital letters and numbers only", length)
+                .isNotNull()
+                .matches("[A-Z0-9]{" + length + "}");
+    }
+
+    @ParameterizedTest(name = "should return a code made of the symbols of the {0} alphabet")
+    @ValueSource(strings = {"alphanumeric", "crockford-base32", "digits", "hex", "unambiguous"})
+    void shouldReturnACodeMadeOfTheSymbolsOfTheGivenAlphabet(final String name) {
+        final Alphabet alphabet = Alphabets.defaults().get(name);
+
+        final int length = 256;
+        assertThat(service.generate(length, name))
+                .describedAs("Code must contains %d symbols of the %s alphabet only", length, name)
+                .matches("[" + alphabet.getSymbols() + "]{" + length + "}");
+    }
+
+    @Test
+    @DisplayName("should use the custom alphabet when it is the default alphabet")
+    void shouldUseTheCustomAlphabetWhenItIsTheDefaultAlphabet() {
+        final CodeGenerationService customService = new CodeGenerationService(RandomSource.fast(), new Alphabets("custom", "ACGT"), SequentialCodeGenerator.disabled());
+
+        final int length = 128;
+        assertThat(customService.generate(length))
+                .describedAs("Code must contains %d symbols of the custom alphabet only", length)
+                .matches("[ACGT]{" + length + "}");
+        assertThat(customService.isDefaultAlphabet(null)).isTrue();
+        assertThat(customService.isDefaultAlphabet("custom")).isTrue();
+        assertThat(customService.isDefaultAlphabet("hex")).isFalse();
+    }
+
+    @Test
+    @DisplayName("should reject an alphabet that does not exist")
+    void shouldRejectAnAlphabetThatDoesNotExist() {
+        assertThrows(IllegalArgumentException.class, () -> service.generate(8, "klingon"));
+    }
+
+    @Test
+    @DisplayName("should use all symbols of an alphabet whose size is not a power of two evenly")
+    void shouldUseAllSymbolsOfAnAlphabetWhoseSizeIsNotAPowerOfTwoEvenly() {
+        final Alphabet alphabet = Alphabet.UNAMBIGUOUS;
+        final int length = 256;
+        final int numberOfCodes = 1000;
+        final int[] occurrences = new int[128];
+
+        for (int i = 0; i < numberOfCodes; i++) {
+            for (final char symbol : service.generate(length, alphabet.getName()).toCharArray()) {
+                occurrences[symbol]++;
+            }
+        }
+
+        /* Each of the 31 symbols is expected about 8258 times, with a standard deviation of about 89 */
+        final int expected = length * numberOfCodes / alphabet.size();
+        for (final char symbol : alphabet.getSymbols().toCharArray()) {
+            assertThat(occurrences[symbol])
+                    .describedAs("Occurrences of symbol '%s'", symbol)
+                    .isBetween(expected - 600, expected + 600);
+        }
+    }
+
+    @Test
+    @DisplayName("should not return duplicates when using the sequential mode")
+    void shouldNotReturnDuplicatesWhenUsingTheSequentialMode() {
+        final AtomicLong counter = new AtomicLong();
+        final SequentialCodeGenerator sequentialCodeGenerator = new SequentialCodeGenerator((name, size) -> counter.getAndAdd(size), "test-key", 100);
+        final CodeGenerationService sequentialService = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), sequentialCodeGenerator);
+
+        final int numberOfAttempts = 36 * 36 * 36;
+        final Set<String> observed = new HashSet<>(numberOfAttempts);
+        for (int attempt = 1; attempt <= numberOfAttempts; attempt++) {
+            final String code = sequentialService.generate(3);
+            assertThat(code).matches("[A-Z0-9]{3}");
+            assertThat(observed.add(code))
+                    .describedAs("Found a duplicate code '%s' after %d attempts", code, attempt)
+                    .isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("should skip the rest of the leased block when reseeded")
+    void shouldSkipTheRestOfTheLeasedBlockWhenReseeded() {
+        final AtomicLong counter = new AtomicLong();
+        final SequentialCodeGenerator sequentialCodeGenerator = new SequentialCodeGenerator((name, size) -> counter.getAndAdd(size), "test-key", 100);
+        final CodeGenerationService sequentialService = new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), sequentialCodeGenerator);
+
+        sequentialService.generate(8);
+        assertThat(counter.get()).isEqualTo(100);
+
+        sequentialService.reseed();
+        sequentialService.generate(8);
+        sequentialService.generate(8);
+        assertThat(counter.get()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("should keep returning codes after the random source is reseeded")
+    void shouldKeepReturningCodesAfterTheRandomSourceIsReseeded() {
+        final Set<String> observed = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            observed.add(service.generate(16));
+        }
+
+        service.reseed();
+        for (int i = 0; i < 100; i++) {
+            observed.add(service.generate(16));
+        }
+
+        assertThat(observed).hasSize(200);
+    }
 }
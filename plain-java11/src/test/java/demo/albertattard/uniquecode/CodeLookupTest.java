@@ -0,0 +1,116 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CodeLookupTest {
+
+    private static final StoredUniqueCode STORED = new StoredUniqueCode("12345678", "2020-02-22T22:22:22.222Z", "used-by-test", null, null);
+
+    /* A clock that only moves when the test moves it */
+    private final AtomicLong now = new AtomicLong();
+    private final DataAccessGateway gateway = mock(DataAccessGateway.class);
+
+    @Test
+    @DisplayName("should read a code from the table once and answer the following lookups from the cache")
+    void shouldReadACodeFromTheTableOnceAndAnswerTheFollowingLookupsFromTheCache() {
+        when(gateway.findUniqueCode("12345678")).thenReturn(Optional.of(STORED));
+
+        final CodeLookup lookup = createLookup(100);
+        for (int i = 0; i < 4; i++) {
+            assertThat(lookup.find("12345678")).contains(STORED);
+        }
+
+        verify(gateway, times(1)).findUniqueCode("12345678");
+        final CodeLookupMetrics metrics = lookup.metrics();
+        assertThat(metrics.getLookups()).isEqualTo(4);
+        assertThat(metrics.getHits()).isEqualTo(3);
+        assertThat(metrics.getHitRate()).isEqualTo(0.75);
+        assertThat(metrics.getSavedReadUnits()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should read the code from the table again once its time to live expires")
+    void shouldReadTheCodeFromTheTableAgainOnceItsTimeToLiveExpires() {
+        when(gateway.findUniqueCode("12345678")).thenReturn(Optional.of(STORED));
+
+        final CodeLookup lookup = createLookup(100);
+        lookup.find("12345678");
+        now.addAndGet(TimeUnit.MINUTES.toNanos(59));
+        lookup.find("12345678");
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        lookup.find("12345678");
+
+        verify(gateway, times(2)).findUniqueCode("12345678");
+    }
+
+    @Test
+    @DisplayName("should keep a code that is not found, or found without its metadata, for the negative time to live only")
+    void shouldKeepACodeThatIsNotFoundOrFoundWithoutItsMetadataForTheNegativeTimeToLiveOnly() {
+        final StoredUniqueCode withoutMetadata = new StoredUniqueCode("23456789", "2020-02-22T22:22:22.222Z", null, null, null);
+        when(gateway.findUniqueCode("12345678")).thenReturn(Optional.empty());
+        when(gateway.findUniqueCode("23456789")).thenReturn(Optional.of(withoutMetadata));
+
+        final CodeLookup lookup = createLookup(100);
+        assertThat(lookup.find("12345678")).isEmpty();
+        assertThat(lookup.find("23456789")).contains(withoutMetadata);
+        assertThat(lookup.find("12345678")).isEmpty();
+        assertThat(lookup.find("23456789")).contains(withoutMetadata);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        lookup.find("12345678");
+        lookup.find("23456789");
+
+        verify(gateway, times(2)).findUniqueCode("12345678");
+        verify(gateway, times(2)).findUniqueCode("23456789");
+    }
+
+    @Test
+    @DisplayName("should evict the least recently used code when full")
+    void shouldEvictTheLeastRecentlyUsedCodeWhenFull() {
+        when(gateway.findUniqueCode(anyString())).thenAnswer(invocation -> Optional.of(
+                new StoredUniqueCode(invocation.getArgument(0), "2020-02-22T22:22:22.222Z", "used-by-test", null, null)));
+
+        final CodeLookup lookup = createLookup(2);
+        lookup.find("AAAAAAAA");
+        lookup.find("BBBBBBBB");
+        lookup.find("AAAAAAAA");
+        lookup.find("CCCCCCCC");
+        lookup.find("AAAAAAAA");
+        lookup.find("BBBBBBBB");
+
+        verify(gateway, times(1)).findUniqueCode("AAAAAAAA");
+        verify(gateway, times(2)).findUniqueCode("BBBBBBBB");
+        assertThat(lookup.metrics().getSize()).isEqualTo(2);
+        assertThat(lookup.metrics().getEvictions()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should read every code from the table when disabled")
+    void shouldReadEveryCodeFromTheTableWhenDisabled() {
+        when(gateway.findUniqueCode("12345678")).thenReturn(Optional.of(STORED));
+
+        final CodeLookup lookup = CodeLookup.create(gateway, CodeLookupSettings.disabled());
+        lookup.find("12345678");
+        lookup.find("12345678");
+
+        verify(gateway, times(2)).findUniqueCode("12345678");
+        assertThat(lookup.metrics().getLookups()).isEqualTo(0);
+    }
+
+    private CodeLookup createLookup(final int maximumSize) {
+        final CodeLookupSettings settings = new CodeLookupSettings(true, maximumSize, Duration.ofHours(1), Duration.ofSeconds(1));
+        return new CodeLookup(gateway, settings, now::get);
+    }
+}
@@ -0,0 +1,47 @@
+package demo.albertattard.uniquecode;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measures, in a fresh JVM, the time and the classes loaded to read the first request and write its response, either
+ * with the ObjectMapper, as the managed runtime maps them, or with UniqueCodeJson.  The ObjectMapper is created as part
+ * of the measurement, as the managed runtime creates its own during the first invocation.  Run with
+ * "./gradlew codecColdStart -Pcodec=unique-code-json" or "-Pcodec=object-mapper".
+ */
+public class CodecColdStart {
+
+    private static final byte[] EVENT = "{\"usedBy\":\"tenant-a\",\"length\":8,\"reference\":\"order-1234\",\"description\":\"Issued by support\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    public static void main(final String[] args) throws Exception {
+        final boolean objectMapper = "object-mapper".equals(args.length == 0 ? "unique-code-json" : args[0]);
+        final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        final UniqueCode response = UniqueCode.of("12345678");
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
+
+        final long classesBefore = classLoading.getTotalLoadedClassCount();
+        final long start = System.nanoTime();
+        final CreateUniqueCodeRequest request;
+        if (objectMapper) {
+            final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            request = mapper.readValue(new ByteArrayInputStream(EVENT), CreateUniqueCodeRequest.class);
+            mapper.writeValue(output, response);
+        } else {
+            request = UniqueCodeJson.readRequest(new ByteArrayInputStream(EVENT));
+            UniqueCodeJson.writeResponse(response, output);
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long classes = classLoading.getTotalLoadedClassCount() - classesBefore;
+
+        System.out.printf("The %s read the request of %s and wrote its response in %d ms, loading %d classes%n",
+                objectMapper ? "ObjectMapper" : "UniqueCodeJson", request.getUsedBy(), TimeUnit.NANOSECONDS.toMillis(elapsed), classes);
+    }
+}
@@ -0,0 +1,39 @@
+package demo.albertattard.uniquecode;
+
+import org.crac.Core;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Warms up the handler, checkpoints the JVM with Coordinated Restore at Checkpoint (CRaC) and, once restored, prints the
+ * time the first request took.  The codes are saved in memory, thus the network is not part of the measurement.  Run
+ * with "./crac.sh", which requires a JDK with CRaC support.
+ */
+public class CracRestoreTime {
+
+    private static final int NUMBER_OF_WARM_UP_REQUESTS = 20_000;
+
+    public static void main(final String[] args) throws Exception {
+        final DataAccessGateway gateway = new DataAccessGateway(new InMemoryDynamoDbClient());
+        final CodeGenerationService codeGenerationService =
+                new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+        final ClockService clockService = new ClockService();
+        final UniqueCodeController handler = new UniqueCodeController(gateway, codeGenerationService, clockService,
+                IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), new Primer(gateway, codeGenerationService, clockService),
+                DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+        Checkpoints.afterRestore(codeGenerationService::reseed);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        for (int i = 0; i < NUMBER_OF_WARM_UP_REQUESTS; i++) {
+            handler.handleRequest(request, null);
+        }
+
+        System.out.println("Checkpointing the warmed handler");
+        Core.checkpointRestore();
+
+        final long start = System.nanoTime();
+        final UniqueCode response = handler.handleRequest(request, null);
+        final long elapsed = System.nanoTime() - start;
+        System.out.printf("Restored, the first request returned %s in %d microseconds%n", response.getCode(), TimeUnit.NANOSECONDS.toMicros(elapsed));
+    }
+}
@@ -0,0 +1,135 @@
+package demo.albertattard.uniquecode;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomRuntimeTest {
+
+    private final LocalRuntimeApi runtimeApi = new LocalRuntimeApi();
+    private final RuntimeApiClient client = RuntimeApiClient.of(runtimeApi.address());
+
+    /* Returns codes made of the length of the request, and records the requests and the contexts of the invocations */
+    private final List<CreateUniqueCodeRequest> requests = new ArrayList<>();
+    private final List<Context> contexts = new ArrayList<>();
+    private final RequestHandler<CreateUniqueCodeRequest, UniqueCode> handler = (request, context) -> {
+        requests.add(request);
+        contexts.add(context);
+        return UniqueCode.of("code-" + request.getLength());
+    };
+
+    CustomRuntimeTest() throws IOException {
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        runtimeApi.close();
+    }
+
+    @Test
+    @DisplayName("should handle the invocations one after the other and post their responses over a single connection")
+    void shouldHandleTheInvocationsOneAfterTheOtherAndPostTheirResponsesOverASingleConnection() throws IOException {
+        final CustomRuntime runtime = new CustomRuntime(client, handler);
+
+        final List<String> requestIds = new ArrayList<>();
+        for (int length = 8; length < 13; length++) {
+            requestIds.add(runtimeApi.enqueue("{\"length\":" + length + ",\"usedBy\":\"tenant-a\"}"));
+        }
+        for (int i = 0; i < requestIds.size(); i++) {
+            runtime.handleNext();
+        }
+
+        for (int i = 0; i < requestIds.size(); i++) {
+            assertThat(runtimeApi.responseOf(requestIds.get(i))).isEqualTo("{\"code\":\"code-" + (i + 8) + "\",\"codes\":[\"code-" + (i + 8) + "\"]}");
+        }
+        assertThat(requests).allMatch(request -> "tenant-a".equals(request.getUsedBy()));
+        assertThat(runtimeApi.numberOfConnections()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should pass the details of the invocation to the handler through the context and set the tracing header")
+    void shouldPassTheDetailsOfTheInvocationToTheHandlerThroughTheContextAndSetTheTracingHeader() throws IOException {
+        final String requestId = runtimeApi.enqueue("{}");
+
+        new CustomRuntime(client, handler).handleNext();
+
+        final Context context = contexts.get(0);
+        assertThat(context.getAwsRequestId()).isEqualTo(requestId);
+        assertThat(context.getInvokedFunctionArn()).isEqualTo("arn:aws:lambda:eu-central-1:000000000000:function:unique_code");
+        assertThat(context.getRemainingTimeInMillis()).isBetween(1, 15_000);
+        assertThat(System.getProperty("com.amazonaws.xray.traceHeader")).isEqualTo("Root=1-5759e988-bd862e3fe1be46a994272793;Sampled=1");
+        assertThat(requests.get(0)).isEqualTo(new CreateUniqueCodeRequest());
+    }
+
+    @Test
+    @DisplayName("should report the invalid events and the failures of the handler, and keep handling the invocations that follow")
+    void shouldReportTheInvalidEventsAndTheFailuresOfTheHandlerAndKeepHandlingTheInvocationsThatFollow() throws IOException {
+        final CustomRuntime runtime = new CustomRuntime(client, (request, context) -> {
+            if (request.getLength() == 0) {
+                throw new RuntimeException("Failed to create a unique code");
+            }
+            return UniqueCode.of("12345678");
+        });
+
+        final String malformed = runtimeApi.enqueue("{\"length\":");
+        final String invalid = runtimeApi.enqueue("{\"length\":\"eight\"}");
+        final String failed = runtimeApi.enqueue("{\"length\":0}");
+        final String handled = runtimeApi.enqueue("{\"length\":8}");
+        for (int i = 0; i < 4; i++) {
+            runtime.handleNext();
+        }
+
+        assertThat(runtimeApi.errorOf(malformed))
+                .isEqualTo("{\"errorMessage\":\"Invalid event.  Event ended unexpectedly at byte 10.\",\"errorType\":\"java.lang.IllegalArgumentException\"}");
+        assertThat(runtimeApi.errorTypeOf(invalid)).isEqualTo("java.lang.IllegalArgumentException");
+        assertThat(runtimeApi.errorOf(invalid))
+                .isEqualTo("{\"errorMessage\":\"Invalid length.  The length must be a whole number.\",\"errorType\":\"java.lang.IllegalArgumentException\"}");
+        assertThat(runtimeApi.errorOf(failed))
+                .isEqualTo("{\"errorMessage\":\"Failed to create a unique code\",\"errorType\":\"java.lang.RuntimeException\"}");
+        assertThat(runtimeApi.responseOf(handled)).isEqualTo("{\"code\":\"12345678\",\"codes\":[\"12345678\"]}");
+        assertThat(runtimeApi.numberOfConnections()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should read the events sent in chunks and connect again when the Runtime API closes the connection")
+    void shouldReadTheEventsSentInChunksAndConnectAgainWhenTheRuntimeApiClosesTheConnection() throws IOException {
+        final CustomRuntime runtime = new CustomRuntime(client, handler);
+
+        final String description = "A description long enough to be sent in many chunks, with some UTF-8 as well: é € 𝄞";
+        final String chunked = runtimeApi.enqueue("{\"length\":9,\"description\":\"" + description + "\"}", true, false);
+        final String closed = runtimeApi.enqueue("{\"length\":10}", false, true);
+        final String reconnected = runtimeApi.enqueue("{\"length\":11}");
+        for (int i = 0; i < 3; i++) {
+            runtime.handleNext();
+        }
+
+        assertThat(requests.get(0).getDescription()).isEqualTo(description);
+        assertThat(runtimeApi.responseOf(chunked)).isEqualTo("{\"code\":\"code-9\",\"codes\":[\"code-9\"]}");
+        assertThat(runtimeApi.responseOf(closed)).isEqualTo("{\"code\":\"code-10\",\"codes\":[\"code-10\"]}");
+        assertThat(runtimeApi.responseOf(reconnected)).isEqualTo("{\"code\":\"code-11\",\"codes\":[\"code-11\"]}");
+        assertThat(runtimeApi.numberOfConnections()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should report an error when the Runtime API rejects the response")
+    void shouldReportAnErrorWhenTheRuntimeApiRejectsTheResponse() throws IOException {
+        try (LocalRuntimeApi limited = new LocalRuntimeApi(16); RuntimeApiClient limitedClient = RuntimeApiClient.of(limited.address())) {
+            final String requestId = limited.enqueue("{}");
+
+            new CustomRuntime(limitedClient, handler).handleNext();
+
+            assertThat(limited.responseOf(requestId)).isNull();
+            assertThat(limited.errorTypeOf(requestId)).isEqualTo("java.lang.IllegalStateException");
+            assertThat(limited.errorOf(requestId)).contains("The Runtime API rejected the response of 36 bytes");
+        }
+    }
+}
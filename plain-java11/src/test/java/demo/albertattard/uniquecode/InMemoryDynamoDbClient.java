@@ -0,0 +1,39 @@
+package demo.albertattard.uniquecode;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* A stand-in for the UniqueCodes table that keeps the items in memory, which supports the conditional put of a code only */
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+
+    private static final PutItemResponse RESPONSE = PutItemResponse.builder().build();
+
+    private final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public PutItemResponse putItem(final PutItemRequest request) {
+        if (items.putIfAbsent(request.item().get("Code").s(), request.item()) != null) {
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+        }
+        return RESPONSE;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,183 @@
+package demo.albertattard.uniquecode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A stand-in for the Lambda Runtime API, which serves the events queued by the tests to the custom runtime and records
+ * the responses and the errors it posts, together with the connections these came through.  Responses larger than the
+ * maximum response size are rejected, as Lambda does with responses larger than 6 MB.
+ */
+public class LocalRuntimeApi implements AutoCloseable {
+
+    private static final String PREFIX = "/2018-06-01/runtime/";
+
+    static {
+        /* Otherwise every response waits for the acknowledgement of its headers before sending its body */
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+    private final Map<String, String> errors = new ConcurrentHashMap<>();
+    private final Map<String, String> errorTypes = new ConcurrentHashMap<>();
+    /* The client ports the requests came from, one for every connection */
+    private final Set<Integer> connections = ConcurrentHashMap.newKeySet();
+    private final int maximumResponseSize;
+
+    public LocalRuntimeApi() throws IOException {
+        this(6 * 1024 * 1024);
+    }
+
+    public LocalRuntimeApi(final int maximumResponseSize) throws IOException {
+        this.maximumResponseSize = maximumResponseSize;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(PREFIX, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /* The address of the stand-in, as found in AWS_LAMBDA_RUNTIME_API */
+    public String address() {
+        return server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /* Queues the given event and returns the id of its invocation */
+    public String enqueue(final String event) {
+        return enqueue(event, false, false);
+    }
+
+    /* Queues the given event, sent in chunks and followed by closing the connection when asked for */
+    public String enqueue(final String event, final boolean chunked, final boolean closeConnection) {
+        final String requestId = UUID.randomUUID().toString();
+        events.add(new Event(requestId, event, chunked, closeConnection));
+        return requestId;
+    }
+
+    public String responseOf(final String requestId) {
+        return responses.get(requestId);
+    }
+
+    public String errorOf(final String requestId) {
+        return errors.get(requestId);
+    }
+
+    public String errorTypeOf(final String requestId) {
+        return errorTypes.get(requestId);
+    }
+
+    public int numberOfConnections() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress().getPort());
+
+        final String path = exchange.getRequestURI().getPath().substring(PREFIX.length());
+        final byte[] body = exchange.getRequestBody().readAllBytes();
+        if ("invocation/next".equals(path)) {
+            next(exchange);
+            return;
+        }
+
+        final String[] parts = path.split("/");
+        if (parts.length == 3 && "response".equals(parts[2])) {
+            if (body.length > maximumResponseSize) {
+                respond(exchange, 413, "{\"errorMessage\":\"Response payload size exceeded maximum allowed payload size\"}");
+                return;
+            }
+            responses.put(parts[1], new String(body, StandardCharsets.UTF_8));
+        } else if (parts.length == 3 && "error".equals(parts[2])) {
+            errors.put(parts[1], new String(body, StandardCharsets.UTF_8));
+            errorTypes.put(parts[1], exchange.getRequestHeaders().getFirst("Lambda-Runtime-Function-Error-Type"));
+        } else if ("init/error".equals(path)) {
+            errors.put("init", new String(body, StandardCharsets.UTF_8));
+            errorTypes.put("init", exchange.getRequestHeaders().getFirst("Lambda-Runtime-Function-Error-Type"));
+        } else {
+            respond(exchange, 404, "{}");
+            return;
+        }
+        respond(exchange, 202, "{\"status\":\"OK\"}");
+    }
+
+    private void next(final HttpExchange exchange) throws IOException {
+        final Event event;
+        try {
+            event = events.poll(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (event == null) {
+            respond(exchange, 500, "{}");
+            return;
+        }
+
+        exchange.getResponseHeaders().add("Lambda-Runtime-Aws-Request-Id", event.requestId);
+        exchange.getResponseHeaders().add("Lambda-Runtime-Deadline-Ms", Long.toString(System.currentTimeMillis() + 15_000));
+        exchange.getResponseHeaders().add("Lambda-Runtime-Invoked-Function-Arn", "arn:aws:lambda:eu-central-1:000000000000:function:unique_code");
+        exchange.getResponseHeaders().add("Lambda-Runtime-Trace-Id", "Root=1-5759e988-bd862e3fe1be46a994272793;Sampled=1");
+        if (event.closeConnection) {
+            exchange.getResponseHeaders().add("Connection", "close");
+        }
+
+        final byte[] body = event.body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, event.chunked ? 0 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (event.chunked) {
+                /* Flushes every few bytes, each flush sending a chunk */
+                for (int i = 0; i < body.length; i += 7) {
+                    out.write(body, i, Math.min(7, body.length - i));
+                    out.flush();
+                }
+            } else {
+                out.write(body);
+            }
+        }
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static class Event {
+        private final String requestId;
+        private final String body;
+        private final boolean chunked;
+        private final boolean closeConnection;
+
+        private Event(final String requestId, final String body, final boolean chunked, final boolean closeConnection) {
+            this.requestId = requestId;
+            this.body = body;
+            this.chunked = chunked;
+            this.closeConnection = closeConnection;
+        }
+    }
+}
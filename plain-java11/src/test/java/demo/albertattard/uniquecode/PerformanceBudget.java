@@ -0,0 +1,30 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Marks a test that measures the bytes allocated, and the time taken, by each invocation of a code path and fails when
+ * the allocations exceed their budget.  The test receives a PerformanceBudgetExtension.Runner and passes it the code
+ * path, which is invoked a number of times to warm up before it is measured.  The time depends on the machine and on
+ * whatever else it runs, thus it is only reported, together with a warning when it exceeds its target.
+ */
+@Test
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(PerformanceBudgetExtension.class)
+public @interface PerformanceBudget {
+
+    long maximumBytesPerInvocation();
+
+    long targetMicrosPerInvocation();
+
+    int warmUpInvocations() default 20_000;
+
+    int invocations() default 10_000;
+}
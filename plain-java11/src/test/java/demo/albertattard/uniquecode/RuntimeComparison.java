@@ -0,0 +1,98 @@
+package demo.albertattard.uniquecode;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measures, in a fresh JVM, the time to the first response and the average time of the warm invocations of either the
+ * custom runtime or the managed runtime, both served by the Runtime API stand-in.  The managed runtime is approximated by
+ * what it does for every invocation: fetching the invocation and posting the response with HttpURLConnection, and mapping
+ * the event and the response reflectively with Jackson.  The codes are saved in memory, thus the network is not part of
+ * the measurement.  Run with "./gradlew runtimeComparison -Pruntime=custom" or "-Pruntime=managed".
+ */
+public class RuntimeComparison {
+
+    private static final int NUMBER_OF_WARM_INVOCATIONS = 20_000;
+    private static final String EVENT = "{\"usedBy\":\"tenant-a\",\"length\":8,\"reference\":\"order-1234\",\"description\":\"Issued by support\"}";
+
+    public static void main(final String[] args) throws Exception {
+        final boolean custom = !"managed".equals(args.length == 0 ? "custom" : args[0]);
+
+        try (LocalRuntimeApi runtimeApi = new LocalRuntimeApi()) {
+            for (int i = 0; i <= NUMBER_OF_WARM_INVOCATIONS; i++) {
+                runtimeApi.enqueue(EVENT);
+            }
+
+            final long start = System.nanoTime();
+            final Runnable invocation = custom ? customRuntime(runtimeApi) : managedRuntime(runtimeApi);
+            invocation.run();
+            final long first = System.nanoTime() - start;
+
+            final long warmStart = System.nanoTime();
+            for (int i = 0; i < NUMBER_OF_WARM_INVOCATIONS; i++) {
+                invocation.run();
+            }
+            final long warm = (System.nanoTime() - warmStart) / NUMBER_OF_WARM_INVOCATIONS;
+
+            System.out.printf("The %s runtime returned the first response in %d ms and then took %d microseconds per invocation%n",
+                    custom ? "custom" : "managed", TimeUnit.NANOSECONDS.toMillis(first), TimeUnit.NANOSECONDS.toMicros(warm));
+        }
+    }
+
+    private static Runnable customRuntime(final LocalRuntimeApi runtimeApi) {
+        final CustomRuntime runtime = new CustomRuntime(RuntimeApiClient.of(runtimeApi.address()), createHandler());
+        return () -> {
+            try {
+                runtime.handleNext();
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private static Runnable managedRuntime(final LocalRuntimeApi runtimeApi) {
+        final UniqueCodeController handler = createHandler();
+        final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        final String endpoint = "http://" + runtimeApi.address() + "/2018-06-01/runtime/invocation/";
+        return () -> {
+            try {
+                final HttpURLConnection next = (HttpURLConnection) new URL(endpoint + "next").openConnection();
+                final String requestId = next.getHeaderField("Lambda-Runtime-Aws-Request-Id");
+                final CreateUniqueCodeRequest request;
+                try (InputStream in = next.getInputStream()) {
+                    request = mapper.readValue(in, CreateUniqueCodeRequest.class);
+                }
+
+                final byte[] response = mapper.writeValueAsBytes(handler.handleRequest(request, null));
+                final HttpURLConnection post = (HttpURLConnection) new URL(endpoint + requestId + "/response").openConnection();
+                post.setRequestMethod("POST");
+                post.setDoOutput(true);
+                try (OutputStream out = post.getOutputStream()) {
+                    out.write(response);
+                }
+                try (InputStream in = post.getInputStream()) {
+                    in.readAllBytes();
+                }
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private static UniqueCodeController createHandler() {
+        final DataAccessGateway gateway = new DataAccessGateway(new InMemoryDynamoDbClient());
+        final CodeGenerationService codeGenerationService =
+                new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled());
+        final ClockService clockService = new ClockService();
+        return new UniqueCodeController(gateway, codeGenerationService, clockService, IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(),
+                RetryPolicy.defaults(), new Primer(gateway, codeGenerationService, clockService), DeferredMetadataWriter.disabled(),
+                CapacityAccounting.disabled(), IdempotentRequests.disabled());
+    }
+}
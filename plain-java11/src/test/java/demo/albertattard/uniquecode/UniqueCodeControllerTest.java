@@ -19,12 +19,14 @@ import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -44,7 +46,6 @@ class UniqueCodeControllerTest {
     @Test
     @DisplayName("should return a new random code with default length when a blank request is made")
     void shouldReturnANewRandomCodeWithDefaultLengthWhenABlankRequestIsMade() {
-        /* TODO: Mocking DynamoDbClient is not a great idea and we should wrap this within a gateway */
         final DynamoDbClient dynamoDbClient = mock(DynamoDbClient.class);
         final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
         final ClockService clockService = mock(ClockService.class);
@@ -54,27 +55,24 @@ class UniqueCodeControllerTest {
         final String expectedCreatedOn = "2077-04-27T12:34:56.123456+01:00[Europe/Berlin]";
         final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
 
-        when(codeGenerationService.generate(anyInt())).thenReturn(expectedCode);
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn(expectedCode);
         when(clockService.createdOn()).thenReturn(expectedCreatedOn);
-        when(dynamoDbClient.putItem(ArgumentMatchers.<Consumer<PutItemRequest.Builder>>any())).thenReturn(null);
+        when(dynamoDbClient.putItem(ArgumentMatchers.<Consumer<PutItemRequest.Builder>>any())).thenReturn(PutItemResponse.builder().build());
 
         final RequestHandler<CreateUniqueCodeRequest, UniqueCode> handler =
-                new UniqueCodeController(dynamoDbClient, codeGenerationService, clockService);
+                new UniqueCodeController(new DataAccessGateway(dynamoDbClient), codeGenerationService, clockService, IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
 
         final UniqueCode response = handler.handleRequest(request, context);
 
         assertThat(response).isNotNull();
         assertThat(response.getCode()).isEqualTo(expectedCode);
 
-        verify(codeGenerationService).generate(request.getLength());
+        verify(codeGenerationService).generate(request.getLength(), request.getAlphabet());
         verify(clockService).createdOn();
         verify(dynamoDbClient).putItem(putItemArgumentCaptor.capture());
         verifyNoMoreInteractions(dynamoDbClient, codeGenerationService, clockService, context);
 
-        /*
-         * TODO: Mocking DynamoDbClient is not a great idea and we should wrap this within a gateway.  The following
-         *  captures are needed because of that.
-         */
+        /* The following captures verify the item saved by the gateway */
         final PutItemRequest.Builder putItemBuilder = mock(PutItemRequest.Builder.class);
         when(putItemBuilder.tableName(any())).thenReturn(putItemBuilder);
         when(putItemBuilder.returnConsumedCapacity(any(ReturnConsumedCapacity.class))).thenReturn(putItemBuilder);
@@ -99,4 +97,90 @@ class UniqueCodeControllerTest {
                         "CreatedOn", AttributeValue.builder().s(expectedCreatedOn).build()
                 ));
     }
+
+    @Test
+    @DisplayName("should return the given number of new random codes when many codes are requested")
+    void shouldReturnTheGivenNumberOfNewRandomCodesWhenManyCodesAreRequested() {
+        final DataAccessGateway gateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+        final Context context = mock(Context.class);
+
+        final List<String> expectedCodes = List.of("12345678", "23456789", "34567890");
+        final String expectedCreatedOn = "2077-04-27T12:34:56.123456+01:00[Europe/Berlin]";
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setCount(3);
+
+        when(clockService.createdOn()).thenReturn(expectedCreatedOn);
+        when(gateway.saveUniqueCodes(any(), eq(3), any(), any())).thenReturn(expectedCodes);
+
+        final RequestHandler<CreateUniqueCodeRequest, UniqueCode> handler =
+                new UniqueCodeController(gateway, codeGenerationService, clockService, IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+
+        final UniqueCode response = handler.handleRequest(request, context);
+
+        assertThat(response).isNotNull();
+        assertThat(response.getCode()).isEqualTo("12345678");
+        assertThat(response.getCodes()).isEqualTo(expectedCodes);
+
+        verify(clockService).createdOn();
+        verify(gateway).saveUniqueCodes(any(), eq(3), any(), any());
+        verifyNoMoreInteractions(gateway, codeGenerationService, clockService, context);
+    }
+
+    @Test
+    @DisplayName("should save the key of the code only and defer its metadata, written before returning, when the metadata is deferred")
+    void shouldSaveTheKeyOfTheCodeOnlyAndDeferItsMetadataWrittenBeforeReturningWhenTheMetadataIsDeferred() {
+        final DataAccessGateway gateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+        final DeferredMetadataWriter metadataWriter = mock(DeferredMetadataWriter.class);
+        final Context context = mock(Context.class);
+
+        final String expectedCode = "12345678";
+        final String expectedCreatedOn = "2077-04-27T12:34:56.123456+01:00[Europe/Berlin]";
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setDescription("description-test");
+        final CreateUniqueCode expectedItem = CreateUniqueCode.builder(request).createdOn(expectedCreatedOn).code(expectedCode).build();
+
+        when(clockService.createdOn()).thenReturn(expectedCreatedOn);
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn(expectedCode);
+        when(gateway.saveUniqueCodeKey(any())).thenReturn(true);
+        when(metadataWriter.isEnabled()).thenReturn(true);
+
+        final RequestHandler<CreateUniqueCodeRequest, UniqueCode> handler =
+                new UniqueCodeController(gateway, codeGenerationService, clockService, IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), mock(Primer.class), metadataWriter, CapacityAccounting.disabled(), IdempotentRequests.disabled());
+
+        final UniqueCode response = handler.handleRequest(request, context);
+
+        assertThat(response.getCode()).isEqualTo(expectedCode);
+
+        verify(gateway).saveUniqueCodeKey(eq(expectedItem));
+        verify(metadataWriter).defer(eq(expectedItem));
+        verify(metadataWriter).flush();
+        verifyNoMoreInteractions(gateway);
+    }
+
+    @Test
+    @DisplayName("should prime the function and not create a code when a warm-up event is handled")
+    void shouldPrimeTheFunctionAndNotCreateACodeWhenAWarmUpEventIsHandled() {
+        final DataAccessGateway gateway = mock(DataAccessGateway.class);
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        final ClockService clockService = mock(ClockService.class);
+        final Primer primer = mock(Primer.class);
+        final Context context = mock(Context.class);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setWarmUp(true);
+
+        final RequestHandler<CreateUniqueCodeRequest, UniqueCode> handler =
+                new UniqueCodeController(gateway, codeGenerationService, clockService, IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(), primer, DeferredMetadataWriter.disabled(), CapacityAccounting.disabled(), IdempotentRequests.disabled());
+
+        final UniqueCode response = handler.handleRequest(request, context);
+
+        assertThat(response).isEqualTo(UniqueCode.none());
+
+        verify(primer).prime();
+        verifyNoMoreInteractions(gateway, codeGenerationService, clockService, primer, context);
+    }
 }
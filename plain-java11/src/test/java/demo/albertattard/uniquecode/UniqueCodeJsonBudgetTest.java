@@ -0,0 +1,39 @@
+package demo.albertattard.uniquecode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Guards the allocations of reading a request and writing its response against regressions, and reports its time.
+ * Besides the request and its strings, only the buffers of the parser and the writer are expected to be allocated.
+ */
+class UniqueCodeJsonBudgetTest {
+
+    private static final byte[] EVENT = ("{\"usedBy\":\"tenant-a\",\"length\":8,\"reference\":\"order-1234\","
+            + "\"description\":\"Issued by support\",\"warmUp\":false}").getBytes(StandardCharsets.UTF_8);
+
+    private final UniqueCode response = UniqueCode.of("12345678");
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
+    private long length;
+
+    @PerformanceBudget(maximumBytesPerInvocation = 1_536, targetMicrosPerInvocation = 10)
+    void shouldReadARequestAndWriteItsResponseWithinTheBudget(final PerformanceBudgetExtension.Runner runner) {
+        runner.run(() -> {
+            try {
+                length += UniqueCodeJson.readRequest(new ByteArrayInputStream(EVENT)).getLength();
+                output.reset();
+                UniqueCodeJson.writeResponse(response, output);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        assertThat(length).isGreaterThan(0);
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("{\"code\":\"12345678\",\"codes\":[\"12345678\"]}");
+    }
+}
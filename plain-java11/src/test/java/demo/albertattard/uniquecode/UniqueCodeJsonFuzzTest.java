@@ -0,0 +1,286 @@
+package demo.albertattard.uniquecode;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/*
+ * Feeds the codec with random requests, written by the Jackson generator, and with random mutations of these.  The seeds
+ * are fixed, thus a failure can be reproduced, and are printed with every failure.
+ */
+class UniqueCodeJsonFuzzTest {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /* The characters that change the structure of the JSON, mixed with some that are not expected outside strings */
+    private static final byte[] STRUCTURAL = " \t\r\n{}[]:,\"\\/-+.0123456789eEtrufalsnx\u0001\u007f".getBytes(StandardCharsets.ISO_8859_1);
+
+    @Test
+    @DisplayName("should read the random requests written by Jackson as these were written")
+    void shouldReadTheRandomRequestsWrittenByJacksonAsTheseWereWritten() throws IOException {
+        final Random random = new Random(20211018L);
+        for (int i = 0; i < 2_000; i++) {
+            final CreateUniqueCodeRequest expected = new CreateUniqueCodeRequest();
+            final byte[] event = randomEvent(random, expected);
+
+            final CreateUniqueCodeRequest actual = UniqueCodeJson.readRequest(new ByteArrayInputStream(event));
+            assertThat(actual).as("Event %d: %s", i, new String(event, StandardCharsets.UTF_8)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("should only ever fail with an IllegalArgumentException when reading random mutations")
+    void shouldOnlyEverFailWithAnIllegalArgumentExceptionWhenReadingRandomMutations() throws IOException {
+        final Random random = new Random(1337L);
+        for (int i = 0; i < 20_000; i++) {
+            final byte[] event = randomEvent(random, new CreateUniqueCodeRequest());
+            for (int m = random.nextInt(4); m >= 0; m--) {
+                final int position = random.nextInt(event.length);
+                event[position] = (byte) random.nextInt(256);
+            }
+
+            try {
+                UniqueCodeJson.readRequest(new ByteArrayInputStream(event));
+            } catch (final IllegalArgumentException e) {
+                /* Expected for most of the mutations */
+            } catch (final Throwable e) {
+                fail(String.format("Mutation %d failed with %s: %s", i, e, new String(event, StandardCharsets.ISO_8859_1)), e);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should accept and reject the same mutations as Jackson does")
+    void shouldAcceptAndRejectTheSameMutationsAsJacksonDoes() throws IOException {
+        final Random random = new Random(42L);
+        for (int i = 0; i < 20_000; i++) {
+            /* Unknown properties alone, thus any valid event is a valid request */
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+                generator.writeStartObject();
+                for (int p = random.nextInt(4); p > 0; p--) {
+                    generator.writeFieldName("unknown" + p);
+                    writeRandomValue(random, generator, 0);
+                }
+                generator.writeEndObject();
+            }
+
+            final byte[] event = mutate(random, out.toByteArray());
+            final boolean valid = isValidObject(event);
+            final String text = new String(event, StandardCharsets.ISO_8859_1);
+            try {
+                UniqueCodeJson.readRequest(new ByteArrayInputStream(event));
+                assertThat(valid).as("Mutation %d was accepted but Jackson rejects it: %s", i, text).isTrue();
+            } catch (final IllegalArgumentException e) {
+                assertThat(valid).as("Mutation %d was rejected (%s) but Jackson accepts it: %s", i, e.getMessage(), text).isFalse();
+                assertThat(e.getMessage()).startsWith("Invalid event.");
+            }
+        }
+    }
+
+    private static byte[] randomEvent(final Random random, final CreateUniqueCodeRequest expected) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+            if (random.nextBoolean()) {
+                generator.useDefaultPrettyPrinter();
+            }
+
+            generator.writeStartObject();
+            for (final String name : List.of("usedBy", "length", "alphabet", "count", "reference", "description", "idempotencyKey", "warmUp")) {
+                if (random.nextInt(4) == 0) {
+                    generator.writeFieldName("unknown-" + name);
+                    writeRandomValue(random, generator, 0);
+                }
+
+                switch (random.nextInt(3)) {
+                    case 0:
+                        /* Left out */
+                        continue;
+                    case 1:
+                        generator.writeNullField(name);
+                        continue;
+                    default:
+                }
+
+                switch (name) {
+                    case "length":
+                    case "count":
+                        final int number = random.nextInt(100) - 10;
+                        if (random.nextBoolean()) {
+                            generator.writeNumberField(name, number);
+                        } else {
+                            generator.writeStringField(name, Integer.toString(number));
+                        }
+                        if ("length".equals(name)) {
+                            expected.setLength(number);
+                        } else {
+                            expected.setCount(number);
+                        }
+                        break;
+                    case "warmUp":
+                        final boolean warmUp = random.nextBoolean();
+                        if (random.nextBoolean()) {
+                            generator.writeBooleanField(name, warmUp);
+                        } else {
+                            generator.writeStringField(name, Boolean.toString(warmUp));
+                        }
+                        expected.setWarmUp(warmUp);
+                        break;
+                    default:
+                        final String value = randomString(random);
+                        generator.writeStringField(name, value);
+                        switch (name) {
+                            case "usedBy":
+                                expected.setUsedBy(value);
+                                break;
+                            case "alphabet":
+                                expected.setAlphabet(value);
+                                break;
+                            case "reference":
+                                expected.setReference(value);
+                                break;
+                            case "description":
+                                expected.setDescription(value);
+                                break;
+                            default:
+                                expected.setIdempotencyKey(value);
+                        }
+                }
+            }
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeRandomValue(final Random random, final JsonGenerator generator, final int depth) throws IOException {
+        switch (random.nextInt(depth > 3 ? 6 : 8)) {
+            case 0:
+                generator.writeString(randomString(random));
+                break;
+            case 1:
+                generator.writeNumber(random.nextLong());
+                break;
+            case 2:
+                generator.writeNumber(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+                break;
+            case 3:
+                generator.writeBoolean(random.nextBoolean());
+                break;
+            case 4:
+                generator.writeNull();
+                break;
+            case 5:
+                generator.writeNumber(random.nextInt(10));
+                break;
+            case 6:
+                generator.writeStartArray();
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    writeRandomValue(random, generator, depth + 1);
+                }
+                generator.writeEndArray();
+                break;
+            default:
+                generator.writeStartObject();
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    generator.writeFieldName(randomString(random));
+                    writeRandomValue(random, generator, depth + 1);
+                }
+                generator.writeEndObject();
+        }
+    }
+
+    /* Mixes ASCII, control characters, escapes, characters of two and three bytes, and surrogate pairs */
+    private static String randomString(final Random random) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = random.nextInt(random.nextInt(10) == 0 ? 700 : 20); i > 0; i--) {
+            switch (random.nextInt(6)) {
+                case 0:
+                    builder.append((char) random.nextInt(0x20));
+                    break;
+                case 1:
+                    builder.append("\"\\/".charAt(random.nextInt(3)));
+                    break;
+                case 2:
+                    builder.append((char) (0x80 + random.nextInt(0x780)));
+                    break;
+                case 3:
+                    builder.append((char) (0x800 + random.nextInt(0xd000)));
+                    break;
+                case 4:
+                    builder.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                    break;
+                default:
+                    builder.append((char) (0x20 + random.nextInt(0x5f)));
+            }
+        }
+        return builder.toString();
+    }
+
+    /* Replaces, inserts or removes a few bytes with the characters that change the structure */
+    private static byte[] mutate(final Random random, final byte[] event) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(event);
+        byte[] mutated = out.toByteArray();
+        for (int m = random.nextInt(3); m >= 0; m--) {
+            final int position = random.nextInt(mutated.length + 1);
+            final byte character = STRUCTURAL[random.nextInt(STRUCTURAL.length)];
+            final ByteArrayOutputStream next = new ByteArrayOutputStream();
+            next.write(mutated, 0, position);
+            switch (random.nextInt(3)) {
+                case 0:
+                    next.write(character);
+                    next.write(mutated, Math.min(position + 1, mutated.length), Math.max(0, mutated.length - position - 1));
+                    break;
+                case 1:
+                    next.write(character);
+                    next.write(mutated, position, mutated.length - position);
+                    break;
+                default:
+                    next.write(mutated, Math.min(position + 1, mutated.length), Math.max(0, mutated.length - position - 1));
+            }
+            mutated = next.toByteArray();
+        }
+        return mutated;
+    }
+
+    /* Whether Jackson, with its strict defaults, reads the event as a single JSON object */
+    private static boolean isValidObject(final byte[] event) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(event)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            int depth = 1;
+            while (depth > 0) {
+                final JsonToken token = parser.nextToken();
+                if (token == null) {
+                    return false;
+                }
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                } else {
+                    /* Decodes the value, which validates its escapes */
+                    parser.getText();
+                }
+            }
+            return parser.nextToken() == null;
+        } catch (final JsonProcessingException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UniqueCodeJsonTest {
+
+    @Test
+    @DisplayName("should read all the properties of the request")
+    void shouldReadAllThePropertiesOfTheRequest() throws IOException {
+        final CreateUniqueCodeRequest expected = new CreateUniqueCodeRequest();
+        expected.setUsedBy("tenant-a");
+        expected.setLength(12);
+        expected.setAlphabet("hex");
+        expected.setCount(3);
+        expected.setReference("order-1234");
+        expected.setDescription("A \"quoted\" description\nover two lines, with \\ / \b\f\r\t, é € 𝄞 and \u0000");
+        expected.setIdempotencyKey("key-1");
+        expected.setWarmUp(true);
+
+        assertThat(read(" {\"usedBy\" : \"tenant-a\", \"length\":12,\"alphabet\":\"hex\",\"count\":3,\"reference\":\"order-1234\",\n"
+                + "\"description\":\"A \\\"quoted\\\" description\\nover two lines, with \\\\ \\/ \\b\\f\\r\\t, é \\u20AC \\ud834\\udd1e and \\u0000\","
+                + "\"idempotencyKey\":\"key-1\",\"warmUp\":true}\r\n"))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("should read the requests as leniently as the Lambda runtime, ignoring unknown properties and nulls")
+    void shouldReadTheRequestsAsLenientlyAsTheLambdaRuntimeIgnoringUnknownPropertiesAndNulls() throws IOException {
+        final CreateUniqueCodeRequest expected = new CreateUniqueCodeRequest();
+        expected.setUsedBy("42");
+        expected.setLength(10);
+        expected.setReference("true");
+        expected.setWarmUp(true);
+
+        assertThat(read("{\"headers\":{\"Accept\":[\"*/*\",{},[],[[1.5e-3,true,null]]]},\"length\":\" 10 \",\"usedBy\":42,\"reference\":true,"
+                + "\"count\":null,\"warmUp\":\"TRUE\",\"other\":-0.5E+2,\"empty\":{}}"))
+                .isEqualTo(expected);
+        assertThat(read("{}")).isEqualTo(new CreateUniqueCodeRequest());
+    }
+
+    @Test
+    @DisplayName("should read the requests larger than the buffer, in whatever pieces the stream returns them")
+    void shouldReadTheRequestsLargerThanTheBufferInWhateverPiecesTheStreamReturnsThem() throws IOException {
+        final String description = "é€𝄞 \\\"".repeat(500);
+        final byte[] event = ("{\"description\":\"" + description + "\",\"length\":12}").getBytes(StandardCharsets.UTF_8);
+
+        /* Returns a byte at a time, splitting the escapes and the characters of many bytes */
+        final InputStream slow = new ByteArrayInputStream(event) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+
+        final CreateUniqueCodeRequest request = UniqueCodeJson.readRequest(slow);
+        assertThat(request.getDescription()).isEqualTo("é€𝄞 \\\"".repeat(500).replace("\\\"", "\""));
+        assertThat(request.getLength()).isEqualTo(12);
+    }
+
+    @ParameterizedTest(name = "such as {0}")
+    @ValueSource(strings = {"{\"length\":\"eight\"}", "{\"length\":1.5}", "{\"length\":1e2}", "{\"count\":4294967296}",
+            "{\"warmUp\":\"yes\"}", "{\"warmUp\":1}", "{\"usedBy\":{}}", "{\"description\":[]}"})
+    @DisplayName("should reject the properties of the wrong type")
+    void shouldRejectThePropertiesOfTheWrongType(final String event) {
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> read(event));
+        assertThat(e.getMessage()).doesNotStartWith("Invalid event.");
+    }
+
+    @ParameterizedTest(name = "such as {0}")
+    @ValueSource(strings = {"", " ", "[]", "\"code\"", "null", "{", "{\"length\":", "{\"length\":8", "{\"length\":8,}", "{,}",
+            "{length:8}", "{'length':8}", "{\"length\":08}", "{\"length\":-}", "{\"length\":1.}", "{\"length\":.5}", "{\"length\":1e}",
+            "{\"length\":+1}", "{\"length\":8 9}", "{\"warmUp\":tru}", "{\"warmUp\":truex}", "{\"usedBy\":\"a\"\"b\"}",
+            "{\"usedBy\":\"\\x\"}", "{\"usedBy\":\"\\u12G4\"}", "{\"usedBy\":\"tab\tinside\"}", "{\"a\":[1,]}", "{\"a\":[1 2]}",
+            "{\"a\":{\"b\"}}", "{\"a\":{\"b\":1,}}", "{\"a\":[}", "{\"a\":{]}", "{}{}", "{} x", "{\"length\":NaN}",
+            "{\"a\":1}/* comment */"})
+    @DisplayName("should reject the events that are not valid JSON objects")
+    void shouldRejectTheEventsThatAreNotValidJsonObjects(final String event) {
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> read(event));
+        assertThat(e.getMessage()).startsWith("Invalid event.");
+    }
+
+    @Test
+    @DisplayName("should reject the invalid UTF-8 and the values nested too deeply")
+    void shouldRejectTheInvalidUtf8AndTheValuesNestedTooDeeply() {
+        /* A stray continuation byte, an overlong slash, an encoded surrogate, a code point beyond Unicode and a cut character */
+        for (final byte[] invalid : List.of(new byte[]{(byte) 0x80}, new byte[]{(byte) 0xc0, (byte) 0xaf}, new byte[]{(byte) 0xed, (byte) 0xa0, (byte) 0x80},
+                new byte[]{(byte) 0xf4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, new byte[]{(byte) 0xe2, (byte) 0x82})) {
+            final ByteArrayOutputStream event = new ByteArrayOutputStream();
+            event.writeBytes("{\"usedBy\":\"".getBytes(StandardCharsets.UTF_8));
+            event.writeBytes(invalid);
+            event.writeBytes("\"}".getBytes(StandardCharsets.UTF_8));
+
+            final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> UniqueCodeJson.readRequest(new ByteArrayInputStream(event.toByteArray())));
+            assertThat(e.getMessage()).startsWith("Invalid event.  Invalid UTF-8");
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> read("{\"a\":" + "[".repeat(1001) + "]".repeat(1001) + "}"));
+        assertThat(assertThrows(IllegalArgumentException.class, () -> read("{\"length\":8 x")).getMessage())
+                .isEqualTo("Invalid event.  Expected ',' or '}' at byte 12.");
+    }
+
+    @Test
+    @DisplayName("should write the response and the errors as JSON in UTF-8")
+    void shouldWriteTheResponseAndTheErrorsAsJsonInUtf8() throws IOException {
+        assertThat(write(out -> UniqueCodeJson.writeResponse(UniqueCode.of(List.of("12345678", "23456789")), out)))
+                .isEqualTo("{\"code\":\"12345678\",\"codes\":[\"12345678\",\"23456789\"]}");
+        assertThat(write(out -> UniqueCodeJson.writeResponse(UniqueCode.none(), out)))
+                .isEqualTo("{\"code\":null,\"codes\":[]}");
+        assertThat(write(out -> UniqueCodeJson.writeResponse(UniqueCode.of("é€𝄞\"\\\n\u0001\ud800"), out)))
+                .isEqualTo("{\"code\":\"é€𝄞\\\"\\\\\\n\\u0001\\ud800\",\"codes\":[\"é€𝄞\\\"\\\\\\n\\u0001\\ud800\"]}");
+        assertThat(write(out -> UniqueCodeJson.writeError(new IllegalStateException("Failed \"badly\""), out)))
+                .isEqualTo("{\"errorMessage\":\"Failed \\\"badly\\\"\",\"errorType\":\"java.lang.IllegalStateException\"}");
+    }
+
+    private static CreateUniqueCodeRequest read(final String event) throws IOException {
+        return UniqueCodeJson.readRequest(new ByteArrayInputStream(event.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String write(final Write write) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write.to(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface Write {
+        void to(OutputStream out) throws IOException;
+    }
+}
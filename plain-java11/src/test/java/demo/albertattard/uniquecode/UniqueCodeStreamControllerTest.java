@@ -0,0 +1,44 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UniqueCodeStreamControllerTest {
+
+    private final UniqueCodeStreamController controller = new UniqueCodeStreamController((request, context) ->
+            UniqueCode.of(request.getUsedBy() + "-" + request.getLength()));
+
+    @Test
+    @DisplayName("should read the request from the input stream and write the codes to the output stream")
+    void shouldReadTheRequestFromTheInputStreamAndWriteTheCodesToTheOutputStream() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        controller.handleRequest(input("{\"usedBy\":\"tenant-a\",\"length\":12}"), output, null);
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("{\"code\":\"tenant-a-12\",\"codes\":[\"tenant-a-12\"]}");
+    }
+
+    @Test
+    @DisplayName("should fail the invalid requests without writing a response")
+    void shouldFailTheInvalidRequestsWithoutWritingAResponse() {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> controller.handleRequest(input("{\"length\":\"twelve\"}"), output, null));
+
+        assertThat(e.getMessage()).isEqualTo("Invalid length.  The length must be a whole number.");
+        assertThat(output.size()).isZero();
+    }
+
+    private static ByteArrayInputStream input(final String event) {
+        return new ByteArrayInputStream(event.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -21,6 +21,47 @@ resource "aws_dynamodb_table" "unique_code" {
   }
 }
 
+resource "aws_dynamodb_table" "unique_code_counter" {
+  name           = "UniqueCodeCounters"
+  billing_mode   = "PROVISIONED"
+  read_capacity  = 1
+  write_capacity = 1
+  hash_key       = "Counter"
+
+  attribute {
+    name = "Counter"
+    type = "S"
+  }
+
+  tags = {
+    Name = "Demo - Unique Codes Serverless Application"
+    Demo = "true"
+  }
+}
+
+resource "aws_dynamodb_table" "unique_code_request" {
+  name           = "UniqueCodeRequests"
+  billing_mode   = "PROVISIONED"
+  read_capacity  = 1
+  write_capacity = 1
+  hash_key       = "IdempotencyKey"
+
+  attribute {
+    name = "IdempotencyKey"
+    type = "S"
+  }
+
+  ttl {
+    attribute_name = "ExpiresAt"
+    enabled        = true
+  }
+
+  tags = {
+    Name = "Demo - Unique Codes Serverless Application"
+    Demo = "true"
+  }
+}
+
 resource "aws_iam_role" "unique_code" {
   name        = "DemoUniqueCodeLambdaFunction"
   description = "The role that is assumed by the Unique Code Lambda function"
@@ -97,9 +138,29 @@ resource "aws_iam_policy" "unique_code" {
     {
       "Effect": "Allow",
       "Action": [
-        "dynamodb:PutItem"
+        "dynamodb:PutItem",
+        "dynamodb:GetItem",
+        "dynamodb:BatchGetItem",
+        "dynamodb:DescribeTable",
+        "dynamodb:UpdateItem"
       ],
       "Resource": "${aws_dynamodb_table.unique_code.arn}"
+    },
+    {
+      "Effect": "Allow",
+      "Action": [
+        "dynamodb:UpdateItem"
+      ],
+      "Resource": "${aws_dynamodb_table.unique_code_counter.arn}"
+    },
+    {
+      "Effect": "Allow",
+      "Action": [
+        "dynamodb:GetItem",
+        "dynamodb:PutItem",
+        "dynamodb:DeleteItem"
+      ],
+      "Resource": "${aws_dynamodb_table.unique_code_request.arn}"
     }
   ]
 }
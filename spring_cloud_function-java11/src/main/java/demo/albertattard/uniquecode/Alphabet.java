@@ -0,0 +1,94 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/*
+ * The symbols from which codes are made, compiled into a lookup table of 2^b entries, where each random b-bit index is
+ * mapped to a symbol.  Only the indices below the largest multiple of the number of symbols are used, so that all symbols
+ * are equally likely, and the rest are skipped.  The number of bits b is chosen to use the fewest random bits per symbol,
+ * taking the skipped indices into account.  Alphabets of 16 or 32 symbols skip nothing, while the 36 capital letters and
+ * numbers use 8 bits and skip 4 out of every 256 indices.
+ */
+public final class Alphabet {
+
+    public static final Alphabet ALPHANUMERIC = new Alphabet("alphanumeric", "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+    public static final Alphabet CROCKFORD_BASE32 = new Alphabet("crockford-base32", "0123456789ABCDEFGHJKMNPQRSTVWXYZ");
+    public static final Alphabet DIGITS = new Alphabet("digits", "0123456789");
+    public static final Alphabet HEX = new Alphabet("hex", "0123456789ABCDEF");
+    /* Without the symbols that are easily mistaken for one another, such as 0 and O or 1, I and L */
+    public static final Alphabet UNAMBIGUOUS = new Alphabet("unambiguous", "23456789ABCDEFGHJKMNPQRSTUVWXYZ");
+
+    private static final int MINIMUM_SIZE = 2;
+    private static final int MAXIMUM_SIZE = 256;
+    private static final int MAXIMUM_BITS_PER_SYMBOL = 12;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final String symbols;
+    @Getter
+    private final int bitsPerSymbol;
+    private final char[] symbolByIndex;
+    private final char[] sortedSymbols;
+
+    public Alphabet(final String name, final String symbols) throws IllegalArgumentException {
+        checkSymbols(name, symbols);
+
+        this.name = name;
+        this.symbols = symbols;
+        this.bitsPerSymbol = selectBitsPerSymbol(symbols.length());
+        this.symbolByIndex = createSymbolByIndexTable(symbols.toCharArray(), bitsPerSymbol);
+        this.sortedSymbols = symbols.toCharArray();
+        Arrays.sort(sortedSymbols);
+    }
+
+    public int size() {
+        return symbols.length();
+    }
+
+    /* Maps the indices, starting from 0, to the symbols.  Indices beyond the end of the table must be skipped. */
+    char[] symbolByIndex() {
+        return symbolByIndex;
+    }
+
+    /* The symbols in ascending order, so that numbers written with these compare as their codes do */
+    char[] sortedSymbols() {
+        return sortedSymbols;
+    }
+
+    private static void checkSymbols(final String name, final String symbols) throws IllegalArgumentException {
+        if (symbols.length() < MINIMUM_SIZE || symbols.length() > MAXIMUM_SIZE) {
+            throw new IllegalArgumentException("Invalid alphabet " + name + ".  Alphabet must have between 2 and 256 symbols both inclusive.");
+        }
+
+        if (symbols.chars().distinct().count() != symbols.length()) {
+            throw new IllegalArgumentException("Invalid alphabet " + name + ".  Alphabet must not repeat symbols.");
+        }
+    }
+
+    /* Picks the number of bits that uses the fewest random bits per symbol on average, including the skipped indices */
+    private static int selectBitsPerSymbol(final int size) {
+        int selected = 0;
+        double selectedCost = Double.MAX_VALUE;
+        for (int bits = 32 - Integer.numberOfLeadingZeros(size - 1); bits <= MAXIMUM_BITS_PER_SYMBOL; bits++) {
+            final int indices = 1 << bits;
+            final double cost = bits * (double) indices / (indices - indices % size);
+            if (cost < selectedCost) {
+                selected = bits;
+                selectedCost = cost;
+            }
+        }
+        return selected;
+    }
+
+    private static char[] createSymbolByIndexTable(final char[] symbols, final int bitsPerSymbol) {
+        final int indices = 1 << bitsPerSymbol;
+        final char[] table = new char[indices - indices % symbols.length];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = symbols[i % symbols.length];
+        }
+        return table;
+    }
+}
@@ -0,0 +1,14 @@
+package demo.albertattard.uniquecode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CapacityAccountingConfiguration {
+
+    @Bean
+    public CapacityAccounting capacityAccounting(@Value("${unique-code.capacity-accounting.enabled:false}") final boolean enabled) {
+        return new CapacityAccounting(enabled);
+    }
+}
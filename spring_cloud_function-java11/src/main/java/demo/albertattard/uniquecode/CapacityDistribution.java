@@ -0,0 +1,14 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+/* A summary of a capacity histogram, where the percentiles are the upper bounds of the buckets these fall in */
+@Data
+public class CapacityDistribution {
+
+    private final long count;
+    private final double total;
+    private final double p50;
+    private final double p99;
+    private final double max;
+}
@@ -0,0 +1,29 @@
+package demo.albertattard.uniquecode;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/*
+ * Reseeds the code generation and renews the code pool after the function is restored from a checkpoint, such as a
+ * Lambda SnapStart snapshot.  The code generation is reseeded first, as the code pool generates codes to refill itself.
+ */
+@Component
+public class CheckpointListener {
+
+    private final CodeGenerationService codeGenerationService;
+    private final CodePool codePool;
+
+    public CheckpointListener(final CodeGenerationService codeGenerationService, final CodePool codePool) {
+        this.codeGenerationService = codeGenerationService;
+        this.codePool = codePool;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Checkpoints.afterRestore(() -> {
+            codeGenerationService.reseed();
+            codePool.afterRestore();
+        });
+    }
+}
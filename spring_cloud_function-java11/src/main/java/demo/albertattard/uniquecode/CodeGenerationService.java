@@ -1,36 +1,131 @@
 package demo.albertattard.uniquecode;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Random;
-import java.util.function.IntPredicate;
-
 @Service
 public class CodeGenerationService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodeGenerationService.class);
+
+    private static final int MINIMUM_LENGTH = 1;
+    private static final int MAXIMUM_LENGTH = 256;
+
+    /*
+     * Each thread writes the code into its own buffer, leaving the resulting string as the only allocation.  The buffer
+     * has room for the symbols of one more draw, so that every draw is used in full without checking the length.
+     */
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAXIMUM_LENGTH + Long.SIZE]);
+
+    private final RandomSource randomSource;
+    private final Alphabets alphabets;
+    private final SequentialCodeGenerator sequentialCodeGenerator;
+    private final TimeOrderedCodeGenerator timeOrderedCodeGenerator;
+
+    public CodeGenerationService(final RandomSource randomSource, final Alphabets alphabets, final SequentialCodeGenerator sequentialCodeGenerator) {
+        this(randomSource, alphabets, sequentialCodeGenerator, TimeOrderedCodeGenerator.disabled());
+    }
+
+    @Autowired
+    public CodeGenerationService(final RandomSource randomSource, final Alphabets alphabets, final SequentialCodeGenerator sequentialCodeGenerator,
+                                 final TimeOrderedCodeGenerator timeOrderedCodeGenerator) {
+        this.randomSource = randomSource;
+        this.alphabets = alphabets;
+        this.sequentialCodeGenerator = sequentialCodeGenerator;
+        this.timeOrderedCodeGenerator = timeOrderedCodeGenerator;
+        checkTimeOrderedDefaults();
+    }
+
     /* TODO: Use domain primitives instead of the Java types */
     public String generate(final int length) {
+        return generate(length, alphabets.getDefault());
+    }
+
+    public String generate(final int length, final String alphabet) {
+        return generate(length, alphabets.get(alphabet));
+    }
+
+    public boolean isDefaultAlphabet(final String alphabet) {
+        return alphabets.get(alphabet) == alphabets.getDefault();
+    }
+
+    /*
+     * Generates the given number of random codes, of the default length and alphabet, and returns the last one.  The
+     * sequential mode is skipped, as it leases blocks from DynamoDB, which is not wanted while warming up, and so is the
+     * time-ordered mode, which would move its clock ahead.
+     */
+    public String prime(final int iterations) {
+        String code = null;
+        for (int i = 0; i < iterations; i++) {
+            code = generateRandom(CreateUniqueCodeRequest.DEFAULT_LENGTH, alphabets.getDefault());
+        }
+        return code;
+    }
+
+    /* Called after the container is restored from a checkpoint, so that restored containers do not repeat each other */
+    public void reseed() {
+        randomSource.reseed();
+        sequentialCodeGenerator.skipLeasedBlocks();
+    }
+
+    private String generate(final int length, final Alphabet alphabet) {
         checkLength(length);
 
-        final int origin = 48; // number '0'
-        final int bound = 91; // capital letter 'Z' (90) + 1
+        if (sequentialCodeGenerator.supports(alphabet, length)) {
+            return sequentialCodeGenerator.generate(alphabet, length);
+        }
 
-        final Random random = new Random();
-        return random.ints(origin, bound)
-                .filter(onlyCapitalLettersAndNumbers())
-                .limit(length)
-                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
-                .toString();
+        if (timeOrderedCodeGenerator.supports(alphabet, length)) {
+            final char[] buffer = BUFFER.get();
+            final int prefixLength = timeOrderedCodeGenerator.writePrefix(alphabet, buffer);
+            fillRandom(buffer, prefixLength, length, alphabet);
+            return new String(buffer, 0, length);
+        }
+
+        return generateRandom(length, alphabet);
     }
 
-    private void checkLength(final int length) throws IllegalArgumentException {
-        if (length < 1 || length > 256) {
-            throw new IllegalArgumentException("Invalid length " + length + ".  Length must be between 1 and 256 both inclusive.");
+    /* The codes of the default length are random when too short to be time-ordered, which would otherwise go unnoticed */
+    private void checkTimeOrderedDefaults() {
+        final Alphabet alphabet = alphabets.getDefault();
+        if (timeOrderedCodeGenerator.isEnabled() && !timeOrderedCodeGenerator.supports(alphabet, CreateUniqueCodeRequest.DEFAULT_LENGTH)) {
+            LOGGER.warn("The codes of the default length {} and {} alphabet are too short to be time-ordered and are random.  "
+                            + "Only the requests for codes of {} symbols or more are time-ordered", CreateUniqueCodeRequest.DEFAULT_LENGTH,
+                    alphabet.getName(), TimeOrderedCodeGenerator.minimumLength(alphabet));
         }
     }
 
-    private IntPredicate onlyCapitalLettersAndNumbers() {
-        /* Ignore anything between the numbers and the capital letters */
-        return i -> (i <= 57 || i >= 65);
+    private String generateRandom(final int length, final Alphabet alphabet) {
+        final char[] buffer = BUFFER.get();
+        fillRandom(buffer, 0, length, alphabet);
+        return new String(buffer, 0, length);
+    }
+
+    /* Writes random symbols into the buffer, from the given index up to the given length */
+    private void fillRandom(final char[] buffer, final int from, final int length, final Alphabet alphabet) {
+        final char[] symbolByIndex = alphabet.symbolByIndex();
+        final int bitsPerSymbol = alphabet.getBitsPerSymbol();
+        final int symbolsPerDraw = Long.SIZE / bitsPerSymbol;
+        final int mask = (1 << bitsPerSymbol) - 1;
+
+        int index = from;
+        while (index < length) {
+            /* Each 64-bit draw provides up to 64 / b symbols, one per b-bit index */
+            long bits = randomSource.nextLong();
+            for (int i = 0; i < symbolsPerDraw; i++, bits >>>= bitsPerSymbol) {
+                final int b = (int) bits & mask;
+                if (b < symbolByIndex.length) {
+                    buffer[index++] = symbolByIndex[b];
+                }
+            }
+        }
+    }
+
+    private void checkLength(final int length) throws IllegalArgumentException {
+        if (length < MINIMUM_LENGTH || length > MAXIMUM_LENGTH) {
+            throw new IllegalArgumentException("Invalid length " + length + ".  Length must be between 1 and 256 both inclusive.");
+        }
     }
 }
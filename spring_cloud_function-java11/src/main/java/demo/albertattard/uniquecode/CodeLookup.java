@@ -0,0 +1,125 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Looks codes up in the table through a read-through cache, which keeps the least recently used codes up to its maximum
+ * size.  A code never changes once its metadata is written, thus a code found with its metadata is kept for the time
+ * to live.  A code that is not found, or that is found without its metadata, is kept for the negative time to live only,
+ * as it may be created, or its deferred metadata written, soon after.  Every lookup is passed to the table when disabled.
+ */
+public class CodeLookup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodeLookup.class);
+
+    /* How often the metrics are logged, in number of lookups */
+    private static final long METRICS_LOG_INTERVAL = 1000;
+
+    /* A strongly consistent read of an item up to 4 KB, which is what every hit saves */
+    private static final double UNITS_PER_READ = 1;
+
+    private final DataAccessGateway gateway;
+    private final CodeLookupSettings settings;
+    private final LongSupplier nanoTime;
+    private final Map<String, Entry> entries;
+    private final AtomicLong lookups = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CodeLookup(final DataAccessGateway gateway, final CodeLookupSettings settings, final LongSupplier nanoTime) {
+        this.gateway = gateway;
+        this.settings = settings;
+        this.nanoTime = nanoTime;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                if (size() > settings.getMaximumSize()) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static CodeLookup create(final DataAccessGateway gateway, final CodeLookupSettings settings) {
+        return new CodeLookup(gateway, settings, System::nanoTime);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /* Returns the given code as stored in the table, or nothing when it does not exist or is only reserved */
+    public Optional<StoredUniqueCode> find(final String code) {
+        if (!settings.isEnabled()) {
+            return gateway.findUniqueCode(code);
+        }
+
+        if (lookups.incrementAndGet() % METRICS_LOG_INTERVAL == 0) {
+            LOGGER.info("Code lookups {}", metrics());
+        }
+
+        final long now = nanoTime.getAsLong();
+        final Entry cached = cached(code, now);
+        if (cached != null) {
+            hits.increment();
+            return Optional.ofNullable(cached.item);
+        }
+
+        final Optional<StoredUniqueCode> found = gateway.findUniqueCode(code);
+        final Duration timeToLive = found.filter(StoredUniqueCode::hasMetadata).isPresent()
+                ? settings.getTimeToLive()
+                : settings.getNegativeTimeToLive();
+        if (!timeToLive.isZero()) {
+            synchronized (entries) {
+                entries.put(code, new Entry(found.orElse(null), now + timeToLive.toNanos()));
+            }
+        }
+        return found;
+    }
+
+    public CodeLookupMetrics metrics() {
+        final long lookups = this.lookups.get();
+        final long hits = this.hits.sum();
+        final int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CodeLookupMetrics(lookups, hits, lookups == 0 ? 0 : (double) hits / lookups, hits * UNITS_PER_READ, size, evictions.sum());
+    }
+
+    private Entry cached(final String code, final long now) {
+        synchronized (entries) {
+            final Entry entry = entries.get(code);
+            if (entry == null) {
+                return null;
+            }
+
+            if (now - entry.expiresAt >= 0) {
+                entries.remove(code);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private static class Entry {
+        private final StoredUniqueCode item;
+        private final long expiresAt;
+
+        private Entry(final StoredUniqueCode item, final long expiresAt) {
+            this.item = item;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
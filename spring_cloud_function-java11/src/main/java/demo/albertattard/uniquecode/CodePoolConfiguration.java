@@ -0,0 +1,25 @@
+package demo.albertattard.uniquecode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CodePoolConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public CodePool codePool(final DataAccessGateway gateway,
+                             final CodeGenerationService codeGenerationService,
+                             @Value("${unique-code.pool.enabled:false}") final boolean enabled,
+                             @Value("${unique-code.pool.size:100}") final int size,
+                             @Value("${unique-code.pool.low-water-mark:20}") final int lowWaterMark,
+                             @Value("${unique-code.pool.lengths:8}") final String lengths,
+                             @Value("${unique-code.pool.lease-duration:PT1H}") final String leaseDuration,
+                             @Value("${unique-code.pool.reclaim-on-startup:false}") final boolean reclaimOnStartup) {
+        final CodePoolSettings settings = new CodePoolSettings(enabled, size, lowWaterMark,
+                CodePoolSettings.parseLengths(lengths), Duration.parse(leaseDuration), reclaimOnStartup);
+        return CodePool.create(gateway, codeGenerationService, settings);
+    }
+}
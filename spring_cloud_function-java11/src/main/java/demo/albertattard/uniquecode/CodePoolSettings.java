@@ -0,0 +1,52 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Data
+public class CodePoolSettings {
+
+    private final boolean enabled;
+    private final int size;
+    private final int lowWaterMark;
+    private final Set<Integer> lengths;
+    private final Duration leaseDuration;
+    private final boolean reclaimOnStartup;
+
+    public CodePoolSettings(final boolean enabled, final int size, final int lowWaterMark, final Set<Integer> lengths,
+                            final Duration leaseDuration, final boolean reclaimOnStartup) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid pool size " + size + ".  Pool size must be at least 1.");
+        }
+        if (lowWaterMark < 0 || lowWaterMark >= size) {
+            throw new IllegalArgumentException("Invalid low-water mark " + lowWaterMark + ".  Low-water mark must be between 0 (inclusive) and the pool size " + size + " (exclusive).");
+        }
+        if (leaseDuration.isNegative() || leaseDuration.isZero()) {
+            throw new IllegalArgumentException("Invalid lease duration " + leaseDuration + ".  Lease duration must be positive.");
+        }
+
+        this.enabled = enabled;
+        this.size = size;
+        this.lowWaterMark = lowWaterMark;
+        this.lengths = Set.copyOf(lengths);
+        this.leaseDuration = leaseDuration;
+        this.reclaimOnStartup = reclaimOnStartup;
+    }
+
+    public static CodePoolSettings disabled() {
+        return new CodePoolSettings(false, 1, 0, Set.of(), Duration.ofHours(1), false);
+    }
+
+    /* Parses a comma separated list of code lengths, such as "8,12" */
+    public static Set<Integer> parseLengths(final String lengths) {
+        return Arrays.stream(lengths.split(","))
+                .map(String::trim)
+                .filter(length -> !length.isEmpty())
+                .map(Integer::valueOf)
+                .collect(Collectors.toSet());
+    }
+}
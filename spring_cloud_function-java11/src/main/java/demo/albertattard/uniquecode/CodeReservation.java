@@ -0,0 +1,18 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/* A code that was written to the table as a placeholder, reserved by a container until the given time */
+@Data
+public class CodeReservation {
+
+    private final String code;
+    private final String reservedBy;
+    private final Instant reservedUntil;
+
+    public boolean isExpired(final Instant now) {
+        return !reservedUntil.isAfter(now);
+    }
+}
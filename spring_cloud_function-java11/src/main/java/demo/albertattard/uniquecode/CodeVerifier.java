@@ -0,0 +1,176 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Verifies many codes at once, such as the codes a redemption service validates in bulk.  The codes are deduplicated and
+ * split into batches of 100 keys, the most DynamoDB reads in a single batch get, and the batches are read in parallel.
+ * The codes DynamoDB did not get to, such as when throttled, are read again after an exponential backoff with full
+ * jitter, so that the batches throttled together do not retry together.  The codes are returned in the order in which
+ * they were first given, split into those that were found and those that were not.  The reads are accounted for the
+ * request verifying the codes.
+ */
+public class CodeVerifier implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodeVerifier.class);
+
+    /* The maximum number of codes verified by a single request */
+    public static final int MAXIMUM_CODES = 10_000;
+
+    /* The maximum number of keys DynamoDB accepts in a single batch get */
+    private static final int BATCH_SIZE = 100;
+
+    private static final int MAXIMUM_ATTEMPTS = 10;
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(50);
+    private static final Duration MAXIMUM_BACKOFF = Duration.ofSeconds(2);
+
+    private final DataAccessGateway gateway;
+    private final CapacityAccounting capacityAccounting;
+    private final ExecutorService executor;
+    private final RandomSource random;
+    private final Sleeper sleeper;
+
+    public CodeVerifier(final DataAccessGateway gateway, final ExecutorService executor, final RandomSource random, final Sleeper sleeper) {
+        this(gateway, CapacityAccounting.disabled(), executor, random, sleeper);
+    }
+
+    public CodeVerifier(final DataAccessGateway gateway, final CapacityAccounting capacityAccounting, final ExecutorService executor,
+                        final RandomSource random, final Sleeper sleeper) {
+        this.gateway = gateway;
+        this.capacityAccounting = capacityAccounting;
+        this.executor = executor;
+        this.random = random;
+        this.sleeper = sleeper;
+    }
+
+    public static CodeVerifier create(final DataAccessGateway gateway, final int parallelism) {
+        return create(gateway, parallelism, CapacityAccounting.disabled());
+    }
+
+    public static CodeVerifier create(final DataAccessGateway gateway, final int parallelism, final CapacityAccounting capacityAccounting) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism + ".  Parallelism must be at least 1.");
+        }
+
+        final AtomicInteger threads = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "code-verifier-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new CodeVerifier(gateway, capacityAccounting, executor, RandomSource.fast(), TimeUnit.NANOSECONDS::sleep);
+    }
+
+    public CodeVerification verify(final List<String> codes) {
+        checkCodes(codes);
+
+        final InvocationCapacity invocation = capacityAccounting.current();
+        final List<String> distinct = new ArrayList<>(new LinkedHashSet<>(codes));
+        final List<Future<Set<String>>> batches = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i += BATCH_SIZE) {
+            final List<String> batch = distinct.subList(i, Math.min(i + BATCH_SIZE, distinct.size()));
+            batches.add(executor.submit(() -> capacityAccounting.onBehalfOf(invocation, () -> findExisting(batch))));
+        }
+
+        final Set<String> existing = new HashSet<>();
+        try {
+            for (final Future<Set<String>> batch : batches) {
+                existing.addAll(await(batch));
+            }
+        } finally {
+            batches.forEach(batch -> batch.cancel(true));
+        }
+
+        final List<String> found = new ArrayList<>(existing.size());
+        final List<String> notFound = new ArrayList<>(distinct.size() - existing.size());
+        for (final String code : distinct) {
+            (existing.contains(code) ? found : notFound).add(code);
+        }
+
+        LOGGER.debug("Verified {} codes in {} batches, {} found", distinct.size(), batches.size(), found.size());
+        return new CodeVerification(found, notFound);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /* Reads the given batch, reading the codes DynamoDB did not get to again, until all codes are read */
+    private Set<String> findExisting(final List<String> codes) {
+        final Set<String> existing = new HashSet<>();
+        List<String> pending = codes;
+        for (int attempt = 1; ; attempt++) {
+            final CodeBatchResult result = gateway.findExistingCodes(pending);
+            existing.addAll(result.getExisting());
+            pending = result.getUnprocessed();
+            if (pending.isEmpty()) {
+                return existing;
+            }
+
+            if (attempt == MAXIMUM_ATTEMPTS) {
+                throw new RuntimeException("Failed to verify " + pending.size() + " codes after " + attempt + " attempts");
+            }
+
+            final long backoff = backoffInNanos(attempt);
+            LOGGER.debug("{} codes were not read (Attempt {} of {}), trying again in {}",
+                    pending.size(), attempt, MAXIMUM_ATTEMPTS, Duration.ofNanos(backoff));
+            try {
+                sleeper.sleep(backoff);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while verifying the codes", e);
+            }
+        }
+    }
+
+    /* Full jitter, a random backoff between zero and the exponential backoff, capped at the maximum backoff */
+    private long backoffInNanos(final int attempt) {
+        final long initial = INITIAL_BACKOFF.toNanos();
+        final long maximum = MAXIMUM_BACKOFF.toNanos();
+        final long exponential = initial << Math.min(attempt - 1, 30);
+        final long ceiling = exponential < initial || exponential > maximum ? maximum : exponential;
+        return Math.floorMod(random.nextLong(), ceiling + 1);
+    }
+
+    private static Set<String> await(final Future<Set<String>> batch) {
+        try {
+            return batch.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while verifying the codes", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Failed to verify the codes", e.getCause());
+        }
+    }
+
+    private static void checkCodes(final List<String> codes) throws IllegalArgumentException {
+        if (codes == null || codes.isEmpty() || codes.size() > MAXIMUM_CODES) {
+            final int size = codes == null ? 0 : codes.size();
+            throw new IllegalArgumentException("Invalid number of codes " + size + ".  Number of codes must be between 1 and " + MAXIMUM_CODES + " both inclusive.");
+        }
+
+        for (final String code : codes) {
+            if (code == null || code.trim().isEmpty()) {
+                throw new IllegalArgumentException("Invalid code " + code + ".  Codes must not be blank.");
+            }
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package demo.albertattard.uniquecode;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
-import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
@@ -11,12 +11,15 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 public class DynamoDbConfiguration {
 
     @Bean
-    public DynamoDbClient amazonDynamoDB() {
-        /* As recommended by https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/lambda-optimize-starttime.html */
+    public DynamoDbClient amazonDynamoDB(@Value("${unique-code.dynamodb.http-client:url-connection}") final String httpClient,
+                                         @Value("${unique-code.dynamodb.maximum-connections:50}") final int maximumConnections) {
+        /* As recommended by https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/lambda-optimize-starttime.html, with the HTTP client chosen by the deployment */
         return DynamoDbClient.builder()
                 .region(Region.EU_CENTRAL_1)
                 .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .httpClient(UrlConnectionHttpClient.builder().build())
+                .httpClient(RestorableHttpClient.register(() -> HttpClients.of(httpClient, maximumConnections)))
+                /* The attempts are retried by RetryPolicy only, as the retries of the SDK would multiply its attempts */
+                .overrideConfiguration(configuration -> configuration.retryPolicy(software.amazon.awssdk.core.retry.RetryPolicy.none()))
                 .build();
     }
 }
@@ -0,0 +1,206 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Saves a code and, when the write does not come back within the hedging delay, fires a second write of the same item.
+ * Both writes are conditional on the code being free or already saved by the same request, thus whichever write lands
+ * second finds the item written by the first one.  The first of the two writes to succeed wins and, as a request never
+ * leaves more than its one code behind, there is nothing to clean up once the request returns, even when the container
+ * is frozen with the slower write still in flight.  The hedging delay is the configured percentile of the recent write
+ * latencies, thus only the slowest writes are hedged, which keeps the extra writes to a minimum.
+ *
+ * The writes run on a bounded pool.  A write is not hedged when the pool is saturated, or when the write governor has
+ * no capacity to spare, as the hedge would then only add to the writes waiting for capacity.  The writes are accounted
+ * for the request on whose behalf these are made.
+ */
+public class HedgedCodeWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HedgedCodeWriter.class);
+
+    /* How often the metrics are logged, in number of writes */
+    private static final long METRICS_LOG_INTERVAL = 1000;
+
+    /* Every hedged request takes two threads, thus this many requests can be hedged at the same time */
+    private static final int MAXIMUM_WRITER_THREADS = 16;
+
+    private final DataAccessGateway gateway;
+    private final HedgingSettings settings;
+    private final CapacityAccounting capacityAccounting;
+    private final Executor executor;
+    private final LatencyTracker latencies;
+    private final AtomicLong writes = new AtomicLong();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgesSkipped = new LongAdder();
+
+    public HedgedCodeWriter(final DataAccessGateway gateway, final HedgingSettings settings, final Executor executor) {
+        this(gateway, settings, CapacityAccounting.disabled(), executor);
+    }
+
+    public HedgedCodeWriter(final DataAccessGateway gateway, final HedgingSettings settings, final CapacityAccounting capacityAccounting,
+                            final Executor executor) {
+        this.gateway = gateway;
+        this.settings = settings;
+        this.capacityAccounting = capacityAccounting;
+        this.executor = executor;
+        this.latencies = new LatencyTracker(1024, settings.getPercentile());
+    }
+
+    public static HedgedCodeWriter create(final DataAccessGateway gateway, final HedgingSettings settings) {
+        return create(gateway, settings, CapacityAccounting.disabled());
+    }
+
+    public static HedgedCodeWriter create(final DataAccessGateway gateway, final HedgingSettings settings, final CapacityAccounting capacityAccounting) {
+        final Executor executor = settings.isEnabled()
+                ? new ThreadPoolExecutor(0, MAXIMUM_WRITER_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), HedgedCodeWriter::createWriterThread)
+                : null;
+        return new HedgedCodeWriter(gateway, settings, capacityAccounting, executor);
+    }
+
+    public static HedgedCodeWriter disabled() {
+        return new HedgedCodeWriter(null, HedgingSettings.disabled(), null);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /* Saves the given item and returns true, or false when its code is taken by another request */
+    public boolean save(final CreateUniqueCode item) {
+        final long count = writes.incrementAndGet();
+        if (count % METRICS_LOG_INTERVAL == 0) {
+            LOGGER.info("Hedged writes {}", metrics());
+        }
+
+        final CompletableFuture<Boolean> primaryWrite;
+        try {
+            primaryWrite = write(item);
+        } catch (final RejectedExecutionException e) {
+            /* The pool is saturated, thus the code is saved by this thread and not hedged */
+            hedgesSkipped.increment();
+            return timedWrite(item);
+        }
+
+        try {
+            return primaryWrite.get(delay().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            return hedge(item, primaryWrite);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving the code", e);
+        } catch (final ExecutionException e) {
+            throw propagate(e.getCause());
+        }
+    }
+
+    public HedgingMetrics metrics() {
+        return new HedgingMetrics(writes.get(), hedges.sum(), hedgeWins.sum(), hedgesSkipped.sum(), delay());
+    }
+
+    private boolean hedge(final CreateUniqueCode item, final CompletableFuture<Boolean> primaryWrite) {
+        final CompletableFuture<Boolean> hedgeWrite;
+        try {
+            hedgeWrite = gateway.hasWriteCapacity() ? write(item) : null;
+        } catch (final RejectedExecutionException e) {
+            hedgesSkipped.increment();
+            return await(primaryWrite);
+        }
+
+        if (hedgeWrite == null) {
+            LOGGER.debug("The write of code {} is slow but is not hedged, as there is no write capacity to spare", item.getCode());
+            hedgesSkipped.increment();
+            return await(primaryWrite);
+        }
+
+        LOGGER.debug("The write of code {} is slow, hedging it", item.getCode());
+        hedges.increment();
+
+        final CompletableFuture<Boolean> winner = new CompletableFuture<>();
+        final AtomicInteger pending = new AtomicInteger(2);
+        primaryWrite.whenComplete((successful, error) -> settle(successful, error, false, winner, pending));
+        hedgeWrite.whenComplete((successful, error) -> settle(successful, error, true, winner, pending));
+        return await(winner);
+    }
+
+    /*
+     * The first write to succeed completes the winner.  Otherwise the last write to complete does, with false when the
+     * code is taken by another request, as both writes then fail, or with the error.
+     */
+    private void settle(final Boolean successful, final Throwable error, final boolean hedge,
+                        final CompletableFuture<Boolean> winner, final AtomicInteger pending) {
+        final boolean last = pending.decrementAndGet() == 0;
+        if (error == null && successful) {
+            if (winner.complete(true) && hedge) {
+                hedgeWins.increment();
+            }
+            return;
+        }
+
+        if (last) {
+            if (error == null) {
+                winner.complete(false);
+            } else {
+                winner.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            }
+        }
+    }
+
+    private CompletableFuture<Boolean> write(final CreateUniqueCode item) {
+        final InvocationCapacity invocation = capacityAccounting.current();
+        return CompletableFuture.supplyAsync(() -> capacityAccounting.onBehalfOf(invocation, () -> timedWrite(item)), executor);
+    }
+
+    private boolean timedWrite(final CreateUniqueCode item) {
+        final long start = System.nanoTime();
+        final boolean successful = gateway.saveUniqueCodeOnce(item);
+        latencies.record(System.nanoTime() - start);
+        return successful;
+    }
+
+    private static boolean await(final CompletableFuture<Boolean> write) {
+        try {
+            return write.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving the code", e);
+        } catch (final ExecutionException e) {
+            throw propagate(e.getCause());
+        }
+    }
+
+    private Duration delay() {
+        final long percentile = latencies.percentileInNanos();
+        if (percentile < 0) {
+            return settings.getInitialDelay();
+        }
+
+        final Duration delay = Duration.ofNanos(percentile);
+        return delay.compareTo(settings.getMinimumDelay()) < 0 ? settings.getMinimumDelay() : delay;
+    }
+
+    private static RuntimeException propagate(final Throwable cause) {
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+    }
+
+    private static Thread createWriterThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "hedged-write");
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,60 @@
+package demo.albertattard.uniquecode;
+
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/*
+ * Builds the snapshot of the issued codes that is loaded by the issued code filter when a container starts.  The table
+ * is read with a parallel scan, where each segment is scanned by its own thread, and the codes are added to one filter.
+ */
+@AllArgsConstructor
+public class IssuedCodeSnapshotBuilder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IssuedCodeSnapshotBuilder.class);
+
+    private final DataAccessGateway gateway;
+    private final int totalSegments;
+
+    public BloomFilter build(final long expectedCodes, final double falsePositiveRate) {
+        if (totalSegments < 1) {
+            throw new IllegalArgumentException("Invalid number of segments " + totalSegments + ".  The number of segments must be at least 1.");
+        }
+
+        final BloomFilter filter = BloomFilter.create(expectedCodes, falsePositiveRate);
+        final LongAdder codes = new LongAdder();
+        final ExecutorService executor = Executors.newFixedThreadPool(totalSegments);
+        try {
+            CompletableFuture.allOf(IntStream.range(0, totalSegments)
+                    .mapToObj(segment -> CompletableFuture.runAsync(() -> gateway.scanCodes(segment, totalSegments, code -> {
+                        filter.add(code);
+                        codes.increment();
+                    }), executor))
+                    .toArray(CompletableFuture[]::new))
+                    .join();
+        } finally {
+            executor.shutdown();
+        }
+
+        LOGGER.info("Added {} codes to the snapshot (estimated false positive rate {})", codes.sum(), filter.estimatedFalsePositiveRate());
+        return filter;
+    }
+
+    public void write(final long expectedCodes, final double falsePositiveRate, final Path snapshot) throws IOException {
+        final BloomFilter filter = build(expectedCodes, falsePositiveRate);
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(snapshot))) {
+            filter.writeTo(outputStream);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package demo.albertattard.uniquecode;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Encodes the attributes of the codes written to the table.  The legacy schema stores every attribute as a string.  The
+ * compact schema stores the creation time as a number, the epoch milliseconds, and the descriptions of at least the
+ * compression threshold (in UTF-8 bytes) as compressed binary, when this is smaller, and the request token as its 16
+ * bytes.  The code is the key of the table
+ * and is always stored as a string.  Both forms are decoded, whichever schema is in use, as the table holds items written
+ * with either.
+ */
+public class ItemEncoding {
+
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 256;
+
+    private final boolean compact;
+    private final int compressionThreshold;
+
+    public ItemEncoding(final boolean compact, final int compressionThreshold) {
+        if (compressionThreshold < 1) {
+            throw new IllegalArgumentException("Invalid compression threshold " + compressionThreshold + ".  Compression threshold must be at least 1.");
+        }
+
+        this.compact = compact;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public static ItemEncoding legacy() {
+        return new ItemEncoding(false, DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public Map<String, AttributeValue> encode(final CreateUniqueCode request) {
+        final Map<String, AttributeValue> item = new HashMap<>();
+        if (isNotBlank(request.getCode())) {
+            item.put("Code", AttributeValue.builder().s(request.getCode()).build());
+        }
+        if (isNotBlank(request.getCreatedOn())) {
+            item.put("CreatedOn", createdOn(request.getCreatedOn()));
+        }
+        if (isNotBlank(request.getUsedBy())) {
+            item.put("UsedBy", AttributeValue.builder().s(request.getUsedBy()).build());
+        }
+        if (isNotBlank(request.getReference())) {
+            item.put("Reference", AttributeValue.builder().s(request.getReference()).build());
+        }
+        if (isNotBlank(request.getDescription())) {
+            item.put("Description", description(request.getDescription()));
+        }
+        return item;
+    }
+
+    /*
+     * Encodes the creation time, which is also compared by the conditional writes, thus the same creation time is always
+     * encoded the same.  A creation time that cannot be parsed is stored as a string.
+     */
+    public AttributeValue createdOn(final String createdOn) {
+        if (compact) {
+            try {
+                final long epochMillis = ZonedDateTime.parse(createdOn, DateTimeFormatter.ISO_DATE_TIME).toInstant().toEpochMilli();
+                return AttributeValue.builder().n(String.valueOf(epochMillis)).build();
+            } catch (final DateTimeParseException e) {
+                /* Stored as it is */
+            }
+        }
+        return AttributeValue.builder().s(createdOn).build();
+    }
+
+    /*
+     * Encodes the token of the request that wrote the code, which the conditional writes compare, thus the same token is
+     * always encoded the same.  A token that is not a UUID is stored as a string.
+     */
+    public AttributeValue requestId(final String requestId) {
+        if (compact) {
+            try {
+                final UUID uuid = UUID.fromString(requestId);
+                final byte[] bytes = ByteBuffer.allocate(16)
+                        .putLong(uuid.getMostSignificantBits())
+                        .putLong(uuid.getLeastSignificantBits())
+                        .array();
+                return AttributeValue.builder().b(SdkBytes.fromByteArray(bytes)).build();
+            } catch (final IllegalArgumentException e) {
+                /* Stored as it is */
+            }
+        }
+        return AttributeValue.builder().s(requestId).build();
+    }
+
+    public AttributeValue description(final String description) {
+        if (compact) {
+            final byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length >= compressionThreshold) {
+                final byte[] compressed = deflate(bytes);
+                if (compressed.length < bytes.length) {
+                    return AttributeValue.builder().b(SdkBytes.fromByteArray(compressed)).build();
+                }
+            }
+        }
+        return AttributeValue.builder().s(description).build();
+    }
+
+    /* Returns the creation time as an ISO-8601 date time, which is in UTC when stored as epoch milliseconds */
+    public static String createdOnOf(final AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.n() != null) {
+            return DateTimeFormatter.ISO_DATE_TIME.format(Instant.ofEpochMilli(Long.parseLong(value.n())).atZone(ZoneOffset.UTC));
+        }
+        return value.s();
+    }
+
+    public static String descriptionOf(final AttributeValue value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.b() != null) {
+            return new String(inflate(value.b().asByteArrayUnsafe()), StandardCharsets.UTF_8);
+        }
+        return value.s();
+    }
+
+    private static byte[] deflate(final byte[] bytes) {
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length);
+            final byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(final byte[] bytes) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 4);
+            final byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                final int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("The compressed description is truncated or corrupt");
+                }
+                output.write(buffer, 0, inflated);
+            }
+            return output.toByteArray();
+        } catch (final DataFormatException e) {
+            throw new IllegalStateException("The compressed description is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean isNotBlank(final String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+}
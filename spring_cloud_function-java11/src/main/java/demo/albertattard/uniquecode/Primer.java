@@ -0,0 +1,44 @@
+package demo.albertattard.uniquecode;
+
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/*
+ * Warms up the function before its first request, which otherwise pays for opening the connection to DynamoDB, loading
+ * the classes of the client and running the code generation in the interpreter.  Nothing is written to DynamoDB.
+ */
+@Service
+@AllArgsConstructor
+public class Primer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Primer.class);
+
+    /* Enough codes for the code generation to be compiled before the first request */
+    private static final int NUMBER_OF_CODES = 2_000;
+
+    private final DataAccessGateway gateway;
+    private final CodeGenerationService codeGenerationService;
+    private final ClockService clockService;
+
+    /* Warms up the function and returns the time it took.  A failure is logged and left for the first request to hit. */
+    public Duration prime() {
+        final long start = System.nanoTime();
+        try {
+            final CreateUniqueCode item = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                    .createdOn(clockService.createdOn())
+                    .code(codeGenerationService.prime(NUMBER_OF_CODES))
+                    .build();
+            gateway.prime(item);
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Failed to prime the function", e);
+        }
+
+        final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        LOGGER.info("Primed the function in {}", elapsed);
+        return elapsed;
+    }
+}
@@ -0,0 +1,26 @@
+package demo.albertattard.uniquecode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/* Primes the function once the application context is ready, which happens during the init phase of the Lambda */
+@Component
+public class PrimingListener {
+
+    private final Primer primer;
+    private final boolean enabled;
+
+    public PrimingListener(final Primer primer, @Value("${unique-code.priming.enabled:true}") final boolean enabled) {
+        this.primer = primer;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            primer.prime();
+        }
+    }
+}
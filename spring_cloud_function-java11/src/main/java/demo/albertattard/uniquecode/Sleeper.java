@@ -0,0 +1,8 @@
+package demo.albertattard.uniquecode;
+
+/* Pauses the calling thread, which the tests replace to observe the pauses without waiting for them */
+@FunctionalInterface
+public interface Sleeper {
+
+    void sleep(long nanos) throws InterruptedException;
+}
@@ -0,0 +1,23 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+/* A code as stored in the table, returned by the lookups */
+@Data
+public class StoredUniqueCode {
+
+    private final String code;
+    private final String createdOn;
+    private final String usedBy;
+    private final String reference;
+    private final String description;
+
+    /* Returns true when the code carries any of the used by, reference and description */
+    public boolean hasMetadata() {
+        return isNotBlank(usedBy) || isNotBlank(reference) || isNotBlank(description);
+    }
+
+    private static boolean isNotBlank(final String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+}
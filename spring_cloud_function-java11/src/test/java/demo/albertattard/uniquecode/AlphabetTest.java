@@ -0,0 +1,48 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AlphabetTest {
+
+    @ParameterizedTest(name = "should use {1} bits per symbol for the {0} alphabet")
+    @CsvSource({"alphanumeric,8", "crockford-base32,5", "digits,5", "hex,4", "unambiguous,5"})
+    void shouldUseTheFewestRandomBitsPerSymbol(final String name, final int expected) {
+        assertThat(Alphabets.defaults().get(name).getBitsPerSymbol()).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("should not skip any index when the number of symbols is a power of two")
+    void shouldNotSkipAnyIndexWhenTheNumberOfSymbolsIsAPowerOfTwo() {
+        assertThat(Alphabet.HEX.symbolByIndex()).hasSize(16);
+        assertThat(Alphabet.CROCKFORD_BASE32.symbolByIndex()).hasSize(32);
+    }
+
+    @Test
+    @DisplayName("should map every usable index to the symbols in turn")
+    void shouldMapEveryUsableIndexToTheSymbolsInTurn() {
+        final Alphabet alphabet = Alphabet.ALPHANUMERIC;
+        final char[] symbolByIndex = alphabet.symbolByIndex();
+        assertThat(symbolByIndex).hasSize(252);
+        for (int i = 0; i < symbolByIndex.length; i++) {
+            assertThat(symbolByIndex[i]).isEqualTo(alphabet.getSymbols().charAt(i % alphabet.size()));
+        }
+    }
+
+    @Test
+    @DisplayName("should reject an alphabet that repeats symbols")
+    void shouldRejectAnAlphabetThatRepeatsSymbols() {
+        assertThrows(IllegalArgumentException.class, () -> new Alphabet("custom", "ABCA"));
+    }
+
+    @Test
+    @DisplayName("should reject an alphabet with a single symbol")
+    void shouldRejectAnAlphabetWithASingleSymbol() {
+        assertThrows(IllegalArgumentException.class, () -> new Alphabet("custom", "A"));
+    }
+}
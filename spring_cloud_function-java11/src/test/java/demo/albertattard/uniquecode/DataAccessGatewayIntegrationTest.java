@@ -3,10 +3,19 @@ package demo.albertattard.uniquecode;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static demo.albertattard.uniquecode.LocalDynamoDbExtension.createDynamoDbClient;
 import static demo.albertattard.uniquecode.LocalDynamoDbExtension.populateTableWithDummyValues;
@@ -14,6 +23,7 @@ import static demo.albertattard.uniquecode.LocalDynamoDbExtension.scanAllItems;
 import static demo.albertattard.uniquecode.LocalDynamoDbExtension.toAttributeValue;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(LocalDynamoDbExtension.class)
@@ -113,4 +123,399 @@ class DataAccessGatewayIntegrationTest {
         assertThat(attributesByName).hasSize(1);
         assertThat(attributesByName.get("Code")).as("code").isEqualTo(toAttributeValue(createUniqueCode.getCode()));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("should save the unique code again for the same request but not for another request, even one created in the same millisecond")
+    void shouldSaveTheUniqueCodeAgainForTheSameRequestButNotForAnotherRequestEvenOneCreatedInTheSameMillisecond() {
+        /* The compact schema stores both creation times as the same epoch milliseconds */
+        final CreateUniqueCode first = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2077-04-27T12:34:56.789001+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+        final CreateUniqueCode second = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2077-04-27T12:34:56.789002+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient(), WriteGovernor.disabled(),
+                CapacityAccounting.disabled(), new ItemEncoding(true, 256));
+        assertTrue(dataAccessGateway.saveUniqueCodeOnce(first));
+        assertTrue(dataAccessGateway.saveUniqueCodeOnce(first));
+        assertFalse(dataAccessGateway.saveUniqueCodeOnce(second));
+
+        assertThat(scanAllItems()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("should reserve only the codes that do not already exist")
+    void shouldReserveOnlyTheCodesThatDoNotAlreadyExist() {
+        /* Add a value to the table to force the collision */
+        populateTableWithDummyValues("22222222");
+
+        final Instant reservedUntil = Instant.parse("2077-04-27T12:34:56Z");
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        final List<String> reserved = dataAccessGateway.reserveUniqueCodes(List.of("11111111", "22222222", "33333333"), "container-test", reservedUntil);
+        assertThat(reserved).containsExactlyInAnyOrder("11111111", "33333333");
+
+        final Map<String, AttributeValue> attributesByName = findItem("11111111");
+        assertThat(attributesByName).hasSize(4);
+        assertThat(attributesByName.get("ReservedBy")).as("reserved by").isEqualTo(toAttributeValue("container-test"));
+        assertThat(attributesByName.get("ReservationStatus")).as("reservation status").isEqualTo(toAttributeValue("Reserved"));
+        assertThat(attributesByName.get("ReservedUntil")).as("reserved until").isEqualTo(AttributeValue.builder().n(String.valueOf(reservedUntil.getEpochSecond())).build());
+    }
+
+    @Test
+    @DisplayName("should reserve more codes than fit in a single transaction")
+    void shouldReserveMoreCodesThanFitInASingleTransaction() {
+        final List<String> codes = IntStream.range(0, 60)
+                .mapToObj(i -> String.format("%08d", i))
+                .collect(Collectors.toList());
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        final List<String> reserved = dataAccessGateway.reserveUniqueCodes(codes, "container-test", Instant.parse("2077-04-27T12:34:56Z"));
+        assertThat(reserved).containsExactlyInAnyOrderElementsOf(codes);
+        assertThat(scanAllItems()).hasSize(60);
+    }
+
+    @Test
+    @DisplayName("should save the given number of codes and replace the codes that already exist")
+    void shouldSaveTheGivenNumberOfCodesAndReplaceTheCodesThatAlreadyExist() {
+        /* Add a value to the table to force the collision */
+        populateTableWithDummyValues("22222222");
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("used-by-test");
+        final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+        final Iterator<String> generated = List.of("11111111", "22222222", "33333333", "44444444").iterator();
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        final List<String> saved = dataAccessGateway.saveUniqueCodes(builder, 3, generated::next, RetryPolicy.defaults());
+        assertThat(saved).containsExactlyInAnyOrder("11111111", "33333333", "44444444");
+
+        final Map<String, AttributeValue> attributesByName = findItem("44444444");
+        assertThat(attributesByName).hasSize(3);
+        assertThat(attributesByName.get("UsedBy")).as("used by").isEqualTo(toAttributeValue("used-by-test"));
+        assertThat(scanAllItems()).hasSize(4);
+    }
+
+    @Test
+    @DisplayName("should save more codes than fit in a single transaction")
+    void shouldSaveMoreCodesThanFitInASingleTransaction() {
+        final AtomicInteger sequence = new AtomicInteger();
+        final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        final List<String> saved = dataAccessGateway.saveUniqueCodes(builder, 60, () -> String.format("%08d", sequence.getAndIncrement()), RetryPolicy.defaults());
+        assertThat(saved).hasSize(60).doesNotHaveDuplicates();
+        assertThat(scanAllItems()).hasSize(60);
+    }
+
+    @ParameterizedTest(name = "should reject the invalid count {0}")
+    @ValueSource(ints = {-1, 0, 101})
+    void shouldRejectTheInvalidCount(final int count) {
+        final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(new CreateUniqueCodeRequest());
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        assertThrows(IllegalArgumentException.class, () -> dataAccessGateway.saveUniqueCodes(builder, count, () -> "12345678", RetryPolicy.defaults()));
+    }
+
+    @Test
+    @DisplayName("should build a snapshot that contains every code in the table")
+    void shouldBuildASnapshotThatContainsEveryCodeInTheTable() {
+        final List<String> codes = IntStream.range(0, 60)
+                .mapToObj(i -> String.format("%08d", i))
+                .collect(Collectors.toList());
+        codes.forEach(LocalDynamoDbExtension::populateTableWithDummyValues);
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        final BloomFilter filter = new IssuedCodeSnapshotBuilder(dataAccessGateway, 4).build(1_000, 0.01);
+        assertThat(codes).allMatch(filter::mightContain);
+    }
+
+    @Test
+    @DisplayName("should claim the reserved code only once and only by the container that reserved it")
+    void shouldClaimTheReservedCodeOnlyOnceAndOnlyByTheContainerThatReservedIt() {
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        dataAccessGateway.reserveUniqueCodes(List.of("12345678"), "container-test", Instant.parse("2077-04-27T12:34:56Z"));
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("used-by-test");
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        assertFalse(dataAccessGateway.claimReservedCode(createUniqueCode, "other-container"));
+        assertTrue(dataAccessGateway.claimReservedCode(createUniqueCode, "container-test"));
+        assertFalse(dataAccessGateway.claimReservedCode(createUniqueCode, "container-test"));
+
+        final Map<String, AttributeValue> attributesByName = findItem("12345678");
+        assertThat(attributesByName).hasSize(3);
+        assertThat(attributesByName.get("CreatedOn")).as("created on").isEqualTo(toAttributeValue(createUniqueCode.getCreatedOn()));
+        assertThat(attributesByName.get("UsedBy")).as("used by").isEqualTo(toAttributeValue(createUniqueCode.getUsedBy()));
+    }
+
+    @Test
+    @DisplayName("should find and take over the expired reservations only once, with only the actions the policy of the function allows")
+    void shouldFindAndTakeOverTheExpiredReservationsOnlyOnceWithOnlyTheActionsThePolicyOfTheFunctionAllows() {
+        final Instant now = Instant.parse("2077-04-27T12:34:56Z");
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient(TerraformPolicy.load()));
+        dataAccessGateway.reserveUniqueCodes(List.of("11111111"), "abandoned-container", now.minusSeconds(60));
+        dataAccessGateway.reserveUniqueCodes(List.of("22222222"), "active-container", now.plusSeconds(60));
+
+        final List<CodeReservation> expired = dataAccessGateway.findExpiredReservations(now, 10);
+        assertThat(expired).containsExactly(new CodeReservation("11111111", "abandoned-container", now.minusSeconds(60)));
+
+        assertTrue(dataAccessGateway.takeOverReservation(expired.get(0), "container-test", now.plusSeconds(3600)));
+        assertFalse(dataAccessGateway.takeOverReservation(expired.get(0), "other-container", now.plusSeconds(3600)));
+        assertThat(dataAccessGateway.findExpiredReservations(now, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should govern every write of the code pool")
+    void shouldGovernEveryWriteOfTheCodePool() {
+        final Instant now = Instant.parse("2077-04-27T12:34:56Z");
+        final WriteGovernor governor = WriteGovernor.create(1_000, Duration.ofMillis(200));
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient(), governor);
+        dataAccessGateway.reserveUniqueCodes(List.of("11111111", "22222222", "33333333"), "container-test", now.minusSeconds(60));
+
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("11111111")
+                .build();
+        assertTrue(dataAccessGateway.claimReservedCode(createUniqueCode, "container-test"));
+        assertTrue(dataAccessGateway.takeOverReservation(new CodeReservation("22222222", "container-test", now.minusSeconds(60)), "other-container", now));
+        dataAccessGateway.releaseReservedCodes(List.of("33333333"), "container-test");
+
+        /* The reservation, the claim, the take over and the release */
+        assertThat(governor.metrics().getAcquisitions()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("should release only the codes that are still reserved by the given container")
+    void shouldReleaseOnlyTheCodesThatAreStillReservedByTheGivenContainer() {
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        dataAccessGateway.reserveUniqueCodes(List.of("11111111"), "container-test", Instant.parse("2077-04-27T12:34:56Z"));
+        dataAccessGateway.reserveUniqueCodes(List.of("22222222"), "other-container", Instant.parse("2077-04-27T12:34:56Z"));
+
+        dataAccessGateway.releaseReservedCodes(List.of("11111111", "22222222"), "container-test");
+
+        final List<Map<String, AttributeValue>> allDataInDynamoDb = scanAllItems();
+        assertThat(allDataInDynamoDb).hasSize(1);
+        assertThat(allDataInDynamoDb.get(0).get("Code")).as("code").isEqualTo(toAttributeValue("22222222"));
+    }
+
+    @Test
+    @DisplayName("should lease consecutive blocks that do not overlap")
+    void shouldLeaseConsecutiveBlocksThatDoNotOverlap() {
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+
+        assertThat(dataAccessGateway.leaseBlock("alphanumeric:8", 100)).isEqualTo(0L);
+        assertThat(dataAccessGateway.leaseBlock("alphanumeric:8", 100)).isEqualTo(100L);
+        assertThat(dataAccessGateway.leaseBlock("alphanumeric:8", 50)).isEqualTo(200L);
+        assertThat(dataAccessGateway.leaseBlock("hex:8", 100)).isEqualTo(0L);
+    }
+
+    @Test
+    @DisplayName("should prime the connection without writing or overwriting the code")
+    void shouldPrimeTheConnectionWithoutWritingOrOverwritingTheCode() {
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        populateTableWithDummyValues("22222222");
+
+        dataAccessGateway.prime(CreateUniqueCode.builder(new CreateUniqueCodeRequest()).createdOn("2077-04-27T12:34:56Z").code("11111111").build());
+        dataAccessGateway.prime(CreateUniqueCode.builder(new CreateUniqueCodeRequest()).createdOn("2077-04-27T12:34:56Z").code("22222222").build());
+
+        final List<Map<String, AttributeValue>> allDataInDynamoDb = scanAllItems();
+        assertThat(allDataInDynamoDb).hasSize(1);
+        assertThat(allDataInDynamoDb.get(0)).isEqualTo(Map.of("Code", toAttributeValue("22222222")));
+    }
+
+    @Test
+    @DisplayName("should save the key of the code first and add the metadata later only to the code created by the same request")
+    void shouldSaveTheKeyOfTheCodeFirstAndAddTheMetadataLaterOnlyToTheCodeCreatedByTheSameRequest() {
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("used-by-test");
+        request.setReference("reference-test");
+        request.setDescription("description-test");
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        assertTrue(dataAccessGateway.saveUniqueCodeKey(createUniqueCode));
+        assertFalse(dataAccessGateway.saveUniqueCodeKey(createUniqueCode));
+        assertThat(findItem("12345678")).isEqualTo(Map.of(
+                "Code", toAttributeValue("12345678"),
+                "CreatedOn", toAttributeValue(createUniqueCode.getCreatedOn()),
+                "RequestId", toAttributeValue(createUniqueCode.getRequestId()),
+                "MetadataPending", AttributeValue.builder().bool(true).build()));
+
+        /* A request that did not create the code must not overwrite its metadata, even when created at the same time */
+        final CreateUniqueCode otherRequest = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+        assertFalse(dataAccessGateway.saveMetadata(otherRequest));
+
+        assertTrue(dataAccessGateway.saveMetadata(createUniqueCode));
+        assertTrue(dataAccessGateway.saveMetadata(createUniqueCode));
+        final Map<String, AttributeValue> expected = new HashMap<>(DataAccessGateway.toAttributesByName(createUniqueCode));
+        expected.put("RequestId", toAttributeValue(createUniqueCode.getRequestId()));
+        assertThat(findItem("12345678")).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("should find the code as stored and not find a code that does not exist or is only reserved")
+    void shouldFindTheCodeAsStoredAndNotFindACodeThatDoesNotExistOrIsOnlyReserved() {
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("used-by-test");
+        request.setDescription("description-test");
+        final CreateUniqueCode createUniqueCode = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        assertTrue(dataAccessGateway.saveUniqueCode(createUniqueCode));
+        dataAccessGateway.reserveUniqueCodes(List.of("23456789"), "container-test", Instant.now().plusSeconds(60));
+
+        assertThat(dataAccessGateway.findUniqueCode("12345678")).contains(new StoredUniqueCode("12345678",
+                "2077-04-27T12:34:56+01:00[Europe/Berlin]", "used-by-test", null, "description-test"));
+        assertThat(dataAccessGateway.findUniqueCode("23456789")).isEmpty();
+        assertThat(dataAccessGateway.findUniqueCode("34567890")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should write the codes in the compact schema and read the codes written in either schema")
+    void shouldWriteTheCodesInTheCompactSchemaAndReadTheCodesWrittenInEitherSchema() {
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("used-by-test");
+        request.setDescription("description-test ".repeat(32));
+        final CreateUniqueCode compact = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56.789+02:00[Europe/Berlin]")
+                .code("12345678")
+                .build();
+        final CreateUniqueCode legacy = CreateUniqueCode.builder(request)
+                .createdOn("2077-04-27T12:34:56.789+02:00[Europe/Berlin]")
+                .code("23456789")
+                .build();
+
+        final DataAccessGateway legacyGateway = new DataAccessGateway(createDynamoDbClient());
+        final DataAccessGateway compactGateway = new DataAccessGateway(createDynamoDbClient(), WriteGovernor.disabled(),
+                CapacityAccounting.disabled(), new ItemEncoding(true, 256));
+        assertTrue(compactGateway.saveUniqueCodeKey(compact));
+        assertTrue(compactGateway.saveMetadata(compact));
+        assertTrue(legacyGateway.saveUniqueCode(legacy));
+
+        final Map<String, AttributeValue> item = findItem("12345678");
+        assertThat(item.get("CreatedOn").n()).isEqualTo("3386745296789");
+        assertThat(item.get("Description").b()).isNotNull();
+
+        final StoredUniqueCode expected = new StoredUniqueCode("12345678", "2077-04-27T10:34:56.789Z", "used-by-test", null, request.getDescription());
+        assertThat(legacyGateway.findUniqueCode("12345678")).contains(expected);
+        assertThat(compactGateway.findUniqueCode("23456789")).contains(new StoredUniqueCode("23456789",
+                "2077-04-27T12:34:56.789+02:00[Europe/Berlin]", "used-by-test", null, request.getDescription()));
+    }
+
+    @Test
+    @DisplayName("should find the existing codes of a batch and leave out the codes that do not exist or are only reserved")
+    void shouldFindTheExistingCodesOfABatchAndLeaveOutTheCodesThatDoNotExistOrAreOnlyReserved() {
+        final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        assertTrue(dataAccessGateway.saveUniqueCode(builder.code("12345678").build()));
+        assertTrue(dataAccessGateway.saveUniqueCode(builder.code("23456789").build()));
+        dataAccessGateway.reserveUniqueCodes(List.of("34567890"), "container-test", Instant.now().plusSeconds(60));
+
+        final CodeBatchResult result = dataAccessGateway.findExistingCodes(List.of("12345678", "23456789", "34567890", "45678901"));
+        assertThat(result.getExisting()).containsExactlyInAnyOrder("12345678", "23456789");
+        assertThat(result.getUnprocessed()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should verify codes spanning several batches")
+    void shouldVerifyCodesSpanningSeveralBatches() {
+        final CreateUniqueCode.Builder builder = CreateUniqueCode.builder(new CreateUniqueCodeRequest())
+                .createdOn("2077-04-27T12:34:56+01:00[Europe/Berlin]");
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        final List<String> codes = IntStream.range(0, 250)
+                .mapToObj(i -> String.format("%08d", i))
+                .collect(Collectors.toList());
+        codes.stream()
+                .filter(code -> Integer.parseInt(code) % 3 == 0)
+                .forEach(code -> assertTrue(dataAccessGateway.saveUniqueCode(builder.code(code).build())));
+
+        try (CodeVerifier verifier = CodeVerifier.create(dataAccessGateway, 4)) {
+            final CodeVerification verification = verifier.verify(codes);
+            assertThat(verification.getFound()).hasSize(84).allMatch(code -> Integer.parseInt(code) % 3 == 0);
+            assertThat(verification.getNotFound()).hasSize(166).noneMatch(code -> Integer.parseInt(code) % 3 == 0);
+        }
+    }
+
+    @Test
+    @DisplayName("should reserve an idempotency key once, record its codes against the reservation and replace the record once it expires")
+    void shouldReserveAnIdempotencyKeyOnceRecordItsCodesAgainstTheReservationAndReplaceTheRecordOnceItExpires() {
+        final Instant now = Instant.parse("2077-04-27T10:34:56Z");
+        final IdempotencyRecord reservation = IdempotencyRecord.reserved("key-test", "hash-test", now.plusSeconds(60));
+        final IdempotencyRecord other = IdempotencyRecord.reserved("key-test", "hash-other", now.plusSeconds(120));
+        final IdempotencyRecord record = reservation.served(List.of("12345678", "23456789"), now.plusSeconds(60));
+
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient());
+        assertThat(dataAccessGateway.findIdempotencyRecord("key-test", now)).isEmpty();
+        assertTrue(dataAccessGateway.reserveIdempotencyKey(reservation, now, "used-by-test"));
+        assertFalse(dataAccessGateway.reserveIdempotencyKey(other, now, "used-by-test"));
+        assertThat(dataAccessGateway.findIdempotencyRecord("key-test", now)).contains(reservation);
+
+        assertTrue(dataAccessGateway.saveIdempotencyRecord(record, "used-by-test"));
+        assertFalse(dataAccessGateway.saveIdempotencyRecord(record, "used-by-test"));
+        assertFalse(dataAccessGateway.deleteIdempotencyRecord(reservation, "used-by-test"));
+        assertThat(dataAccessGateway.findIdempotencyRecord("key-test", now)).contains(record);
+
+        final Instant expired = now.plusSeconds(60);
+        assertThat(dataAccessGateway.findIdempotencyRecord("key-test", expired)).isEmpty();
+        assertTrue(dataAccessGateway.reserveIdempotencyKey(other, expired, "used-by-test"));
+        assertTrue(dataAccessGateway.deleteIdempotencyRecord(other, "used-by-test"));
+        assertThat(dataAccessGateway.findIdempotencyRecord("key-test", expired)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should release the idempotency key of a failed request with only the actions the policy of the function allows")
+    void shouldReleaseTheIdempotencyKeyOfAFailedRequestWithOnlyTheActionsThePolicyOfTheFunctionAllows() {
+        final Instant now = Instant.parse("2077-04-27T10:34:56Z");
+        final DataAccessGateway dataAccessGateway = new DataAccessGateway(createDynamoDbClient(TerraformPolicy.load()));
+        final IdempotentRequests idempotentRequests = new IdempotentRequests(dataAccessGateway,
+                new IdempotencySettings(true, 10, Duration.ofHours(24)), () -> now);
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("used-by-test");
+        request.setIdempotencyKey("key-test");
+        assertThrows(IllegalStateException.class, () -> idempotentRequests.serve(request, () -> {
+            throw new IllegalStateException("Failed to create the codes");
+        }));
+        assertThat(new DataAccessGateway(createDynamoDbClient()).findIdempotencyRecord("12:used-by-test:key-test", now)).isEmpty();
+
+        /* The retry is served, instead of being rejected as still in progress */
+        assertThat(idempotentRequests.serve(request, () -> UniqueCode.of("12345678")).getCodes()).containsExactly("12345678");
+    }
+
+    private static Map<String, AttributeValue> findItem(final String code) {
+        return scanAllItems().stream()
+                .filter(item -> toAttributeValue(code).equals(item.get("Code")))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    @DisplayName("should govern the writes at the provisioned write capacity of the table")
+    void shouldGovernTheWritesAtTheProvisionedWriteCapacityOfTheTable() {
+        final WriteGovernor governor = WriteGovernor.forTable(createDynamoDbClient(), "UniqueCodes", Duration.ofMillis(200));
+
+        assertTrue(governor.isEnabled());
+        assertThat(governor.metrics().getWriteCapacity()).isEqualTo(3);
+    }
+}
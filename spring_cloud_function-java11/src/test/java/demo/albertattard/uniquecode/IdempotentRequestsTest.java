@@ -0,0 +1,247 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class IdempotentRequestsTest {
+
+    private static final Instant NOW = Instant.parse("2077-04-27T10:34:56Z");
+
+    /* A clock that only moves when the test moves it */
+    private final AtomicReference<Instant> now = new AtomicReference<>(NOW);
+    private final DataAccessGateway gateway = mock(DataAccessGateway.class);
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Test
+    @DisplayName("should reserve the key, create the codes once and return the same codes to the requests that repeat the key")
+    void shouldReserveTheKeyCreateTheCodesOnceAndReturnTheSameCodesToTheRequestsThatRepeatTheKey() {
+        when(gateway.findIdempotencyRecord(anyString(), any())).thenReturn(Optional.empty());
+        when(gateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(true);
+        when(gateway.saveIdempotencyRecord(any(), any())).thenReturn(true);
+
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+        final UniqueCode first = idempotentRequests.serve(request("tenant-test", "key-test"), this::createCode);
+        final UniqueCode repeated = idempotentRequests.serve(request("tenant-test", "key-test"), this::createCode);
+
+        final String requestHash = IdempotentRequests.requestHash(request("tenant-test", "key-test"));
+        assertThat(repeated).isEqualTo(first);
+        assertThat(created).hasValue(1);
+        verify(gateway, times(1)).findIdempotencyRecord(anyString(), any());
+        verify(gateway, times(1)).reserveIdempotencyKey(
+                eq(IdempotencyRecord.reserved("11:tenant-test:key-test", requestHash, NOW.plus(Duration.ofMinutes(15)))), eq(NOW), eq("tenant-test"));
+        verify(gateway, times(1)).saveIdempotencyRecord(
+                eq(new IdempotencyRecord("11:tenant-test:key-test", requestHash, first.getCodes(), NOW.plus(Duration.ofHours(24)))), eq("tenant-test"));
+        assertThat(idempotentRequests.metrics().getCacheReplays()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should return the codes recorded in the table, such as by another container, without creating a code")
+    void shouldReturnTheCodesRecordedInTheTableSuchAsByAnotherContainerWithoutCreatingACode() {
+        final String requestHash = IdempotentRequests.requestHash(request("tenant-test", "key-test"));
+        final IdempotencyRecord record = new IdempotencyRecord("11:tenant-test:key-test", requestHash, List.of("12345678"), NOW.plusSeconds(60));
+        when(gateway.findIdempotencyRecord("11:tenant-test:key-test", NOW)).thenReturn(Optional.of(record));
+
+        final UniqueCode served = createIdempotentRequests().serve(request("tenant-test", "key-test"), this::createCode);
+
+        assertThat(served).isEqualTo(UniqueCode.of("12345678"));
+        assertThat(created).hasValue(0);
+        verify(gateway, never()).reserveIdempotencyKey(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should return the codes of the request that reserved the key first, without creating a code, when two requests with the same key are served together")
+    void shouldReturnTheCodesOfTheRequestThatReservedTheKeyFirstWithoutCreatingACodeWhenTwoRequestsWithTheSameKeyAreServedTogether() {
+        final String requestHash = IdempotentRequests.requestHash(request("tenant-test", "key-test"));
+        final IdempotencyRecord other = new IdempotencyRecord("11:tenant-test:key-test", requestHash, List.of("23456789"), NOW.plusSeconds(60));
+        when(gateway.findIdempotencyRecord(anyString(), any())).thenReturn(Optional.empty(), Optional.of(other));
+        when(gateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(false);
+
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+        final UniqueCode served = idempotentRequests.serve(request("tenant-test", "key-test"), this::createCode);
+
+        assertThat(served).isEqualTo(UniqueCode.of("23456789"));
+        assertThat(created).hasValue(0);
+        assertThat(idempotentRequests.metrics().getConflicts()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should reject a request whose key is reserved by a request that is still being served, without creating a code")
+    void shouldRejectARequestWhoseKeyIsReservedByARequestThatIsStillBeingServedWithoutCreatingACode() {
+        final String requestHash = IdempotentRequests.requestHash(request("tenant-test", "key-test"));
+        final IdempotencyRecord other = IdempotencyRecord.reserved("11:tenant-test:key-test", requestHash, NOW.plusSeconds(60));
+        when(gateway.findIdempotencyRecord(anyString(), any())).thenReturn(Optional.empty(), Optional.of(other));
+        when(gateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(false);
+
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+        final Supplier<UniqueCode> create = this::createCode;
+
+        assertThatThrownBy(() -> idempotentRequests.serve(request("tenant-test", "key-test"), create))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("still being served");
+        assertThat(created).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("should reject a request that reuses a key with different parameters")
+    void shouldRejectARequestThatReusesAKeyWithDifferentParameters() {
+        when(gateway.findIdempotencyRecord(anyString(), any())).thenReturn(Optional.empty());
+        when(gateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(true);
+        when(gateway.saveIdempotencyRecord(any(), any())).thenReturn(true);
+
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+        idempotentRequests.serve(request("tenant-test", "key-test"), this::createCode);
+
+        final CreateUniqueCodeRequest other = request("tenant-test", "key-test");
+        other.setCount(2);
+        final Supplier<UniqueCode> create = this::createCode;
+
+        assertThatThrownBy(() -> idempotentRequests.serve(other, create))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different parameters");
+        assertThat(created).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("should reject a request whose key was recorded without the hash of its parameters")
+    void shouldRejectARequestWhoseKeyWasRecordedWithoutTheHashOfItsParameters() {
+        final IdempotencyRecord record = new IdempotencyRecord("11:tenant-test:key-test", null, List.of("12345678"), NOW.plusSeconds(60));
+        when(gateway.findIdempotencyRecord("11:tenant-test:key-test", NOW)).thenReturn(Optional.of(record));
+
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+        final Supplier<UniqueCode> create = this::createCode;
+
+        assertThatThrownBy(() -> idempotentRequests.serve(request("tenant-test", "key-test"), create))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different parameters");
+        assertThat(created).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("should release the key when the codes cannot be created, thus the request can be retried")
+    void shouldReleaseTheKeyWhenTheCodesCannotBeCreatedThusTheRequestCanBeRetried() {
+        when(gateway.findIdempotencyRecord(anyString(), any())).thenReturn(Optional.empty());
+        when(gateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(true);
+
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+
+        assertThatThrownBy(() -> idempotentRequests.serve(request("tenant-test", "key-test"), () -> {
+            throw new IllegalStateException("Simulating a failure to create the code");
+        })).isInstanceOf(IllegalStateException.class);
+        verify(gateway, times(1)).deleteIdempotencyRecord(any(), eq("tenant-test"));
+        verify(gateway, never()).saveIdempotencyRecord(any(), any());
+    }
+
+    @Test
+    @DisplayName("should write the record of the codes again when the write fails")
+    void shouldWriteTheRecordOfTheCodesAgainWhenTheWriteFails() {
+        when(gateway.findIdempotencyRecord(anyString(), any())).thenReturn(Optional.empty());
+        when(gateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(true);
+        when(gateway.saveIdempotencyRecord(any(), any()))
+                .thenThrow(new IllegalStateException("Simulating a failure to write the record"))
+                .thenReturn(true);
+
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+        final UniqueCode first = idempotentRequests.serve(request("tenant-test", "key-test"), this::createCode);
+        final UniqueCode repeated = idempotentRequests.serve(request("tenant-test", "key-test"), this::createCode);
+
+        assertThat(repeated).isEqualTo(first);
+        assertThat(created).hasValue(1);
+        verify(gateway, times(2)).saveIdempotencyRecord(any(), eq("tenant-test"));
+        verify(gateway, never()).deleteIdempotencyRecord(any(), any());
+    }
+
+    @Test
+    @DisplayName("should fail the request and keep its key reserved when the codes cannot be recorded, thus its retries are not served other codes")
+    void shouldFailTheRequestAndKeepItsKeyReservedWhenTheCodesCannotBeRecordedThusItsRetriesAreNotServedOtherCodes() {
+        when(gateway.findIdempotencyRecord(anyString(), any())).thenReturn(Optional.empty());
+        when(gateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(true);
+        when(gateway.saveIdempotencyRecord(any(), any())).thenThrow(new IllegalStateException("Simulating a failure to write the record"));
+
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+        final Supplier<UniqueCode> create = this::createCode;
+
+        assertThatThrownBy(() -> idempotentRequests.serve(request("tenant-test", "key-test"), create))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Failed to record the codes");
+        verify(gateway, times(3)).saveIdempotencyRecord(any(), eq("tenant-test"));
+        verify(gateway, never()).deleteIdempotencyRecord(any(), any());
+        assertThat(idempotentRequests.metrics().getSize()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should keep the keys of different callers apart and read the table again once the key expires")
+    void shouldKeepTheKeysOfDifferentCallersApartAndReadTheTableAgainOnceTheKeyExpires() {
+        when(gateway.findIdempotencyRecord(anyString(), any())).thenReturn(Optional.empty());
+        when(gateway.reserveIdempotencyKey(any(), any(), any())).thenReturn(true);
+        when(gateway.saveIdempotencyRecord(any(), any())).thenReturn(true);
+
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+        final UniqueCode first = idempotentRequests.serve(request("tenant-a", "key-test"), this::createCode);
+        final UniqueCode second = idempotentRequests.serve(request("tenant-b", "key-test"), this::createCode);
+        now.set(NOW.plus(Duration.ofHours(24)));
+        final UniqueCode third = idempotentRequests.serve(request("tenant-a", "key-test"), this::createCode);
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(third).isNotEqualTo(first);
+        assertThat(created).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("should create the codes of every request without a key, or when disabled, without reading or writing the table")
+    void shouldCreateTheCodesOfEveryRequestWithoutAKeyOrWhenDisabledWithoutReadingOrWritingTheTable() {
+        createIdempotentRequests().serve(request("tenant-test", null), this::createCode);
+        createIdempotentRequests().serve(request("tenant-test", " "), this::createCode);
+        IdempotentRequests.disabled().serve(request("tenant-test", "key-test"), this::createCode);
+        IdempotentRequests.disabled().serve(request("tenant-test", "key-test"), this::createCode);
+
+        assertThat(created).hasValue(4);
+        verifyNoInteractions(gateway);
+    }
+
+    @Test
+    @DisplayName("should not accept a key longer than 128 characters")
+    void shouldNotAcceptAKeyLongerThan128Characters() {
+        final IdempotentRequests idempotentRequests = createIdempotentRequests();
+        final Supplier<UniqueCode> create = this::createCode;
+
+        assertThatThrownBy(() -> idempotentRequests.serve(request("tenant-test", "k".repeat(129)), create))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(created).hasValue(0);
+    }
+
+    private IdempotentRequests createIdempotentRequests() {
+        final IdempotencySettings settings = new IdempotencySettings(true, 100, Duration.ofHours(24));
+        return new IdempotentRequests(gateway, settings, now::get);
+    }
+
+    private UniqueCode createCode() {
+        return UniqueCode.of(String.format("%08d", created.incrementAndGet()));
+    }
+
+    private static CreateUniqueCodeRequest request(final String usedBy, final String idempotencyKey) {
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy(usedBy);
+        request.setIdempotencyKey(idempotencyKey);
+        return request;
+    }
+}
@@ -0,0 +1,40 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class RestorableHttpClientTest {
+
+    private final List<SdkHttpClient> created = new ArrayList<>();
+
+    @Test
+    @DisplayName("should close the HTTP client before the checkpoint and send the requests to a new one after the restore")
+    void shouldCloseTheHttpClientBeforeTheCheckpointAndSendTheRequestsToANewOneAfterTheRestore() throws Exception {
+        final RestorableHttpClient client = new RestorableHttpClient(this::createHttpClient);
+        final HttpExecuteRequest request = HttpExecuteRequest.builder().build();
+
+        client.beforeCheckpoint(null);
+        client.afterRestore(null);
+        client.prepareRequest(request);
+
+        verify(created.get(0), times(1)).close();
+        verify(created.get(1), times(1)).prepareRequest(request);
+        verifyNoMoreInteractions(created.toArray());
+    }
+
+    private SdkHttpClient createHttpClient() {
+        final SdkHttpClient client = mock(SdkHttpClient.class);
+        created.add(client);
+        return client;
+    }
+}
@@ -0,0 +1,147 @@
+package demo.albertattard.uniquecode;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * The DynamoDB actions the policy of the function, as defined in the terraform files, allows on every table and index.
+ * Added to a client, it rejects the requests the policy does not allow as DynamoDB would, with an access denied error,
+ * thus the tests find the missing grants before the function is deployed.
+ */
+public class TerraformPolicy implements ExecutionInterceptor {
+
+    private static final Path MAIN = Paths.get("terraform", "main.tf");
+
+    private static final Pattern TABLE = Pattern.compile("resource \"aws_dynamodb_table\" \"([^\"]+)\" \\{\\s*name\\s*=\\s*\"([^\"]+)\"");
+    private static final Pattern POLICY = Pattern.compile("resource \"aws_iam_policy\" \"[^\"]+\" \\{.*?policy = <<EOF\\s*(.*?)\\s*EOF", Pattern.DOTALL);
+    private static final Pattern TABLE_ARN = Pattern.compile("\\$\\{aws_dynamodb_table\\.([^.]+)\\.arn}");
+
+    private final Map<String, Set<String>> actionsByResource;
+
+    private TerraformPolicy(final Map<String, Set<String>> actionsByResource) {
+        this.actionsByResource = actionsByResource;
+    }
+
+    public static TerraformPolicy load() {
+        final String main;
+        try {
+            main = Files.readString(MAIN);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to read the terraform file " + MAIN.toAbsolutePath(), e);
+        }
+
+        final Map<String, String> tableNames = new HashMap<>();
+        final Matcher table = TABLE.matcher(main);
+        while (table.find()) {
+            tableNames.put(table.group(1), table.group(2));
+        }
+
+        final Matcher policy = POLICY.matcher(main);
+        if (!policy.find()) {
+            throw new IllegalStateException("The terraform file " + MAIN.toAbsolutePath() + " has no policy");
+        }
+
+        final JsonNode statements;
+        try {
+            statements = new ObjectMapper().readTree(policy.group(1)).get("Statement");
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to read the policy in the terraform file " + MAIN.toAbsolutePath(), e);
+        }
+
+        final Map<String, Set<String>> actionsByResource = new HashMap<>();
+        for (final JsonNode statement : statements) {
+            if (!"Allow".equals(statement.get("Effect").asText())) {
+                continue;
+            }
+
+            final Matcher arn = TABLE_ARN.matcher(statement.get("Resource").asText());
+            final StringBuffer resource = new StringBuffer();
+            while (arn.find()) {
+                arn.appendReplacement(resource, Matcher.quoteReplacement(tableNames.getOrDefault(arn.group(1), arn.group())));
+            }
+            arn.appendTail(resource);
+
+            final Set<String> actions = actionsByResource.computeIfAbsent(resource.toString(), r -> new HashSet<>());
+            statement.get("Action").forEach(action -> actions.add(action.asText()));
+        }
+        return new TerraformPolicy(actionsByResource);
+    }
+
+    /* Whether the policy allows the given action, such as dynamodb:GetItem, on the given table or index, such as Table/index/Index */
+    public boolean allows(final String action, final String resource) {
+        return actionsByResource.getOrDefault(resource, Set.of()).contains(action);
+    }
+
+    @Override
+    public void beforeExecution(final Context.BeforeExecution context, final ExecutionAttributes executionAttributes) {
+        final String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        for (final String[] actionAndResource : actionsOf(operation, context.request())) {
+            if (!allows(actionAndResource[0], actionAndResource[1])) {
+                final String message = "User is not authorized to perform: " + actionAndResource[0] + " on resource: " + actionAndResource[1];
+                throw DynamoDbException.builder()
+                        .message(message)
+                        .statusCode(400)
+                        .awsErrorDetails(AwsErrorDetails.builder()
+                                .errorCode("AccessDeniedException")
+                                .errorMessage(message)
+                                .serviceName("DynamoDb")
+                                .build())
+                        .build();
+            }
+        }
+    }
+
+    /* The actions the given request takes, as IAM sees these, each with the table or index it takes it on */
+    @SuppressWarnings("unchecked")
+    private static List<String[]> actionsOf(final String operation, final SdkRequest request) {
+        final List<String[]> actions = new ArrayList<>();
+        final String tableName = request.getValueForField("TableName", String.class).orElse(null);
+        if (tableName != null) {
+            final String resource = request.getValueForField("IndexName", String.class)
+                    .map(index -> tableName + "/index/" + index)
+                    .orElse(tableName);
+            actions.add(new String[]{"dynamodb:" + operation, resource});
+        }
+
+        request.getValueForField("RequestItems", Map.class)
+                .ifPresent(items -> ((Map<String, ?>) items).keySet()
+                        .forEach(table -> actions.add(new String[]{"dynamodb:" + operation, table})));
+
+        request.getValueForField("TransactItems", List.class)
+                .filter(items -> "TransactWriteItems".equals(operation))
+                .ifPresent(items -> ((List<TransactWriteItem>) items).forEach(item -> {
+                    if (item.put() != null) {
+                        actions.add(new String[]{"dynamodb:PutItem", item.put().tableName()});
+                    } else if (item.update() != null) {
+                        actions.add(new String[]{"dynamodb:UpdateItem", item.update().tableName()});
+                    } else if (item.delete() != null) {
+                        actions.add(new String[]{"dynamodb:DeleteItem", item.delete().tableName()});
+                    } else if (item.conditionCheck() != null) {
+                        actions.add(new String[]{"dynamodb:ConditionCheckItem", item.conditionCheck().tableName()});
+                    }
+                }));
+        return actions;
+    }
+}
@@ -0,0 +1,26 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VerifyUniqueCodesFunctionTest {
+
+    @Test
+    @DisplayName("should return the codes that were found and those that were not")
+    void shouldReturnTheCodesThatWereFoundAndThoseThatWereNot() {
+        final CodeVerifier codeVerifier = mock(CodeVerifier.class);
+        final CodeVerification verification = new CodeVerification(List.of("12345678"), List.of("23456789"));
+        when(codeVerifier.verify(List.of("12345678", "23456789"))).thenReturn(verification);
+
+        final VerifyUniqueCodesRequest request = new VerifyUniqueCodesRequest();
+        request.setCodes(List.of("12345678", "23456789"));
+
+        assertThat(new VerifyUniqueCodesFunction(codeVerifier).apply(request)).isEqualTo(verification);
+    }
+}
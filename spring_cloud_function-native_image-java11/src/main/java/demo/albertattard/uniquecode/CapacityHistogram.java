@@ -0,0 +1,67 @@
+package demo.albertattard.uniquecode;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Counts capacity units in buckets whose bounds double, from half a unit up to 512 units, which is precise enough to
+ * tell a write of a small item from that of a large item or a transaction, without keeping every value.  A percentile
+ * is reported as the upper bound of the bucket it falls in, and never more than the largest value recorded.
+ */
+public class CapacityHistogram {
+
+    private static final double[] BOUNDS = {0.5, 1, 2, 4, 8, 16, 32, 64, 128, 256, 512};
+
+    private final LongAdder[] counts = new LongAdder[BOUNDS.length + 1];
+    private final DoubleAdder total = new DoubleAdder();
+    private final DoubleAccumulator max = new DoubleAccumulator(Math::max, 0);
+
+    public CapacityHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(final double units) {
+        counts[bucketOf(units)].increment();
+        total.add(units);
+        max.accumulate(units);
+    }
+
+    public CapacityDistribution distribution() {
+        final long[] snapshot = new long[counts.length];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+
+        return new CapacityDistribution(count, total.sum(), percentile(snapshot, count, 50), percentile(snapshot, count, 99), max.get());
+    }
+
+    private double percentile(final long[] snapshot, final long count, final double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(BOUNDS[i], max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int bucketOf(final double units) {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (units <= BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BOUNDS.length;
+    }
+}
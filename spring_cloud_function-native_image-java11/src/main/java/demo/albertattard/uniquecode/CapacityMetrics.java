@@ -0,0 +1,22 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/*
+ * The capacity consumed so far.  The write units per invocation and per attempt are distributions, while the write units
+ * by tenant (the used by of the requests) are totals, which show what the collisions and the large items cost and who
+ * the table is sized for.
+ */
+@Data
+public class CapacityMetrics {
+
+    private final long invocations;
+    private final double writeUnits;
+    private final double readUnits;
+    private final double collisionWriteUnits;
+    private final CapacityDistribution writeUnitsPerInvocation;
+    private final CapacityDistribution writeUnitsPerAttempt;
+    private final Map<String, Double> writeUnitsByTenant;
+}
@@ -0,0 +1,14 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Set;
+
+/* The codes of a batch read that exist, and those DynamoDB did not get to and are to be read again */
+@Data
+public class CodeBatchResult {
+
+    private final Set<String> existing;
+    private final List<String> unprocessed;
+}
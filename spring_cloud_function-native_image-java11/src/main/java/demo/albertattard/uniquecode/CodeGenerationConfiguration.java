@@ -0,0 +1,33 @@
+package demo.albertattard.uniquecode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CodeGenerationConfiguration {
+
+    @Bean
+    public RandomSource randomSource(@Value("${unique-code.generation.random-source:fast}") final String type) {
+        return RandomSource.of(type);
+    }
+
+    @Bean
+    public Alphabets alphabets(@Value("${unique-code.generation.alphabet:alphanumeric}") final String defaultAlphabet,
+                               @Value("${unique-code.generation.custom-alphabet:}") final String customSymbols) {
+        return new Alphabets(defaultAlphabet, customSymbols);
+    }
+
+    @Bean
+    public SequentialCodeGenerator sequentialCodeGenerator(final DataAccessGateway gateway,
+                                                           @Value("${unique-code.generation.mode:random}") final String mode,
+                                                           @Value("${unique-code.generation.sequence-key:}") final String key,
+                                                           @Value("${unique-code.generation.sequence-block-size:100}") final int blockSize) {
+        return SequentialCodeGenerator.of(mode, gateway, key, blockSize);
+    }
+
+    @Bean
+    public TimeOrderedCodeGenerator timeOrderedCodeGenerator(@Value("${unique-code.generation.mode:random}") final String mode) {
+        return TimeOrderedCodeGenerator.of(mode);
+    }
+}
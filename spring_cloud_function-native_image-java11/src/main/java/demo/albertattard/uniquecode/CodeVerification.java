@@ -0,0 +1,13 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.util.List;
+
+/* The verified codes, without duplicates and in the order in which they were first given */
+@Data
+public class CodeVerification {
+
+    private final List<String> found;
+    private final List<String> notFound;
+}
@@ -0,0 +1,16 @@
+package demo.albertattard.uniquecode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CodeVerifierConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public CodeVerifier codeVerifier(final DataAccessGateway gateway,
+                                     final CapacityAccounting capacityAccounting,
+                                     @Value("${unique-code.verify.parallelism:8}") final int parallelism) {
+        return CodeVerifier.create(gateway, parallelism, capacityAccounting);
+    }
+}
@@ -1,33 +1,122 @@
 package demo.albertattard.uniquecode;
 
-import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
 import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
-@AllArgsConstructor
-public class DataAccessGateway {
+public class DataAccessGateway implements SequenceBlockSource {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DataAccessGateway.class);
 
+    /* The maximum number of items DynamoDB accepts in a single transaction */
+    private static final int MAXIMUM_TRANSACTION_SIZE = 25;
+
+    /* The maximum number of codes created by a single request */
+    private static final int MAXIMUM_COUNT = 100;
+
+    /* The write capacity a delete of a code, an item well below 1 KB, consumes */
+    private static final double UNITS_PER_WRITE = 1;
+
+    /* The read capacity a strongly consistent read of a code, an item well below 4 KB, consumes */
+    private static final double UNITS_PER_READ = 1;
+
+    /* The maximum number of keys DynamoDB accepts in a single batch get */
+    private static final int MAXIMUM_BATCH_GET_SIZE = 100;
+
+    /* Marks a code saved with its key only until its metadata is written */
+    private static final String METADATA_PENDING = "MetadataPending";
+    private static final String REQUEST_ID = "RequestId";
+
+    /* A write within a transaction consumes twice the capacity of a standard write */
+    private static final double TRANSACTIONAL_WRITE_FACTOR = 2;
+
+    /* A write consumes a unit for every KB of the item, rounded up */
+    private static final int BYTES_PER_WRITE_UNIT = 1024;
+
+    /*
+     * The sparse index of the reserved codes, ordered by the time until which these are reserved.  Only the placeholder
+     * items carry the reservation status, which is removed when the code is claimed.
+     */
+    private static final String RESERVATIONS_INDEX = "Reservations";
+    private static final String RESERVED = "Reserved";
+
     private final DynamoDbClient client;
+    private final WriteGovernor writeGovernor;
+    private final CapacityAccounting capacityAccounting;
+    private final ItemEncoding itemEncoding;
+
+    public DataAccessGateway(final DynamoDbClient client) {
+        this(client, WriteGovernor.disabled());
+    }
+
+    public DataAccessGateway(final DynamoDbClient client, final WriteGovernor writeGovernor) {
+        this(client, writeGovernor, CapacityAccounting.disabled());
+    }
+
+    public DataAccessGateway(final DynamoDbClient client, final WriteGovernor writeGovernor, final CapacityAccounting capacityAccounting) {
+        this(client, writeGovernor, capacityAccounting, ItemEncoding.legacy());
+    }
+
+    @Autowired
+    public DataAccessGateway(final DynamoDbClient client, final WriteGovernor writeGovernor, final CapacityAccounting capacityAccounting,
+                             final ItemEncoding itemEncoding) {
+        this.client = client;
+        this.writeGovernor = writeGovernor;
+        this.capacityAccounting = capacityAccounting;
+        this.itemEncoding = itemEncoding;
+    }
 
     public boolean saveUniqueCode(final CreateUniqueCode item) {
+        return putIfNotExists(item.getCode(), item.getUsedBy(), itemEncoding.encode(item));
+    }
+
+    /*
+     * Saves the given code, unless it was created by another request, and returns true when saved.  Unlike
+     * saveUniqueCode(), a code already saved by the same request, identified by its request token, is written again, thus
+     * the same item can be written by more than one write at the same time, such as a write and its hedge.
+     */
+    public boolean saveUniqueCodeOnce(final CreateUniqueCode item) {
+        final Map<String, AttributeValue> attributes = itemEncoding.encode(item);
+        final AttributeValue requestId = itemEncoding.requestId(item.getRequestId());
+        attributes.put(REQUEST_ID, requestId);
         try {
-            client.putItem(builder -> builder
+            governed(writeUnitsOf(attributes), item.getUsedBy(), () -> client.putItem(builder -> builder
                     .tableName("UniqueCodes")
                     .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
-                    .item(toAttributesByName(item))
-                    .conditionExpression("attribute_not_exists(Code)")
-                    .build());
+                    .item(attributes)
+                    .conditionExpression("attribute_not_exists(Code) OR RequestId = :RequestId")
+                    .expressionAttributeValues(Map.of(":RequestId", requestId))
+                    .build()).consumedCapacity());
             return true;
         } catch (final ConditionalCheckFailedException e) {
             LOGGER.warn("The code {} already exists", item.getCode());
@@ -35,19 +124,661 @@ public class DataAccessGateway {
         }
     }
 
-    private Map<String, AttributeValue> toAttributesByName(final CreateUniqueCode request) {
+    /* Whether a write can be made now without waiting for write capacity */
+    public boolean hasWriteCapacity() {
+        return writeGovernor.hasCapacity(UNITS_PER_WRITE);
+    }
+
+    /*
+     * Saves the given code with its key, creation time and request token only, leaving the metadata to be written later
+     * with saveMetadata().  The request token identifies the request that created the code, which the later write relies
+     * on.
+     * A code with metadata is marked as pending its metadata until it is written, thus the codes left without their
+     * metadata can be found and completed.
+     */
+    public boolean saveUniqueCodeKey(final CreateUniqueCode item) {
+        final Map<String, AttributeValue> attributes = new HashMap<>();
+        addIfNotBlank("Code", item.getCode(), attributes);
+        if (isNotBlank(item.getCreatedOn())) {
+            attributes.put("CreatedOn", itemEncoding.createdOn(item.getCreatedOn()));
+        }
+        attributes.put(REQUEST_ID, itemEncoding.requestId(item.getRequestId()));
+        if (item.hasMetadata()) {
+            attributes.put(METADATA_PENDING, AttributeValue.builder().bool(true).build());
+        }
+        return putIfNotExists(item.getCode(), item.getUsedBy(), attributes);
+    }
+
+    /*
+     * Writes the metadata of a code saved with saveUniqueCodeKey(), and removes its pending mark, unless the code was not
+     * created by the same request, and returns true when written.  Writing the same metadata again changes nothing.
+     */
+    public boolean saveMetadata(final CreateUniqueCode item) {
+        final Map<String, String> names = new HashMap<>();
+        final Map<String, AttributeValue> values = new HashMap<>();
+        final StringJoiner set = new StringJoiner(", ", "SET ", "");
+        addIfNotBlank("UsedBy", item.getUsedBy(), names, values, set);
+        addIfNotBlank("Reference", item.getReference(), names, values, set);
+        addIfNotBlank("Description", item.getDescription(), itemEncoding::description, names, values, set);
+        if (values.isEmpty()) {
+            return true;
+        }
+
+        names.put("#RequestId", REQUEST_ID);
+        names.put("#MetadataPending", METADATA_PENDING);
+        values.put(":RequestId", itemEncoding.requestId(item.getRequestId()));
+        try {
+            governed(writeUnitsOf(itemEncoding.encode(item)), item.getUsedBy(), () -> client.updateItem(builder -> builder
+                    .tableName("UniqueCodes")
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                    .key(toKey(item.getCode()))
+                    .updateExpression(set + " REMOVE #MetadataPending")
+                    .conditionExpression("#RequestId = :RequestId")
+                    .expressionAttributeNames(names)
+                    .expressionAttributeValues(values)
+                    .build()).consumedCapacity());
+            return true;
+        } catch (final ConditionalCheckFailedException e) {
+            LOGGER.warn("The code {} was not created by this request", item.getCode());
+            return false;
+        }
+    }
+
+    /*
+     * Reads the given code with a strongly consistent read, so that a code is found as soon as it is created, and returns
+     * nothing when the code does not exist or is only reserved.
+     */
+    public Optional<StoredUniqueCode> findUniqueCode(final String code) {
+        final GetItemResponse response = client.getItem(builder -> builder
+                .tableName("UniqueCodes")
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .key(toKey(code))
+                .consistentRead(true)
+                .projectionExpression("#Code, #CreatedOn, #UsedBy, #Reference, #Description")
+                .expressionAttributeNames(Map.of(
+                        "#Code", "Code",
+                        "#CreatedOn", "CreatedOn",
+                        "#UsedBy", "UsedBy",
+                        "#Reference", "Reference",
+                        "#Description", "Description"
+                ))
+                .build());
+
+        final ConsumedCapacity consumed = response.consumedCapacity();
+        capacityAccounting.recordRead(consumed == null || consumed.capacityUnits() == null ? UNITS_PER_READ : consumed.capacityUnits());
+
+        final Map<String, AttributeValue> item = response.item();
+        if (item == null || !item.containsKey("CreatedOn")) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredUniqueCode(stringOf(item, "Code"), ItemEncoding.createdOnOf(item.get("CreatedOn")),
+                stringOf(item, "UsedBy"), stringOf(item, "Reference"), ItemEncoding.descriptionOf(item.get("Description"))));
+    }
+
+    /*
+     * Reads the given distinct codes, up to 100, in a single batch and returns the codes that exist, leaving out the codes
+     * that are only reserved.  DynamoDB may not get to all keys, such as when throttled, and the codes it did not read are
+     * returned as unprocessed, to be read again by the caller.
+     */
+    public CodeBatchResult findExistingCodes(final Collection<String> codes) {
+        checkBatchGetSize(codes.size());
+
+        final List<Map<String, AttributeValue>> keys = codes.stream()
+                .map(DataAccessGateway::toKey)
+                .collect(Collectors.toList());
+        final BatchGetItemResponse response = client.batchGetItem(builder -> builder
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .requestItems(Map.of("UniqueCodes", KeysAndAttributes.builder()
+                        .keys(keys)
+                        .consistentRead(true)
+                        .projectionExpression("#Code, #CreatedOn")
+                        .expressionAttributeNames(Map.of(
+                                "#Code", "Code",
+                                "#CreatedOn", "CreatedOn"
+                        ))
+                        .build()))
+                .build());
+
+        final ConsumedCapacity consumed = totalOf(response.consumedCapacity());
+        final List<Map<String, AttributeValue>> items = response.responses().getOrDefault("UniqueCodes", List.of());
+        capacityAccounting.recordRead(consumed == null ? items.size() * UNITS_PER_READ : consumed.capacityUnits());
+
+        final Set<String> existing = items.stream()
+                .filter(item -> item.containsKey("CreatedOn"))
+                .map(item -> stringOf(item, "Code"))
+                .collect(Collectors.toSet());
+        final KeysAndAttributes unprocessed = response.unprocessedKeys().get("UniqueCodes");
+        final List<String> unprocessedCodes = unprocessed == null
+                ? List.of()
+                : unprocessed.keys().stream().map(key -> stringOf(key, "Code")).collect(Collectors.toList());
+        return new CodeBatchResult(existing, unprocessedCodes);
+    }
+
+    /*
+     * Returns the record of the request served with the given idempotency key, or nothing when no such request was served
+     * or its record expired.  DynamoDB removes the expired records a while after they expire, thus these are left out here.
+     */
+    public Optional<IdempotencyRecord> findIdempotencyRecord(final String key, final Instant now) {
+        final GetItemResponse response = client.getItem(builder -> builder
+                .tableName("UniqueCodeRequests")
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .key(Map.of("IdempotencyKey", toAttributeValue(key)))
+                .consistentRead(true)
+                .build());
+
+        final ConsumedCapacity consumed = response.consumedCapacity();
+        capacityAccounting.recordRead(consumed == null || consumed.capacityUnits() == null ? UNITS_PER_READ : consumed.capacityUnits());
+
+        final Map<String, AttributeValue> item = response.item();
+        if (item == null || item.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final AttributeValue codes = item.get("Codes");
+        final AttributeValue requestHash = item.get("RequestHash");
+        final IdempotencyRecord record = new IdempotencyRecord(key,
+                requestHash == null ? null : requestHash.s(),
+                codes == null ? null : codes.l().stream().map(AttributeValue::s).collect(Collectors.toList()),
+                Instant.ofEpochSecond(Long.parseLong(item.get("ExpiresAt").n())));
+        return record.isExpired(now) ? Optional.empty() : Optional.of(record);
+    }
+
+    /*
+     * Reserves the key of the given record, with the hash of its request, unless another request reserved it first, and
+     * returns true when reserved.  An expired record is replaced.
+     */
+    public boolean reserveIdempotencyKey(final IdempotencyRecord reservation, final Instant now, final String usedBy) {
+        final Map<String, AttributeValue> item = Map.of(
+                "IdempotencyKey", toAttributeValue(reservation.getKey()),
+                "RequestHash", toAttributeValue(reservation.getRequestHash()),
+                "ExpiresAt", toAttributeValue(reservation.getExpiresAt())
+        );
+
+        try {
+            accounted(UNITS_PER_WRITE, usedBy, () -> client.putItem(builder -> builder
+                    .tableName("UniqueCodeRequests")
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                    .item(item)
+                    .conditionExpression("attribute_not_exists(IdempotencyKey) OR ExpiresAt <= :Now")
+                    .expressionAttributeValues(Map.of(":Now", toAttributeValue(now)))
+                    .build()).consumedCapacity());
+            return true;
+        } catch (final ConditionalCheckFailedException e) {
+            LOGGER.debug("The idempotency key {} was not reserved as it was reserved by another request", reservation.getKey());
+            return false;
+        }
+    }
+
+    /*
+     * Records the codes served to the request that reserved the key of the given record, unless its reservation was taken
+     * over by another request once it expired, and returns true when recorded.
+     */
+    public boolean saveIdempotencyRecord(final IdempotencyRecord record, final String usedBy) {
+        final Map<String, AttributeValue> item = Map.of(
+                "IdempotencyKey", toAttributeValue(record.getKey()),
+                "RequestHash", toAttributeValue(record.getRequestHash()),
+                "Codes", AttributeValue.builder().l(record.getCodes().stream().map(DataAccessGateway::toAttributeValue).collect(Collectors.toList())).build(),
+                "ExpiresAt", toAttributeValue(record.getExpiresAt())
+        );
+
+        try {
+            accounted(UNITS_PER_WRITE, usedBy, () -> client.putItem(builder -> builder
+                    .tableName("UniqueCodeRequests")
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                    .item(item)
+                    .conditionExpression("RequestHash = :RequestHash AND attribute_not_exists(Codes)")
+                    .expressionAttributeValues(Map.of(":RequestHash", toAttributeValue(record.getRequestHash())))
+                    .build()).consumedCapacity());
+            return true;
+        } catch (final ConditionalCheckFailedException e) {
+            LOGGER.warn("The idempotency record {} was not written as its key was taken over by another request", record.getKey());
+            return false;
+        }
+    }
+
+    /* Releases the key reserved by the given record, unless its codes were recorded meanwhile, and returns true when released */
+    public boolean deleteIdempotencyRecord(final IdempotencyRecord reservation, final String usedBy) {
+        try {
+            accounted(UNITS_PER_WRITE, usedBy, () -> client.deleteItem(builder -> builder
+                    .tableName("UniqueCodeRequests")
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                    .key(Map.of("IdempotencyKey", toAttributeValue(reservation.getKey())))
+                    .conditionExpression("RequestHash = :RequestHash AND attribute_not_exists(Codes)")
+                    .expressionAttributeValues(Map.of(":RequestHash", toAttributeValue(reservation.getRequestHash())))
+                    .build()).consumedCapacity());
+            return true;
+        } catch (final ConditionalCheckFailedException e) {
+            LOGGER.warn("The idempotency key {} was not released as it is no longer reserved by this request", reservation.getKey());
+            return false;
+        }
+    }
+
+    /*
+     * Opens the connection to DynamoDB, encodes the given code as it would be written and runs an eventually consistent
+     * read of its key through the client.  This warms up the function before its first request, without any write, as a
+     * conditional put that never writes still consumes write capacity.
+     */
+    public void prime(final CreateUniqueCode item) {
+        client.describeTable(builder -> builder.tableName("UniqueCodes"));
+        itemEncoding.encode(item);
+        client.getItem(builder -> builder
+                .tableName("UniqueCodes")
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .key(toKey(item.getCode()))
+                .projectionExpression("Code")
+                .build());
+    }
+
+    /* Adds the size of the block to the counter and returns the value the counter had before */
+    @Override
+    public long leaseBlock(final String counter, final int size) {
+        final UpdateItemResponse response = client.updateItem(builder -> builder
+                .tableName("UniqueCodeCounters")
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .key(Map.of("Counter", toAttributeValue(counter)))
+                .updateExpression("ADD #Next :Size")
+                .expressionAttributeNames(Map.of("#Next", "Next"))
+                .expressionAttributeValues(Map.of(":Size", AttributeValue.builder().n(String.valueOf(size)).build()))
+                .returnValues(ReturnValue.UPDATED_NEW)
+                .build());
+        return Long.parseLong(response.attributes().get("Next").n()) - size;
+    }
+
+    /* Writes a placeholder item for each of the given codes and returns the codes that were reserved */
+    public List<String> reserveUniqueCodes(final Collection<String> codes, final String reservedBy, final Instant reservedUntil) {
+        return putIfNotExists(codes, null, code -> toPlaceholderAttributes(code, reservedBy, reservedUntil));
+    }
+
+    /*
+     * Saves the given number of codes, taken from the generator, in transactions, with the attempts made by the given
+     * retry policy.  The generated codes that already exist are replaced by new ones straight away, while all other codes
+     * are saved as they are, and a throttled transaction is tried again after a backoff.  The codes saved before a
+     * transaction is throttled are kept.  Returns the saved codes, which are less than the given number only when the
+     * codes that already exist could not be replaced within the attempts of the retry policy.
+     */
+    public List<String> saveUniqueCodes(final CreateUniqueCode.Builder builder, final int count, final Supplier<String> generator,
+                                        final RetryPolicy retryPolicy) {
+        checkCount(count);
+
+        final Set<String> saved = new LinkedHashSet<>(count);
+        retryPolicy.execute(attempt -> {
+            LOGGER.debug("Creating {} unique codes (Attempt {})", count - saved.size(), attempt);
+
+            final List<String> candidates = new ArrayList<>(generateCandidates(count - saved.size(), saved, generator));
+            for (int from = 0; from < candidates.size(); from += MAXIMUM_TRANSACTION_SIZE) {
+                final int to = Math.min(from + MAXIMUM_TRANSACTION_SIZE, candidates.size());
+                saved.addAll(putIfNotExistsInTransaction(candidates.subList(from, to), builder.getUsedBy(),
+                        code -> itemEncoding.encode(builder.code(code).build())));
+            }
+            return saved.size() < count ? Optional.empty() : Optional.of(saved);
+        });
+        return new ArrayList<>(saved);
+    }
+
+    /* Attaches the details to a code previously reserved by the given container, unless it was taken over meanwhile */
+    public boolean claimReservedCode(final CreateUniqueCode item, final String reservedBy) {
+        final Map<String, String> names = new HashMap<>();
+        final Map<String, AttributeValue> values = new HashMap<>();
+        final StringJoiner set = new StringJoiner(", ", "SET ", "");
+        addIfNotBlank("CreatedOn", item.getCreatedOn(), itemEncoding::createdOn, names, values, set);
+        addIfNotBlank("UsedBy", item.getUsedBy(), names, values, set);
+        addIfNotBlank("Reference", item.getReference(), names, values, set);
+        addIfNotBlank("Description", item.getDescription(), itemEncoding::description, names, values, set);
+        names.put("#CreatedOn", "CreatedOn");
+        names.put("#ReservedBy", "ReservedBy");
+        names.put("#ReservedUntil", "ReservedUntil");
+        names.put("#ReservationStatus", "ReservationStatus");
+        values.put(":ReservedBy", toAttributeValue(reservedBy));
+
+        try {
+            governed(writeUnitsOf(itemEncoding.encode(item)), item.getUsedBy(), () -> client.updateItem(builder -> builder
+                    .tableName("UniqueCodes")
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                    .key(toKey(item.getCode()))
+                    .updateExpression(set + " REMOVE #ReservedBy, #ReservedUntil, #ReservationStatus")
+                    .conditionExpression("#ReservedBy = :ReservedBy AND attribute_not_exists(#CreatedOn)")
+                    .expressionAttributeNames(names)
+                    .expressionAttributeValues(values)
+                    .build()).consumedCapacity());
+            return true;
+        } catch (final ConditionalCheckFailedException e) {
+            LOGGER.warn("The reserved code {} is no longer reserved by {}", item.getCode(), reservedBy);
+            return false;
+        }
+    }
+
+    /* Deletes the placeholder items of the given codes that are still reserved by the given container */
+    public void releaseReservedCodes(final Collection<String> codes, final String reservedBy) {
+        for (final String code : codes) {
+            try {
+                governed(UNITS_PER_WRITE, null, () -> client.deleteItem(builder -> builder
+                        .tableName("UniqueCodes")
+                        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                        .key(toKey(code))
+                        .conditionExpression("ReservedBy = :ReservedBy AND attribute_not_exists(CreatedOn)")
+                        .expressionAttributeValues(Map.of(":ReservedBy", toAttributeValue(reservedBy)))
+                        .build()).consumedCapacity());
+            } catch (final ConditionalCheckFailedException e) {
+                LOGGER.debug("The code {} is no longer reserved by {}", code, reservedBy);
+            }
+        }
+    }
+
+    /*
+     * Queries the index of the reserved codes for reservations that have expired, which were most likely abandoned by
+     * their container.  The index is eventually consistent, thus a reservation found may have been claimed or taken
+     * over meanwhile, which the take over checks.
+     */
+    public List<CodeReservation> findExpiredReservations(final Instant now, final int limit) {
+        return client.queryPaginator(builder -> builder
+                .tableName("UniqueCodes")
+                .indexName(RESERVATIONS_INDEX)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .projectionExpression("Code, ReservedBy, ReservedUntil")
+                .keyConditionExpression("ReservationStatus = :Reserved AND ReservedUntil < :Now")
+                .expressionAttributeValues(Map.of(":Reserved", toAttributeValue(RESERVED), ":Now", toAttributeValue(now)))
+                .limit(limit)
+                .build())
+                .items()
+                .stream()
+                .limit(limit)
+                .map(DataAccessGateway::toCodeReservation)
+                .collect(Collectors.toList());
+    }
+
+    /* Passes every code in the given segment of the table, including the reserved codes, to the consumer */
+    public void scanCodes(final int segment, final int totalSegments, final Consumer<String> consumer) {
+        client.scanPaginator(builder -> builder
+                .tableName("UniqueCodes")
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .projectionExpression("Code")
+                .segment(segment)
+                .totalSegments(totalSegments)
+                .build())
+                .items()
+                .forEach(item -> consumer.accept(item.get("Code").s()));
+    }
+
+    /* Moves an expired reservation to the given container, unless it was claimed or taken over meanwhile */
+    public boolean takeOverReservation(final CodeReservation expired, final String reservedBy, final Instant reservedUntil) {
+        try {
+            governed(UNITS_PER_WRITE, null, () -> client.updateItem(builder -> builder
+                    .tableName("UniqueCodes")
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                    .key(toKey(expired.getCode()))
+                    .updateExpression("SET ReservedBy = :ReservedBy, ReservedUntil = :ReservedUntil")
+                    .conditionExpression("ReservedBy = :ExpiredBy AND ReservedUntil = :ExpiredUntil AND attribute_not_exists(CreatedOn)")
+                    .expressionAttributeValues(Map.of(
+                            ":ReservedBy", toAttributeValue(reservedBy),
+                            ":ReservedUntil", toAttributeValue(reservedUntil),
+                            ":ExpiredBy", toAttributeValue(expired.getReservedBy()),
+                            ":ExpiredUntil", toAttributeValue(expired.getReservedUntil())
+                    ))
+                    .build()).consumedCapacity());
+            return true;
+        } catch (final ConditionalCheckFailedException e) {
+            LOGGER.debug("The expired reservation of code {} was already claimed or taken over", expired.getCode());
+            return false;
+        }
+    }
+
+    /*
+     * Waits for the write capacity the write is estimated to consume, before making the write, and then tells the write
+     * governor about the capacity the write consumed, or that the write was throttled, including a transaction that is
+     * cancelled as one of its writes is throttled.
+     */
+    private void governed(final double estimatedUnits, final String usedBy, final Supplier<ConsumedCapacity> write) {
+        writeGovernor.acquire(estimatedUnits);
+
+        final ConsumedCapacity consumed;
+        try {
+            consumed = accounted(estimatedUnits, usedBy, write);
+        } catch (final RuntimeException e) {
+            if (RetryPolicy.isThrottling(e)) {
+                writeGovernor.onThrottled();
+            }
+            throw e;
+        }
+
+        writeGovernor.onConsumed(estimatedUnits, consumed == null ? null : consumed.capacityUnits());
+    }
+
+    /*
+     * Makes the write and accounts for the capacity it consumed, on behalf of the given tenant.  A write that fails as its
+     * condition does not hold consumes capacity too, but does not return how much, thus the estimate is accounted for
+     * instead.  A throttled write consumes nothing, and neither does a transaction that is cancelled as one of its writes
+     * is throttled, which is not a collision either.
+     */
+    private ConsumedCapacity accounted(final double estimatedUnits, final String usedBy, final Supplier<ConsumedCapacity> write) {
+        final ConsumedCapacity consumed;
+        try {
+            consumed = write.get();
+        } catch (final ConditionalCheckFailedException | TransactionCanceledException e) {
+            if (!RetryPolicy.isThrottling(e)) {
+                capacityAccounting.recordWrite(usedBy, estimatedUnits, true);
+            }
+            throw e;
+        }
+
+        final Double units = consumed == null ? null : consumed.capacityUnits();
+        capacityAccounting.recordWrite(usedBy, units == null ? estimatedUnits : units, false);
+        return consumed;
+    }
+
+    /* Estimates the write capacity a write of the given item consumes from the size of its attribute names and values */
+    static double writeUnitsOf(final Map<String, AttributeValue> item) {
+        int bytes = 0;
+        for (final Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            bytes += utf8Length(entry.getKey());
+            final AttributeValue value = entry.getValue();
+            bytes += value.s() != null ? utf8Length(value.s())
+                    : value.n() != null ? value.n().length()
+                    : value.b() != null ? value.b().asByteArrayUnsafe().length
+                    : 0;
+        }
+        return Math.max(1, (bytes + BYTES_PER_WRITE_UNIT - 1) / BYTES_PER_WRITE_UNIT);
+    }
+
+    private static int utf8Length(final String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static ConsumedCapacity totalOf(final List<ConsumedCapacity> consumed) {
+        if (consumed == null || consumed.isEmpty()) {
+            return null;
+        }
+
+        final double units = consumed.stream()
+                .mapToDouble(capacity -> capacity.capacityUnits() == null ? 0 : capacity.capacityUnits())
+                .sum();
+        return ConsumedCapacity.builder().capacityUnits(units).build();
+    }
+
+    private static void checkBatchGetSize(final int size) throws IllegalArgumentException {
+        if (size < 1 || size > MAXIMUM_BATCH_GET_SIZE) {
+            throw new IllegalArgumentException("Invalid batch size " + size + ".  Batch size must be between 1 and " + MAXIMUM_BATCH_GET_SIZE + " both inclusive.");
+        }
+    }
+
+    private static void checkCount(final int count) throws IllegalArgumentException {
+        if (count < 1 || count > MAXIMUM_COUNT) {
+            throw new IllegalArgumentException("Invalid count " + count + ".  Count must be between 1 and " + MAXIMUM_COUNT + " both inclusive.");
+        }
+    }
+
+    /* Generates the given number of distinct codes that are not in the given codes, unless the generator runs out of codes */
+    private static Set<String> generateCandidates(final int count, final Set<String> excluded, final Supplier<String> generator) {
+        final Set<String> candidates = new LinkedHashSet<>(count);
+        for (int i = 0; i < count * 2 && candidates.size() < count; i++) {
+            final String code = generator.get();
+            if (!excluded.contains(code)) {
+                candidates.add(code);
+            }
+        }
+        return candidates;
+    }
+
+    private boolean putIfNotExists(final String code, final String usedBy, final Map<String, AttributeValue> attributes) {
+        try {
+            governed(writeUnitsOf(attributes), usedBy, () -> client.putItem(builder -> builder
+                    .tableName("UniqueCodes")
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                    .item(attributes)
+                    .conditionExpression("attribute_not_exists(Code)")
+                    .build()).consumedCapacity());
+            return true;
+        } catch (final ConditionalCheckFailedException e) {
+            LOGGER.warn("The code {} already exists", code);
+            return false;
+        }
+    }
+
+    /* Puts the items of the given codes, unless these exist, and returns the codes that were put */
+    private List<String> putIfNotExists(final Collection<String> codes, final String usedBy,
+                                        final Function<String, Map<String, AttributeValue>> toItem) {
+        final List<String> candidates = new ArrayList<>(codes);
+        final List<String> put = new ArrayList<>(candidates.size());
+        for (int from = 0; from < candidates.size(); from += MAXIMUM_TRANSACTION_SIZE) {
+            final int to = Math.min(from + MAXIMUM_TRANSACTION_SIZE, candidates.size());
+            put.addAll(putIfNotExistsInTransaction(candidates.subList(from, to), usedBy, toItem));
+        }
+        return put;
+    }
+
+    private List<String> putIfNotExistsInTransaction(final List<String> codes, final String usedBy,
+                                                     final Function<String, Map<String, AttributeValue>> toItem) {
+        List<String> pending = codes;
+        while (!pending.isEmpty()) {
+            final List<Map<String, AttributeValue>> attributes = pending.stream()
+                    .map(toItem)
+                    .collect(Collectors.toList());
+            final List<TransactWriteItem> items = attributes.stream()
+                    .map(DataAccessGateway::toConditionalPut)
+                    .collect(Collectors.toList());
+            final double estimatedUnits = TRANSACTIONAL_WRITE_FACTOR * attributes.stream()
+                    .mapToDouble(DataAccessGateway::writeUnitsOf)
+                    .sum();
+
+            try {
+                governed(estimatedUnits, usedBy, () -> totalOf(client.transactWriteItems(builder -> builder
+                        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                        .transactItems(items)
+                        .build()).consumedCapacity()));
+                return pending;
+            } catch (final TransactionCanceledException e) {
+                /* A throttled transaction is left to the retry policy, which backs off before trying again */
+                if (RetryPolicy.isThrottling(e)) {
+                    throw e;
+                }
+
+                /* The whole transaction is cancelled when one of the codes exists.  Try again without the existing ones. */
+                final List<String> remaining = withoutExistingCodes(pending, e);
+                if (remaining.size() == pending.size()) {
+                    throw e;
+                }
+                pending = remaining;
+            }
+        }
+        return pending;
+    }
+
+    private static List<String> withoutExistingCodes(final List<String> codes, final TransactionCanceledException e) {
+        final List<CancellationReason> reasons = e.cancellationReasons();
+        final List<String> remaining = new ArrayList<>(codes.size());
+        for (int i = 0; i < codes.size(); i++) {
+            if (i < reasons.size() && "ConditionalCheckFailed".equals(reasons.get(i).code())) {
+                LOGGER.warn("The code {} already exists", codes.get(i));
+            } else {
+                remaining.add(codes.get(i));
+            }
+        }
+        return remaining;
+    }
+
+    private static Map<String, AttributeValue> toPlaceholderAttributes(final String code, final String reservedBy, final Instant reservedUntil) {
         final Map<String, AttributeValue> item = new HashMap<>();
-        addIfNotBlank("Code", request.getCode(), item);
-        addIfNotBlank("CreatedOn", request.getCreatedOn(), item);
-        addIfNotBlank("UsedBy", request.getUsedBy(), item);
-        addIfNotBlank("Reference", request.getReference(), item);
-        addIfNotBlank("Description", request.getDescription(), item);
+        item.put("Code", toAttributeValue(code));
+        item.put("ReservedBy", toAttributeValue(reservedBy));
+        item.put("ReservedUntil", toAttributeValue(reservedUntil));
+        item.put("ReservationStatus", toAttributeValue(RESERVED));
         return item;
     }
 
+    private static TransactWriteItem toConditionalPut(final Map<String, AttributeValue> item) {
+        return TransactWriteItem.builder()
+                .put(builder -> builder
+                        .tableName("UniqueCodes")
+                        .item(item)
+                        .conditionExpression("attribute_not_exists(Code)")
+                        .build())
+                .build();
+    }
+
+    private static CodeReservation toCodeReservation(final Map<String, AttributeValue> item) {
+        return new CodeReservation(
+                item.get("Code").s(),
+                item.get("ReservedBy").s(),
+                Instant.ofEpochSecond(Long.parseLong(item.get("ReservedUntil").n()))
+        );
+    }
+
+    /* Returns the attributes of the given code in the legacy schema, where every attribute is a string */
+    static Map<String, AttributeValue> toAttributesByName(final CreateUniqueCode request) {
+        return ItemEncoding.legacy().encode(request);
+    }
+
+    private static String stringOf(final Map<String, AttributeValue> item, final String name) {
+        final AttributeValue value = item.get(name);
+        return value == null ? null : value.s();
+    }
+
+    private static Map<String, AttributeValue> toKey(final String code) {
+        return Map.of("Code", toAttributeValue(code));
+    }
+
+    private static AttributeValue toAttributeValue(final String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue toAttributeValue(final Instant value) {
+        return AttributeValue.builder().n(String.valueOf(value.getEpochSecond())).build();
+    }
+
     private static void addIfNotBlank(final String key, final String value, final Map<String, AttributeValue> item) {
-        if (value != null && !value.trim().isEmpty()) {
+        if (isNotBlank(value)) {
             item.put(key, AttributeValue.builder().s(value).build());
         }
     }
+
+    private static void addIfNotBlank(final String key, final String value, final Map<String, String> names,
+                                      final Map<String, AttributeValue> values, final StringJoiner set) {
+        addIfNotBlank(key, value, DataAccessGateway::toAttributeValue, names, values, set);
+    }
+
+    private static void addIfNotBlank(final String key, final String value, final Function<String, AttributeValue> encoder,
+                                      final Map<String, String> names, final Map<String, AttributeValue> values, final StringJoiner set) {
+        if (isNotBlank(value)) {
+            names.put("#" + key, key);
+            values.put(":" + key, encoder.apply(value));
+            set.add("#" + key + " = :" + key);
+        }
+    }
+
+    private static boolean isNotBlank(final String value) {
+        return value != null && !value.trim().isEmpty();
+    }
 }
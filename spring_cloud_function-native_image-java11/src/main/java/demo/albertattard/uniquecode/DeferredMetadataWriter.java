@@ -0,0 +1,287 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Writes the metadata of the codes (used by, reference and description) once the codes are saved, outside the attempts
+ * to save them.  The conditional put that saves a code then only carries its key and creation time, thus a long
+ * description no longer inflates the write units and the latency of every attempt, including those that find their code
+ * taken.  The metadata is written by a background thread, which retries a write that failed for a transient reason,
+ * such as throttling, with an exponential backoff, a few times.  The handlers flush the writer before they return, as
+ * a Lambda container is frozen between requests and the background thread would otherwise only make progress during a
+ * later request, if any.  The metadata that cannot be written, as its retries run out or as it failed for a reason that
+ * retrying does not fix, is dead-lettered: logged in full so that it can be replayed, while the code keeps the pending
+ * mark saved with its key, which tells the codes still missing their metadata apart.  The metadata still pending when
+ * the container shuts down is flushed, and what cannot be written even then is dead-lettered too.  A metadata write only
+ * updates the code created by the same request, which makes writing it more than once harmless.  The metadata writes
+ * are accounted for the request that deferred them.
+ */
+public class DeferredMetadataWriter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeferredMetadataWriter.class);
+
+    /* How often the metrics are logged, in number of deferred writes */
+    private static final long METRICS_LOG_INTERVAL = 1000;
+
+    /* The attempts, and their backoffs of 50 ms doubling to 800 ms, end well within the default flush timeout */
+    private static final int MAXIMUM_ATTEMPTS = 6;
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(50);
+
+    private final DataAccessGateway gateway;
+    private final DeferredMetadataSettings settings;
+    private final CapacityAccounting capacityAccounting;
+    private final ExecutorService executor;
+    private final Sleeper sleeper;
+    private final BlockingQueue<Deferred> queue;
+    private final AtomicReference<Deferred> inFlight = new AtomicReference<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong deferred = new AtomicLong();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    public DeferredMetadataWriter(final DataAccessGateway gateway, final DeferredMetadataSettings settings,
+                                  final ExecutorService executor, final Sleeper sleeper) {
+        this(gateway, settings, CapacityAccounting.disabled(), executor, sleeper);
+    }
+
+    public DeferredMetadataWriter(final DataAccessGateway gateway, final DeferredMetadataSettings settings, final CapacityAccounting capacityAccounting,
+                                  final ExecutorService executor, final Sleeper sleeper) {
+        this.gateway = gateway;
+        this.settings = settings;
+        this.capacityAccounting = capacityAccounting;
+        this.executor = executor;
+        this.sleeper = sleeper;
+        this.queue = new LinkedBlockingQueue<>(settings.getCapacity());
+    }
+
+    public static DeferredMetadataWriter create(final DataAccessGateway gateway, final DeferredMetadataSettings settings) {
+        return create(gateway, settings, CapacityAccounting.disabled());
+    }
+
+    public static DeferredMetadataWriter create(final DataAccessGateway gateway, final DeferredMetadataSettings settings,
+                                                final CapacityAccounting capacityAccounting) {
+        if (!settings.isEnabled()) {
+            return disabled();
+        }
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor(DeferredMetadataWriter::createWriterThread);
+        final DeferredMetadataWriter writer = new DeferredMetadataWriter(gateway, settings, capacityAccounting, executor, TimeUnit.NANOSECONDS::sleep);
+        writer.start();
+        return writer;
+    }
+
+    public static DeferredMetadataWriter disabled() {
+        return new DeferredMetadataWriter(null, DeferredMetadataSettings.disabled(), null, null);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /* Starts the background thread that writes the deferred metadata */
+    public void start() {
+        executor.execute(this::writePending);
+    }
+
+    /*
+     * Queues the metadata of the given code, which was saved with its key only.  The calling thread waits while the queue
+     * is full, which slows the requests down instead of losing the metadata.
+     */
+    public void defer(final CreateUniqueCode item) {
+        if (!item.hasMetadata()) {
+            return;
+        }
+
+        final long count = deferred.incrementAndGet();
+        if (count % METRICS_LOG_INTERVAL == 0) {
+            LOGGER.info("Deferred metadata writes {}", metrics());
+        }
+
+        final Deferred deferred = new Deferred(item, capacityAccounting.current());
+        pending.incrementAndGet();
+        if (!queue.offer(deferred)) {
+            LOGGER.warn("The queue of deferred metadata is full, waiting to queue the metadata of code {}", item.getCode());
+            try {
+                queue.put(deferred);
+            } catch (final InterruptedException e) {
+                onSettled();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while queuing the metadata of code " + item.getCode(), e);
+            }
+        }
+    }
+
+    /*
+     * Waits, at most the flush timeout, until the metadata of all deferred codes is written.  The handlers call this
+     * before they return, so that the metadata is written while the container still runs.
+     */
+    public void flush() {
+        if (settings.isEnabled() && !flush(settings.getFlushTimeout())) {
+            LOGGER.warn("The metadata of {} codes was not written within {}", pending.get(), settings.getFlushTimeout());
+        }
+    }
+
+    /* Waits until the metadata of all deferred codes is written, or the timeout expires, and returns true when written */
+    public boolean flush(final Duration timeout) {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(pending, remaining);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public DeferredMetadataMetrics metrics() {
+        return new DeferredMetadataMetrics(deferred.get(), written.sum(), failures.sum(), deadLettered.sum(), pending.get());
+    }
+
+    @Override
+    public void close() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+
+        if (!flush(settings.getFlushTimeout())) {
+            LOGGER.warn("The metadata of {} codes was not written within {}", pending.get(), settings.getFlushTimeout());
+        }
+        executor.shutdownNow();
+
+        /* One last attempt for the metadata the background thread did not get to */
+        final List<Deferred> remaining = new ArrayList<>();
+        final Deferred current = inFlight.getAndSet(null);
+        if (current != null) {
+            remaining.add(current);
+        }
+        queue.drainTo(remaining);
+
+        for (final Deferred deferred : remaining) {
+            try {
+                write(deferred);
+            } catch (final RuntimeException e) {
+                failures.increment();
+                deadLetter(deferred, e);
+            }
+            onSettled();
+        }
+    }
+
+    private void writePending() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final Deferred deferred = queue.take();
+                inFlight.set(deferred);
+                writeOrDeadLetter(deferred);
+                if (inFlight.compareAndSet(deferred, null)) {
+                    onSettled();
+                }
+            }
+        } catch (final InterruptedException e) {
+            /* The container is shutting down and the pending metadata is written by close() */
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeOrDeadLetter(final Deferred deferred) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(deferred);
+                return;
+            } catch (final RuntimeException e) {
+                failures.increment();
+                if (!isTransient(e) || attempt >= MAXIMUM_ATTEMPTS) {
+                    deadLetter(deferred, e);
+                    return;
+                }
+
+                final Duration backoff = backoff(attempt);
+                LOGGER.warn("Failed to write the metadata of code {} (Attempt {} of {}), trying again in {}", deferred.item.getCode(),
+                        attempt, MAXIMUM_ATTEMPTS, backoff, e);
+                sleeper.sleep(backoff.toNanos());
+            }
+        }
+    }
+
+    /* Gives up on the metadata of the code, which is logged in full to be replayed, while the code stays marked as pending */
+    private void deadLetter(final Deferred deferred, final RuntimeException e) {
+        final CreateUniqueCode item = deferred.item;
+        deadLettered.increment();
+        LOGGER.error("Failed to write the metadata of code {} created on {} (used by: {}, reference: {}, description: {})",
+                item.getCode(), item.getCreatedOn(), item.getUsedBy(), item.getReference(), item.getDescription(), e);
+    }
+
+    private void write(final Deferred deferred) {
+        final CreateUniqueCode item = deferred.item;
+        if (!capacityAccounting.onBehalfOf(deferred.invocation, () -> gateway.saveMetadata(item))) {
+            LOGGER.warn("The metadata of code {} was not written as the code was not created by this request", item.getCode());
+        }
+        written.increment();
+    }
+
+    /* Counts a deferred code as no longer pending and wakes up the flushes once none is */
+    private void onSettled() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (pending) {
+                pending.notifyAll();
+            }
+        }
+    }
+
+    private static Duration backoff(final int attempt) {
+        return INITIAL_BACKOFF.multipliedBy(1L << (attempt - 1));
+    }
+
+    /* Whether the write may succeed when tried again, such as when throttled or when DynamoDB could not be reached */
+    private static boolean isTransient(final RuntimeException e) {
+        return e instanceof SdkClientException
+                || e instanceof ProvisionedThroughputExceededException
+                || e instanceof RequestLimitExceededException
+                || e instanceof SdkServiceException && (((SdkServiceException) e).isThrottlingException() || ((SdkServiceException) e).statusCode() >= 500);
+    }
+
+    /* The metadata of a code together with the request that deferred it, to which its write is accounted */
+    private static class Deferred {
+        private final CreateUniqueCode item;
+        private final InvocationCapacity invocation;
+
+        private Deferred(final CreateUniqueCode item, final InvocationCapacity invocation) {
+            this.item = item;
+            this.invocation = invocation;
+        }
+    }
+
+    private static Thread createWriterThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "deferred-metadata-write");
+        thread.setDaemon(true);
+        return thread;
+    }
+}
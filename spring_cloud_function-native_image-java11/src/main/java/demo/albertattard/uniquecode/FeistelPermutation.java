@@ -0,0 +1,122 @@
+package demo.albertattard.uniquecode;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/*
+ * A keyed permutation of the numbers from 0 (inclusive) to the domain size (exclusive), such that every number is mapped
+ * to a different number of the same domain.  The numbers are split into two parts, with the domain covered by a grid of
+ * a rows by b columns, and mixed by a Feistel network whose rounds alternate between the two moduli.  The grid may be
+ * slightly larger than the domain, in which case the numbers that fall outside the domain are permuted again (cycle
+ * walking) until they fall within the domain.
+ *
+ * The permuted numbers look random, but the permutation is not meant to be a cipher.  Use the random codes with the
+ * secure random source when the codes must be hard to guess.
+ */
+public final class FeistelPermutation {
+
+    /* Leaves room to round the grid up to a rows by b columns without overflowing a long, with both below 2^32 */
+    public static final long MAXIMUM_DOMAIN_SIZE = 8_000_000_000_000_000_000L;
+
+    private static final int ROUNDS = 8;
+
+    private final long domainSize;
+    private final long rows;
+    private final long columns;
+    private final long[] roundKeys;
+
+    public FeistelPermutation(final long domainSize, final String key) throws IllegalArgumentException {
+        if (domainSize < 1 || domainSize > MAXIMUM_DOMAIN_SIZE) {
+            throw new IllegalArgumentException("Invalid domain size " + domainSize + ".  Domain size must be between 1 and " + MAXIMUM_DOMAIN_SIZE + " both inclusive.");
+        }
+
+        this.domainSize = domainSize;
+        this.rows = ceilSqrt(domainSize);
+        this.columns = (domainSize + rows - 1) / rows;
+        this.roundKeys = deriveRoundKeys(key, domainSize);
+    }
+
+    public long domainSize() {
+        return domainSize;
+    }
+
+    public long permute(final long number) throws IllegalArgumentException {
+        if (number < 0 || number >= domainSize) {
+            throw new IllegalArgumentException("Invalid number " + number + ".  Number must be between 0 (inclusive) and " + domainSize + " (exclusive).");
+        }
+
+        long permuted = number;
+        do {
+            permuted = encrypt(permuted);
+        } while (permuted >= domainSize);
+        return permuted;
+    }
+
+    private long encrypt(final long number) {
+        long left = number / columns;
+        long right = number % columns;
+        long leftModulus = rows;
+        long rightModulus = columns;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long mixed = left + reduce(mix(right, roundKeys[round]), leftModulus);
+            if (mixed >= leftModulus) {
+                mixed -= leftModulus;
+            }
+            left = right;
+            right = mixed;
+
+            final long modulus = leftModulus;
+            leftModulus = rightModulus;
+            rightModulus = modulus;
+        }
+
+        /* After an even number of rounds the left part is a row and the right part is a column again */
+        return left * columns + right;
+    }
+
+    /*
+     * Maps the upper 32 bits of the value to the range from 0 (inclusive) to the modulus (exclusive) with a
+     * multiplication instead of a division.  Both parts are smaller than 2^32, thus the product fits 64 unsigned bits.
+     */
+    private static long reduce(final long value, final long modulus) {
+        return ((value >>> 32) * modulus) >>> 32;
+    }
+
+    /* The SplitMix64 finaliser */
+    private static long mix(final long value, final long key) {
+        long z = value * 0x9E3779B97F4A7C15L + key;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long ceilSqrt(final long value) {
+        long root = (long) Math.sqrt((double) value);
+        while (root * root < value) {
+            root++;
+        }
+        while (root > 1 && (root - 1) * (root - 1) >= value) {
+            root--;
+        }
+        return root;
+    }
+
+    private static long[] deriveRoundKeys(final String key, final long domainSize) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-512");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-512 is not available", e);
+        }
+
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(domainSize).array());
+
+        final long[] roundKeys = new long[ROUNDS];
+        ByteBuffer.wrap(digest.digest()).asLongBuffer().get(roundKeys);
+        return roundKeys;
+    }
+}
@@ -0,0 +1,21 @@
+package demo.albertattard.uniquecode;
+
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Function;
+
+/* Returns the given code as stored, or nothing when the code does not exist.  Selected with the FindUniqueCode function name. */
+@Service
+@Qualifier("FindUniqueCode")
+@AllArgsConstructor
+public class FindUniqueCodeFunction implements Function<FindUniqueCodeRequest, StoredUniqueCode> {
+
+    private final CodeLookup codeLookup;
+
+    @Override
+    public StoredUniqueCode apply(final FindUniqueCodeRequest request) {
+        return codeLookup.find(request.getCode()).orElse(null);
+    }
+}
@@ -0,0 +1,9 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+@Data
+public class FindUniqueCodeRequest {
+
+    private String code;
+}
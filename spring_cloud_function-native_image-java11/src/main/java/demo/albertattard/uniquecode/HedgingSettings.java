@@ -0,0 +1,32 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class HedgingSettings {
+
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration initialDelay;
+    private final Duration minimumDelay;
+
+    public HedgingSettings(final boolean enabled, final double percentile, final Duration initialDelay, final Duration minimumDelay) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + percentile + ".  Percentile must be greater than 0 and at most 100.");
+        }
+        if (initialDelay.isNegative() || minimumDelay.isNegative()) {
+            throw new IllegalArgumentException("Invalid hedging delay.  The initial and minimum delays must not be negative.");
+        }
+
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.initialDelay = initialDelay;
+        this.minimumDelay = minimumDelay;
+    }
+
+    public static HedgingSettings disabled() {
+        return new HedgingSettings(false, 95, Duration.ofMillis(50), Duration.ofMillis(5));
+    }
+}
@@ -0,0 +1,31 @@
+package demo.albertattard.uniquecode;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+import java.util.Locale;
+
+/*
+ * Creates the HTTP client of the DynamoDB client.  The URL connection client loads the fewest classes and suits the
+ * Lambda functions, which handle one request at a time and are started often.  The Apache client takes longer to start
+ * but keeps a pool of connections, which suits the long-running deployments that handle many requests concurrently.
+ */
+public final class HttpClients {
+
+    private HttpClients() {
+    }
+
+    public static SdkHttpClient of(final String type, final int maximumConnections) throws IllegalArgumentException {
+        switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "url-connection":
+                return UrlConnectionHttpClient.builder().build();
+            case "apache":
+                return ApacheHttpClient.builder()
+                        .maxConnections(maximumConnections)
+                        .build();
+            default:
+                throw new IllegalArgumentException("Invalid HTTP client " + type + ".  HTTP client must be either url-connection or apache.");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package demo.albertattard.uniquecode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfiguration {
+
+    @Bean
+    public IdempotentRequests idempotentRequests(final DataAccessGateway gateway,
+                                                 @Value("${unique-code.idempotency.enabled:true}") final boolean enabled,
+                                                 @Value("${unique-code.idempotency.maximum-size:10000}") final int maximumSize,
+                                                 @Value("${unique-code.idempotency.time-to-live:PT24H}") final String timeToLive) {
+        final IdempotencySettings settings = new IdempotencySettings(enabled, maximumSize, Duration.parse(timeToLive));
+        return IdempotentRequests.create(gateway, settings);
+    }
+}
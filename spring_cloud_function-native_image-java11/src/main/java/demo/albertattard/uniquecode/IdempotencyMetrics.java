@@ -0,0 +1,19 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+/*
+ * The requests with an idempotency key so far.  The replays are the requests that repeated a key that was already
+ * served, answered either by the container or by the record in the table, without creating a code.  The conflicts are
+ * the requests that found their key reserved by another request with the same key served at the same time, and were
+ * returned the codes of the other request or rejected as still in progress.
+ */
+@Data
+public class IdempotencyMetrics {
+
+    private final long requests;
+    private final long cacheReplays;
+    private final long tableReplays;
+    private final long conflicts;
+    private final int size;
+}
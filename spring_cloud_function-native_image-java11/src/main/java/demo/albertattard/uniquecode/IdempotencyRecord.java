@@ -0,0 +1,43 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/*
+ * The codes served to a request with an idempotency key, returned again to the requests that repeat the key until it
+ * expires.  A key is reserved before its codes are created, and the record has no codes while the request that reserved
+ * it is still being served.  The request hash tells the requests that repeat the key apart from other requests reusing
+ * the same key.
+ */
+@Data
+public class IdempotencyRecord {
+
+    private final String key;
+    private final String requestHash;
+    private final List<String> codes;
+    private final Instant expiresAt;
+
+    public static IdempotencyRecord reserved(final String key, final String requestHash, final Instant expiresAt) {
+        return new IdempotencyRecord(key, requestHash, null, expiresAt);
+    }
+
+    /* Returns the record of the codes served to the request that reserved this key */
+    public IdempotencyRecord served(final List<String> codes, final Instant expiresAt) {
+        return new IdempotencyRecord(key, requestHash, codes, expiresAt);
+    }
+
+    public boolean isInProgress() {
+        return codes == null;
+    }
+
+    public boolean isExpired(final Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+
+    /* Whether the record was written by a request with the same parameters */
+    public boolean matches(final String requestHash) {
+        return this.requestHash != null && this.requestHash.equals(requestHash);
+    }
+}
@@ -0,0 +1,288 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Serves the requests that carry an idempotency key once, and returns the same codes to the requests that repeat the
+ * key, such as the retries of a request that timed out, without generating or writing a code again.  A key is reserved
+ * in the UniqueCodeRequests table, with a conditional put, before any code is created, and the codes served are then
+ * recorded against the reservation and kept for the time to live.  Of two requests with the same key served at the same
+ * time only the one that reserved the key creates codes, while the other is rejected as still in progress, or returned
+ * the codes of the first once these are recorded.  A reservation is released when its codes cannot be created, and
+ * expires after the in progress lease otherwise, thus a request that never completes does not hold its key for a day.
+ * The record of the codes created is written again, after a short backoff, when the write fails.  The request fails
+ * when the codes cannot be recorded, and its reservation is kept, thus its retries are not served new codes.
+ * The hash of the parameters of the request is recorded with the key, and a request that reuses a key with different
+ * parameters is rejected.  The most recent keys are also kept in the container, up to the maximum size, which answers a
+ * retry that reaches the same container without reading the table.  The keys are scoped to the used by of the request,
+ * thus different callers may use the same keys.  The idempotency is best effort, a request whose key cannot be read or
+ * reserved is served as if it had no key.  Every request is served as is when disabled.
+ */
+public class IdempotentRequests {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotentRequests.class);
+
+    /* How often the metrics are logged, in number of requests with an idempotency key */
+    private static final long METRICS_LOG_INTERVAL = 1000;
+
+    /* The longest idempotency key accepted, which keeps the records well within a single write unit */
+    private static final int MAXIMUM_KEY_LENGTH = 128;
+
+    /* How long a key is reserved by a request that is still being served, the longest a Lambda function runs */
+    private static final Duration IN_PROGRESS_LEASE = Duration.ofMinutes(15);
+
+    /* How many times the codes created are recorded before the request fails, and the backoff before the second time */
+    private static final int RECORD_ATTEMPTS = 3;
+    private static final Duration RECORD_BACKOFF = Duration.ofMillis(50);
+
+    private final DataAccessGateway gateway;
+    private final IdempotencySettings settings;
+    private final Supplier<Instant> clock;
+    private final Map<String, IdempotencyRecord> records;
+    private final AtomicLong requests = new AtomicLong();
+    private final LongAdder cacheReplays = new LongAdder();
+    private final LongAdder tableReplays = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    public IdempotentRequests(final DataAccessGateway gateway, final IdempotencySettings settings, final Supplier<Instant> clock) {
+        this.gateway = gateway;
+        this.settings = settings;
+        this.clock = clock;
+        this.records = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > settings.getMaximumSize();
+            }
+        };
+    }
+
+    public static IdempotentRequests create(final DataAccessGateway gateway, final IdempotencySettings settings) {
+        return new IdempotentRequests(gateway, settings, Instant::now);
+    }
+
+    public static IdempotentRequests disabled() {
+        return new IdempotentRequests(null, IdempotencySettings.disabled(), Instant::now);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /* Returns the codes already served to the idempotency key of the request, or creates and records new codes */
+    public UniqueCode serve(final CreateUniqueCodeRequest request, final Supplier<UniqueCode> create) {
+        /* The codes are created and recorded by the calling thread, unless the record is written again after a backoff */
+        try {
+            return serveAsync(request, () -> CompletableFuture.completedFuture(create.get())).join();
+        } catch (final CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /*
+     * Returns the codes already served to the idempotency key of the request, or creates new codes and records these once
+     * created.  The table is read and the key reserved by the calling thread, as the codes claimed from the pool are.
+     */
+    public CompletableFuture<UniqueCode> serveAsync(final CreateUniqueCodeRequest request, final Supplier<CompletableFuture<UniqueCode>> create) {
+        final String idempotencyKey = request.getIdempotencyKey();
+        if (!settings.isEnabled() || idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
+            return create.get();
+        }
+
+        checkKey(idempotencyKey);
+        if (requests.incrementAndGet() % METRICS_LOG_INTERVAL == 0) {
+            LOGGER.info("Idempotent requests {}", metrics());
+        }
+
+        final String key = scopedKey(request.getUsedBy(), idempotencyKey);
+        final String requestHash = requestHash(request);
+        final Instant now = clock.get();
+        final IdempotencyRecord cached = cached(key, now);
+        if (cached != null) {
+            LOGGER.debug("The request with idempotency key {} was already served by this container", idempotencyKey);
+            cacheReplays.increment();
+            return CompletableFuture.completedFuture(replay(cached, idempotencyKey, requestHash));
+        }
+
+        final Optional<IdempotencyRecord> recorded = find(key, now);
+        if (recorded.isPresent()) {
+            LOGGER.debug("The request with idempotency key {} was already served", idempotencyKey);
+            tableReplays.increment();
+            return CompletableFuture.completedFuture(replay(recorded.get(), idempotencyKey, requestHash));
+        }
+
+        final IdempotencyRecord reservation = IdempotencyRecord.reserved(key, requestHash, now.plus(IN_PROGRESS_LEASE));
+        final boolean reserved;
+        try {
+            reserved = gateway.reserveIdempotencyKey(reservation, now, request.getUsedBy());
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Failed to reserve the idempotency key {}, serving the request as if it had no key", key, e);
+            return create.get();
+        }
+
+        if (!reserved) {
+            /* Another request with the same key reserved it first, which is the one to create the codes */
+            final Optional<IdempotencyRecord> other = find(key, now);
+            if (other.isPresent()) {
+                conflicts.increment();
+                return CompletableFuture.completedFuture(replay(other.get(), idempotencyKey, requestHash));
+            }
+            return create.get();
+        }
+
+        final CompletableFuture<UniqueCode> created;
+        try {
+            created = create.get();
+        } catch (final RuntimeException e) {
+            release(reservation, request.getUsedBy());
+            throw e;
+        }
+
+        return created.whenComplete((codes, error) -> {
+            if (error != null) {
+                release(reservation, request.getUsedBy());
+            }
+        }).thenCompose(codes -> {
+            final IdempotencyRecord record = reservation.served(codes.getCodes(), now.plus(settings.getTimeToLive()));
+            return save(record, request.getUsedBy(), 1).thenApply(ignored -> codes);
+        });
+    }
+
+    public IdempotencyMetrics metrics() {
+        final int size;
+        synchronized (records) {
+            size = records.size();
+        }
+        return new IdempotencyMetrics(requests.get(), cacheReplays.sum(), tableReplays.sum(), conflicts.sum(), size);
+    }
+
+    private IdempotencyRecord cached(final String key, final Instant now) {
+        synchronized (records) {
+            final IdempotencyRecord record = records.get(key);
+            if (record == null) {
+                return null;
+            }
+
+            if (record.isExpired(now)) {
+                records.remove(key);
+                return null;
+            }
+            return record;
+        }
+    }
+
+    private void remember(final IdempotencyRecord record) {
+        synchronized (records) {
+            records.put(record.getKey(), record);
+        }
+    }
+
+    private Optional<IdempotencyRecord> find(final String key, final Instant now) {
+        try {
+            return gateway.findIdempotencyRecord(key, now);
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Failed to read the idempotency record {}, serving the request as if it had no key", key, e);
+            return Optional.empty();
+        }
+    }
+
+    /*
+     * Records the codes served, and writes the record again after an exponential backoff when the write fails.  Fails
+     * once the attempts run out, as the codes of a request whose retries would be served other codes cannot be returned.
+     */
+    private CompletableFuture<Void> save(final IdempotencyRecord record, final String usedBy, final int attempt) {
+        try {
+            if (gateway.saveIdempotencyRecord(record, usedBy)) {
+                remember(record);
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (final RuntimeException e) {
+            if (attempt >= RECORD_ATTEMPTS) {
+                LOGGER.warn("Failed to write the idempotency record {} of codes {} (Attempt {} of {}), failing the request",
+                        record.getKey(), record.getCodes(), attempt, RECORD_ATTEMPTS, e);
+                return CompletableFuture.failedFuture(new IllegalStateException("Failed to record the codes served to the request, try again later.", e));
+            }
+
+            final Duration backoff = RECORD_BACKOFF.multipliedBy(1L << (attempt - 1));
+            LOGGER.warn("Failed to write the idempotency record {} of codes {} (Attempt {} of {}), backing off for {}",
+                    record.getKey(), record.getCodes(), attempt, RECORD_ATTEMPTS, backoff, e);
+            return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(backoff.toNanos(), TimeUnit.NANOSECONDS))
+                    .thenCompose(ignored -> save(record, usedBy, attempt + 1));
+        }
+    }
+
+    /* Releases the reservation of a request that failed, thus its retries are served instead of found in progress */
+    private void release(final IdempotencyRecord reservation, final String usedBy) {
+        try {
+            gateway.deleteIdempotencyRecord(reservation, usedBy);
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Failed to release the idempotency key {}, which is released once it expires", reservation.getKey(), e);
+        }
+    }
+
+    /*
+     * Returns the codes of the given record to a request that repeats its key, unless the request has other parameters or
+     * the codes are still being created.
+     */
+    private UniqueCode replay(final IdempotencyRecord record, final String idempotencyKey, final String requestHash) {
+        if (!record.matches(requestHash)) {
+            throw new IllegalArgumentException("Invalid idempotency key " + idempotencyKey + ".  Idempotency key was already used by a request with different parameters.");
+        }
+
+        if (record.isInProgress()) {
+            throw new IllegalStateException("Invalid request.  The request with idempotency key " + idempotencyKey + " is still being served, try again later.");
+        }
+
+        remember(record);
+        return UniqueCode.of(record.getCodes());
+    }
+
+    /* Prefixes the key with the used by and its length, which keeps the keys of different callers apart */
+    private static String scopedKey(final String usedBy, final String idempotencyKey) {
+        final String scope = usedBy == null ? "" : usedBy;
+        return scope.length() + ":" + scope + ":" + idempotencyKey;
+    }
+
+    /* Hashes the parameters that shape the codes, with their lengths, thus no two sets of parameters run together */
+    static String requestHash(final CreateUniqueCodeRequest request) {
+        final StringBuilder parameters = new StringBuilder();
+        for (final Object parameter : Arrays.asList(request.getLength(), request.getAlphabet(), request.getCount(), request.getReference(), request.getDescription())) {
+            if (parameter == null) {
+                parameters.append('-');
+            } else {
+                final String value = parameter.toString();
+                parameters.append(value.length()).append(':').append(value);
+            }
+        }
+
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(parameters.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void checkKey(final String idempotencyKey) throws IllegalArgumentException {
+        if (idempotencyKey.length() > MAXIMUM_KEY_LENGTH) {
+            throw new IllegalArgumentException("Invalid idempotency key " + idempotencyKey + ".  Idempotency key must be at most " + MAXIMUM_KEY_LENGTH + " characters long.");
+        }
+    }
+}
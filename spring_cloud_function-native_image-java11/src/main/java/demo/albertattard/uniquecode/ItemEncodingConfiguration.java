@@ -0,0 +1,15 @@
+package demo.albertattard.uniquecode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ItemEncodingConfiguration {
+
+    @Bean
+    public ItemEncoding itemEncoding(@Value("${unique-code.item-encoding.compact:false}") final boolean compact,
+                                     @Value("${unique-code.item-encoding.compression-threshold:256}") final int compressionThreshold) {
+        return new ItemEncoding(compact, compressionThreshold);
+    }
+}
@@ -0,0 +1,35 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class RetrySettings {
+
+    private final int maximumAttempts;
+    private final Duration initialBackoff;
+    private final Duration maximumBackoff;
+    private final Duration timeBudget;
+
+    public RetrySettings(final int maximumAttempts, final Duration initialBackoff, final Duration maximumBackoff, final Duration timeBudget) {
+        if (maximumAttempts < 1) {
+            throw new IllegalArgumentException("Invalid maximum attempts " + maximumAttempts + ".  Maximum attempts must be at least 1.");
+        }
+        if (initialBackoff.isNegative() || maximumBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("Invalid backoff.  The initial backoff must not be negative and must not exceed the maximum backoff.");
+        }
+        if (timeBudget.isNegative() || timeBudget.isZero()) {
+            throw new IllegalArgumentException("Invalid time budget " + timeBudget + ".  Time budget must be positive.");
+        }
+
+        this.maximumAttempts = maximumAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maximumBackoff = maximumBackoff;
+        this.timeBudget = timeBudget;
+    }
+
+    public static RetrySettings defaults() {
+        return new RetrySettings(5, Duration.ofMillis(50), Duration.ofSeconds(1), Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,21 @@
+package demo.albertattard.uniquecode;
+
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Function;
+
+/* Verifies the given codes in bulk and returns those that were found and those that were not.  Selected with the VerifyUniqueCodes function name. */
+@Service
+@Qualifier("VerifyUniqueCodes")
+@AllArgsConstructor
+public class VerifyUniqueCodesFunction implements Function<VerifyUniqueCodesRequest, CodeVerification> {
+
+    private final CodeVerifier codeVerifier;
+
+    @Override
+    public CodeVerification apply(final VerifyUniqueCodesRequest request) {
+        return codeVerifier.verify(request.getCodes());
+    }
+}
@@ -0,0 +1,12 @@
+package demo.albertattard.uniquecode;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class VerifyUniqueCodesRequest {
+
+    /* The codes to verify, which may contain duplicates */
+    private List<String> codes;
+}
@@ -0,0 +1,226 @@
+package demo.albertattard.uniquecode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Keeps the writes within the write capacity of the table, so that a burst of writes queues briefly in the container
+ * instead of being throttled by DynamoDB.  The governor is a token bucket that refills at the write capacity and holds
+ * one second worth of capacity.  A write takes the capacity it is estimated to consume and waits, at most the maximum
+ * wait, when the bucket runs dry.  The estimate is then corrected with the capacity the write actually consumed.
+ *
+ * The write capacity starts at the provisioned write capacity of the table and adapts to throttling (AIMD).  It is
+ * halved when a write is throttled and recovers by a tenth of a unit with every successful write.
+ */
+public class WriteGovernor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteGovernor.class);
+
+    /* How often the metrics are logged, in number of acquisitions */
+    private static final long METRICS_LOG_INTERVAL = 1000;
+
+    /* The share of the write capacity kept after a write is throttled */
+    private static final double DECREASE_FACTOR = 0.5;
+
+    /* The write capacity is never decreased below this share of the provisioned write capacity */
+    private static final double MINIMUM_SHARE = 0.1;
+
+    /* The write capacity added back with every successful write */
+    private static final double ADDITIVE_INCREASE = 0.1;
+
+    /* The writes throttled within this period are taken as one, as these are most likely caused by the same burst */
+    private static final long DECREASE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double provisionedCapacity;
+    private final long maximumWaitInNanos;
+    private final LongSupplier nanoTime;
+    private final Sleeper sleeper;
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitedInNanos = new LongAdder();
+    private final LongAdder throttles = new LongAdder();
+
+    /* Guarded by this */
+    private double capacity;
+    private double tokens;
+    private long refilledAt;
+    private long decreasedAt;
+
+    public WriteGovernor(final double provisionedCapacity, final Duration maximumWait, final LongSupplier nanoTime, final Sleeper sleeper) {
+        if (provisionedCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid write capacity " + provisionedCapacity + ".  Write capacity must be positive.");
+        }
+        if (maximumWait.isNegative()) {
+            throw new IllegalArgumentException("Invalid maximum wait " + maximumWait + ".  Maximum wait must not be negative.");
+        }
+
+        this.enabled = true;
+        this.provisionedCapacity = provisionedCapacity;
+        this.maximumWaitInNanos = maximumWait.toNanos();
+        this.nanoTime = nanoTime;
+        this.sleeper = sleeper;
+        this.capacity = provisionedCapacity;
+        this.tokens = bucketSize();
+        this.refilledAt = nanoTime.getAsLong();
+        this.decreasedAt = refilledAt - DECREASE_INTERVAL;
+    }
+
+    private WriteGovernor() {
+        this.enabled = false;
+        this.provisionedCapacity = 0;
+        this.maximumWaitInNanos = 0;
+        this.nanoTime = System::nanoTime;
+        this.sleeper = null;
+    }
+
+    public static WriteGovernor create(final double provisionedCapacity, final Duration maximumWait) {
+        return new WriteGovernor(provisionedCapacity, maximumWait, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    /* Reads the provisioned write capacity of the given table, which is disabled when the table is on-demand */
+    public static WriteGovernor forTable(final DynamoDbClient client, final String tableName, final Duration maximumWait) {
+        final TableDescription table;
+        try {
+            table = client.describeTable(builder -> builder.tableName(tableName)).table();
+        } catch (final SdkException e) {
+            LOGGER.warn("Failed to read the write capacity of the {} table, the writes are not governed", tableName, e);
+            return disabled();
+        }
+
+        final Long writeCapacity = table.provisionedThroughput() == null ? null : table.provisionedThroughput().writeCapacityUnits();
+        final boolean onDemand = table.billingModeSummary() != null && table.billingModeSummary().billingMode() == BillingMode.PAY_PER_REQUEST;
+        if (onDemand || writeCapacity == null || writeCapacity <= 0) {
+            LOGGER.info("The {} table is on-demand, the writes are not governed", tableName);
+            return disabled();
+        }
+
+        LOGGER.info("Governing the writes to the {} table at {} write capacity units", tableName, writeCapacity);
+        return create(writeCapacity, maximumWait);
+    }
+
+    public static WriteGovernor disabled() {
+        return new WriteGovernor();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* Takes the given capacity from the bucket, waiting for the bucket to refill when it does not hold enough */
+    public void acquire(final double units) {
+        if (!enabled) {
+            return;
+        }
+
+        final long count = acquisitions.incrementAndGet();
+        if (count % METRICS_LOG_INTERVAL == 0) {
+            LOGGER.info("Write governor {}", metrics());
+        }
+
+        final long wait;
+        synchronized (this) {
+            refill();
+            /* The capacity taken beyond the bucket is owed and paid by waiting, for at most the maximum wait */
+            tokens = Math.max(tokens - units, -capacity * maximumWaitInNanos / TimeUnit.SECONDS.toNanos(1));
+            wait = tokens < 0 ? (long) (-tokens / capacity * TimeUnit.SECONDS.toNanos(1)) : 0;
+        }
+
+        if (wait > 0) {
+            waits.increment();
+            waitedInNanos.add(wait);
+            sleep(wait);
+        }
+    }
+
+    /* Whether the bucket holds the given capacity, thus a write of it would not wait */
+    public boolean hasCapacity(final double units) {
+        if (!enabled) {
+            return true;
+        }
+
+        synchronized (this) {
+            refill();
+            return tokens >= units;
+        }
+    }
+
+    /* Corrects the estimate with the consumed capacity, when known, and raises the write capacity */
+    public void onConsumed(final double estimatedUnits, final Double consumedUnits) {
+        if (!enabled) {
+            return;
+        }
+
+        synchronized (this) {
+            if (consumedUnits != null) {
+                tokens -= consumedUnits - estimatedUnits;
+            }
+            capacity = Math.min(provisionedCapacity, capacity + ADDITIVE_INCREASE);
+        }
+    }
+
+    /* Lowers the write capacity and empties the bucket, as the table has no capacity left */
+    public void onThrottled() {
+        if (!enabled) {
+            return;
+        }
+
+        throttles.increment();
+        synchronized (this) {
+            refill();
+            tokens = Math.min(tokens, 0);
+
+            final long now = nanoTime.getAsLong();
+            if (now - decreasedAt >= DECREASE_INTERVAL) {
+                capacity = Math.max(provisionedCapacity * MINIMUM_SHARE, capacity * DECREASE_FACTOR);
+                decreasedAt = now;
+                LOGGER.warn("A write was throttled, lowering the write capacity to {} units", capacity);
+            }
+        }
+    }
+
+    public WriteGovernorMetrics metrics() {
+        final double currentCapacity;
+        final double fill;
+        synchronized (this) {
+            if (enabled) {
+                refill();
+            }
+            currentCapacity = capacity;
+            fill = enabled ? Math.max(tokens, 0) / bucketSize() : 0;
+        }
+
+        return new WriteGovernorMetrics(currentCapacity, fill, acquisitions.get(), waits.sum(), Duration.ofNanos(waitedInNanos.sum()),
+                throttles.sum());
+    }
+
+    private void refill() {
+        final long now = nanoTime.getAsLong();
+        tokens = Math.min(bucketSize(), tokens + capacity * (now - refilledAt) / TimeUnit.SECONDS.toNanos(1));
+        refilledAt = now;
+    }
+
+    /* One second worth of write capacity, but never less than the single unit a write consumes */
+    private double bucketSize() {
+        return Math.max(capacity, 1);
+    }
+
+    private void sleep(final long nanos) {
+        try {
+            sleeper.sleep(nanos);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for write capacity", e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CapacityAccountingTest {
+
+    @Test
+    @DisplayName("should account for the capacity consumed by every attempt of a request, including the collisions")
+    @SuppressWarnings("unchecked")
+    void shouldAccountForTheCapacityConsumedByEveryAttemptOfARequestIncludingTheCollisions() {
+        final DynamoDbClient client = mock(DynamoDbClient.class);
+        when(client.putItem(any(Consumer.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("Simulating a code that exists").build())
+                .thenReturn(PutItemResponse.builder().consumedCapacity(ConsumedCapacity.builder().capacityUnits(1.0).build()).build());
+
+        final CodeGenerationService codeGenerationService = mock(CodeGenerationService.class);
+        when(codeGenerationService.generate(anyInt(), any())).thenReturn("AAAAAAAA", "12345678");
+
+        final CapacityAccounting accounting = new CapacityAccounting(true);
+        final DataAccessGateway gateway = new DataAccessGateway(client, WriteGovernor.disabled(), accounting);
+        final UniqueCodeFunction function = new UniqueCodeFunction(gateway, codeGenerationService, new ClockService(),
+                CodePool.disabled(), IssuedCodeFilter.disabled(), HedgedCodeWriter.disabled(), RetryPolicy.defaults(),
+                mock(Primer.class), DeferredMetadataWriter.disabled(), accounting, IdempotentRequests.disabled());
+
+        final CreateUniqueCodeRequest request = new CreateUniqueCodeRequest();
+        request.setUsedBy("tenant-test");
+        assertThat(function.apply(request).getCode()).isEqualTo("12345678");
+
+        final CapacityMetrics metrics = accounting.metrics();
+        assertThat(metrics.getInvocations()).isEqualTo(1);
+        assertThat(metrics.getWriteUnits()).isEqualTo(2);
+        assertThat(metrics.getCollisionWriteUnits()).isEqualTo(1);
+        assertThat(metrics.getWriteUnitsPerAttempt().getCount()).isEqualTo(2);
+        assertThat(metrics.getWriteUnitsPerInvocation().getMax()).isEqualTo(2);
+        assertThat(metrics.getWriteUnitsByTenant()).containsExactly(Map.entry("tenant-test", 2.0));
+    }
+
+    @Test
+    @DisplayName("should estimate the write units from the size of the item")
+    void shouldEstimateTheWriteUnitsFromTheSizeOfTheItem() {
+        assertThat(DataAccessGateway.writeUnitsOf(Map.of("Code", AttributeValue.builder().s("12345678").build()))).isEqualTo(1);
+        assertThat(DataAccessGateway.writeUnitsOf(Map.of("Description", AttributeValue.builder().s("a".repeat(2048)).build()))).isEqualTo(3);
+        assertThat(DataAccessGateway.writeUnitsOf(Map.of("Description", AttributeValue.builder().s("é".repeat(1024)).build()))).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should report the percentiles as the upper bounds of the buckets, capped at the largest value")
+    void shouldReportThePercentilesAsTheUpperBoundsOfTheBucketsCappedAtTheLargestValue() {
+        final CapacityHistogram histogram = new CapacityHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(1);
+        }
+        histogram.record(3);
+        histogram.record(6);
+
+        final CapacityDistribution distribution = histogram.distribution();
+        assertThat(distribution.getCount()).isEqualTo(100);
+        assertThat(distribution.getTotal()).isEqualTo(107);
+        assertThat(distribution.getP50()).isEqualTo(1);
+        assertThat(distribution.getP99()).isEqualTo(4);
+        assertThat(distribution.getMax()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("should account for the tenants beyond the limit together")
+    void shouldAccountForTheTenantsBeyondTheLimitTogether() {
+        final CapacityAccounting accounting = new CapacityAccounting(true);
+        for (int i = 0; i < 1010; i++) {
+            accounting.recordWrite("tenant-" + i, 1, false);
+        }
+        accounting.recordWrite(null, 1, false);
+
+        final Map<String, Double> byTenant = accounting.metrics().getWriteUnitsByTenant();
+        assertThat(byTenant).hasSize(1001);
+        assertThat(byTenant.get("(other)")).isEqualTo(11);
+        assertThat(byTenant).doesNotContainKey("(none)");
+    }
+
+    @Test
+    @DisplayName("should add the reads and writes made on another thread on behalf of a request to that request")
+    void shouldAddTheReadsAndWritesMadeOnAnotherThreadOnBehalfOfARequestToThatRequest() {
+        final CapacityAccounting accounting = new CapacityAccounting(true);
+        final InvocationCapacity invocation = accounting.begin("tenant-test");
+
+        final InvocationCapacity current = accounting.current();
+        CompletableFuture.supplyAsync(() -> accounting.onBehalfOf(current, () -> {
+            accounting.recordWrite("tenant-test", 2, true);
+            accounting.recordRead(0.5);
+            return true;
+        })).join();
+        CompletableFuture.runAsync(() -> accounting.recordWrite("tenant-test", 4, false)).join();
+        accounting.end(invocation);
+
+        assertThat(invocation.getAttempts()).isEqualTo(1);
+        assertThat(invocation.getWriteUnits()).isEqualTo(2);
+        assertThat(invocation.getCollisionWriteUnits()).isEqualTo(2);
+        assertThat(invocation.getReadUnits()).isEqualTo(0.5);
+        assertThat(accounting.metrics().getWriteUnits()).isEqualTo(6);
+        assertThat(accounting.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("should not account for anything when disabled")
+    void shouldNotAccountForAnythingWhenDisabled() {
+        final CapacityAccounting accounting = CapacityAccounting.disabled();
+
+        final InvocationCapacity invocation = accounting.begin("tenant-test");
+        accounting.recordWrite("tenant-test", 1, true);
+        accounting.recordRead(1);
+        accounting.end(invocation);
+
+        assertThat(invocation).isNull();
+        assertThat(accounting.metrics().getInvocations()).isEqualTo(0);
+        assertThat(accounting.metrics().getWriteUnits()).isEqualTo(0);
+        assertThat(accounting.metrics().getWriteUnitsByTenant()).isEmpty();
+    }
+}
@@ -0,0 +1,143 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EntropyPoolTest {
+
+    @Test
+    @DisplayName("should keep returning random values after the first block is used")
+    void shouldKeepReturningRandomValuesAfterTheFirstBlockIsUsed() {
+        final EntropyPool pool = new EntropyPool(new SecureRandom(), 16, null);
+
+        final int numberOfValues = 1000;
+        final Set<Long> observed = new HashSet<>(numberOfValues);
+        for (int i = 0; i < numberOfValues; i++) {
+            observed.add(pool.nextLong());
+        }
+
+        assertThat(observed)
+                .describedAs("64-bit random values are not expected to repeat")
+                .hasSize(numberOfValues);
+    }
+
+    @Test
+    @DisplayName("should never hand out the same value twice to concurrent callers")
+    void shouldNeverHandOutTheSameValueTwiceToConcurrentCallers() throws Exception {
+        final ExecutorService refillExecutor = Executors.newSingleThreadExecutor();
+        final ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            final EntropyPool pool = new EntropyPool(new SecureRandom(), 64, refillExecutor);
+
+            final int valuesPerCaller = 10_000;
+            final List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final Callable<List<Long>> caller = () -> {
+                    final List<Long> values = new ArrayList<>(valuesPerCaller);
+                    for (int j = 0; j < valuesPerCaller; j++) {
+                        values.add(pool.nextLong());
+                    }
+                    return values;
+                };
+                futures.add(callers.submit(caller));
+            }
+
+            final Set<Long> observed = new HashSet<>();
+            for (final Future<List<Long>> future : futures) {
+                observed.addAll(future.get());
+            }
+
+            assertThat(observed)
+                    .describedAs("Every caller must be given different values")
+                    .hasSize(8 * valuesPerCaller);
+        } finally {
+            callers.shutdownNow();
+            refillExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("should reject a block size smaller than 2")
+    void shouldRejectABlockSizeSmallerThan2() {
+        assertThrows(IllegalArgumentException.class, () -> new EntropyPool(new SecureRandom(), 1, null));
+    }
+
+    @Test
+    @DisplayName("should not repeat the values of another pool restored from the same state once reseeded")
+    void shouldNotRepeatTheValuesOfAnotherPoolRestoredFromTheSameStateOnceReseeded() throws Exception {
+        /* Two pools whose SecureRandom is seeded alike draw the same values, as two containers restored from one checkpoint */
+        final EntropyPool first = new EntropyPool(seededSecureRandom(), 16, null);
+        final EntropyPool second = new EntropyPool(seededSecureRandom(), 16, null);
+        assertThat(first.nextLong()).isEqualTo(second.nextLong());
+
+        first.reseed();
+        second.reseed();
+
+        final Set<Long> observed = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            observed.add(first.nextLong());
+            observed.add(second.nextLong());
+        }
+        assertThat(observed).hasSize(200);
+    }
+
+    @Test
+    @DisplayName("should discard a block drawn before the pool is reseeded, even when it lands in the pool after")
+    void shouldDiscardABlockDrawnBeforeThePoolIsReseededEvenWhenItLandsInThePoolAfter() {
+        final List<Runnable> refills = new ArrayList<>();
+        final AtomicReference<Runnable> duringNextFill = new AtomicReference<>();
+        final SecureRandom secureRandom = new SecureRandom() {
+            private long fills;
+
+            @Override
+            public void nextBytes(final byte[] bytes) {
+                final long fill = ++fills;
+                final Runnable action = duringNextFill.getAndSet(null);
+                if (action != null) {
+                    action.run();
+                }
+
+                /* Every word of a block holds the number of the fill that drew it */
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    buffer.putLong(fill);
+                }
+            }
+        };
+        final EntropyPool pool = new EntropyPool(secureRandom, 4, refills::add);
+        for (int i = 0; i < 3; i++) {
+            assertThat(pool.nextLong()).isEqualTo(1);
+        }
+
+        /* The second block is still being drawn in the background when the pool is reseeded, as after a restore */
+        duringNextFill.set(pool::reseed);
+        new ArrayList<>(refills).forEach(Runnable::run);
+
+        final Set<Long> observed = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            observed.add(pool.nextLong());
+        }
+        assertThat(observed).containsExactlyInAnyOrder(3L, 4L);
+    }
+
+    private static SecureRandom seededSecureRandom() throws Exception {
+        final SecureRandom secureRandom = SecureRandom.getInstance("SHA1PRNG");
+        secureRandom.setSeed(42);
+        return secureRandom;
+    }
+}
@@ -0,0 +1,33 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FindUniqueCodeFunctionTest {
+
+    @Test
+    @DisplayName("should return the code as stored, or nothing when the code does not exist")
+    void shouldReturnTheCodeAsStoredOrNothingWhenTheCodeDoesNotExist() {
+        final CodeLookup codeLookup = mock(CodeLookup.class);
+        final StoredUniqueCode stored = new StoredUniqueCode("12345678", "2077-04-27T12:34:56+01:00[Europe/Berlin]", "used-by-test", null, null);
+        when(codeLookup.find("12345678")).thenReturn(Optional.of(stored));
+        when(codeLookup.find("23456789")).thenReturn(Optional.empty());
+
+        final FindUniqueCodeFunction function = new FindUniqueCodeFunction(codeLookup);
+
+        assertThat(function.apply(request("12345678"))).isEqualTo(stored);
+        assertThat(function.apply(request("23456789"))).isNull();
+    }
+
+    private static FindUniqueCodeRequest request(final String code) {
+        final FindUniqueCodeRequest request = new FindUniqueCodeRequest();
+        request.setCode(code);
+        return request;
+    }
+}
@@ -0,0 +1,35 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HttpClientsTest {
+
+    @Test
+    @DisplayName("should create the URL connection client")
+    void shouldCreateTheUrlConnectionClient() {
+        try (SdkHttpClient client = HttpClients.of("url-connection", 50)) {
+            assertThat(client).isInstanceOf(UrlConnectionHttpClient.class);
+        }
+    }
+
+    @Test
+    @DisplayName("should create the Apache client ignoring the case and the surrounding whitespace")
+    void shouldCreateTheApacheClientIgnoringTheCaseAndTheSurroundingWhitespace() {
+        try (SdkHttpClient client = HttpClients.of(" Apache ", 50)) {
+            assertThat(client).isInstanceOf(ApacheHttpClient.class);
+        }
+    }
+
+    @Test
+    @DisplayName("should reject an HTTP client that is not supported")
+    void shouldRejectAnHttpClientThatIsNotSupported() {
+        assertThrows(IllegalArgumentException.class, () -> HttpClients.of("crt", 50));
+    }
+}
@@ -0,0 +1,96 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IssuedCodeFilterTest {
+
+    @Test
+    @DisplayName("should skip the codes that are in the filter and count the round-trips saved")
+    void shouldSkipTheCodesThatAreInTheFilterAndCountTheRoundTripsSaved() {
+        final IssuedCodeFilter issuedCodes = new IssuedCodeFilter(BloomFilter.create(1_000, 0.01), 0);
+        issuedCodes.add("11111111");
+
+        assertThat(issuedCodes.isIssued("11111111")).isTrue();
+        assertThat(issuedCodes.isIssued("22222222")).isFalse();
+
+        final IssuedCodeFilterMetrics metrics = issuedCodes.metrics();
+        assertThat(metrics.getLookups()).isEqualTo(2);
+        assertThat(metrics.getSkipped()).isEqualTo(1);
+        assertThat(metrics.getRoundTripsSaved()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should learn the codes that were saved or found taken")
+    void shouldLearnTheCodesThatWereSavedOrFoundTaken() {
+        final IssuedCodeFilter issuedCodes = new IssuedCodeFilter(BloomFilter.create(1_000, 0.01), 0);
+        issuedCodes.onSaved("11111111");
+        issuedCodes.onTaken("22222222");
+
+        assertThat(issuedCodes.isIssued("11111111")).isTrue();
+        assertThat(issuedCodes.isIssued("22222222")).isTrue();
+        assertThat(issuedCodes.metrics().getFalsePositives()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should count a verified code that is saved as a false positive")
+    void shouldCountAVerifiedCodeThatIsSavedAsAFalsePositive() {
+        final IssuedCodeFilter issuedCodes = new IssuedCodeFilter(BloomFilter.create(1_000, 0.01), 1);
+        issuedCodes.add("11111111");
+        issuedCodes.add("22222222");
+
+        /* Every code found in the filter is verified, thus none is skipped */
+        assertThat(issuedCodes.isIssued("11111111")).isFalse();
+        assertThat(issuedCodes.isIssued("22222222")).isFalse();
+        issuedCodes.onSaved("11111111");
+        issuedCodes.onTaken("22222222");
+
+        final IssuedCodeFilterMetrics metrics = issuedCodes.metrics();
+        assertThat(metrics.getSkipped()).isEqualTo(0);
+        assertThat(metrics.getVerified()).isEqualTo(2);
+        assertThat(metrics.getFalsePositives()).isEqualTo(1);
+        assertThat(metrics.getObservedFalsePositiveRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("should load the filter from the snapshot")
+    void shouldLoadTheFilterFromTheSnapshot(@TempDir final Path directory) throws IOException {
+        final BloomFilter filter = BloomFilter.create(1_000, 0.01);
+        filter.add("11111111");
+
+        final Path snapshot = directory.resolve("issued-codes.bloom");
+        try (OutputStream outputStream = Files.newOutputStream(snapshot)) {
+            filter.writeTo(outputStream);
+        }
+
+        final IssuedCodeFilter issuedCodes = IssuedCodeFilter.load(snapshot.toString(), 1_000, 0.01, 0);
+        assertThat(issuedCodes.isIssued("11111111")).isTrue();
+        assertThat(issuedCodes.isIssued("22222222")).isFalse();
+    }
+
+    @Test
+    @DisplayName("should start with an empty filter when the snapshot does not exist")
+    void shouldStartWithAnEmptyFilterWhenTheSnapshotDoesNotExist(@TempDir final Path directory) {
+        final IssuedCodeFilter issuedCodes = IssuedCodeFilter.load(directory.resolve("missing.bloom").toString(), 1_000, 0.01, 0);
+        assertThat(issuedCodes.isEnabled()).isTrue();
+        assertThat(issuedCodes.isIssued("11111111")).isFalse();
+    }
+
+    @Test
+    @DisplayName("should never skip a code when disabled")
+    void shouldNeverSkipACodeWhenDisabled() {
+        final IssuedCodeFilter issuedCodes = IssuedCodeFilter.disabled();
+        issuedCodes.add("11111111");
+
+        assertThat(issuedCodes.isIssued("11111111")).isFalse();
+        assertThat(issuedCodes.metrics().getLookups()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,74 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SequentialCodeGeneratorTest {
+
+    private final AtomicLong counter = new AtomicLong();
+    private final AtomicInteger leases = new AtomicInteger();
+    private final SequenceBlockSource blockSource = (name, size) -> {
+        leases.incrementAndGet();
+        return counter.getAndAdd(size);
+    };
+
+    @Test
+    @DisplayName("should issue every code of the given length and alphabet once and then fail")
+    void shouldIssueEveryCodeOfTheGivenLengthAndAlphabetOnceAndThenFail() {
+        final SequentialCodeGenerator generator = new SequentialCodeGenerator(blockSource, "test-key", 100);
+
+        final int numberOfCodes = 36 * 36;
+        final Set<String> observed = new HashSet<>(numberOfCodes);
+        for (int attempt = 1; attempt <= numberOfCodes; attempt++) {
+            final String code = generator.generate(Alphabet.ALPHANUMERIC, 2);
+            assertThat(code).matches("[A-Z0-9]{2}");
+            assertThat(observed.add(code))
+                    .describedAs("Found a duplicate code '%s' after %d attempts", code, attempt)
+                    .isTrue();
+        }
+
+        assertThrows(IllegalStateException.class, () -> generator.generate(Alphabet.ALPHANUMERIC, 2));
+    }
+
+    @Test
+    @DisplayName("should lease a new block only when the current block is used")
+    void shouldLeaseANewBlockOnlyWhenTheCurrentBlockIsUsed() {
+        final SequentialCodeGenerator generator = new SequentialCodeGenerator(blockSource, "test-key", 100);
+
+        for (int i = 0; i < 250; i++) {
+            generator.generate(Alphabet.ALPHANUMERIC, 8);
+        }
+        assertThat(leases).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("should not support the codes with more combinations than the permutation supports")
+    void shouldNotSupportTheCodesWithMoreCombinationsThanThePermutationSupports() {
+        final SequentialCodeGenerator generator = new SequentialCodeGenerator(blockSource, "test-key", 100);
+
+        assertThat(generator.supports(Alphabet.ALPHANUMERIC, 12)).isTrue();
+        assertThat(generator.supports(Alphabet.ALPHANUMERIC, 13)).isFalse();
+        assertThat(generator.supports(Alphabet.DIGITS, 18)).isTrue();
+        assertThat(generator.supports(Alphabet.DIGITS, 19)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should not support any code when disabled")
+    void shouldNotSupportAnyCodeWhenDisabled() {
+        assertThat(SequentialCodeGenerator.of("random", blockSource, "", 100).supports(Alphabet.ALPHANUMERIC, 8)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should require a key in the sequential mode")
+    void shouldRequireAKeyInTheSequentialMode() {
+        assertThrows(IllegalArgumentException.class, () -> SequentialCodeGenerator.of("sequential", blockSource, " ", 100));
+    }
+}
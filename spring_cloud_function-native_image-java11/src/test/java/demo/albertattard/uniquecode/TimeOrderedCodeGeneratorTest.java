@@ -0,0 +1,119 @@
+package demo.albertattard.uniquecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimeOrderedCodeGeneratorTest {
+
+    private static final Instant NOW = Instant.parse("2021-03-20T10:11:12.123Z");
+
+    /* A clock that only moves when the test moves it */
+    private final AtomicLong now = new AtomicLong(NOW.toEpochMilli());
+    private final TimeOrderedCodeGenerator generator = new TimeOrderedCodeGenerator(now::get);
+    private final CodeGenerationService codeGenerationService =
+            new CodeGenerationService(RandomSource.fast(), Alphabets.defaults(), SequentialCodeGenerator.disabled(), generator);
+
+    @Test
+    @DisplayName("should create codes that sort by the time they were created and start with the time")
+    void shouldCreateCodesThatSortByTheTimeTheyWereCreatedAndStartWithTheTime() {
+        final List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            codes.add(codeGenerationService.generate(20));
+            now.addAndGet(i % 3);
+        }
+
+        assertThat(codes).isSorted();
+        assertThat(codes).allMatch(code -> code.matches("[0-9A-Z]{20}"));
+        assertThat(TimeOrderedCodeGenerator.timeOf(codes.get(0), Alphabet.ALPHANUMERIC)).isEqualTo(NOW);
+        assertThat(codes.get(0)).startsWith(TimeOrderedCodeGenerator.prefixOf(NOW, Alphabet.ALPHANUMERIC));
+        assertThat(codes.get(codes.size() - 1)).isGreaterThanOrEqualTo(TimeOrderedCodeGenerator.prefixOf(Instant.ofEpochMilli(now.get()), Alphabet.ALPHANUMERIC));
+    }
+
+    @Test
+    @DisplayName("should keep creating codes that sort after the previous ones when the wall clock goes back")
+    void shouldKeepCreatingCodesThatSortAfterThePreviousOnesWhenTheWallClockGoesBack() {
+        final String before = codeGenerationService.generate(20);
+        now.addAndGet(-60_000);
+        final String after = codeGenerationService.generate(20);
+        now.addAndGet(120_000);
+        final String ahead = codeGenerationService.generate(20);
+
+        assertThat(after).isGreaterThan(before);
+        assertThat(TimeOrderedCodeGenerator.timeOf(after, Alphabet.ALPHANUMERIC)).isEqualTo(NOW);
+        assertThat(TimeOrderedCodeGenerator.timeOf(ahead, Alphabet.ALPHANUMERIC)).isEqualTo(NOW.plusSeconds(60));
+    }
+
+    @Test
+    @DisplayName("should create distinct prefixes within the same millisecond, without drawing on the random symbols")
+    void shouldCreateDistinctPrefixesWithinTheSameMillisecondWithoutDrawingOnTheRandomSymbols() {
+        final int prefixLength = TimeOrderedCodeGenerator.prefixLength(Alphabet.ALPHANUMERIC);
+        final Set<String> prefixes = new HashSet<>();
+        String previous = "";
+        for (int i = 0; i < 70_000; i++) {
+            final String prefix = codeGenerationService.generate(prefixLength + 4).substring(0, prefixLength);
+            assertThat(prefix).isGreaterThan(previous);
+            prefixes.add(prefix);
+            previous = prefix;
+        }
+
+        /* Beyond 65536 codes in a millisecond the clock borrows the following millisecond */
+        assertThat(prefixes).hasSize(70_000);
+        assertThat(TimeOrderedCodeGenerator.timeOf(previous, Alphabet.ALPHANUMERIC)).isEqualTo(NOW.plusMillis(1));
+    }
+
+    @ParameterizedTest(name = "with the {0} alphabet")
+    @ValueSource(strings = {"alphanumeric", "crockford-base32", "digits", "hex", "unambiguous", "custom"})
+    @DisplayName("should write the prefix in the symbols of the alphabet in ascending order, whatever their order in the alphabet")
+    void shouldWriteThePrefixInTheSymbolsOfTheAlphabetInAscendingOrderWhateverTheirOrderInTheAlphabet(final String name) {
+        final Alphabet alphabet = new Alphabets("alphanumeric", "TGCA").get(name);
+
+        final String earlier = TimeOrderedCodeGenerator.prefixOf(NOW, alphabet);
+        final String later = TimeOrderedCodeGenerator.prefixOf(NOW.plusMillis(1), alphabet);
+        assertThat(later).isGreaterThan(earlier);
+        assertThat(TimeOrderedCodeGenerator.timeOf(later, alphabet)).isEqualTo(NOW.plusMillis(1));
+    }
+
+    @Test
+    @DisplayName("should fit any 64-bit timestamp in the prefix")
+    void shouldFitAny64BitTimestampInThePrefix() {
+        assertThat(TimeOrderedCodeGenerator.prefixLength(Alphabet.ALPHANUMERIC)).isEqualTo(13);
+        assertThat(TimeOrderedCodeGenerator.prefixLength(Alphabet.CROCKFORD_BASE32)).isEqualTo(13);
+        assertThat(TimeOrderedCodeGenerator.prefixLength(Alphabet.DIGITS)).isEqualTo(20);
+        assertThat(TimeOrderedCodeGenerator.prefixLength(Alphabet.HEX)).isEqualTo(16);
+        assertThat(TimeOrderedCodeGenerator.prefixLength(new Alphabet("custom", "AB"))).isEqualTo(64);
+    }
+
+    @Test
+    @DisplayName("should leave the codes too short for the prefix and the random symbols to the random generation")
+    void shouldLeaveTheCodesTooShortForThePrefixAndTheRandomSymbolsToTheRandomGeneration() {
+        assertThat(generator.supports(Alphabet.ALPHANUMERIC, 16)).isFalse();
+        assertThat(generator.supports(Alphabet.ALPHANUMERIC, 17)).isTrue();
+        assertThat(TimeOrderedCodeGenerator.minimumLength(Alphabet.ALPHANUMERIC)).isEqualTo(17).isGreaterThan(CreateUniqueCodeRequest.DEFAULT_LENGTH);
+        assertThat(TimeOrderedCodeGenerator.minimumLength(Alphabet.HEX)).isEqualTo(20);
+        assertThat(codeGenerationService.generate(8)).hasSize(8);
+        assertThat(TimeOrderedCodeGenerator.disabled().supports(Alphabet.ALPHANUMERIC, 20)).isFalse();
+        assertThat(TimeOrderedCodeGenerator.disabled().isEnabled()).isFalse();
+        assertThat(TimeOrderedCodeGenerator.of("random").supports(Alphabet.ALPHANUMERIC, 20)).isFalse();
+        assertThat(TimeOrderedCodeGenerator.of("time-ordered").supports(Alphabet.ALPHANUMERIC, 20)).isTrue();
+        assertThat(SequentialCodeGenerator.of("time-ordered", null, "", 100).supports(Alphabet.ALPHANUMERIC, 8)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should reject a code that does not start with a prefix")
+    void shouldRejectACodeThatDoesNotStartWithAPrefix() {
+        assertThrows(IllegalArgumentException.class, () -> TimeOrderedCodeGenerator.timeOf("12345678", Alphabet.ALPHANUMERIC));
+        assertThrows(IllegalArgumentException.class, () -> TimeOrderedCodeGenerator.timeOf("abcdefghijklmnop", Alphabet.ALPHANUMERIC));
+    }
+}